@@ -17,6 +17,7 @@
 
 package com.floragunn.searchguard.enterprise.auditlog;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import java.util.concurrent.ExecutionException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.env.Environment;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -42,12 +44,13 @@ import com.floragunn.searchguard.configuration.ConfigurationRepository;
 import com.floragunn.searchguard.license.LicenseChangeListener;
 import com.floragunn.searchguard.license.SearchGuardLicense;
 import com.floragunn.searchguard.license.SearchGuardLicense.Feature;
+import com.floragunn.searchguard.support.CompiledWildcardSet;
 import com.floragunn.searchguard.support.ConfigConstants;
-import com.floragunn.searchguard.support.WildcardMatcher;
 import com.floragunn.searchsupport.StaticSettings;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.hash.Hashing;
 
 public class AuditLogConfig implements LicenseChangeListener {
     
@@ -57,7 +60,9 @@ public class AuditLogConfig implements LicenseChangeListener {
     private final Logger log = LogManager.getLogger(getClass());
     private final Settings settings;
     private final Map<Pattern, Set<String>> readEnabledFields = new HashMap<>(100);
-    private final List<String> watchedWriteIndices;
+    private final Map<Pattern, Double> readSamplingRates = new HashMap<>();
+    private final TimeValue readDedupWindow;
+    private final CompiledWildcardSet watchedWriteIndices;
     private DateTimeFormatter auditLogPattern = null;
     private String auditLogIndex = null;
     private final boolean logDiffsForWrite;
@@ -66,6 +71,7 @@ public class AuditLogConfig implements LicenseChangeListener {
     private final boolean logInternalConfig;
     private final boolean logExternalConfig;
     private final LoadingCache<String, Set<String>> cache;
+    private final LoadingCache<String, Double> samplingRateCache;
     private final Pattern searchguardIndexPattern;
     private volatile boolean enabled = true;
  
@@ -77,12 +83,14 @@ public class AuditLogConfig implements LicenseChangeListener {
         final List<String> watchedReadFields = this.settings.getAsList(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_WATCHED_FIELDS,
                 Collections.emptyList(), false);
 
-        watchedWriteIndices = settings.getAsList(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_WATCHED_INDICES, Collections.emptyList());
+        watchedWriteIndices = CompiledWildcardSet
+                .compile(settings.getAsList(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_WATCHED_INDICES, Collections.emptyList()), false);
         logDiffsForWrite = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_LOG_DIFFS, false);
         logWriteMetadataOnly = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_METADATA_ONLY, false);
         logReadMetadataOnly = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_METADATA_ONLY, false);
         logExternalConfig = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_EXTERNAL_CONFIG_ENABLED, false);
         logInternalConfig = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_INTERNAL_CONFIG_ENABLED, false);
+        readDedupWindow = settings.getAsTime(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_DEDUP_WINDOW, TimeValue.ZERO);
                        
         //searchguard.compliance.pii_fields:
         //  - indexpattern,fieldpattern,fieldpattern,....
@@ -102,6 +110,27 @@ public class AuditLogConfig implements LicenseChangeListener {
             }
         }
 
+        //searchguard.compliance.history.read.sampling:
+        //  - indexpattern,rate
+        for (String sampling : settings.getAsList(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_SAMPLING, Collections.emptyList())) {
+            final List<String> split = Arrays.asList(sampling.split(","));
+            try {
+                if (split.size() != 2) {
+                    throw new IllegalArgumentException("Expected indexpattern,rate: " + sampling);
+                }
+
+                double rate = Double.parseDouble(split.get(1).trim());
+
+                if (rate < 0 || rate > 1) {
+                    throw new IllegalArgumentException("The sampling rate must be between 0 and 1: " + sampling);
+                }
+
+                readSamplingRates.put(Pattern.create(split.get(0).trim()), rate);
+            } catch (ConfigValidationException | IllegalArgumentException e) {
+                throw new RuntimeException("Invalid entry in " + ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_SAMPLING, e);
+            }
+        }
+
         final String type = settings.get(ConfigConstants.SEARCHGUARD_AUDIT_TYPE_DEFAULT, null);
         if("internal_elasticsearch".equalsIgnoreCase(type)) {
             final String index = settings.get(ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_ES_INDEX,"'sg6-auditlog-'YYYY.MM.dd");
@@ -125,6 +154,15 @@ public class AuditLogConfig implements LicenseChangeListener {
                         return getFieldsForIndex0(index);
                     }
                 });
+
+        samplingRateCache = CacheBuilder.newBuilder()
+                .maximumSize(1000)
+                .build(new CacheLoader<String, Double>() {
+                    @Override
+                    public Double load(String index) throws Exception {
+                        return getSamplingRateForIndex0(index);
+                    }
+                });
     }
     
     @Override
@@ -174,6 +212,19 @@ public class AuditLogConfig implements LicenseChangeListener {
         return tmp;
     }
 
+    private double getSamplingRateForIndex0(String index) {
+        // If several patterns match, the highest rate wins; reads of indices without a matching pattern are not sampled
+        double result = -1;
+
+        for (Map.Entry<Pattern, Double> entry : readSamplingRates.entrySet()) {
+            if (entry.getKey().matches(index)) {
+                result = Math.max(result, entry.getValue());
+            }
+        }
+
+        return result == -1 ? 1 : result;
+    }
+
     private String getExpandedIndexName(DateTimeFormatter indexPattern, String index) {
         if(indexPattern == null) {
             return index;
@@ -202,7 +253,7 @@ public class AuditLogConfig implements LicenseChangeListener {
             }
         }
 
-        return WildcardMatcher.matchAny(watchedWriteIndices, index);
+        return watchedWriteIndices.test(index);
     }
 
     //no patterns here as parameters
@@ -243,13 +294,76 @@ public class AuditLogConfig implements LicenseChangeListener {
                 return false;
             }
 
-            return WildcardMatcher.matchAny(fields, field);
+            return CompiledWildcardSet.get(fields, false).test(field);
         } catch (ExecutionException e) {
             log.error(e);
             return true;
         }
     }
 
+    /**
+     * Returns the watched fields of the given index if these are a finite set of field paths. Returns null if the watched fields are defined
+     * by patterns or if all fields are watched.
+     */
+    public Set<String> getLiteralReadWatchedFields(String index) {
+        if (searchguardIndexPattern.matches(index)) {
+            return logInternalConfig ? null : Collections.emptySet();
+        }
+
+        try {
+            Set<String> fields = cache.get(index);
+
+            for (String field : fields) {
+                if (field.contains("*") || field.contains("?")) {
+                    return null;
+                }
+            }
+
+            return fields;
+        } catch (ExecutionException e) {
+            log.error(e);
+            return null;
+        }
+    }
+
+    /**
+     * Decides whether a read of the given document shall be logged. The decision is deterministic: A document is either always or never
+     * sampled. Reads of documents without known id are always logged.
+     */
+    public boolean isReadSampled(String index, String id) {
+        if (readSamplingRates.isEmpty() || id == null) {
+            return true;
+        }
+
+        double rate;
+
+        try {
+            rate = samplingRateCache.get(index);
+        } catch (ExecutionException e) {
+            log.error(e);
+            return true;
+        }
+
+        if (rate >= 1) {
+            return true;
+        } else if (rate <= 0) {
+            return false;
+        }
+
+        int hash = Hashing.murmur3_32_fixed().newHasher().putString(index, StandardCharsets.UTF_8).putByte((byte) 0)
+                .putString(id, StandardCharsets.UTF_8).hash().asInt();
+
+        return (hash & 0x7fffffff) < rate * Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns the time window within which repeated reads of the same document fields by the same user are logged only once. Zero if
+     * deduplication is disabled.
+     */
+    public TimeValue getReadDedupWindow() {
+        return readDedupWindow;
+    }
+
     public boolean logDiffsForWrite() {
         return !logWriteMetadataOnly() && logDiffsForWrite;
     }
@@ -30,6 +30,7 @@ import org.elasticsearch.index.mapper.Uid;
 
 import com.floragunn.codova.documents.DocNode;
 import com.floragunn.codova.documents.DocReader;
+import com.floragunn.searchguard.enterprise.auditlog.AuditLogConfig;
 import com.floragunn.searchguard.support.HeaderHelper;
 import com.floragunn.searchguard.support.SourceFieldsContext;
 
@@ -41,6 +42,8 @@ public final class FieldReadCallback {
     private Function<Map<String, ?>, Map<String, Object>> filterFunction;
     private SourceFieldsContext sfc;
     private Doc doc;
+    private byte[] pendingSource;
+    private Function<String, Boolean> pendingSourceMasked;
 
     public FieldReadCallback(ReadLogContext context) {
         this.context = context;
@@ -74,21 +77,9 @@ public final class FieldReadCallback {
             }
 
             if (fieldInfo.name.equals("_source")) {
-
-                Map<String, Object> source = DocReader.json().readObject(fieldValue);
-                
-                if (filterFunction != null) {
-                    source = filterFunction.apply(source);
-                }
-
-                DocNode flattenedSource = DocNode.wrap(source).flatten();
-                
-                for (String k : flattenedSource.keySet()) {
-                    if (!recordField(k, (f) -> masked.apply(f) && flattenedSource.get(k) instanceof String)) {
-                        continue;
-                    }
-                    fieldRead0(k, flattenedSource.get(k));
-                }
+                // Parsing is deferred until we know whether this read is sampled
+                pendingSource = fieldValue;
+                pendingSourceMasked = masked;
             } else if (fieldInfo.name.equals("_id")) {
                 fieldRead0(fieldInfo.name, Uid.decodeId(fieldValue));
             } else {
@@ -121,6 +112,32 @@ public final class FieldReadCallback {
         }
     }
 
+    private void sourceRead(byte[] source, Function<String, Boolean> masked) throws Exception {
+        if (filterFunction != null) {
+            // Source filtering of the request: We need the full source to apply it
+            Map<String, Object> sourceMap = filterFunction.apply(DocReader.json().readObject(source));
+            DocNode flattenedSource = DocNode.wrap(sourceMap).flatten();
+
+            for (String k : flattenedSource.keySet()) {
+                if (!recordField(k, (f) -> masked.apply(f) && flattenedSource.get(k) instanceof String)) {
+                    continue;
+                }
+                fieldRead0(k, flattenedSource.get(k));
+            }
+        } else {
+            AuditLogConfig auditLogConfig = context.getAuditLogConfig();
+            SourceFieldExtractor extractor = new SourceFieldExtractor((k) -> auditLogConfig.readHistoryEnabledForField(index.getName(), k),
+                    auditLogConfig.getLiteralReadWatchedFields(index.getName()));
+
+            extractor.extract(source, (k, v) -> {
+                if (v instanceof String && masked.apply(k)) {
+                    return;
+                }
+                fieldRead0(k, v);
+            });
+        }
+    }
+
     private void fieldRead0(final String fieldName, final Object fieldValue) {
         if (doc != null) {
             if (fieldName.equals("_id")) {
@@ -140,20 +157,35 @@ public final class FieldReadCallback {
     }
 
     public void finished() {
-        if (doc == null) {
+        if (doc == null && pendingSource == null) {
             return;
         }
         try {
+            if (!context.getAuditLogConfig().isReadSampled(index.getName(), doc != null ? doc.id : null)) {
+                return;
+            }
+
+            if (pendingSource != null) {
+                sourceRead(pendingSource, pendingSourceMasked);
+            }
+
+            if (doc == null) {
+                return;
+            }
+
             Map<String, String> f = new HashMap<String, String>();
             for (Field fi : doc.fields) {
                 f.put(fi.fieldName, String.valueOf(fi.fieldValue));
             }
             context.getAuditLog().logDocumentRead(doc.indexName, doc.id, null, f);
         } catch (Exception e) {
-            log.error("Unexpected error finished compliance read entry {} in index '{}': {}", doc.id, index.getName(), e.toString(), e);
+            log.error("Unexpected error finished compliance read entry {} in index '{}': {}", doc != null ? doc.id : null, index.getName(),
+                    e.toString(), e);
         } finally {
             doc = null;
             sfc = null;
+            pendingSource = null;
+            pendingSourceMasked = null;
         }
     }
 
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auditlog.access_log.read;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import org.elasticsearch.xcontent.DeprecationHandler;
+import org.elasticsearch.xcontent.NamedXContentRegistry;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.elasticsearch.xcontent.XContentParser;
+import org.elasticsearch.xcontent.XContentType;
+
+/**
+ * Extracts watched fields from a document source by scanning its token stream. In contrast to parsing the source into a map, this does not
+ * materialize any unwatched values.
+ *
+ * Fields are identified by their flattened path (like a.b.c); arrays are reported as a whole at the path of the array. If the watched fields
+ * are known to be a finite set of paths, objects which cannot contain watched fields are skipped and the scan stops as soon as all watched
+ * fields have been found.
+ */
+class SourceFieldExtractor {
+
+    private final Predicate<String> watchedField;
+    private final Set<String> literalFields;
+    private final Set<String> literalPrefixes;
+
+    /**
+     * @param watchedField returns true for the paths of watched fields
+     * @param literalFields the complete set of watched paths, if known; null if the watched fields are defined by patterns
+     */
+    SourceFieldExtractor(Predicate<String> watchedField, Set<String> literalFields) {
+        this.watchedField = watchedField;
+        this.literalFields = literalFields;
+
+        if (literalFields != null) {
+            this.literalPrefixes = new HashSet<>();
+
+            for (String field : literalFields) {
+                for (int i = field.indexOf('.'); i != -1; i = field.indexOf('.', i + 1)) {
+                    literalPrefixes.add(field.substring(0, i));
+                }
+            }
+        } else {
+            this.literalPrefixes = null;
+        }
+    }
+
+    void extract(byte[] source, BiConsumer<String, Object> consumer) throws IOException {
+        if (literalFields != null && literalFields.isEmpty()) {
+            return;
+        }
+
+        XContentType xContentType = XContentFactory.xContentType(source);
+
+        if (xContentType == null) {
+            xContentType = XContentType.JSON;
+        }
+
+        try (XContentParser parser = xContentType.xContent().createParser(NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+                source)) {
+            if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+                return;
+            }
+
+            new Scan(parser, consumer).readObject(null);
+        }
+    }
+
+    private boolean mayContainWatchedFields(String path) {
+        return literalPrefixes == null || literalPrefixes.contains(path);
+    }
+
+    private class Scan {
+        private final XContentParser parser;
+        private final BiConsumer<String, Object> consumer;
+        private int remaining;
+
+        Scan(XContentParser parser, BiConsumer<String, Object> consumer) {
+            this.parser = parser;
+            this.consumer = consumer;
+            this.remaining = literalFields != null ? literalFields.size() : -1;
+        }
+
+        /**
+         * Returns false if the scan is complete.
+         */
+        boolean readObject(String prefix) throws IOException {
+            while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+                String path = prefix == null ? parser.currentName() : prefix + "." + parser.currentName();
+                XContentParser.Token token = parser.nextToken();
+
+                if (token == XContentParser.Token.START_OBJECT) {
+                    if (!mayContainWatchedFields(path)) {
+                        parser.skipChildren();
+                    } else if (!readObject(path)) {
+                        return false;
+                    }
+                } else if (watchedField.test(path)) {
+                    consumer.accept(path, token == XContentParser.Token.START_ARRAY ? parser.list() : parser.objectText());
+
+                    if (remaining > 0 && --remaining == 0) {
+                        return false;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return true;
+        }
+    }
+}
@@ -16,6 +16,7 @@ package com.floragunn.searchguard.enterprise.auditlog.access_log.write;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.engine.Engine.Delete;
 import org.elasticsearch.index.engine.Engine.DeleteResult;
@@ -78,7 +79,14 @@ public final class ComplianceIndexingOperationListenerImpl implements IndexingOp
             return index;
         }
         
-        if (isEnabled(shardId) && complianceConfig.logDiffsForWrite()) {            
+        if (isEnabled(shardId) && complianceConfig.logDiffsForWrite()) {
+            if (hasAutoGeneratedId(index)) {
+                // Documents with auto generated ids cannot have a previous version. This saves a realtime get per document
+                // for the very common case of bulk ingestion without explicit ids.
+                threadContext.set(new Context(null));
+                return index;
+            }
+
             IndexShard shard = getIndexShard(shardId);
     
             if (shard == null) {
@@ -157,6 +165,11 @@ public final class ComplianceIndexingOperationListenerImpl implements IndexingOp
         }
     }
     
+    private static boolean hasAutoGeneratedId(Index index) {
+        // Retries might hit an already indexed document
+        return index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP && !index.isRetry();
+    }
+
     private boolean isEnabled(ShardId shardId) {
         return complianceConfig.isEnabled() && complianceConfig.writeHistoryEnabledForIndex(shardId.getIndex().getName());
     }
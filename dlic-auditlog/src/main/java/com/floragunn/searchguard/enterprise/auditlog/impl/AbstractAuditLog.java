@@ -29,6 +29,11 @@ import com.floragunn.searchguard.support.ConfigConstants;
 import com.floragunn.searchguard.user.User;
 import com.floragunn.searchguard.user.UserInformation;
 import com.floragunn.searchsupport.PrivilegedCode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.BaseEncoding;
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -42,6 +47,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.logging.log4j.LogManager;
@@ -62,6 +69,7 @@ import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.metadata.IndexTemplateMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
@@ -113,6 +121,7 @@ public abstract class AbstractAuditLog implements AuditLog {
     private final boolean excludeSensitiveHeaders;
     private final boolean logEnvVars;
     private AuditLogConfig complianceConfig;
+    private volatile Cache<HashCode, Boolean> readDedupCache;
 
     private final Pattern searchguardIndexPattern;
     protected final ConfigurationRepository configurationRepository;
@@ -261,6 +270,13 @@ public abstract class AbstractAuditLog implements AuditLog {
 
     public void setComplianceConfig(AuditLogConfig complianceConfig) {
         this.complianceConfig = complianceConfig;
+
+        if (complianceConfig != null && complianceConfig.getReadDedupWindow().millis() > 0) {
+            this.readDedupCache = CacheBuilder.newBuilder().expireAfterWrite(complianceConfig.getReadDedupWindow().millis(), TimeUnit.MILLISECONDS)
+                    .maximumSize(100_000).build();
+        } else {
+            this.readDedupCache = null;
+        }
     }
 
     @Override
@@ -634,6 +650,10 @@ public abstract class AbstractAuditLog implements AuditLog {
         }
 
         if (fieldNameValues != null && !fieldNameValues.isEmpty()) {
+            if (isDuplicateRead(effectiveUser, index, id, fieldNameValues)) {
+                return;
+            }
+
             AuditMessage msg = new AuditMessage(category, clusterState, getOrigin(), null);
             TransportAddress remoteAddress = getRemoteAddress();
             msg.addRemoteAddress(remoteAddress);
@@ -678,6 +698,30 @@ public abstract class AbstractAuditLog implements AuditLog {
 
     }
 
+    /**
+     * Returns true if the same user has read the same fields and values of the same document within the configured deduplication window.
+     */
+    private boolean isDuplicateRead(UserInformation effectiveUser, String index, String id, Map<String, String> fieldNameValues) {
+        Cache<HashCode, Boolean> readDedupCache = this.readDedupCache;
+
+        if (readDedupCache == null) {
+            return false;
+        }
+
+        String userName = effectiveUser != null && effectiveUser.getName() != null ? effectiveUser.getName() : "";
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putString(userName, StandardCharsets.UTF_8).putByte((byte) 0);
+        hasher.putString(index, StandardCharsets.UTF_8).putByte((byte) 0);
+        hasher.putString(id != null ? id : "", StandardCharsets.UTF_8).putByte((byte) 0);
+
+        for (Map.Entry<String, String> entry : new TreeMap<>(fieldNameValues).entrySet()) {
+            hasher.putString(entry.getKey(), StandardCharsets.UTF_8).putByte((byte) 0);
+            hasher.putString(String.valueOf(entry.getValue()), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+
+        return readDedupCache.asMap().putIfAbsent(hasher.hash(), Boolean.TRUE) != null;
+    }
+
     @Override
     public void logDocumentWritten(ShardId shardId, GetResult originalResult, Index currentIndex, IndexResult result) {
 
@@ -707,46 +751,13 @@ public abstract class AbstractAuditLog implements AuditLog {
 
         if (complianceConfig.logDiffsForWrite() && originalResult != null && originalResult.isExists()
                 && originalResult.internalSourceRef() != null) {
-            try {
-                String originalSource = null;
-                String currentSource = null;
-                if (searchguardIndexPattern.matches(shardId.getIndexName())) {
-                    try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
-                            DeprecationHandler.THROW_UNSUPPORTED_OPERATION, originalResult.internalSourceRef(), XContentType.JSON)) {
-                        Object base64 = parser.map().values().iterator().next();
-                        if (base64 instanceof String) {
-                            originalSource = (new String(BaseEncoding.base64().decode((String) base64)));
-                        } else {
-                            originalSource = XContentHelper.convertToJson(originalResult.internalSourceRef(), false, XContentType.JSON);
-                        }
-                    } catch (Exception e) {
-                        log.error(e);
-                    }
-
-                    try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
-                            DeprecationHandler.THROW_UNSUPPORTED_OPERATION, currentIndex.source(), XContentType.JSON)) {
-                        Object base64 = parser.map().values().iterator().next();
-                        if (base64 instanceof String) {
-                            currentSource = (new String(BaseEncoding.base64().decode((String) base64)));
-                        } else {
-                            currentSource = XContentHelper.convertToJson(currentIndex.source(), false, XContentType.JSON);
-                        }
-                    } catch (Exception e) {
-                        log.error(e);
-                    }
-                } else {
-                    originalSource = XContentHelper.convertToJson(originalResult.internalSourceRef(), false, XContentType.JSON);
-                    currentSource = XContentHelper.convertToJson(currentIndex.source(), false, XContentType.JSON);
-                }
-                DocNode originalDocument = DocNode.parse(Format.JSON).from(originalSource);
-                DocNode currentDocument = DocNode.parse(Format.JSON).from(currentSource);
+            boolean searchguardIndex = searchguardIndexPattern.matches(shardId.getIndexName());
+            BytesReference originalSourceRef = originalResult.internalSourceRef();
+            // The source of the index operation may be backed by pooled network buffers; thus, we need a copy for the deferred computation
+            BytesReference currentSourceRef = new BytesArray(BytesReference.toBytes(currentIndex.source()));
+            String id = currentIndex.id();
 
-                JsonPatch diff = JsonPatch.fromDiff(originalDocument, currentDocument);
-
-                msg.addComplianceWriteDiffSource(diff.isEmpty() ? "" : diff.toJsonString());
-            } catch (Exception e) {
-                log.error("Unable to generate diff for {}", msg.toPrettyString(), e);
-            }
+            msg.addDeferredComplianceWriteDiffSource(() -> computeWriteDiff(searchguardIndex, originalSourceRef, currentSourceRef, shardId, id));
         }
 
         if (!complianceConfig.logWriteMetadataOnly()) {
@@ -780,6 +791,51 @@ public abstract class AbstractAuditLog implements AuditLog {
         save(msg);
     }
 
+    private String computeWriteDiff(boolean searchguardIndex, BytesReference originalSourceRef, BytesReference currentSourceRef, ShardId shardId,
+            String id) {
+        try {
+            String originalSource = null;
+            String currentSource = null;
+            if (searchguardIndex) {
+                try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                        DeprecationHandler.THROW_UNSUPPORTED_OPERATION, originalSourceRef, XContentType.JSON)) {
+                    Object base64 = parser.map().values().iterator().next();
+                    if (base64 instanceof String) {
+                        originalSource = (new String(BaseEncoding.base64().decode((String) base64)));
+                    } else {
+                        originalSource = XContentHelper.convertToJson(originalSourceRef, false, XContentType.JSON);
+                    }
+                } catch (Exception e) {
+                    log.error(e);
+                }
+
+                try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
+                        DeprecationHandler.THROW_UNSUPPORTED_OPERATION, currentSourceRef, XContentType.JSON)) {
+                    Object base64 = parser.map().values().iterator().next();
+                    if (base64 instanceof String) {
+                        currentSource = (new String(BaseEncoding.base64().decode((String) base64)));
+                    } else {
+                        currentSource = XContentHelper.convertToJson(currentSourceRef, false, XContentType.JSON);
+                    }
+                } catch (Exception e) {
+                    log.error(e);
+                }
+            } else {
+                originalSource = XContentHelper.convertToJson(originalSourceRef, false, XContentType.JSON);
+                currentSource = XContentHelper.convertToJson(currentSourceRef, false, XContentType.JSON);
+            }
+            DocNode originalDocument = DocNode.parse(Format.JSON).from(originalSource);
+            DocNode currentDocument = DocNode.parse(Format.JSON).from(currentSource);
+
+            JsonPatch diff = JsonPatch.fromDiff(originalDocument, currentDocument);
+
+            return diff.isEmpty() ? "" : diff.toJsonString();
+        } catch (Exception e) {
+            log.error("Unable to generate diff for {}/{}", shardId, id, e);
+            return null;
+        }
+    }
+
     @Override
     public void logDocumentDeleted(ShardId shardId, Delete delete, DeleteResult result) {
 
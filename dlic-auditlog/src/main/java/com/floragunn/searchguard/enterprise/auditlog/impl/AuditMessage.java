@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.client.utils.URIBuilder;
@@ -112,6 +113,7 @@ public final class AuditMessage {
     private static final DateTimeFormatter DEFAULT_FORMAT = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZZ");
     private final Map<String, Object> auditInfo = new HashMap<String, Object>(50);
     private final Category msgCategory;
+    private Supplier<String> deferredComplianceWriteDiff;
 
     public AuditMessage(final Category msgCategory, final ClusterState clusterState,
         final Origin origin, final Origin layer) {
@@ -214,6 +216,22 @@ public final class AuditMessage {
         }
     }
 
+    /**
+     * Defers the computation of the write diff until the message is rendered by a sink. This moves the diff computation off the indexing
+     * thread to the audit log thread pool. The supplier is called at most once; it must not access this message.
+     */
+    public synchronized void addDeferredComplianceWriteDiffSource(Supplier<String> diffSupplier) {
+        this.deferredComplianceWriteDiff = diffSupplier;
+    }
+
+    private synchronized void resolveDeferred() {
+        if (deferredComplianceWriteDiff != null) {
+            Supplier<String> diffSupplier = deferredComplianceWriteDiff;
+            deferredComplianceWriteDiff = null;
+            addComplianceWriteDiffSource(diffSupplier.get());
+        }
+    }
+
     //    public void addComplianceWriteStoredFields0(String diff) {
     //        if (diff != null && !diff.isEmpty()) {
     //            auditInfo.put(COMPLIANCE_STORED_FIELDS_CONTENT, diff);
@@ -387,10 +405,12 @@ public final class AuditMessage {
     }
 
     public Map<String, Object> getAsMap() {
+        resolveDeferred();
         return new HashMap<>(this.auditInfo);
     }
 
     public void removeDisabledFields(List<String> disabledFields) {
+        resolveDeferred();
         disabledFields.forEach(auditInfo.keySet()::remove);
     }
 
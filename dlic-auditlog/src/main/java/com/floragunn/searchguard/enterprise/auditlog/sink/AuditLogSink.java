@@ -74,6 +74,15 @@ public abstract class AuditLogSink {
 		}
     }
     
+    /**
+     * Stores a message which could not be delivered by this sink in the fallback sink. To be used by sinks which deliver messages asynchronously.
+     */
+    protected void storeInFallback(AuditMessage msg) {
+        if (fallbackSink == null || !fallbackSink.doStoreWithRetry(msg)) {
+            System.err.println(msg.toPrettyString());
+        }
+    }
+
     private boolean doStoreWithRetry(AuditMessage msg) {
         //retryCount of 0 means no retry (which is: try exactly once) - delayMs is ignored
         //retryCount of 1 means: try and if this fails wait delayMs and try once again
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auditlog.sink;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.core.TimeValue;
+
+import com.floragunn.searchguard.enterprise.auditlog.impl.AuditMessage;
+import com.floragunn.searchguard.support.ConfigConstants;
+
+/**
+ * Collects audit messages into batches for sinks which talk to remote endpoints. A batch is sent when it reaches the configured size or when its
+ * oldest message reaches the configured age, whichever comes first.
+ *
+ * Batches filled up by store() are sent on the calling thread; thus, a slow endpoint slows down the audit storage threads instead of letting
+ * messages pile up in memory. Batches sent because of their age are sent on a dedicated thread.
+ *
+ * Messages which could not be delivered are retried with exponential backoff; messages which still fail are passed to the undeliverable
+ * consumer, usually the fallback sink. Closing the batcher interrupts retries of age triggered batches; their remaining messages are passed
+ * to the undeliverable consumer right away.
+ */
+class AuditMessageBatcher implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(AuditMessageBatcher.class);
+    private static final long MAX_BACKOFF_MS = 30000;
+
+    private final String name;
+    private final int maxSize;
+    private final long maxAgeMs;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final BatchSender sender;
+    private final Consumer<AuditMessage> undeliverable;
+    private final ScheduledExecutorService scheduler;
+
+    private List<AuditMessage> buffer;
+    private long bufferGeneration;
+    private boolean closed;
+
+    AuditMessageBatcher(String name, int maxSize, TimeValue maxAge, int maxRetries, TimeValue retryBackoff, BatchSender sender,
+            Consumer<AuditMessage> undeliverable) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxAgeMs = maxAge.millis();
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoff.millis();
+        this.sender = sender;
+        this.undeliverable = undeliverable;
+        this.buffer = new ArrayList<>(maxSize);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("sg_audit_batch_" + name));
+    }
+
+    /**
+     * Creates a batcher using the batch settings of a sink. Returns null if batching is not enabled for the sink, i.e., if batch.max_size is
+     * not greater than 1.
+     */
+    static AuditMessageBatcher create(String name, Settings sinkSettings, BatchSender sender, Consumer<AuditMessage> undeliverable) {
+        int maxSize = sinkSettings.getAsInt(ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_SIZE, 1);
+
+        if (maxSize <= 1) {
+            return null;
+        }
+
+        TimeValue maxAge = sinkSettings.getAsTime(ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_AGE, TimeValue.timeValueSeconds(1));
+        int maxRetries = sinkSettings.getAsInt(ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_RETRIES, 3);
+        TimeValue retryBackoff = sinkSettings.getAsTime(ConfigConstants.SEARCHGUARD_AUDIT_BATCH_RETRY_BACKOFF, TimeValue.timeValueMillis(100));
+
+        return new AuditMessageBatcher(name, maxSize, maxAge, maxRetries, retryBackoff, sender, undeliverable);
+    }
+
+    void add(AuditMessage msg) {
+        List<AuditMessage> batch = null;
+
+        synchronized (this) {
+            if (closed) {
+                batch = Collections.singletonList(msg);
+            } else {
+                buffer.add(msg);
+
+                if (buffer.size() >= maxSize) {
+                    batch = takeBuffer();
+                } else if (buffer.size() == 1) {
+                    long generation = bufferGeneration;
+                    scheduler.schedule(() -> flush(generation), maxAgeMs, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    void flush() {
+        List<AuditMessage> batch;
+
+        synchronized (this) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+
+            batch = takeBuffer();
+        }
+
+        send(batch);
+    }
+
+    private void flush(long generation) {
+        List<AuditMessage> batch;
+
+        synchronized (this) {
+            if (generation != bufferGeneration || buffer.isEmpty()) {
+                // The batch has already been sent because it was full
+                return;
+            }
+
+            batch = takeBuffer();
+        }
+
+        send(batch);
+    }
+
+    private List<AuditMessage> takeBuffer() {
+        List<AuditMessage> result = buffer;
+        buffer = new ArrayList<>(maxSize);
+        bufferGeneration++;
+        return result;
+    }
+
+    private void send(List<AuditMessage> batch) {
+        List<AuditMessage> pending = batch;
+
+        for (int attempt = 0;; attempt++) {
+            try {
+                pending = sender.send(pending);
+            } catch (Exception e) {
+                log.error("Error while sending batch of {} audit messages to {}", pending.size(), name, e);
+            }
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            if (attempt >= maxRetries) {
+                break;
+            }
+
+            long backoffMs = Math.min(retryBackoffMs << Math.min(attempt, 20), MAX_BACKOFF_MS);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Retry attempt {}/{} for {} of {} audit messages to {} in {} ms", attempt + 1, maxRetries, pending.size(), batch.size(),
+                        name, backoffMs);
+            }
+
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                // The batcher is being closed; do not hold up the shutdown with further retries
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while retrying to send {} audit messages to {}", pending.size(), name);
+                break;
+            }
+        }
+
+        if (!Thread.currentThread().isInterrupted()) {
+            log.error("Could not send {} audit messages to {} after {} retries", pending.size(), name, maxRetries);
+        }
+
+        for (AuditMessage msg : pending) {
+            undeliverable.accept(msg);
+        }
+    }
+
+    /**
+     * Sends the remaining messages; messages stored after closing are sent one by one. Interrupts the retries of a batch which is currently
+     * sent because of its age.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    @FunctionalInterface
+    static interface BatchSender {
+        /**
+         * Sends the given messages. Returns the messages which could not be delivered and shall be retried; an empty list if all messages were
+         * delivered. If the whole batch failed, the method may also throw an exception.
+         */
+        List<AuditMessage> send(List<AuditMessage> batch) throws Exception;
+    }
+}
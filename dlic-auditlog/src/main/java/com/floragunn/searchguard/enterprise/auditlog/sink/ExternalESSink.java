@@ -19,11 +19,15 @@ import java.nio.file.Path;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.RestStatus;
 import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
@@ -41,6 +45,7 @@ public final class ExternalESSink extends AuditLogSink {
 	private final String index;
 	private final String type;
 	private final HttpClient client;
+	private final AuditMessageBatcher batcher;
 	private List<String> servers;
 	private DateTimeFormatter indexPattern;
 	
@@ -161,16 +166,24 @@ public final class ExternalESSink extends AuditLogSink {
 		}
 
 		client = builder.build();
+		batcher = AuditMessageBatcher.create(name, sinkSettings, this::storeBatch, this::storeInFallback);
 	}
 
 	@Override
 	public void close() throws IOException {
+		if (batcher != null) {
+			batcher.close();
+		}
 		if (client != null) {
 			client.close();
 		}
 	}
 
 	public boolean doStore(final AuditMessage msg) {
+		if (batcher != null) {
+			batcher.add(msg);
+			return true;
+		}
 		try {
 			boolean successful = client.index(msg.toString(), getExpandedIndexName(indexPattern, index), type, true);
 			if (!successful) {
@@ -182,4 +195,41 @@ public final class ExternalESSink extends AuditLogSink {
 			return false;
 		}
 	}
+
+	/**
+	 * Indexes a batch with the _bulk API. Items rejected because of overload or server errors are returned for a retry; items rejected
+	 * for other reasons, like mapping errors, would fail again and are directly passed to the fallback sink.
+	 */
+	private List<AuditMessage> storeBatch(final List<AuditMessage> batch) throws Exception {
+		List<String> contents = new ArrayList<>(batch.size());
+		for (AuditMessage msg : batch) {
+			contents.add(msg.toString());
+		}
+
+		BulkResponse response = client.bulk(contents, getExpandedIndexName(indexPattern, index), true);
+
+		if (!response.hasFailures()) {
+			return Collections.emptyList();
+		}
+
+		List<AuditMessage> retry = new ArrayList<>();
+
+		for (BulkItemResponse item : response.getItems()) {
+			if (!item.isFailed()) {
+				continue;
+			}
+
+			AuditMessage msg = batch.get(item.getItemId());
+			RestStatus status = item.status();
+
+			if (status == RestStatus.TOO_MANY_REQUESTS || status.getStatus() >= 500) {
+				retry.add(msg);
+			} else {
+				log.error("Unable to send audit log {} due to {}", msg, item.getFailureMessage());
+				storeInFallback(msg);
+			}
+		}
+
+		return retry;
+	}
 }
@@ -23,6 +23,8 @@ import java.security.AccessController;
 import java.security.KeyStore;
 import java.security.PrivilegedAction;
 import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
@@ -38,6 +40,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.TrustStrategy;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.settings.Settings;
 
@@ -55,6 +58,7 @@ public class WebhookSink extends AuditLogSink {
 	WebhookFormat webhookFormat = null;
 	final boolean verifySSL;
 	final KeyStore effectiveTruststore;
+	AuditMessageBatcher batcher;
 
     public WebhookSink(final String name, final Settings settings, final String settingsPrefix, final Path configPath, AuditLogSink fallbackSink) throws Exception {
 	    super(name, settings, settingsPrefix, fallbackSink);
@@ -98,6 +102,12 @@ public class WebhookSink extends AuditLogSink {
 				webhookFormat = WebhookFormat.TEXT;
 			}
 		}
+
+		if (webhookFormat.batchable) {
+			batcher = AuditMessageBatcher.create(name, sinkSettings, this::postBatch, this::storeInFallback);
+		} else if (sinkSettings.getAsInt(ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_SIZE, 1) > 1) {
+			log.warn("WebhookFormat '{}' does not support batches; use json_array or ndjson. Messages will be sent one by one.", webhookFormat.name());
+		}
 	}
 
 	@Override
@@ -110,6 +120,10 @@ public class WebhookSink extends AuditLogSink {
 			log.debug("Message is null");
 			return true;
 		}
+		if (batcher != null) {
+			batcher.add(msg);
+			return true;
+		}
 
 		return AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
 
@@ -144,6 +158,9 @@ public class WebhookSink extends AuditLogSink {
 
     @Override
     public void close() throws IOException { 
+        if(batcher != null) {
+        	batcher.close();
+        }
         if(httpClient != null) {
         	httpClient.close();
         }
@@ -203,6 +220,35 @@ public class WebhookSink extends AuditLogSink {
 	protected String formatUrlParameters(AuditMessage msg) {
 		return msg.toUrlParameters();
 	}
+
+	/**
+	 * Transforms a list of {@link AuditMessage}s to a JSON array or to newline
+	 * delimited JSON, depending on the format. Used by {@link WebhookFormat#JSON_ARRAY}
+	 * and {@link WebhookFormat#NDJSON}.
+	 * 
+	 * @param msgs the AuditMessages to transform
+	 * @return the payload string
+	 */
+	protected String formatBatch(List<AuditMessage> msgs) {
+		StringBuilder result = new StringBuilder();
+
+		if (webhookFormat == WebhookFormat.NDJSON) {
+			for (AuditMessage msg : msgs) {
+				result.append(formatJson(msg)).append('\n');
+			}
+		} else {
+			result.append('[');
+			for (int i = 0; i < msgs.size(); i++) {
+				if (i > 0) {
+					result.append(',');
+				}
+				result.append(formatJson(msgs.get(i)));
+			}
+			result.append(']');
+		}
+
+		return result.toString();
+	}
 	
 	boolean get(AuditMessage msg) {
 		switch (webhookFormat) {
@@ -231,6 +277,8 @@ public class WebhookSink extends AuditLogSink {
 		} finally {
 			try {
 				if (serverResponse != null) {
+					// Consuming the entity returns the connection to the pool, so that it can be reused
+					EntityUtils.consumeQuietly(serverResponse.getEntity());
 					serverResponse.close();
 				}
 			} catch (IOException e) {
@@ -254,6 +302,10 @@ public class WebhookSink extends AuditLogSink {
 		case SLACK:
 			payload = "{\"text\": \"" + msg.toText() + "\"}";
 			break;
+		case JSON_ARRAY:
+		case NDJSON:
+			payload = formatBatch(Collections.singletonList(msg));
+			break;
 		case URL_PARAMETER_POST:
 			payload = "";
 			url = webhookUrl + formatUrlParameters(msg);
@@ -266,6 +318,20 @@ public class WebhookSink extends AuditLogSink {
 		return doPost(url, payload);
 
 	}
+
+	private List<AuditMessage> postBatch(List<AuditMessage> batch) {
+		String payload = formatBatch(batch);
+
+		boolean success = AccessController.doPrivileged(new PrivilegedAction<Boolean>() {
+
+			@Override
+			public Boolean run() {
+				return doPost(webhookUrl, payload);
+			}
+		});
+
+		return success ? Collections.emptyList() : batch;
+	}
 	
 	protected boolean doPost(String url, String payload) {
 
@@ -290,6 +356,8 @@ public class WebhookSink extends AuditLogSink {
 		} finally {
 			try {
 				if (serverResponse != null) {
+					// Consuming the entity returns the connection to the pool, so that it can be reused
+					EntityUtils.consumeQuietly(serverResponse.getEntity());
 					serverResponse.close();
 				}
 			} catch (IOException e) {
@@ -344,6 +412,9 @@ public class WebhookSink extends AuditLogSink {
           .setConnectionRequestTimeout(timeout * 1000)
           .setSocketTimeout(timeout * 1000).build();
         
+        // Each audit storage thread may keep a persistent connection to the webhook endpoint
+        int maxConnections = settings.getAsInt(ConfigConstants.SEARCHGUARD_AUDIT_THREADPOOL_SIZE, 10);
+        
         final TrustStrategy trustAllStrategy = new TrustStrategy() {
             @Override
             public boolean isTrusted(X509Certificate[] chain, String authType) {
@@ -362,12 +433,16 @@ public class WebhookSink extends AuditLogSink {
 	                                    .build(),
 	                                    NoopHostnameVerifier.INSTANCE))
 	                    .setDefaultRequestConfig(config)
+	                    .setMaxConnPerRoute(maxConnections)
+	                    .setMaxConnTotal(maxConnections)
 	                    .build();   
 	        }
 	        
 	        if(effectiveTruststore == null) {
 	            return HttpClients.custom()
                         .setDefaultRequestConfig(config)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setMaxConnTotal(maxConnections)
                         .build();  
 	        }
 
@@ -379,6 +454,8 @@ public class WebhookSink extends AuditLogSink {
 		                            .build(),
 		                            new DefaultHostnameVerifier()))
 		            .setDefaultRequestConfig(config)
+		            .setMaxConnPerRoute(maxConnections)
+		            .setMaxConnTotal(maxConnections)
 		            .build();	
 		    
 		    
@@ -393,14 +470,22 @@ public class WebhookSink extends AuditLogSink {
 		URL_PARAMETER_POST(HttpMethod.POST, ContentType.TEXT_PLAIN),
 		TEXT(HttpMethod.POST, ContentType.TEXT_PLAIN),
 		JSON(HttpMethod.POST, ContentType.APPLICATION_JSON),
-		SLACK(HttpMethod.POST, ContentType.APPLICATION_JSON);
+		SLACK(HttpMethod.POST, ContentType.APPLICATION_JSON),
+		JSON_ARRAY(HttpMethod.POST, ContentType.APPLICATION_JSON, true),
+		NDJSON(HttpMethod.POST, ContentType.create("application/x-ndjson", StandardCharsets.UTF_8), true);
 
 		private HttpMethod method;
 		private ContentType contentType;
+		private boolean batchable;
 
 		private WebhookFormat(HttpMethod method, ContentType contentType) {
+			this(method, contentType, false);
+		}
+
+		private WebhookFormat(HttpMethod method, ContentType contentType, boolean batchable) {
 			this.method = method;
 			this.contentType = contentType;
+			this.batchable = batchable;
 		}
 
 		HttpMethod getMethod() {
@@ -26,6 +26,7 @@ import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -47,6 +48,8 @@ import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.ssl.SSLContexts;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
@@ -205,6 +208,19 @@ public class HttpClient implements Closeable {
             }
     }
 
+    /**
+     * Indexes the given documents with a single _bulk request. The items of the returned response are in the same order as the documents.
+     */
+    public BulkResponse bulk(final List<String> contents, final String index, final boolean refresh) throws IOException {
+        final BulkRequest br = new BulkRequest().setRefreshPolicy(refresh ? RefreshPolicy.IMMEDIATE : RefreshPolicy.NONE);
+
+        for (String content : contents) {
+            br.add(new IndexRequest(index).source(content, XContentType.JSON));
+        }
+
+        return rclient.bulk(br, RequestOptions.DEFAULT);
+    }
+
     private final HttpAsyncClientBuilder asyncClientBuilder(HttpAsyncClientBuilder httpClientBuilder) 
             throws NoSuchAlgorithmException, KeyStoreException, UnrecoverableKeyException, KeyManagementException {
 
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auditlog.access_log.read;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.WildcardMatcher;
+import com.google.common.collect.ImmutableSet;
+
+public class SourceFieldExtractorTest {
+
+    private static final byte[] SOURCE = ("{\"name\": \"Karl\", \"address\": {\"city\": \"Berlin\", \"zip\": 10115}, "
+            + "\"tags\": [\"a\", \"b\"], \"other\": {\"x\": {\"y\": 1}}, \"age\": 42}").getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void literalFields() throws Exception {
+        SourceFieldExtractor extractor = new SourceFieldExtractor((f) -> f.equals("address.city") || f.equals("tags"),
+                ImmutableSet.of("address.city", "tags"));
+
+        Map<String, Object> result = extract(extractor);
+
+        Assert.assertEquals(ImmutableSet.of("address.city", "tags"), result.keySet());
+        Assert.assertEquals("Berlin", result.get("address.city"));
+        Assert.assertEquals(Arrays.asList("a", "b"), result.get("tags"));
+    }
+
+    @Test
+    public void literalFields_stopsWhenAllFound() throws Exception {
+        // The source is truncated after the watched field; a full parse would fail
+        byte[] source = "{\"name\": \"Karl\", \"address\": {\"city\": \"Ber".getBytes(StandardCharsets.UTF_8);
+
+        SourceFieldExtractor extractor = new SourceFieldExtractor((f) -> f.equals("name"), ImmutableSet.of("name"));
+        Map<String, Object> result = new LinkedHashMap<>();
+        extractor.extract(source, result::put);
+
+        Assert.assertEquals(ImmutableSet.of("name"), result.keySet());
+    }
+
+    @Test
+    public void patterns() throws Exception {
+        SourceFieldExtractor extractor = new SourceFieldExtractor((f) -> WildcardMatcher.match("a*", f) || f.equals("other.x.y"), null);
+
+        Map<String, Object> result = extract(extractor);
+
+        Assert.assertEquals(ImmutableSet.of("address.city", "address.zip", "age", "other.x.y"), result.keySet());
+        Assert.assertEquals(10115, ((Number) result.get("address.zip")).intValue());
+    }
+
+    @Test
+    public void noWatchedFields() throws Exception {
+        SourceFieldExtractor extractor = new SourceFieldExtractor((f) -> false, ImmutableSet.of());
+
+        Assert.assertTrue(extract(extractor).isEmpty());
+    }
+
+    private static Map<String, Object> extract(SourceFieldExtractor extractor) throws Exception {
+        Map<String, Object> result = new LinkedHashMap<>();
+        extractor.extract(SOURCE, result::put);
+        return result;
+    }
+}
@@ -314,6 +314,46 @@ public class ComplianceAuditlogTest extends AbstractAuditlogiUnitTest {
           
     }
     
+    /**
+     * Measures the overhead of write history with diffs for bulk requests with explicit ids. Each document is indexed twice; the second
+     * bulk request needs to look up the original versions.
+     */
+    @Ignore
+    @Test
+    public void testBulkWriteHistoryPerf() throws Exception {
+
+        Settings additionalSettings = Settings.builder()
+                .put("searchguard.audit.type", TestAuditlogImpl.class.getName())
+                .put(ConfigConstants.SEARCHGUARD_AUDIT_ENABLE_TRANSPORT, false)
+                .put(ConfigConstants.SEARCHGUARD_AUDIT_ENABLE_REST, false)
+                .put(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_LOG_DIFFS, true)
+                .put(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_WATCHED_INDICES, "bulk_perf_*")
+                .build();
+
+        setup(additionalSettings);
+
+        for (int bulkSize : new int[] { 100, 1000, 10000 }) {
+            String index = "bulk_perf_" + bulkSize;
+
+            for (int round = 0; round < 2; round++) {
+                StringBuilder bulkBody = new StringBuilder();
+
+                for (int i = 0; i < bulkSize; i++) {
+                    bulkBody.append("{ \"index\" : { \"_index\" : \"").append(index).append("\", \"_id\" : \"").append(i).append("\" } }\n");
+                    bulkBody.append("{ \"a\" : ").append(i).append(", \"round\" : ").append(round).append(" }\n");
+                }
+
+                TestAuditlogImpl.clear();
+                long start = System.nanoTime();
+                HttpResponse response = rh.executePostRequest("_bulk", bulkBody.toString(), encodeBasicHeader("admin", "admin"));
+                long durationMs = (System.nanoTime() - start) / 1_000_000;
+
+                Assert.assertEquals(response.getBody(), HttpStatus.SC_OK, response.getStatusCode());
+                System.out.println("Bulk size " + bulkSize + (round == 0 ? " (create)" : " (update)") + ": " + durationMs + " ms");
+            }
+        }
+    }
+
     @Test
     public void testWriteHistory() throws Exception {
 
@@ -3,6 +3,7 @@ package com.floragunn.searchguard.enterprise.auditlog.impl;
 import static com.floragunn.searchguard.enterprise.auditlog.impl.AuditMessage.CATEGORY;
 import static com.floragunn.searchguard.enterprise.auditlog.impl.AuditMessage.FORMAT_VERSION;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasKey;
@@ -19,6 +20,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.elasticsearch.Version;
@@ -154,4 +156,20 @@ public class AuditMessageTest {
         assertThat(disabledFields.stream().noneMatch(field -> toTextWithoutDisabled.contains(field + ":")), is(true));
 
     }
+
+    @Test
+    public void deferredComplianceWriteDiff_isComputedOnceWhenRendered() {
+        AuditMessage auditMessage = new AuditMessage(AuditMessage.Category.COMPLIANCE_DOC_WRITE, clusterState, AuditLog.Origin.TRANSPORT, null);
+        AtomicInteger computations = new AtomicInteger();
+
+        auditMessage.addDeferredComplianceWriteDiffSource(() -> {
+            computations.incrementAndGet();
+            return "[{\"op\":\"replace\",\"path\":\"/a\",\"value\":2}]";
+        });
+
+        assertThat(computations.get(), is(0));
+        assertThat(auditMessage.getAsMap().get(AuditMessage.COMPLIANCE_DIFF_IS_NOOP), is(false));
+        assertThat(auditMessage.toJson(), containsString("replace"));
+        assertThat(computations.get(), is(1));
+    }
 }
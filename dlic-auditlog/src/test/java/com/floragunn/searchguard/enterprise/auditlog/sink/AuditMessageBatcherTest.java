@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auditlog.sink;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.enterprise.auditlog.helper.MockAuditMessageFactory;
+import com.floragunn.searchguard.enterprise.auditlog.impl.AuditMessage;
+
+public class AuditMessageBatcherTest {
+
+    @Test
+    public void sizeTrigger() throws Exception {
+        List<List<AuditMessage>> batches = new CopyOnWriteArrayList<>();
+        AuditMessageBatcher batcher = new AuditMessageBatcher("test", 3, TimeValue.timeValueMinutes(1), 0, TimeValue.ZERO, (batch) -> {
+            batches.add(batch);
+            return Collections.emptyList();
+        }, (msg) -> Assert.fail("Unexpected undeliverable message " + msg));
+
+        for (int i = 0; i < 7; i++) {
+            batcher.add(MockAuditMessageFactory.validAuditMessage());
+        }
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(3, batches.get(0).size());
+        Assert.assertEquals(3, batches.get(1).size());
+
+        batcher.close();
+
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(1, batches.get(2).size());
+    }
+
+    @Test
+    public void ageTrigger() throws Exception {
+        List<List<AuditMessage>> batches = new CopyOnWriteArrayList<>();
+        AuditMessageBatcher batcher = new AuditMessageBatcher("test", 100, TimeValue.timeValueMillis(100), 0, TimeValue.ZERO, (batch) -> {
+            batches.add(batch);
+            return Collections.emptyList();
+        }, (msg) -> Assert.fail("Unexpected undeliverable message " + msg));
+
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+
+        Assert.assertTrue(batches.isEmpty());
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+
+        batcher.close();
+    }
+
+    @Test
+    public void partialFailureIsRetried() throws Exception {
+        AuditMessage failingOnce = MockAuditMessageFactory.validAuditMessage();
+        List<List<AuditMessage>> batches = new CopyOnWriteArrayList<>();
+        AuditMessageBatcher batcher = new AuditMessageBatcher("test", 3, TimeValue.timeValueMinutes(1), 3, TimeValue.timeValueMillis(1),
+                (batch) -> {
+                    batches.add(batch);
+                    return batches.size() == 1 ? Collections.singletonList(failingOnce) : Collections.emptyList();
+                }, (msg) -> Assert.fail("Unexpected undeliverable message " + msg));
+
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+        batcher.add(failingOnce);
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(3, batches.get(0).size());
+        Assert.assertEquals(Collections.singletonList(failingOnce), batches.get(1));
+    }
+
+    @Test
+    public void undeliverableMessagesArePassedOn() throws Exception {
+        List<AuditMessage> undeliverable = new ArrayList<>();
+        List<List<AuditMessage>> batches = new CopyOnWriteArrayList<>();
+        AuditMessageBatcher batcher = new AuditMessageBatcher("test", 2, TimeValue.timeValueMinutes(1), 2, TimeValue.timeValueMillis(1),
+                (batch) -> {
+                    batches.add(batch);
+                    throw new Exception("Endpoint not available");
+                }, undeliverable::add);
+
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+
+        // One attempt and two retries
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(2, undeliverable.size());
+    }
+
+    @Test
+    public void closeInterruptsRetries() throws Exception {
+        List<AuditMessage> undeliverable = new CopyOnWriteArrayList<>();
+        List<List<AuditMessage>> batches = new CopyOnWriteArrayList<>();
+        AuditMessageBatcher batcher = new AuditMessageBatcher("test", 100, TimeValue.timeValueMillis(10), 10, TimeValue.timeValueSeconds(10),
+                (batch) -> {
+                    batches.add(batch);
+                    throw new Exception("Endpoint not available");
+                }, undeliverable::add);
+
+        batcher.add(MockAuditMessageFactory.validAuditMessage());
+
+        for (int i = 0; i < 100 && batches.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals(1, batches.size());
+
+        long start = System.currentTimeMillis();
+        batcher.close();
+
+        for (int i = 0; i < 100 && undeliverable.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+
+        Assert.assertEquals(1, undeliverable.size());
+        Assert.assertEquals(1, batches.size());
+        Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        Assert.assertNull(AuditMessageBatcher.create("test", Settings.EMPTY, (batch) -> batch, (msg) -> {
+        }));
+        Assert.assertNotNull(AuditMessageBatcher.create("test", Settings.builder().put("batch.max_size", 10).build(), (batch) -> batch, (msg) -> {
+        }));
+    }
+}
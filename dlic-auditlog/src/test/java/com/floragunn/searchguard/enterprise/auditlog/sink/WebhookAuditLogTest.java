@@ -324,6 +324,74 @@ public class WebhookAuditLogTest {
 		server.shutdown(3l, TimeUnit.SECONDS);
 	}
 
+	@Test
+	public void batchedPostHttpTest() throws Exception {
+		TestHttpHandler handler = new TestHttpHandler();
+		int port = PortAllocator.TCP.allocateSingle(WebhookAuditLogTest.class.getName(), 8090);
+
+		server = ServerBootstrap.bootstrap()
+				.setListenerPort(port)
+				.setServerInfo("Test/1.1")
+				.registerHandler("*", handler)
+				.create();
+
+		server.start();
+
+		String url = "http://localhost:" + port + "/endpoint";
+		LoggingSink fallback = new LoggingSink("test", Settings.EMPTY, null, null);
+		AuditMessage msg = MockAuditMessageFactory.validAuditMessage();
+
+		// NDJSON, batches of 3
+		Settings settings = Settings.builder()
+				.put("searchguard.audit.config.webhook.url", url)
+				.put("searchguard.audit.config.webhook.format", "ndjson")
+				.put("searchguard.audit.config.batch.max_size", 3)
+				.put("searchguard.audit.config.batch.max_age", "1m")
+				.put("path.home", ".")
+				.put("searchguard.ssl.transport.truststore_filepath",
+						FileHelper.getAbsoluteFilePathFromClassPath("auditlog/truststore.jks"))
+				.build();
+
+		WebhookSink auditlog = new WebhookSink("name", settings, ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT, null, fallback);
+		auditlog.store(msg);
+		auditlog.store(msg);
+		// batch not full yet
+		Assert.assertNull(handler.body);
+		auditlog.store(msg);
+		Assert.assertEquals("POST", handler.method);
+		String[] lines = handler.body.split("\n");
+		Assert.assertEquals(3, lines.length);
+		for (String line : lines) {
+			Assert.assertTrue(line, line.startsWith("{"));
+			assertStringContainsAllKeysAndValues(line);
+		}
+		handler.reset();
+
+		// the remaining messages are sent on close
+		auditlog.store(msg);
+		auditlog.close();
+		Assert.assertEquals(1, handler.body.split("\n").length);
+		handler.reset();
+
+		// JSON array without batching
+		settings = Settings.builder()
+				.put("searchguard.audit.config.webhook.url", url)
+				.put("searchguard.audit.config.webhook.format", "json_array")
+				.put("path.home", ".")
+				.put("searchguard.ssl.transport.truststore_filepath",
+						FileHelper.getAbsoluteFilePathFromClassPath("auditlog/truststore.jks"))
+				.build();
+
+		auditlog = new WebhookSink("name", settings, ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT, null, fallback);
+		auditlog.store(msg);
+		Assert.assertTrue(handler.body, handler.body.startsWith("[{") && handler.body.endsWith("}]"));
+		assertStringContainsAllKeysAndValues(handler.body);
+		auditlog.close();
+
+		Assert.assertEquals(0, fallback.messages.size());
+		server.shutdown(3l, TimeUnit.SECONDS);
+	}
+
 	@Test
 	public void httpsTestWithoutTLSServer() throws Exception {
 
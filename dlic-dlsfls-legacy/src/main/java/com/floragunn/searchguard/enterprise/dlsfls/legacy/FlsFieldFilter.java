@@ -26,10 +26,10 @@ import java.util.function.Predicate;
 
 import org.elasticsearch.threadpool.ThreadPool;
 
+import com.floragunn.searchguard.support.CompiledWildcardSet;
 import com.floragunn.searchguard.support.ConfigConstants;
 import com.floragunn.searchguard.support.HeaderHelper;
 import com.floragunn.searchguard.support.SgUtils;
-import com.floragunn.searchguard.support.WildcardMatcher;
 
 public class FlsFieldFilter implements Function<String, Predicate<String>> {
     private static final String KEYWORD = ".keyword";
@@ -76,9 +76,11 @@ public class FlsFieldFilter implements Function<String, Predicate<String>> {
             }
 
             if (!excludesSet.isEmpty()) {
-                return field -> !WildcardMatcher.matchAny(excludesSet, handleKeyword(field));
+                CompiledWildcardSet excludes = CompiledWildcardSet.get(excludesSet, false);
+                return field -> !excludes.test(handleKeyword(field));
             } else {
-                return field -> WildcardMatcher.matchAny(includesSet, handleKeyword(field));
+                CompiledWildcardSet includes = CompiledWildcardSet.get(includesSet, false);
+                return field -> includes.test(handleKeyword(field));
             }
         }
     };
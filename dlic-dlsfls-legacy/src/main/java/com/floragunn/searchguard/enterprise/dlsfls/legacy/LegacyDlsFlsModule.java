@@ -35,7 +35,10 @@ import com.floragunn.searchguard.authz.SyncAuthorizationFilter;
 import com.floragunn.searchguard.configuration.ConfigMap;
 import com.floragunn.searchguard.configuration.ConfigurationChangeListener;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
+import com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene.DlsBitsetCache;
+import com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene.FlsReaderCache;
 import com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene.SearchGuardFlsDlsIndexSearcherWrapper;
+import com.floragunn.searchsupport.StaticSettings;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 
@@ -50,10 +53,16 @@ public class LegacyDlsFlsModule implements SearchGuardModule, ComponentStateProv
             .requiresEnterpriseLicense();
     private AtomicReference<DlsFlsProcessedConfig> config = new AtomicReference<>(DlsFlsProcessedConfig.DEFAULT);
     private DlsFlsComplianceConfig complianceConfig;
+    private final FlsReaderCache flsReaderCache = new FlsReaderCache();
+    private DlsBitsetCache dlsBitsetCache;
     private Function<IndexService, CheckedFunction<DirectoryReader, DirectoryReader, IOException>> directoryReaderWrapper;
 
     @Override
     public Collection<Object> createComponents(BaseDependencies baseDependencies) {
+        this.dlsBitsetCache = new DlsBitsetCache(baseDependencies.getStaticSettings());
+        this.componentState.addPart(flsReaderCache.getComponentState());
+        this.componentState.addPart(dlsBitsetCache.getComponentState());
+
         this.complianceConfig = new DlsFlsComplianceConfig(baseDependencies.getSettings(), baseDependencies.getConfigurationRepository(),
                 baseDependencies.getLocalClient());
         baseDependencies.getLicenseRepository().subscribeOnLicenseChange(complianceConfig);
@@ -68,7 +77,8 @@ public class LegacyDlsFlsModule implements SearchGuardModule, ComponentStateProv
         this.flsFieldFilter = new FlsFieldFilter(baseDependencies.getThreadPool(), config);
         this.flsQueryCacheWeightProvider = new FlsQueryCacheWeightProvider(baseDependencies.getThreadPool(), config);
         this.directoryReaderWrapper = (indexService) -> new SearchGuardFlsDlsIndexSearcherWrapper(indexService,
-                baseDependencies.getSettings(), baseDependencies.getClusterService(), baseDependencies.getAuditLog(), complianceConfig, config);
+                baseDependencies.getSettings(), baseDependencies.getClusterService(), baseDependencies.getAuditLog(), complianceConfig, config, flsReaderCache,
+                dlsBitsetCache);
 
         ConfigurationRepository configurationRepository = baseDependencies.getConfigurationRepository();
         ClusterService clusterService = baseDependencies.getClusterService();
@@ -86,6 +96,7 @@ public class LegacyDlsFlsModule implements SearchGuardModule, ComponentStateProv
                     log.info(newConfig.isEnabled() ? "Legacy DLS/FLS implementation is now ENABLED" : "Legacy DLS/FLS implementation is now DISABLED");
                 } 
                 LegacyDlsFlsModule.this.config.set(newConfig);
+                flsReaderCache.clear();
 
             }
         });
@@ -118,6 +129,11 @@ public class LegacyDlsFlsModule implements SearchGuardModule, ComponentStateProv
         return ImmutableList.of(flsQueryCacheWeightProvider);
     }
 
+    @Override
+    public StaticSettings.AttributeSet getSettings() {
+        return DlsBitsetCache.STATIC_SETTINGS;
+    }
+
     @Override
     public ComponentState getComponentState() {
         return componentState;
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.FixedBitSet;
+
+import com.floragunn.searchsupport.StaticSettings;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Caches the bit sets of the documents which are visible according to a DLS query. A bit set is computed by scoring the DLS query over the
+ * whole segment and intersecting the result with the live docs of the segment.
+ *
+ * The entries are keyed by:
+ *
+ * - The core cache key of the segment
+ * - The reader cache key of the segment. This changes whenever the live docs change.
+ * - The DLS query
+ * - The FLS rules and the masked fields. The DLS query is evaluated on the filtered reader, so these can influence the result.
+ *
+ * Entries are removed when the segment or the reader is closed. To find these entries without scanning the whole cache, the keys are also
+ * indexed by their segment and reader. The cache is bounded by the number of entries and by the size of the bit sets in bytes.
+ */
+public class DlsBitsetCache implements ComponentStateProvider {
+
+    public static final StaticSettings.Attribute<Integer> MAX_ENTRIES = //
+            StaticSettings.Attribute.define("searchguard.dls.legacy.bitset_cache.max_entries").withDefault(10000).asInteger();
+
+    public static final StaticSettings.Attribute<Integer> MAX_BYTES = //
+            StaticSettings.Attribute.define("searchguard.dls.legacy.bitset_cache.max_bytes").withDefault(50 * 1024 * 1024).asInteger();
+
+    public static final StaticSettings.AttributeSet STATIC_SETTINGS = StaticSettings.AttributeSet.of(MAX_ENTRIES, MAX_BYTES);
+
+    /**
+     * The size assumed for queries which do not report their size; the same as in Lucene's LRUQueryCache
+     */
+    private static final long QUERY_DEFAULT_BYTES = 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Cache<Key, FixedBitSet> cache;
+
+    /**
+     * The keys of the cache entries by segment and by reader. A segment or reader is contained in these maps iff a closed listener has been
+     * registered for it.
+     */
+    private final Map<IndexReader.CacheKey, Set<Key>> keysBySegment = new ConcurrentHashMap<>();
+    private final Map<IndexReader.CacheKey, Set<Key>> keysByReader = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final ComponentState componentState = new ComponentState(13, null, "dls_bitset_cache", DlsBitsetCache.class).initialized();
+    private final CountAggregation uncacheable = new CountAggregation();
+
+    public DlsBitsetCache(StaticSettings settings) {
+        this(settings.get(MAX_ENTRIES), settings.get(MAX_BYTES));
+    }
+
+    DlsBitsetCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        // Each entry weighs at least maxBytes / maxEntries; thus, the weight limit also limits the number of entries
+        int minWeight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / Math.max(1, maxEntries)));
+
+        this.cache = CacheBuilder.newBuilder().maximumWeight(Math.max(0, maxBytes))
+                .<Key, FixedBitSet>weigher((k, v) -> (int) Math.max(minWeight, Math.min(Integer.MAX_VALUE, estimateBytes(k, v))))
+                .removalListener((RemovalNotification<Key, FixedBitSet> notification) -> onRemoval(notification))
+                .recordStats().build();
+
+        this.componentState.addMetrics("cache", CacheStats.from(cache));
+        this.componentState.addMetrics("uncacheable", uncacheable);
+        this.componentState.addMetrics("hit_ratio_percent", new Count.Live(() -> {
+            com.google.common.cache.CacheStats stats = cache.stats();
+            return stats.requestCount() != 0 ? stats.hitCount() * 100 / stats.requestCount() : 0;
+        }));
+        this.componentState.addMetrics("bytes", new Count.Live(bytes::get));
+        this.componentState.addMetrics("max_bytes", new Count.Live(() -> this.maxBytes));
+    }
+
+    /**
+     * Returns the bit set of visible documents for the given segment and DLS query. If the bit set is not cached, it is computed by the given
+     * loader. The returned bit sets are shared and must not be modified.
+     */
+    FixedBitSet get(LeafReader segmentReader, Query dlsQuery, FlsRules flsRules, Set<String> maskedFields, Loader loader) throws IOException {
+        IndexReader.CacheHelper coreCacheHelper = segmentReader.getCoreCacheHelper();
+        IndexReader.CacheHelper readerCacheHelper = segmentReader.getReaderCacheHelper();
+
+        if (maxEntries <= 0 || maxBytes <= 0 || coreCacheHelper == null || readerCacheHelper == null) {
+            uncacheable.increment();
+            return loader.load();
+        }
+
+        IndexReader.CacheKey coreKey = coreCacheHelper.getKey();
+        IndexReader.CacheKey readerKey = readerCacheHelper.getKey();
+        Key key = new Key(coreKey, readerKey, dlsQuery, flsRules, maskedFields);
+        FixedBitSet result = cache.getIfPresent(key);
+
+        if (result != null) {
+            return result;
+        }
+
+        Set<Key> segmentKeys = getKeys(keysBySegment, coreCacheHelper, this::onSegmentClosed);
+        Set<Key> readerKeys = getKeys(keysByReader, readerCacheHelper, this::onReaderClosed);
+
+        result = loader.load();
+
+        if (maskedFields != null) {
+            key = new Key(coreKey, readerKey, dlsQuery, flsRules, Collections.unmodifiableSet(new HashSet<>(maskedFields)));
+        }
+
+        bytes.addAndGet(estimateBytes(key, result));
+        segmentKeys.add(key);
+        readerKeys.add(key);
+        cache.put(key, result);
+
+        return result;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the keys indexed for the segment or reader of the given cache helper. Registers the closed listener if the segment or reader is
+     * not yet known.
+     */
+    private static Set<Key> getKeys(Map<IndexReader.CacheKey, Set<Key>> keysByCacheKey, IndexReader.CacheHelper cacheHelper,
+            IndexReader.ClosedListener closedListener) {
+        IndexReader.CacheKey cacheKey = cacheHelper.getKey();
+        Set<Key> result = keysByCacheKey.get(cacheKey);
+
+        if (result == null) {
+            Set<Key> newKeys = ConcurrentHashMap.newKeySet();
+            result = keysByCacheKey.putIfAbsent(cacheKey, newKeys);
+
+            if (result == null) {
+                result = newKeys;
+                cacheHelper.addClosedListener(closedListener);
+            }
+        }
+
+        return result;
+    }
+
+    private void onSegmentClosed(IndexReader.CacheKey coreKey) {
+        Set<Key> keys = keysBySegment.remove(coreKey);
+
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void onReaderClosed(IndexReader.CacheKey readerKey) {
+        Set<Key> keys = keysByReader.remove(readerKey);
+
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void onRemoval(RemovalNotification<Key, FixedBitSet> notification) {
+        Key key = notification.getKey();
+
+        bytes.addAndGet(-estimateBytes(key, notification.getValue()));
+
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            // The key is still in the cache
+            return;
+        }
+
+        Set<Key> segmentKeys = keysBySegment.get(key.coreKey);
+
+        if (segmentKeys != null) {
+            segmentKeys.remove(key);
+        }
+
+        Set<Key> readerKeys = keysByReader.get(key.readerKey);
+
+        if (readerKeys != null) {
+            readerKeys.remove(key);
+        }
+    }
+
+    private static long estimateBytes(Key key, FixedBitSet bitSet) {
+        long queryBytes = key.dlsQuery instanceof Accountable ? ((Accountable) key.dlsQuery).ramBytesUsed() : QUERY_DEFAULT_BYTES;
+
+        return 128 + queryBytes + bitSet.ramBytesUsed();
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        FixedBitSet load() throws IOException;
+    }
+
+    private static class Key {
+        private final IndexReader.CacheKey coreKey;
+        private final IndexReader.CacheKey readerKey;
+        private final Query dlsQuery;
+        private final FlsRules flsRules;
+        private final Set<String> maskedFields;
+        private final int hashCode;
+
+        Key(IndexReader.CacheKey coreKey, IndexReader.CacheKey readerKey, Query dlsQuery, FlsRules flsRules, Set<String> maskedFields) {
+            this.coreKey = coreKey;
+            this.readerKey = readerKey;
+            this.dlsQuery = dlsQuery;
+            this.flsRules = flsRules;
+            this.maskedFields = maskedFields;
+            this.hashCode = Objects.hash(coreKey, readerKey, dlsQuery, flsRules, maskedFields);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && coreKey == other.coreKey && readerKey == other.readerKey && dlsQuery.equals(other.dlsQuery)
+                    && Objects.equals(flsRules, other.flsRules) && Objects.equals(maskedFields, other.maskedFields);
+        }
+    }
+}
@@ -20,8 +20,6 @@ package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
 //https://github.com/salyh/elasticsearch-security-plugin/blob/4b53974a43b270ae77ebe79d635e2484230c9d01/src/main/java/org/elasticsearch/plugins/security/filter/DlsWriteFilter.java
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -72,7 +70,6 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.lucene.index.SequentialStoredFieldsLeafReader;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.XContentHelper;
-import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -98,15 +95,12 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
     private static final Logger log = LogManager.getLogger(DlsFlsFilterLeafReader.class);
 
     private static final String KEYWORD = ".keyword";
-    private static final String[] EMPTY_STRING_ARRAY = new String[0];
     private final Set<String> includesSet;
     private final Set<String> excludesSet;
     private final FieldInfos flsFieldInfos;
     private final boolean flsEnabled;
-    private String[] includes;
-    private String[] excludes;
-    private boolean canOptimize = true;
-    private Function<Map<String, ?>, Map<String, Object>> filterFunction;
+    private final boolean canOptimize;
+    private final Function<Map<String, ?>, Map<String, Object>> filterFunction;
     private final IndexService indexService;
     private final ThreadContext threadContext;
     private final DlsFlsComplianceConfig complianceConfig;
@@ -114,12 +108,15 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
     private final Set<String> maskedFieldsKeySet;
     private final boolean maskFields;
     private final boolean localHashingEnabled;
+    private final FlsReaderCache flsReaderCache;
+    private final FlsRules flsRules;
 
     private DlsGetEvaluator dge = null;
 
     DlsFlsFilterLeafReader(final LeafReader delegate, final Set<String> includesExcludes, final Query dlsQuery, final IndexService indexService,
             final ThreadContext threadContext, final ClusterService clusterService, final DlsFlsComplianceConfig complianceConfig,
-            final AuditLog auditlog, final Set<String> maskedFields, final ShardId shardId) {
+            final AuditLog auditlog, final Set<String> maskedFields, final ShardId shardId, final FlsReaderCache flsReaderCache,
+            final DlsBitsetCache dlsBitsetCache) {
         super(delegate);
 
         try {
@@ -129,7 +126,8 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
             this.indexService = indexService;
             this.threadContext = threadContext;
             this.complianceConfig = complianceConfig;
-            this.maskedFieldsMap = maskFields ? extractMaskedFields(maskedFields) : null;
+            this.flsReaderCache = flsReaderCache;
+            this.maskedFieldsMap = maskFields ? flsReaderCache.getMaskedFields(maskedFields, complianceConfig) : null;
 
             if (maskedFieldsMap != null) {
                 maskedFieldsKeySet = maskedFieldsMap.keySet();
@@ -140,81 +138,23 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
             flsEnabled = includesExcludes != null && !includesExcludes.isEmpty();
 
             if (flsEnabled) {
+                this.flsRules = flsReaderCache.getRules(includesExcludes);
 
-                final FieldInfos infos = delegate.getFieldInfos();
-                this.includesSet = new HashSet<>(includesExcludes.size());
-                this.excludesSet = new HashSet<>(includesExcludes.size());
-
-                for (final String incExc : includesExcludes) {
-                    if (canOptimize && (incExc.indexOf('.') > -1 || incExc.indexOf('*') > -1)) {
-                        canOptimize = false;
-                    }
-
-                    final char firstChar = incExc.charAt(0);
-
-                    if (firstChar == '!' || firstChar == '~') {
-                        excludesSet.add(incExc.substring(1));
-                    } else {
-                        includesSet.add(incExc);
-                    }
-                }
-
-                int i = 0;
-                final FieldInfo[] fa = new FieldInfo[infos.size()];
-
-                if (canOptimize) {
-                    if (!excludesSet.isEmpty()) {
-                        for (final FieldInfo info : infos) {
-                            if (!excludesSet.contains(info.name)) {
-                                fa[i++] = info;
-                            }
-                        }
-                    } else {
-                        for (final String inc : includesSet) {
-                            FieldInfo f;
-                            if ((f = infos.fieldInfo(inc)) != null) {
-                                fa[i++] = f;
-                            }
-                        }
-                    }
-                } else {
-                    if (!excludesSet.isEmpty()) {
-                        for (final FieldInfo info : infos) {
-                            if (!WildcardMatcher.matchAny(excludesSet, info.name)) {
-                                fa[i++] = info;
-                            }
-                        }
-
-                        this.excludes = excludesSet.toArray(EMPTY_STRING_ARRAY);
-
-                    } else {
-                        for (final FieldInfo info : infos) {
-                            if (WildcardMatcher.matchAny(includesSet, info.name)) {
-                                fa[i++] = info;
-                            }
-                        }
-
-                        this.includes = includesSet.toArray(EMPTY_STRING_ARRAY);
-                    }
-
-                    if (!excludesSet.isEmpty()) {
-                        filterFunction = XContentMapValues.filter(null, excludes);
-                    } else {
-                        filterFunction = XContentMapValues.filter(includes, null);
-                    }
-                }
-
-                final FieldInfo[] tmp = new FieldInfo[i];
-                System.arraycopy(fa, 0, tmp, 0, i);
-                this.flsFieldInfos = new FieldInfos(tmp);
-
+                this.includesSet = flsRules.getIncludesSet();
+                this.excludesSet = flsRules.getExcludesSet();
+                this.canOptimize = flsRules.isCanOptimize();
+                this.filterFunction = flsRules.getFilterFunction();
+                this.flsFieldInfos = flsReaderCache.getFieldInfos(delegate, flsRules);
             } else {
+                this.flsRules = null;
                 this.includesSet = null;
                 this.excludesSet = null;
+                this.canOptimize = true;
+                this.filterFunction = null;
                 this.flsFieldInfos = null;
             }
 
-            dge = new DlsGetEvaluator(dlsQuery, in, applyDlsHere());
+            dge = new DlsGetEvaluator(dlsQuery, in, applyDlsHere(), dlsBitsetCache, maskFields ? maskedFields : null);
         } catch (RuntimeException e) {
             log.error("Got exception while initializing " + this, e);
             throw e;
@@ -231,34 +171,10 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
         private final CacheHelper readerCacheHelper;
         private final boolean hasDeletions;
 
-        public DlsGetEvaluator(final Query dlsQuery, final LeafReader in, boolean applyDlsHere) throws IOException {
+        public DlsGetEvaluator(final Query dlsQuery, final LeafReader in, boolean applyDlsHere, final DlsBitsetCache dlsBitsetCache,
+                final Set<String> maskedFields) throws IOException {
             if (dlsQuery != null && applyDlsHere) {
-                //borrowed from Apache Lucene (Copyright Apache Software Foundation (ASF))
-                //https://github.com/apache/lucene-solr/blob/branch_6_3/lucene/misc/src/java/org/apache/lucene/index/PKIndexSplitter.java
-                final IndexSearcher searcher = new IndexSearcher(DlsFlsFilterLeafReader.this);
-                searcher.setQueryCache(null);
-                final Weight preserveWeight = searcher.createWeight(dlsQuery, ScoreMode.COMPLETE_NO_SCORES, 1f);
-
-                final int maxDoc = in.maxDoc();
-                final FixedBitSet bits = new FixedBitSet(maxDoc);
-                final Scorer preserveScorer = preserveWeight.scorer(DlsFlsFilterLeafReader.this.getContext());
-
-                if (preserveScorer != null) {
-                    bits.or(preserveScorer.iterator());
-                }
-
-                if (in.hasDeletions()) {
-                    final Bits oldLiveDocs = in.getLiveDocs();
-                    assert oldLiveDocs != null;
-                    final DocIdSetIterator it = new BitSetIterator(bits, 0L);
-                    for (int i = it.nextDoc(); i != DocIdSetIterator.NO_MORE_DOCS; i = it.nextDoc()) {
-                        if (!oldLiveDocs.get(i)) {
-                            bits.clear(i);
-                        }
-                    }
-                }
-
-                liveBits = bits;
+                liveBits = dlsBitsetCache.get(in, dlsQuery, flsRules, maskedFields, () -> computeLiveBits(dlsQuery, in));
                 numDocs = in.numDocs();
                 readerCacheHelper = null;
                 hasDeletions = true;
@@ -272,6 +188,35 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
             }
         }
 
+        private FixedBitSet computeLiveBits(final Query dlsQuery, final LeafReader in) throws IOException {
+            //borrowed from Apache Lucene (Copyright Apache Software Foundation (ASF))
+            //https://github.com/apache/lucene-solr/blob/branch_6_3/lucene/misc/src/java/org/apache/lucene/index/PKIndexSplitter.java
+            final IndexSearcher searcher = new IndexSearcher(DlsFlsFilterLeafReader.this);
+            searcher.setQueryCache(null);
+            final Weight preserveWeight = searcher.createWeight(dlsQuery, ScoreMode.COMPLETE_NO_SCORES, 1f);
+
+            final int maxDoc = in.maxDoc();
+            final FixedBitSet bits = new FixedBitSet(maxDoc);
+            final Scorer preserveScorer = preserveWeight.scorer(DlsFlsFilterLeafReader.this.getContext());
+
+            if (preserveScorer != null) {
+                bits.or(preserveScorer.iterator());
+            }
+
+            if (in.hasDeletions()) {
+                final Bits oldLiveDocs = in.getLiveDocs();
+                assert oldLiveDocs != null;
+                final DocIdSetIterator it = new BitSetIterator(bits, 0L);
+                for (int i = it.nextDoc(); i != DocIdSetIterator.NO_MORE_DOCS; i = it.nextDoc()) {
+                    if (!oldLiveDocs.get(i)) {
+                        bits.clear(i);
+                    }
+                }
+            }
+
+            return bits;
+        }
+
         //return null means no hidden docs
         public Bits getLiveDocs() {
             return liveBits;
@@ -290,16 +235,6 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
         }
     }
 
-    private Map<String, MaskedField> extractMaskedFields(Set<String> maskedFields) {
-        Map<String, MaskedField> retVal = new HashMap<>(maskedFields.size());
-        for (String mfs : maskedFields) {
-            MaskedField mf = new MaskedField(mfs, complianceConfig.getSalt16(), localHashingEnabled ? complianceConfig.getSalt2_16() : null,
-                    complianceConfig.getMaskPrefix());
-            retVal.put(mf.getName(), mf);
-        }
-        return retVal;
-    }
-
     private static class DlsFlsSubReaderWrapper extends FilterDirectoryReader.SubReaderWrapper {
 
         private final Set<String> includes;
@@ -311,10 +246,13 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
         private final AuditLog auditlog;
         private final Set<String> maskedFields;
         private final ShardId shardId;
+        private final FlsReaderCache flsReaderCache;
+        private final DlsBitsetCache dlsBitsetCache;
 
         public DlsFlsSubReaderWrapper(final Set<String> includes, final Query dlsQuery, final IndexService indexService,
                 final ThreadContext threadContext, final ClusterService clusterService, final DlsFlsComplianceConfig complianceConfig,
-                final AuditLog auditlog, final Set<String> maskedFields, ShardId shardId) {
+                final AuditLog auditlog, final Set<String> maskedFields, ShardId shardId, FlsReaderCache flsReaderCache,
+                DlsBitsetCache dlsBitsetCache) {
             this.includes = includes;
             this.dlsQuery = dlsQuery;
             this.indexService = indexService;
@@ -324,12 +262,14 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
             this.auditlog = auditlog;
             this.maskedFields = maskedFields;
             this.shardId = shardId;
+            this.flsReaderCache = flsReaderCache;
+            this.dlsBitsetCache = dlsBitsetCache;
         }
 
         @Override
         public LeafReader wrap(final LeafReader reader) {
             return new DlsFlsFilterLeafReader(reader, includes, dlsQuery, indexService, threadContext, clusterService, complianceConfig, auditlog,
-                    maskedFields, shardId);
+                    maskedFields, shardId, flsReaderCache, dlsBitsetCache);
         }
 
     }
@@ -345,12 +285,15 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
         private final AuditLog auditlog;
         private final Set<String> maskedFields;
         private final ShardId shardId;
+        private final FlsReaderCache flsReaderCache;
+        private final DlsBitsetCache dlsBitsetCache;
 
         public DlsFlsDirectoryReader(final DirectoryReader in, final Set<String> includes, final Query dlsQuery, final IndexService indexService,
                 final ThreadContext threadContext, final ClusterService clusterService, final DlsFlsComplianceConfig complianceConfig,
-                final AuditLog auditlog, final Set<String> maskedFields, ShardId shardId) throws IOException {
+                final AuditLog auditlog, final Set<String> maskedFields, ShardId shardId, FlsReaderCache flsReaderCache,
+                DlsBitsetCache dlsBitsetCache) throws IOException {
             super(in, new DlsFlsSubReaderWrapper(includes, dlsQuery, indexService, threadContext, clusterService, complianceConfig, auditlog,
-                    maskedFields, shardId));
+                    maskedFields, shardId, flsReaderCache, dlsBitsetCache));
             this.includes = includes;
             this.dlsQuery = dlsQuery;
             this.indexService = indexService;
@@ -360,12 +303,14 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
             this.auditlog = auditlog;
             this.maskedFields = maskedFields;
             this.shardId = shardId;
+            this.flsReaderCache = flsReaderCache;
+            this.dlsBitsetCache = dlsBitsetCache;
         }
 
         @Override
         protected DirectoryReader doWrapDirectoryReader(final DirectoryReader in) throws IOException {
             return new DlsFlsDirectoryReader(in, includes, dlsQuery, indexService, threadContext, clusterService, complianceConfig, auditlog,
-                    maskedFields, shardId);
+                    maskedFields, shardId, flsReaderCache, dlsBitsetCache);
         }
 
         @Override
@@ -1116,7 +1061,7 @@ class DlsFlsFilterLeafReader extends SequentialStoredFieldsLeafReader {
         if (maskedEval != null) {
             final Set<String> mf = maskedFieldsMap.get(maskedEval);
             if (mf != null && !mf.isEmpty()) {
-                return extractMaskedFields(mf);
+                return flsReaderCache.getMaskedFields(mf, complianceConfig);
             }
 
         }
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+
+import com.floragunn.searchguard.enterprise.dlsfls.legacy.DlsFlsComplianceConfig;
+import com.floragunn.searchguard.enterprise.dlsfls.legacy.MaskedField;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Caches the objects DlsFlsFilterLeafReader needs for applying FLS and field masking:
+ *
+ * - The parsed FLS rules and masked fields per rule set
+ * - The filtered FieldInfos per segment and FLS rule set. Entries are removed when the segment is closed; to find these entries without
+ *   scanning the whole cache, the keys are also indexed by segment.
+ *
+ * All entries are removed when the configuration changes.
+ */
+public class FlsReaderCache implements ComponentStateProvider {
+
+    private static final int MAX_RULE_SETS = 1000;
+    private static final int MAX_FIELD_INFOS = 10000;
+
+    private final Cache<Set<String>, FlsRules> rulesCache = CacheBuilder.newBuilder().maximumSize(MAX_RULE_SETS).recordStats().build();
+    private final Cache<MaskedFieldsKey, Map<String, MaskedField>> maskedFieldsCache = CacheBuilder.newBuilder().maximumSize(MAX_RULE_SETS)
+            .recordStats().build();
+    private final Cache<FieldInfosKey, FieldInfosEntry> fieldInfosCache = CacheBuilder.newBuilder().maximumSize(MAX_FIELD_INFOS)
+            .removalListener((RemovalNotification<FieldInfosKey, FieldInfosEntry> notification) -> onRemoval(notification)).recordStats().build();
+
+    /**
+     * The keys of the FieldInfos cache by segment. A segment is contained in this map iff a closed listener has been registered for it.
+     */
+    private final Map<IndexReader.CacheKey, Set<FieldInfosKey>> fieldInfosKeysBySegment = new ConcurrentHashMap<>();
+    private final ComponentState componentState = new ComponentState(12, null, "fls_reader_cache", FlsReaderCache.class).initialized();
+
+    public FlsReaderCache() {
+        this.componentState.addMetrics("rules_cache", CacheStats.from(rulesCache));
+        this.componentState.addMetrics("masked_fields_cache", CacheStats.from(maskedFieldsCache));
+        this.componentState.addMetrics("field_infos_cache", CacheStats.from(fieldInfosCache));
+    }
+
+    FlsRules getRules(Set<String> includesExcludes) {
+        FlsRules result = rulesCache.getIfPresent(includesExcludes);
+
+        if (result == null) {
+            Set<String> key = Collections.unmodifiableSet(new HashSet<>(includesExcludes));
+            result = new FlsRules(key);
+            rulesCache.put(key, result);
+        }
+
+        return result;
+    }
+
+    Map<String, MaskedField> getMaskedFields(Set<String> maskedFields, DlsFlsComplianceConfig complianceConfig) {
+        byte[] salt = complianceConfig.getSalt16();
+        byte[] salt2 = complianceConfig.isLocalHashingEnabled() ? complianceConfig.getSalt2_16() : null;
+        byte[] prefix = complianceConfig.getMaskPrefix();
+
+        Map<String, MaskedField> result = maskedFieldsCache.getIfPresent(new MaskedFieldsKey(maskedFields, salt, salt2, prefix));
+
+        if (result == null) {
+            Map<String, MaskedField> map = new HashMap<>(maskedFields.size());
+
+            for (String mfs : maskedFields) {
+                MaskedField mf = new MaskedField(mfs, salt, salt2, prefix);
+                map.put(mf.getName(), mf);
+            }
+
+            result = Collections.unmodifiableMap(map);
+            maskedFieldsCache.put(new MaskedFieldsKey(Collections.unmodifiableSet(new HashSet<>(maskedFields)), salt, salt2, prefix), result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the FieldInfos of the given segment which are visible according to the given rules.
+     */
+    FieldInfos getFieldInfos(LeafReader segmentReader, FlsRules rules) {
+        FieldInfos source = segmentReader.getFieldInfos();
+        IndexReader.CacheHelper coreCacheHelper = segmentReader.getCoreCacheHelper();
+
+        if (coreCacheHelper == null) {
+            return rules.filter(source);
+        }
+
+        IndexReader.CacheKey coreKey = coreCacheHelper.getKey();
+        FieldInfosKey key = new FieldInfosKey(coreKey, rules);
+        FieldInfosEntry entry = fieldInfosCache.getIfPresent(key);
+
+        // Doc value updates can add fields to a segment without changing the core key. Then, the reader provides a new FieldInfos instance.
+        if (entry != null && entry.source == source) {
+            return entry.filtered;
+        }
+
+        Set<FieldInfosKey> segmentKeys = fieldInfosKeysBySegment.get(coreKey);
+
+        if (segmentKeys == null) {
+            Set<FieldInfosKey> newKeys = ConcurrentHashMap.newKeySet();
+            segmentKeys = fieldInfosKeysBySegment.putIfAbsent(coreKey, newKeys);
+
+            if (segmentKeys == null) {
+                segmentKeys = newKeys;
+                coreCacheHelper.addClosedListener(this::onSegmentClosed);
+            }
+        }
+
+        FieldInfos filtered = rules.filter(source);
+        segmentKeys.add(key);
+        fieldInfosCache.put(key, new FieldInfosEntry(source, filtered));
+        return filtered;
+    }
+
+    public void clear() {
+        rulesCache.invalidateAll();
+        maskedFieldsCache.invalidateAll();
+        fieldInfosCache.invalidateAll();
+    }
+
+    long getFieldInfosCacheSize() {
+        return fieldInfosCache.size();
+    }
+
+    private void onSegmentClosed(IndexReader.CacheKey coreKey) {
+        Set<FieldInfosKey> keys = fieldInfosKeysBySegment.remove(coreKey);
+
+        if (keys != null) {
+            fieldInfosCache.invalidateAll(keys);
+        }
+    }
+
+    private void onRemoval(RemovalNotification<FieldInfosKey, FieldInfosEntry> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            // The key is still in the cache
+            return;
+        }
+
+        Set<FieldInfosKey> segmentKeys = fieldInfosKeysBySegment.get(notification.getKey().coreKey);
+
+        if (segmentKeys != null) {
+            segmentKeys.remove(notification.getKey());
+        }
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    private static class FieldInfosEntry {
+        private final FieldInfos source;
+        private final FieldInfos filtered;
+
+        FieldInfosEntry(FieldInfos source, FieldInfos filtered) {
+            this.source = source;
+            this.filtered = filtered;
+        }
+    }
+
+    private static class FieldInfosKey {
+        private final IndexReader.CacheKey coreKey;
+        private final FlsRules rules;
+        private final int hashCode;
+
+        FieldInfosKey(IndexReader.CacheKey coreKey, FlsRules rules) {
+            this.coreKey = coreKey;
+            this.rules = rules;
+            this.hashCode = Objects.hash(coreKey, rules);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FieldInfosKey)) {
+                return false;
+            }
+            FieldInfosKey other = (FieldInfosKey) obj;
+            return coreKey == other.coreKey && rules.equals(other.rules);
+        }
+    }
+
+    private static class MaskedFieldsKey {
+        private final Set<String> maskedFields;
+        private final byte[] salt;
+        private final byte[] salt2;
+        private final byte[] prefix;
+        private final int hashCode;
+
+        MaskedFieldsKey(Set<String> maskedFields, byte[] salt, byte[] salt2, byte[] prefix) {
+            this.maskedFields = maskedFields;
+            this.salt = salt;
+            this.salt2 = salt2;
+            this.prefix = prefix;
+            this.hashCode = Objects.hash(maskedFields, Arrays.hashCode(salt), Arrays.hashCode(salt2), Arrays.hashCode(prefix));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MaskedFieldsKey)) {
+                return false;
+            }
+            MaskedFieldsKey other = (MaskedFieldsKey) obj;
+            return maskedFields.equals(other.maskedFields) && Arrays.equals(salt, other.salt) && Arrays.equals(salt2, other.salt2)
+                    && Arrays.equals(prefix, other.prefix);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+
+import com.floragunn.searchguard.support.CompiledWildcardSet;
+
+/**
+ * The parsed form of a set of FLS includes and excludes. Instances are immutable and are shared by all readers using the same FLS rules.
+ */
+class FlsRules {
+    private static final String[] EMPTY_STRING_ARRAY = new String[0];
+
+    private final Set<String> source;
+    private final Set<String> includesSet;
+    private final Set<String> excludesSet;
+    private final boolean canOptimize;
+    private final CompiledWildcardSet includesMatcher;
+    private final CompiledWildcardSet excludesMatcher;
+    private final Function<Map<String, ?>, Map<String, Object>> filterFunction;
+
+    FlsRules(Set<String> includesExcludes) {
+        this.source = includesExcludes;
+        Set<String> includesSet = new HashSet<>(includesExcludes.size());
+        Set<String> excludesSet = new HashSet<>(includesExcludes.size());
+        boolean canOptimize = true;
+
+        for (final String incExc : includesExcludes) {
+            if (canOptimize && (incExc.indexOf('.') > -1 || incExc.indexOf('*') > -1)) {
+                canOptimize = false;
+            }
+
+            final char firstChar = incExc.charAt(0);
+
+            if (firstChar == '!' || firstChar == '~') {
+                excludesSet.add(incExc.substring(1));
+            } else {
+                includesSet.add(incExc);
+            }
+        }
+
+        this.includesSet = Collections.unmodifiableSet(includesSet);
+        this.excludesSet = Collections.unmodifiableSet(excludesSet);
+        this.canOptimize = canOptimize;
+
+        if (canOptimize) {
+            this.includesMatcher = null;
+            this.excludesMatcher = null;
+            this.filterFunction = null;
+        } else if (!excludesSet.isEmpty()) {
+            this.includesMatcher = null;
+            this.excludesMatcher = CompiledWildcardSet.compile(excludesSet, false);
+            this.filterFunction = XContentMapValues.filter(null, excludesSet.toArray(EMPTY_STRING_ARRAY));
+        } else {
+            this.includesMatcher = CompiledWildcardSet.compile(includesSet, false);
+            this.excludesMatcher = null;
+            this.filterFunction = XContentMapValues.filter(includesSet.toArray(EMPTY_STRING_ARRAY), null);
+        }
+    }
+
+    /**
+     * Returns the FieldInfos which are visible according to these rules.
+     */
+    FieldInfos filter(FieldInfos infos) {
+        int i = 0;
+        final FieldInfo[] fa = new FieldInfo[infos.size()];
+
+        if (canOptimize) {
+            if (!excludesSet.isEmpty()) {
+                for (final FieldInfo info : infos) {
+                    if (!excludesSet.contains(info.name)) {
+                        fa[i++] = info;
+                    }
+                }
+            } else {
+                for (final String inc : includesSet) {
+                    FieldInfo f;
+                    if ((f = infos.fieldInfo(inc)) != null) {
+                        fa[i++] = f;
+                    }
+                }
+            }
+        } else {
+            if (!excludesSet.isEmpty()) {
+                for (final FieldInfo info : infos) {
+                    if (!excludesMatcher.test(info.name)) {
+                        fa[i++] = info;
+                    }
+                }
+            } else {
+                for (final FieldInfo info : infos) {
+                    if (includesMatcher.test(info.name)) {
+                        fa[i++] = info;
+                    }
+                }
+            }
+        }
+
+        final FieldInfo[] tmp = new FieldInfo[i];
+        System.arraycopy(fa, 0, tmp, 0, i);
+        return new FieldInfos(tmp);
+    }
+
+    Set<String> getIncludesSet() {
+        return includesSet;
+    }
+
+    Set<String> getExcludesSet() {
+        return excludesSet;
+    }
+
+    boolean isCanOptimize() {
+        return canOptimize;
+    }
+
+    Function<Map<String, ?>, Map<String, Object>> getFilterFunction() {
+        return filterFunction;
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FlsRules)) {
+            return false;
+        }
+        return source.equals(((FlsRules) obj).source);
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+}
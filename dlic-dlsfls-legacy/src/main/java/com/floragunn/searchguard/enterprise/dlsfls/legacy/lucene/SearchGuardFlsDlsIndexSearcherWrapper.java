@@ -58,9 +58,12 @@ public class SearchGuardFlsDlsIndexSearcherWrapper implements CheckedFunction<Di
     private final ThreadContext threadContext;
     private final Index index;
     private final AtomicReference<DlsFlsProcessedConfig> config;
+    private final FlsReaderCache flsReaderCache;
+    private final DlsBitsetCache dlsBitsetCache;
 
     public SearchGuardFlsDlsIndexSearcherWrapper(final IndexService indexService, final Settings settings, final ClusterService clusterService,
-            final AuditLog auditlog, final DlsFlsComplianceConfig complianceConfig, AtomicReference<DlsFlsProcessedConfig> config) {
+            final AuditLog auditlog, final DlsFlsComplianceConfig complianceConfig, AtomicReference<DlsFlsProcessedConfig> config,
+            FlsReaderCache flsReaderCache, DlsBitsetCache dlsBitsetCache) {
         this.clusterService = clusterService;
         this.indexService = indexService;
         this.complianceConfig = complianceConfig;
@@ -69,6 +72,8 @@ public class SearchGuardFlsDlsIndexSearcherWrapper implements CheckedFunction<Di
         this.threadContext = indexService.getThreadPool().getThreadContext();
         this.index = indexService.index();
         this.config = config;
+        this.flsReaderCache = flsReaderCache;
+        this.dlsBitsetCache = dlsBitsetCache;
         final boolean allowNowinDlsQueries = settings.getAsBoolean(ConfigConstants.SEARCHGUARD_UNSUPPORTED_ALLOW_NOW_IN_DLS, false);
         if (allowNowinDlsQueries) {
             nowInMillis = () -> System.currentTimeMillis();
@@ -125,6 +130,6 @@ public class SearchGuardFlsDlsIndexSearcherWrapper implements CheckedFunction<Di
         }
 
         return new DlsFlsFilterLeafReader.DlsFlsDirectoryReader(reader, flsFields, dlsQuery, indexService, threadContext, clusterService,
-                complianceConfig, auditlog, maskedFields, shardId);
+                complianceConfig, auditlog, maskedFields, shardId, flsReaderCache, dlsBitsetCache);
     }
 }
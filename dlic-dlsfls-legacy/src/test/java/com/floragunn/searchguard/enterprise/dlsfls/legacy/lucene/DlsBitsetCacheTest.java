@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+public class DlsBitsetCacheTest {
+
+    private static final Query DLS_QUERY = new ConstantScoreQuery(new TermQuery(new Term("a", "value_1")));
+
+    @Test
+    public void bitsetsAreShared() throws Exception {
+        DlsBitsetCache cache = new DlsBitsetCache(1000, 1024 * 1024);
+
+        try (Directory directory = FlsReaderCacheTest.createDirectory(3, "a", "b")) {
+            DirectoryReader reader = DirectoryReader.open(directory);
+
+            DirectoryReader wrapped1 = wrap(reader, null, cache);
+            DirectoryReader wrapped2 = wrap(reader, null, cache);
+
+            Assert.assertEquals(3, cache.size());
+
+            for (int i = 0; i < 3; i++) {
+                Bits liveDocs = wrapped1.leaves().get(i).reader().getLiveDocs();
+
+                Assert.assertSame(liveDocs, wrapped2.leaves().get(i).reader().getLiveDocs());
+                Assert.assertEquals(i == 1, liveDocs.get(0));
+                Assert.assertEquals(i == 1 ? 1 : 0, numVisibleDocs(wrapped1.leaves().get(i)));
+            }
+
+            Assert.assertTrue(cache.getBytes() > 0);
+
+            reader.close();
+
+            Assert.assertEquals(0, cache.size());
+            Assert.assertEquals(0, cache.getBytes());
+        }
+    }
+
+    @Test
+    public void flsIsPartOfKey() throws Exception {
+        DlsBitsetCache cache = new DlsBitsetCache(1000, 1024 * 1024);
+
+        try (Directory directory = FlsReaderCacheTest.createDirectory(3, "a", "b"); DirectoryReader reader = DirectoryReader.open(directory)) {
+            DirectoryReader wrapped = wrap(reader, null, cache);
+            DirectoryReader wrappedWithFls = wrap(reader, new HashSet<>(Arrays.asList("~a")), cache);
+
+            Assert.assertEquals(6, cache.size());
+            Assert.assertEquals(1, numVisibleDocs(wrapped.leaves().get(1)));
+            // The DLS query cannot see the field hidden by FLS
+            Assert.assertEquals(0, numVisibleDocs(wrappedWithFls.leaves().get(1)));
+        }
+    }
+
+    @Test
+    public void deletions() throws Exception {
+        DlsBitsetCache cache = new DlsBitsetCache(1000, 1024 * 1024);
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+                for (String b : Arrays.asList("x", "y")) {
+                    Document document = new Document();
+                    document.add(new StringField("a", "value_1", Field.Store.YES));
+                    document.add(new StringField("b", b, Field.Store.YES));
+                    writer.addDocument(document);
+                }
+            }
+
+            DirectoryReader reader = DirectoryReader.open(directory);
+
+            Assert.assertEquals(2, numVisibleDocs(wrap(reader, null, cache).leaves().get(0)));
+            Assert.assertEquals(1, cache.size());
+
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+                writer.deleteDocuments(new Term("b", "x"));
+            }
+
+            DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+            Assert.assertNotNull(newReader);
+
+            // The segment has new live docs; thus, the cached bit set must not be used
+            Assert.assertEquals(1, numVisibleDocs(wrap(newReader, null, cache).leaves().get(0)));
+            Assert.assertEquals(2, cache.size());
+
+            reader.close();
+
+            Assert.assertEquals(1, cache.size());
+
+            newReader.close();
+
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void weightLimit() throws Exception {
+        DlsBitsetCache cache = new DlsBitsetCache(2, 1024 * 1024);
+
+        try (Directory directory = FlsReaderCacheTest.createDirectory(3, "a", "b"); DirectoryReader reader = DirectoryReader.open(directory)) {
+            DirectoryReader wrapped = wrap(reader, null, cache);
+
+            Assert.assertTrue(cache.size() <= 2);
+            Assert.assertEquals(1, numVisibleDocs(wrapped.leaves().get(1)));
+        }
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        DlsBitsetCache cache = new DlsBitsetCache(0, 0);
+
+        try (Directory directory = FlsReaderCacheTest.createDirectory(3, "a", "b"); DirectoryReader reader = DirectoryReader.open(directory)) {
+            DirectoryReader wrapped = wrap(reader, null, cache);
+
+            Assert.assertEquals(0, cache.size());
+            Assert.assertEquals(1, numVisibleDocs(wrapped.leaves().get(1)));
+        }
+    }
+
+    static DirectoryReader wrap(DirectoryReader reader, Set<String> fls, DlsBitsetCache cache) throws Exception {
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        // DLS is applied in the reader only for non-search actions
+        threadContext.putTransient(ConfigConstants.SG_ACTION_NAME, "indices:data/read/get");
+
+        return new DlsFlsFilterLeafReader.DlsFlsDirectoryReader(reader, fls, DLS_QUERY, null, threadContext, null, null, null, null, null,
+                new FlsReaderCache(), cache);
+    }
+
+    private static int numVisibleDocs(LeafReaderContext leaf) {
+        Bits liveDocs = leaf.reader().getLiveDocs();
+        int result = 0;
+
+        for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+            if (liveDocs == null || liveDocs.get(i)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.junit.Ignore;
+import org.junit.Test;
+
+@Ignore
+public class FlsReaderCachePerfTest {
+
+    private static final int SEGMENTS = 200;
+    private static final int FIELDS = 500;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void wrapLatency() throws Exception {
+        String[] fields = new String[FIELDS];
+
+        for (int i = 0; i < FIELDS; i++) {
+            fields[i] = "group_" + (i % 10) + ".field_" + i;
+        }
+
+        Set<String> fls = new HashSet<>();
+        fls.add("group_1.*");
+        fls.add("group_2.*");
+        fls.add("*_42*");
+
+        try (Directory directory = FlsReaderCacheTest.createDirectory(SEGMENTS, fields); DirectoryReader reader = DirectoryReader.open(directory)) {
+            FlsReaderCache sharedCache = new FlsReaderCache();
+
+            // Warm up
+            measure(reader, fls, null, ITERATIONS / 10);
+            measure(reader, fls, sharedCache, ITERATIONS / 10);
+
+            long start = System.nanoTime();
+            int visibleFields = measure(reader, fls, null, ITERATIONS);
+            long duration = System.nanoTime() - start;
+
+            System.out.println("Uncached: " + (duration / ITERATIONS / 1000) + " us/wrap; " + visibleFields + " visible fields");
+
+            start = System.nanoTime();
+            visibleFields = measure(reader, fls, sharedCache, ITERATIONS);
+            duration = System.nanoTime() - start;
+
+            System.out.println("Cached: " + (duration / ITERATIONS / 1000) + " us/wrap; " + visibleFields + " visible fields");
+        }
+    }
+
+    /**
+     * Wraps the reader and touches the field infos of all segments; if cache is null, a new cache is used for each iteration
+     */
+    private int measure(DirectoryReader reader, Set<String> fls, FlsReaderCache cache, int iterations) throws Exception {
+        int visibleFields = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            DirectoryReader wrapped = FlsReaderCacheTest.wrap(reader, new HashSet<>(fls), cache != null ? cache : new FlsReaderCache());
+
+            for (LeafReaderContext leaf : wrapped.leaves()) {
+                visibleFields += leaf.reader().getFieldInfos().size();
+            }
+        }
+
+        return visibleFields;
+    }
+}
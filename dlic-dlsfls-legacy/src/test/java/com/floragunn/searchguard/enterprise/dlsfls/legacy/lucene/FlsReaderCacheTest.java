@@ -0,0 +1,135 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.legacy.lucene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.support.ConfigConstants;
+
+public class FlsReaderCacheTest {
+
+    @Test
+    public void rulesAreShared() {
+        FlsReaderCache cache = new FlsReaderCache();
+
+        FlsRules rules = cache.getRules(new HashSet<>(Arrays.asList("a", "c.*")));
+
+        Assert.assertSame(rules, cache.getRules(new HashSet<>(Arrays.asList("c.*", "a"))));
+        Assert.assertNotSame(rules, cache.getRules(new HashSet<>(Arrays.asList("a"))));
+    }
+
+    @Test
+    public void fieldInfos() throws Exception {
+        FlsReaderCache cache = new FlsReaderCache();
+
+        try (Directory directory = createDirectory(3, "a", "b", "c.x", "c.y")) {
+            DirectoryReader reader = DirectoryReader.open(directory);
+            Set<String> fls = new HashSet<>(Arrays.asList("a", "c.*"));
+            FlsRules rules = cache.getRules(fls);
+
+            for (LeafReaderContext leaf : reader.leaves()) {
+                FieldInfos filtered = cache.getFieldInfos(leaf.reader(), rules);
+
+                Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c.x", "c.y")), fieldNames(filtered));
+                Assert.assertSame(filtered, cache.getFieldInfos(leaf.reader(), rules));
+            }
+
+            DirectoryReader wrapped = wrap(reader, new HashSet<>(Arrays.asList("~b", "~c.x")), cache);
+
+            for (LeafReaderContext leaf : wrapped.leaves()) {
+                Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c.y")), fieldNames(leaf.reader().getFieldInfos()));
+            }
+
+            Assert.assertEquals(6, cache.getFieldInfosCacheSize());
+
+            reader.close();
+
+            Assert.assertEquals(0, cache.getFieldInfosCacheSize());
+        }
+    }
+
+    @Test
+    public void clear() throws Exception {
+        FlsReaderCache cache = new FlsReaderCache();
+
+        try (Directory directory = createDirectory(1, "a", "b"); DirectoryReader reader = DirectoryReader.open(directory)) {
+            FlsRules rules = cache.getRules(new HashSet<>(Arrays.asList("a")));
+            FieldInfos filtered = cache.getFieldInfos(reader.leaves().get(0).reader(), rules);
+
+            cache.clear();
+
+            Assert.assertNotSame(rules, cache.getRules(new HashSet<>(Arrays.asList("a"))));
+            Assert.assertNotSame(filtered, cache.getFieldInfos(reader.leaves().get(0).reader(), rules));
+        }
+    }
+
+    static Directory createDirectory(int segments, String... fields) throws Exception {
+        Directory directory = new ByteBuffersDirectory();
+
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            for (int i = 0; i < segments; i++) {
+                Document document = new Document();
+
+                for (String field : fields) {
+                    document.add(new StringField(field, "value_" + i, Field.Store.YES));
+                }
+
+                writer.addDocument(document);
+                writer.commit();
+            }
+        }
+
+        return directory;
+    }
+
+    static DirectoryReader wrap(DirectoryReader reader, Set<String> fls, FlsReaderCache cache) throws Exception {
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        threadContext.putTransient(ConfigConstants.SG_ACTION_NAME, "indices:data/read/search");
+
+        return new DlsFlsFilterLeafReader.DlsFlsDirectoryReader(reader, fls, null, null, threadContext, null, null, null, null, null, cache,
+                new DlsBitsetCache(0, 0));
+    }
+
+    private static Set<String> fieldNames(FieldInfos fieldInfos) {
+        List<String> result = new ArrayList<>();
+
+        for (FieldInfo fieldInfo : fieldInfos) {
+            result.add(fieldInfo.name);
+        }
+
+        return new HashSet<>(result);
+    }
+}
@@ -51,8 +51,10 @@ import com.floragunn.searchguard.authz.SyncAuthorizationFilter;
 import com.floragunn.searchguard.configuration.CType;
 import com.floragunn.searchguard.configuration.ConfigMap;
 import com.floragunn.searchguard.enterprise.dlsfls.lucene.DlsFlsDirectoryReaderWrapper;
+import com.floragunn.searchguard.enterprise.dlsfls.lucene.MaskedOrdinalsCache;
 import com.floragunn.searchguard.license.SearchGuardLicense;
 import com.floragunn.searchguard.license.SearchGuardLicense.Feature;
+import com.floragunn.searchsupport.StaticSettings;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
@@ -73,6 +75,7 @@ public class DlsFlsModule implements SearchGuardModule, ComponentStateProvider {
 
     private final TimeAggregation directoryReaderWrapperApplyAggregation = new TimeAggregation.Nanoseconds();
 
+    private MaskedOrdinalsCache maskedOrdinalsCache;
     private DlsFlsBaseContext dlsFlsBaseContext;
     private DlsFlsValve dlsFlsValve;
     private DlsFlsSearchOperationListener dlsFlsSearchOperationListener;
@@ -93,6 +96,9 @@ public class DlsFlsModule implements SearchGuardModule, ComponentStateProvider {
 
         this.clusterService = baseDependencies.getClusterService();
 
+        this.maskedOrdinalsCache = new MaskedOrdinalsCache(baseDependencies.getStaticSettings());
+        this.directoryReaderWrapperComponentState.addPart(maskedOrdinalsCache.getComponentState());
+
         this.dlsFlsBaseContext = new DlsFlsBaseContext(baseDependencies.getAuthInfoService(), baseDependencies.getAuthorizationService(),
                 baseDependencies.getThreadPool().getThreadContext());
 
@@ -107,7 +113,8 @@ public class DlsFlsModule implements SearchGuardModule, ComponentStateProvider {
         this.flsQueryCacheWeightProvider = new FlsQueryCacheWeightProvider(this.dlsFlsBaseContext, config);
 
         this.directoryReaderWrapperFactory = (indexService) -> new DlsFlsDirectoryReaderWrapper(indexService, baseDependencies.getAuditLog(),
-                this.dlsFlsBaseContext, config, this.licenseInfo, directoryReaderWrapperComponentState, directoryReaderWrapperApplyAggregation);
+                this.dlsFlsBaseContext, config, this.licenseInfo, directoryReaderWrapperComponentState, directoryReaderWrapperApplyAggregation,
+                maskedOrdinalsCache);
 
         this.componentState.addParts(this.dlsFlsValve.getComponentState(), this.dlsFlsSearchOperationListener.getComponentState(),
                 this.flsFieldFilter.getComponentState(), this.flsQueryCacheWeightProvider.getComponentState());
@@ -166,6 +173,11 @@ public class DlsFlsModule implements SearchGuardModule, ComponentStateProvider {
         return ImmutableList.of(flsQueryCacheWeightProvider);
     }
 
+    @Override
+    public StaticSettings.AttributeSet getSettings() {
+        return MaskedOrdinalsCache.STATIC_SETTINGS;
+    }
+
     @Override
     public ComponentState getComponentState() {
         return componentState;
@@ -14,6 +14,8 @@
 
 package com.floragunn.searchguard.enterprise.dlsfls;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.search.BooleanClause.Occur;
@@ -23,14 +25,21 @@ import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.ConstantScoreQuery;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.search.SearchExtBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 
 import com.floragunn.fluent.collections.ImmutableSet;
 import com.floragunn.searchguard.authz.PrivilegesEvaluationContext;
 import com.floragunn.searchguard.authz.config.Role;
 import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldAuthorization.FlsRule;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+import com.floragunn.searchguard.enterprise.dlsfls.lucene.DlsFlsDirectoryReader;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
 import com.floragunn.searchsupport.cstate.metrics.Meter;
 import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
 import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
@@ -43,11 +52,15 @@ public class DlsFlsSearchOperationListener implements SearchOperationListener, C
     private final ComponentState componentState = new ComponentState(1, null, "search_operation_listener", DlsFlsSearchOperationListener.class)
             .initialized();
     private final TimeAggregation onPreQueryPhaseAggregation = new TimeAggregation.Nanoseconds();
+    private final CountAggregation requestCacheHits = new CountAggregation();
+    private final CountAggregation requestCacheMisses = new CountAggregation();
 
     DlsFlsSearchOperationListener(DlsFlsBaseContext dlsFlsBase, AtomicReference<DlsFlsProcessedConfig> config) {
         this.dlsFlsBaseContext = dlsFlsBase;
         this.config = config;
         this.componentState.addMetrics("filter_pre_query_phase", onPreQueryPhaseAggregation);
+        this.componentState.addMetrics("request_cache_hits", requestCacheHits);
+        this.componentState.addMetrics("request_cache_misses", requestCacheMisses);
     }
 
     @Override
@@ -58,7 +71,11 @@ public class DlsFlsSearchOperationListener implements SearchOperationListener, C
             log.trace("DlsFlsSearchOperationListener.onPreQueryPhase()\nnot enabled");
             return;
         }
-        
+
+        if (config.getDlsFlsConfig().isRequestCacheEnabled()) {
+            addRequestCacheFingerprint(searchContext, config);
+        }
+
         if (config.getDlsFlsConfig().getDlsMode() ==  DlsFlsConfig.Mode.FILTER_LEVEL) {
             log.trace("DlsFlsSearchOperationListener.onPreQueryPhase()\nFilter Level mode active");
             return;
@@ -126,6 +143,92 @@ public class DlsFlsSearchOperationListener implements SearchOperationListener, C
         }
     }
 
+    @Override
+    public void onQueryPhase(SearchContext searchContext, long tookInNanos) {
+        SearchSourceBuilder source = searchContext.request().source();
+
+        if (source == null || source.ext() == null || source.ext().isEmpty()) {
+            return;
+        }
+
+        for (SearchExtBuilder ext : source.ext()) {
+            if (ext instanceof RestrictionFingerprint.SearchExt) {
+                DlsFlsDirectoryReader reader = DlsFlsDirectoryReader.unwrap(searchContext.searcher().getDirectoryReader());
+
+                if (reader != null && config.get().getMetricsLevel().basicEnabled()) {
+                    if (reader.getDlsFlsContext().isSearched()) {
+                        requestCacheMisses.increment();
+                    } else {
+                        requestCacheHits.increment();
+                    }
+                }
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Restricted users get a fingerprint of their effective restrictions added to the shard request. As the request is part
+     * of the shard request cache key, only users with identical restrictions share cache entries.
+     * 
+     * This must happen before the query phase, as the cache key is calculated at the start of the query phase.
+     */
+    private void addRequestCacheFingerprint(SearchContext searchContext, DlsFlsProcessedConfig config) {
+        ShardSearchRequest request = searchContext.request();
+
+        if (searchContext.scrollContext() != null || Boolean.FALSE.equals(request.requestCache())
+                || (request.requestCache() == null && searchContext.size() != 0)) {
+            // Not cacheable anyway
+            return;
+        }
+
+        PrivilegesEvaluationContext privilegesEvaluationContext = dlsFlsBaseContext.getPrivilegesEvaluationContext();
+
+        if (privilegesEvaluationContext == null) {
+            return;
+        }
+
+        try (Meter meter = Meter.detail(config.getMetricsLevel(), onPreQueryPhaseAggregation)) {
+            String index = searchContext.indexShard().indexSettings().getIndex().getName();
+
+            RoleBasedDocumentAuthorization documentAuthorization = config.getDocumentAuthorization();
+            RoleBasedFieldAuthorization fieldAuthorization = config.getFieldAuthorization();
+            RoleBasedFieldMasking fieldMasking = config.getFieldMasking();
+
+            if (privilegesEvaluationContext.getSpecialPrivilegesEvaluationContext() != null
+                    && privilegesEvaluationContext.getSpecialPrivilegesEvaluationContext().getRolesConfig() != null) {
+                SgDynamicConfiguration<Role> roles = privilegesEvaluationContext.getSpecialPrivilegesEvaluationContext().getRolesConfig();
+                ImmutableSet<String> indices = ImmutableSet.of(index);
+                documentAuthorization = new RoleBasedDocumentAuthorization(roles, indices, MetricsLevel.NONE);
+                fieldAuthorization = new RoleBasedFieldAuthorization(roles, indices, MetricsLevel.NONE);
+                fieldMasking = new RoleBasedFieldMasking(roles, fieldMasking.getFieldMaskingConfig(), indices, MetricsLevel.NONE);
+            }
+
+            DlsRestriction dlsRestriction = documentAuthorization.getDlsRestriction(privilegesEvaluationContext, index, meter);
+            FlsRule flsRule = fieldAuthorization.getFlsRule(privilegesEvaluationContext, index, meter);
+            FieldMaskingRule fieldMaskingRule = fieldMasking.getFieldMaskingRule(privilegesEvaluationContext, index, meter);
+
+            if (dlsRestriction.isUnrestricted() && flsRule.isAllowAll() && fieldMaskingRule.isAllowAll()) {
+                return;
+            }
+
+            RestrictionFingerprint fingerprint = RestrictionFingerprint.of(dlsRestriction, flsRule, fieldMaskingRule,
+                    fieldMasking.getFieldMaskingConfig());
+
+            SearchSourceBuilder source = request.source() != null ? request.source().shallowCopy() : new SearchSourceBuilder();
+            List<SearchExtBuilder> ext = new ArrayList<>(source.ext() != null ? source.ext() : new ArrayList<>());
+            ext.add(fingerprint.toSearchExt());
+            source.ext(ext);
+            request.source(source);
+
+            log.trace("Added restriction fingerprint {} to request for {}", fingerprint, index);
+        } catch (Exception e) {
+            this.componentState.addLastException("request_cache_fingerprint", e);
+            throw new RuntimeException("Error while evaluating restrictions for request cache: " + e, e);
+        }
+    }
+
     @Override
     public ComponentState getComponentState() {
         return componentState;
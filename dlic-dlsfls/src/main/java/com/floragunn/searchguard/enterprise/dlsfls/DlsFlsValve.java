@@ -203,7 +203,11 @@ public class DlsFlsValve implements SyncAuthorizationFilter, ComponentStateProvi
                     }
                 }
 
-                searchRequest.requestCache(Boolean.FALSE);
+                if (!config.getDlsFlsConfig().isRequestCacheEnabled() || (hasDlsRestrictions && config.getDlsFlsConfig().isNowAllowedInQueries())) {
+                    // Otherwise, DlsFlsSearchOperationListener extends the cache key by a fingerprint of the restrictions.
+                    // DLS queries using now are not deterministic and thus cannot be cached.
+                    searchRequest.requestCache(Boolean.FALSE);
+                }
             }
 
             if (hasDlsRestrictions) {
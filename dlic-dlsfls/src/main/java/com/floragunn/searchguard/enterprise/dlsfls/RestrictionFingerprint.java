@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.SearchExtBuilder;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldAuthorization.FlsRule;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * A stable identifier of the effective DLS, FLS and field masking restrictions of a user on an index. Users with identical
+ * restrictions get identical fingerprints. This allows restricted users to share results in the shard request cache.
+ */
+public class RestrictionFingerprint {
+
+    public static RestrictionFingerprint of(DlsRestriction dlsRestriction, FlsRule flsRule, FieldMaskingRule fieldMaskingRule,
+            DlsFlsConfig.FieldMasking fieldMaskingConfig) {
+        MessageDigest digest = createDigest();
+
+        if (dlsRestriction.isUnrestricted()) {
+            update(digest, "DLS:<none>");
+        } else {
+            // The order of the queries does not change the semantics of the restriction
+            List<String> queries = new ArrayList<>(dlsRestriction.getQueries().size());
+
+            for (com.floragunn.searchsupport.queries.Query query : dlsRestriction.getQueries()) {
+                queries.add(query.toString());
+            }
+
+            Collections.sort(queries);
+
+            update(digest, "DLS:");
+
+            for (String query : queries) {
+                update(digest, query);
+            }
+        }
+
+        update(digest, flsRule.toString());
+        update(digest, fieldMaskingRule.toString());
+
+        if (!fieldMaskingRule.isAllowAll() && fieldMaskingConfig != null) {
+            update(digest, fieldMaskingConfig.getSalt());
+            update(digest, fieldMaskingConfig.getPersonalization());
+            update(digest, fieldMaskingConfig.getPrefix() != null ? fieldMaskingConfig.getPrefix() : "");
+        }
+
+        return new RestrictionFingerprint(BaseEncoding.base16().lowerCase().encode(digest.digest()));
+    }
+
+    private final String value;
+
+    RestrictionFingerprint(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public SearchExt toSearchExt() {
+        return new SearchExt(value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RestrictionFingerprint)) {
+            return false;
+        }
+        return value.equals(((RestrictionFingerprint) obj).value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String string) {
+        update(digest, string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        // Prefix each component by its length to avoid ambiguities
+        int length = bytes.length;
+        digest.update(new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length });
+        digest.update(bytes);
+    }
+
+    /**
+     * Carries the fingerprint in the source of a shard search request. As the source is part of the key of the shard request cache,
+     * requests with different restrictions get different cache entries.
+     *
+     * This is never parsed from client requests, as it is not registered as search extension. It is only added on the shard
+     * level after the request has been parsed.
+     */
+    public static class SearchExt extends SearchExtBuilder {
+        public static final String NAME = "sg_restriction_fingerprint";
+
+        private final String fingerprint;
+
+        SearchExt(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public String getWriteableName() {
+            return NAME;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(fingerprint);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            return builder.field(NAME, fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return fingerprint.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SearchExt)) {
+                return false;
+            }
+            return fingerprint.equals(((SearchExt) obj).fingerprint);
+        }
+    }
+}
@@ -443,12 +443,18 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
 
         public abstract boolean isAllowAll();
 
+        /**
+         * Returns true if the given field and all fields nested below it are allowed. This is a conservative check: If it returns false, some sub-fields might still be allowed.
+         */
+        public abstract boolean isAllowedIncludingSubFields(String field);
+
         static class SingleRole extends FlsRule {
 
             final Role sourceRole;
             final Role.Index sourceIndex;
             final ImmutableList<Role.Index.FlsPattern> patterns;
             final Map<String, Boolean> cache;
+            final Map<String, Boolean> subFieldCache;
             final boolean allowAll;
 
             SingleRole(Role sourceRole, Role.Index sourceIndex) {
@@ -485,8 +491,10 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
 
                 if (this.allowAll) {
                     this.cache = null;
+                    this.subFieldCache = null;
                 } else {
                     this.cache = new ConcurrentHashMap<String, Boolean>();
+                    this.subFieldCache = new ConcurrentHashMap<String, Boolean>();
                 }
             }
 
@@ -497,6 +505,7 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
                 this.allowAll = patterns.isEmpty()
                         || (patterns.size() == 1 && patterns.get(0).getPattern().isWildcard() && !patterns.get(0).isExcluded());
                 this.cache = null;
+                this.subFieldCache = null;
             }
 
             public boolean isAllowed(String field) {
@@ -537,6 +546,49 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
                 return allowAll;
             }
 
+            public boolean isAllowedIncludingSubFields(String field) {
+                if (allowAll) {
+                    return true;
+                } else if (subFieldCache == null) {
+                    return internalIsAllowedIncludingSubFields(field);
+                } else {
+                    Boolean allowed = this.subFieldCache.get(field);
+
+                    if (allowed != null) {
+                        return allowed;
+                    } else {
+                        allowed = internalIsAllowedIncludingSubFields(field);
+                        this.subFieldCache.put(field, allowed);
+                        return allowed;
+                    }
+                }
+            }
+
+            private boolean internalIsAllowedIncludingSubFields(String field) {
+                if (patterns.isEmpty()) {
+                    return true;
+                }
+
+                Role.Index.FlsPattern first = patterns.get(0);
+
+                // Only if everything is included by default, we can be sure that sub-fields not matched by any pattern are allowed
+                if (!first.getPattern().isWildcard() || first.isExcluded()) {
+                    return false;
+                }
+
+                if (!isAllowed(field)) {
+                    return false;
+                }
+
+                for (Role.Index.FlsPattern pattern : this.patterns) {
+                    if (pattern.isExcluded() && mayMatchSubField(pattern.getPattern(), field)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
             @Override
             public String toString() {
                 if (isAllowAll()) {
@@ -598,6 +650,20 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
                 return allowAll;
             }
 
+            public boolean isAllowedIncludingSubFields(String field) {
+                if (allowAll) {
+                    return true;
+                }
+
+                for (SingleRole entry : this.entries) {
+                    if (entry.isAllowedIncludingSubFields(field)) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
             @Override
             public String toString() {
                 if (isAllowAll()) {
@@ -616,6 +682,44 @@ public class RoleBasedFieldAuthorization implements ComponentStateProvider {
                 return field;
             }
         }
+
+        /**
+         * Returns true if the given pattern could match any field nested below the given field. Regular expressions
+         * cannot be analyzed and are thus assumed to always match.
+         */
+        static boolean mayMatchSubField(Pattern pattern, String field) {
+            if (pattern.isWildcard()) {
+                return true;
+            }
+
+            String source = pattern.getSource();
+
+            if (source.startsWith("/")) {
+                return true;
+            }
+
+            String prefix = field + ".";
+            int firstWildcard = indexOfWildcard(source);
+
+            if (firstWildcard == -1) {
+                return source.startsWith(prefix);
+            } else {
+                String literalPrefix = source.substring(0, firstWildcard);
+                return literalPrefix.startsWith(prefix) || prefix.startsWith(literalPrefix);
+            }
+        }
+
+        private static int indexOfWildcard(String source) {
+            for (int i = 0; i < source.length(); i++) {
+                char c = source.charAt(i);
+
+                if (c == '*' || c == '?') {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
     }
 
     public synchronized void updateIndices(Set<String> indices) {
@@ -20,6 +20,7 @@ package com.floragunn.searchguard.enterprise.dlsfls;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -414,6 +415,11 @@ public class RoleBasedFieldMasking implements ComponentStateProvider {
 
         public abstract boolean isAllowAll();
 
+        /**
+         * Returns true if any field nested below the given field might be masked. This is a conservative check: If it returns true, it is still possible that no sub-field is masked.
+         */
+        public abstract boolean mayMaskSubFields(String field);
+
         public static class SingleRole extends FieldMaskingRule {
 
             final Role sourceRole;
@@ -451,6 +457,16 @@ public class RoleBasedFieldMasking implements ComponentStateProvider {
                 return expressions.isEmpty();
             }
 
+            public boolean mayMaskSubFields(String field) {
+                for (Field expression : this.expressions) {
+                    if (RoleBasedFieldAuthorization.FlsRule.mayMatchSubField(expression.getPattern(), field)) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+
             @Override
             public String toString() {
                 if (isAllowAll()) {
@@ -490,6 +506,21 @@ public class RoleBasedFieldMasking implements ComponentStateProvider {
                 return allowAll;
             }
 
+            public boolean mayMaskSubFields(String field) {
+                if (allowAll) {
+                    return false;
+                }
+
+                // A field is only masked if all parts mask it
+                for (FieldMaskingRule.SingleRole part : parts) {
+                    if (!part.mayMaskSubFields(field)) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
             @Override
             public String toString() {
                 if (isAllowAll()) {
@@ -550,6 +581,24 @@ public class RoleBasedFieldMasking implements ComponentStateProvider {
             public String toString() {
                 return expression.toString();
             }
+
+            @Override
+            public int hashCode() {
+                return expression.getSource().hashCode() * 31 + Arrays.hashCode(salt);
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (this == obj) {
+                    return true;
+                }
+                if (!(obj instanceof Field)) {
+                    return false;
+                }
+                Field other = (Field) obj;
+                return expression.getSource().equals(other.expression.getSource()) && Arrays.equals(salt, other.salt)
+                        && Arrays.equals(personalization, other.personalization) && Arrays.equals(prefix, other.prefix);
+            }
             
             private boolean isDefault() {
                 return expression.getAlgo() == null && expression.getRegexReplacements() == null;
@@ -33,9 +33,11 @@ public class DlsFlsActionContext {
     private final AuditLog auditlog;
     private final FieldMaskingRule fieldMaskingRule;
     private final ShardId shardId;
+    private final MaskedOrdinalsCache maskedOrdinalsCache;
+    private volatile boolean searched;
 
     public DlsFlsActionContext(Query dlsQuery, FlsRule flsRule, FieldMaskingRule fieldMaskingRule, IndexService indexService, ThreadContext threadContext,
-            DlsFlsLicenseInfo licenseInfo, AuditLog auditlog, ShardId shardId) {
+            DlsFlsLicenseInfo licenseInfo, AuditLog auditlog, ShardId shardId, MaskedOrdinalsCache maskedOrdinalsCache) {
         this.dlsQuery = dlsQuery;
         this.flsRule = flsRule;
         this.indexService = indexService;
@@ -44,6 +46,7 @@ public class DlsFlsActionContext {
         this.auditlog = auditlog;
         this.fieldMaskingRule = fieldMaskingRule;
         this.shardId = shardId;
+        this.maskedOrdinalsCache = maskedOrdinalsCache;
     }
 
     public Index index() {
@@ -86,6 +89,22 @@ public class DlsFlsActionContext {
         return fieldMaskingRule;
     }
 
+    public MaskedOrdinalsCache getMaskedOrdinalsCache() {
+        return maskedOrdinalsCache;
+    }
+
+    /**
+     * Returns true if a search has been executed on any segment of the wrapped reader. If a search request
+     * yields a result without this being set, the result must have been loaded from the request cache.
+     */
+    public boolean isSearched() {
+        return searched;
+    }
+
+    void markSearched() {
+        this.searched = true;
+    }
+
     @Override
     public String toString() {
         return indexService.index() + " [" + dlsQuery + "; " + flsRule + "; " + fieldMaskingRule + "]";
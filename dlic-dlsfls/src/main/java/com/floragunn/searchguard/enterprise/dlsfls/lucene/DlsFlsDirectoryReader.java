@@ -71,6 +71,22 @@ public class DlsFlsDirectoryReader extends FilterDirectoryReader {
         return in.getReaderCacheHelper();
     }
 
+    public DlsFlsActionContext getDlsFlsContext() {
+        return dlsFlsContext;
+    }
+
+    public static DlsFlsDirectoryReader unwrap(DirectoryReader reader) {
+        while (reader instanceof FilterDirectoryReader) {
+            if (reader instanceof DlsFlsDirectoryReader) {
+                return (DlsFlsDirectoryReader) reader;
+            }
+
+            reader = ((FilterDirectoryReader) reader).getDelegate();
+        }
+
+        return null;
+    }
+
     private static class SubReaderWrapper extends FilterDirectoryReader.SubReaderWrapper {
 
         private final DlsFlsActionContext dlsFlsContext;
@@ -140,6 +156,8 @@ public class DlsFlsDirectoryReader extends FilterDirectoryReader {
 
             @Override
             public Bits getLiveDocs() {
+                // The searcher retrieves the live docs for each segment it searches
+                dlsFlsContext.markSearched();
                 return dlsGetEvaluator.getLiveDocs();
             }
 
@@ -291,6 +309,13 @@ public class DlsFlsDirectoryReader extends FilterDirectoryReader {
                     return sortedDocValues;
                 }
 
+                MaskedOrdinals maskedOrdinals = dlsFlsContext.getMaskedOrdinalsCache().get(in, field, fieldMasking, sortedDocValues.getValueCount(),
+                        () -> in.getSortedDocValues(field).termsEnum());
+
+                if (maskedOrdinals != null) {
+                    return new MaskedOrdinals.MaskedSortedDocValues(sortedDocValues, maskedOrdinals);
+                }
+
                 return new SortedDocValues() {
 
                     @Override
@@ -382,6 +407,13 @@ public class DlsFlsDirectoryReader extends FilterDirectoryReader {
                     return sortedSetDocValues;
                 }
 
+                MaskedOrdinals maskedOrdinals = dlsFlsContext.getMaskedOrdinalsCache().get(in, field, fieldMasking,
+                        sortedSetDocValues.getValueCount(), () -> in.getSortedSetDocValues(field).termsEnum());
+
+                if (maskedOrdinals != null) {
+                    return new MaskedOrdinals.MaskedSortedSetDocValues(sortedSetDocValues, maskedOrdinals);
+                }
+
                 return new SortedSetDocValues() {
 
                     @Override
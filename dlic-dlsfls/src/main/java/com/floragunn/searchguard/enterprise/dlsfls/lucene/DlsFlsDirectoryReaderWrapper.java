@@ -65,10 +65,12 @@ public class DlsFlsDirectoryReaderWrapper implements CheckedFunction<DirectoryRe
     private final AtomicReference<DlsFlsLicenseInfo> licenseInfo;
     private final ComponentState componentState;
     private final TimeAggregation directoryReaderWrapperApplyAggregation;
+    private final MaskedOrdinalsCache maskedOrdinalsCache;
 
     public DlsFlsDirectoryReaderWrapper(IndexService indexService, AuditLog auditlog, DlsFlsBaseContext dlsFlsBaseContext,
             AtomicReference<DlsFlsProcessedConfig> config, AtomicReference<DlsFlsLicenseInfo> licenseInfo,
-            ComponentState directoryReaderWrapperComponentState, TimeAggregation directoryReaderWrapperApplyAggregation) {
+            ComponentState directoryReaderWrapperComponentState, TimeAggregation directoryReaderWrapperApplyAggregation,
+            MaskedOrdinalsCache maskedOrdinalsCache) {
         this.componentState = directoryReaderWrapperComponentState;
         this.directoryReaderWrapperApplyAggregation = directoryReaderWrapperApplyAggregation;
         this.indexService = indexService;
@@ -78,6 +80,7 @@ public class DlsFlsDirectoryReaderWrapper implements CheckedFunction<DirectoryRe
         this.config = config;
         this.licenseInfo = licenseInfo;
         this.dlsFlsBaseContext = dlsFlsBaseContext;
+        this.maskedOrdinalsCache = maskedOrdinalsCache;
     }
 
     @Override
@@ -142,7 +145,7 @@ public class DlsFlsDirectoryReaderWrapper implements CheckedFunction<DirectoryRe
             }
 
             DlsFlsActionContext dlsFlsContext = new DlsFlsActionContext(dlsQuery, flsRule, fieldMaskingRule, indexService, threadContext, licenseInfo, auditlog,
-                    shardId);
+                    shardId, maskedOrdinalsCache);
 
             return new DlsFlsDirectoryReader(reader, dlsFlsContext);
         } catch (PrivilegesEvaluationException e) {
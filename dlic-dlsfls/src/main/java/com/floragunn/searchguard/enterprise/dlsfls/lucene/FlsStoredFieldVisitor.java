@@ -144,6 +144,11 @@ class FlsStoredFieldVisitor extends StoredFieldVisitor {
     static class DocumentFilter {
         public static byte[] filter(Format format, byte[] bytes, FlsRule flsRule, FieldMaskingRule fieldMaskingRule)
                 throws DocumentParseException, IOException {
+            if (flsRule.isAllowAll() && fieldMaskingRule.isAllowAll()) {
+                // Nothing to filter; no need to parse the document at all
+                return bytes;
+            }
+
             try (InputStream in = new ByteArrayInputStream(bytes); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
                 filter(format, in, out, flsRule, fieldMaskingRule);
                 return out.toByteArray();
@@ -185,6 +190,12 @@ class FlsStoredFieldVisitor extends StoredFieldVisitor {
                     switch (token) {
 
                     case START_OBJECT:
+                        if (isUnrestrictedSubTree()) {
+                            // Copy the whole sub-tree verbatim without checking each contained attribute
+                            generator.copyCurrentStructure(parser);
+                            break;
+                        }
+
                         generator.writeStartObject();
                         if (fullParentName != null) {
                             nameStack.add(fullParentName);
@@ -193,11 +204,18 @@ class FlsStoredFieldVisitor extends StoredFieldVisitor {
                         break;
 
                     case START_ARRAY:
+                        if (isUnrestrictedSubTree()) {
+                            generator.copyCurrentStructure(parser);
+                            break;
+                        }
+
                         generator.writeStartArray();
                         break;
 
                     case END_OBJECT:
                         generator.writeEndObject();
+                        // Restore the name of the attribute the object was the value of. This is necessary for arrays of objects.
+                        this.fullCurrentName = this.fullParentName;
                         if (nameStack.isEmpty()) {
                             fullParentName = null;
                         } else {
@@ -237,7 +255,16 @@ class FlsStoredFieldVisitor extends StoredFieldVisitor {
                         break;
 
                     case VALUE_NUMBER_INT:
-                        generator.writeNumber(parser.getBigIntegerValue());
+                        switch (parser.getNumberType()) {
+                        case INT:
+                            generator.writeNumber(parser.getIntValue());
+                            break;
+                        case LONG:
+                            generator.writeNumber(parser.getLongValue());
+                            break;
+                        default:
+                            generator.writeNumber(parser.getBigIntegerValue());
+                        }
                         break;
 
                     case VALUE_STRING:
@@ -276,5 +303,17 @@ class FlsStoredFieldVisitor extends StoredFieldVisitor {
                 }
             }
         }
+
+        /**
+         * Returns true if the object or array value of the current attribute neither contains excluded nor masked attributes.
+         */
+        private boolean isUnrestrictedSubTree() {
+            if (this.fullCurrentName == null) {
+                return false;
+            }
+
+            return flsRule.isAllowedIncludingSubFields(this.fullCurrentName) && fieldMaskingRule.get(this.fullCurrentName) == null
+                    && !fieldMaskingRule.mayMaskSubFields(this.fullCurrentName);
+        }
     }
-}
\ No newline at end of file
+}
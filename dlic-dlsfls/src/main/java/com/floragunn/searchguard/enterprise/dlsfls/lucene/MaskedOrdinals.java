@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+package com.floragunn.searchguard.enterprise.dlsfls.lucene;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+
+/**
+ * The term dictionary of a doc values field of a single segment with all terms masked. The masked terms are sorted and deduplicated; thus
+ * they get new ordinals. This allows to provide doc values with consistent ordinals without hashing each value again on each access.
+ */
+class MaskedOrdinals implements Accountable {
+
+    static MaskedOrdinals build(TermsEnum termsEnum, long valueCount, FieldMaskingRule.Field fieldMasking) throws IOException {
+        if (valueCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many values: " + valueCount);
+        }
+
+        int count = (int) valueCount;
+        BytesRef[] masked = new BytesRef[count];
+        int i = 0;
+
+        for (BytesRef term = termsEnum.next(); term != null && i < count; term = termsEnum.next()) {
+            masked[i++] = BytesRef.deepCopyOf(fieldMasking.apply(term));
+        }
+
+        if (i != count) {
+            throw new IllegalStateException("Unexpected number of terms: " + i + "; expected: " + count);
+        }
+
+        int[] order = new int[count];
+
+        for (int k = 0; k < count; k++) {
+            order[k] = k;
+        }
+
+        new InPlaceMergeSorter() {
+            @Override
+            protected int compare(int a, int b) {
+                return masked[order[a]].compareTo(masked[order[b]]);
+            }
+
+            @Override
+            protected void swap(int a, int b) {
+                int tmp = order[a];
+                order[a] = order[b];
+                order[b] = tmp;
+            }
+        }.sort(0, count);
+
+        int[] originalToMasked = new int[count];
+        BytesRef[] maskedTerms = new BytesRef[count];
+        int maskedCount = 0;
+        long termBytes = 0;
+
+        for (int k = 0; k < count; k++) {
+            BytesRef term = masked[order[k]];
+
+            // Different terms can be masked to the same value
+            if (maskedCount == 0 || !maskedTerms[maskedCount - 1].bytesEquals(term)) {
+                maskedTerms[maskedCount++] = term;
+                termBytes += RamUsageEstimator.NUM_BYTES_OBJECT_HEADER * 2 + term.length;
+            }
+
+            originalToMasked[order[k]] = maskedCount - 1;
+        }
+
+        return new MaskedOrdinals(originalToMasked, Arrays.copyOf(maskedTerms, maskedCount), termBytes);
+    }
+
+    private final int[] originalToMasked;
+    private final BytesRef[] maskedTerms;
+    private final long ramBytesUsed;
+
+    private MaskedOrdinals(int[] originalToMasked, BytesRef[] maskedTerms, long termBytes) {
+        this.originalToMasked = originalToMasked;
+        this.maskedTerms = maskedTerms;
+        this.ramBytesUsed = RamUsageEstimator.sizeOf(originalToMasked) + RamUsageEstimator.shallowSizeOf(maskedTerms) + termBytes;
+    }
+
+    int getMaskedOrd(long originalOrd) {
+        return originalToMasked[(int) originalOrd];
+    }
+
+    BytesRef lookupOrd(long ord) {
+        return maskedTerms[(int) ord];
+    }
+
+    int getValueCount() {
+        return maskedTerms.length;
+    }
+
+    /**
+     * Same contract as SortedDocValues.lookupTerm(): Returns the ordinal of the key if found; otherwise (-insertionPoint - 1)
+     */
+    int lookupTerm(BytesRef key) {
+        int low = 0;
+        int high = maskedTerms.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = maskedTerms[mid].compareTo(key);
+
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    static class MaskedSortedDocValues extends SortedDocValues {
+        private final SortedDocValues delegate;
+        private final MaskedOrdinals ordinals;
+
+        MaskedSortedDocValues(SortedDocValues delegate, MaskedOrdinals ordinals) {
+            this.delegate = delegate;
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public int ordValue() throws IOException {
+            return ordinals.getMaskedOrd(delegate.ordValue());
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) throws IOException {
+            return ordinals.lookupOrd(ord);
+        }
+
+        @Override
+        public int getValueCount() {
+            return ordinals.getValueCount();
+        }
+
+        @Override
+        public int lookupTerm(BytesRef key) throws IOException {
+            return ordinals.lookupTerm(key);
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            return delegate.advanceExact(target);
+        }
+
+        @Override
+        public int docID() {
+            return delegate.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return delegate.nextDoc();
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return delegate.advance(target);
+        }
+
+        @Override
+        public long cost() {
+            return delegate.cost();
+        }
+    }
+
+    static class MaskedSortedSetDocValues extends SortedSetDocValues {
+        private final SortedSetDocValues delegate;
+        private final MaskedOrdinals ordinals;
+        private long[] currentOrds = new long[8];
+        private int currentOrdsCount;
+        private int currentOrdsPos;
+
+        MaskedSortedSetDocValues(SortedSetDocValues delegate, MaskedOrdinals ordinals) {
+            this.delegate = delegate;
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public long nextOrd() throws IOException {
+            if (currentOrdsPos < currentOrdsCount) {
+                return currentOrds[currentOrdsPos++];
+            } else {
+                return NO_MORE_ORDS;
+            }
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) throws IOException {
+            return ordinals.lookupOrd(ord);
+        }
+
+        @Override
+        public long getValueCount() {
+            return ordinals.getValueCount();
+        }
+
+        @Override
+        public long lookupTerm(BytesRef key) throws IOException {
+            return ordinals.lookupTerm(key);
+        }
+
+        @Override
+        public boolean advanceExact(int target) throws IOException {
+            boolean result = delegate.advanceExact(target);
+
+            if (result) {
+                loadCurrentOrds();
+            } else {
+                currentOrdsCount = 0;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int docID() {
+            return delegate.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            int result = delegate.nextDoc();
+
+            if (result != DocIdSetIterator.NO_MORE_DOCS) {
+                loadCurrentOrds();
+            } else {
+                currentOrdsCount = 0;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            int result = delegate.advance(target);
+
+            if (result != DocIdSetIterator.NO_MORE_DOCS) {
+                loadCurrentOrds();
+            } else {
+                currentOrdsCount = 0;
+            }
+
+            return result;
+        }
+
+        @Override
+        public long cost() {
+            return delegate.cost();
+        }
+
+        /**
+         * Ordinals must be returned in increasing order without duplicates. As masking changes the order and might map several
+         * values to the same value, we need to remap, sort and deduplicate the ordinals of the current document.
+         */
+        private void loadCurrentOrds() throws IOException {
+            int count = 0;
+
+            for (long ord = delegate.nextOrd(); ord != NO_MORE_ORDS; ord = delegate.nextOrd()) {
+                if (count == currentOrds.length) {
+                    currentOrds = Arrays.copyOf(currentOrds, count * 2);
+                }
+
+                currentOrds[count++] = ordinals.getMaskedOrd(ord);
+            }
+
+            if (count > 1) {
+                Arrays.sort(currentOrds, 0, count);
+
+                int unique = 1;
+
+                for (int i = 1; i < count; i++) {
+                    if (currentOrds[i] != currentOrds[unique - 1]) {
+                        currentOrds[unique++] = currentOrds[i];
+                    }
+                }
+
+                count = unique;
+            }
+
+            this.currentOrdsCount = count;
+            this.currentOrdsPos = 0;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+package com.floragunn.searchguard.enterprise.dlsfls.lucene;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.TermsEnum;
+
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+import com.floragunn.searchsupport.StaticSettings;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Caches MaskedOrdinals per segment, field and field masking configuration. Entries are removed when the segment is closed; to find these
+ * entries without scanning the whole cache, the keys are also indexed by segment.
+ */
+public class MaskedOrdinalsCache implements ComponentStateProvider {
+    private static final Logger log = LogManager.getLogger(MaskedOrdinalsCache.class);
+
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 100 * 1024 * 1024;
+
+    public static final StaticSettings.Attribute<Integer> MAX_BYTES = //
+            StaticSettings.Attribute.define("searchguard.dls.masked_ordinals_cache.max_bytes").withDefault((int) DEFAULT_MAX_SIZE_IN_BYTES).asInteger();
+
+    public static final StaticSettings.AttributeSet STATIC_SETTINGS = StaticSettings.AttributeSet.of(MAX_BYTES);
+
+    private final Cache<Key, MaskedOrdinals> cache;
+
+    /**
+     * The keys of the cache entries by segment. A segment is contained in this map iff a closed listener has been registered for it.
+     */
+    private final Map<IndexReader.CacheKey, Set<Key>> keysBySegment = new ConcurrentHashMap<>();
+    private final long maxSizeInBytes;
+    private final ComponentState componentState = new ComponentState(11, null, "masked_ordinals_cache", MaskedOrdinalsCache.class).initialized();
+
+    public MaskedOrdinalsCache(StaticSettings settings) {
+        this(settings.get(MAX_BYTES));
+    }
+
+    public MaskedOrdinalsCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        this.cache = CacheBuilder.newBuilder().maximumWeight(Math.max(maxSizeInBytes / 1024, 1))
+                .weigher((Key k, MaskedOrdinals v) -> (int) Math.min(Integer.MAX_VALUE, v.ramBytesUsed() / 1024 + 1))
+                .removalListener((RemovalNotification<Key, MaskedOrdinals> notification) -> onRemoval(notification)).recordStats().build();
+        this.componentState.addMetrics("cache", CacheStats.from(cache));
+    }
+
+    /**
+     * Returns the masked ordinals for the given field of the given segment. Returns null if the ordinals cannot be cached; callers need to
+     * fall back to masking each value separately then.
+     */
+    MaskedOrdinals get(LeafReader segmentReader, String field, FieldMaskingRule.Field fieldMasking, long valueCount, TermsEnumSupplier termsEnum)
+            throws IOException {
+        IndexReader.CacheHelper coreCacheHelper = segmentReader.getCoreCacheHelper();
+
+        if (coreCacheHelper == null) {
+            return null;
+        }
+
+        // Rough estimate of the size of the masked dictionary: One int for the mapping plus a 32 byte hash and object overhead per term
+        if (valueCount * 80 > maxSizeInBytes) {
+            if (log.isDebugEnabled()) {
+                log.debug("Field {} has too many values for caching masked ordinals: {}", field, valueCount);
+            }
+            return null;
+        }
+
+        IndexReader.CacheKey coreKey = coreCacheHelper.getKey();
+
+        Set<Key> segmentKeys = keysBySegment.get(coreKey);
+
+        if (segmentKeys == null) {
+            Set<Key> newKeys = ConcurrentHashMap.newKeySet();
+            segmentKeys = keysBySegment.putIfAbsent(coreKey, newKeys);
+
+            if (segmentKeys == null) {
+                segmentKeys = newKeys;
+                coreCacheHelper.addClosedListener(this::onSegmentClosed);
+            }
+        }
+
+        Key key = new Key(coreKey, field, fieldMasking);
+        Set<Key> keys = segmentKeys;
+
+        try {
+            return cache.get(key, () -> {
+                keys.add(key);
+                return MaskedOrdinals.build(termsEnum.get(), valueCount, fieldMasking);
+            });
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private void onSegmentClosed(IndexReader.CacheKey coreKey) {
+        Set<Key> keys = keysBySegment.remove(coreKey);
+
+        if (keys != null) {
+            cache.invalidateAll(keys);
+        }
+    }
+
+    private void onRemoval(RemovalNotification<Key, MaskedOrdinals> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            // The key is still in the cache
+            return;
+        }
+
+        Set<Key> segmentKeys = keysBySegment.get(notification.getKey().coreKey);
+
+        if (segmentKeys != null) {
+            segmentKeys.remove(notification.getKey());
+        }
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    @FunctionalInterface
+    interface TermsEnumSupplier {
+        TermsEnum get() throws IOException;
+    }
+
+    private static class Key {
+        private final IndexReader.CacheKey coreKey;
+        private final String field;
+        private final FieldMaskingRule.Field fieldMasking;
+        private final int hashCode;
+
+        Key(IndexReader.CacheKey coreKey, String field, FieldMaskingRule.Field fieldMasking) {
+            this.coreKey = coreKey;
+            this.field = field;
+            this.fieldMasking = fieldMasking;
+            this.hashCode = Objects.hash(coreKey, field, fieldMasking);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return coreKey == other.coreKey && field.equals(other.field) && fieldMasking.equals(other.fieldMasking);
+        }
+    }
+}
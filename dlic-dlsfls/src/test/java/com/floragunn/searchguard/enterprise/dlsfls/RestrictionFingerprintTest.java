@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls;
+
+import org.elasticsearch.index.query.QueryBuilders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.fluent.collections.ImmutableList;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldAuthorization.FlsRule;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+import com.floragunn.searchsupport.queries.Query;
+
+public class RestrictionFingerprintTest {
+
+    private static final Query QUERY_A = new Query(QueryBuilders.termQuery("dept", "a"));
+    private static final Query QUERY_B = new Query(QueryBuilders.termQuery("dept", "b"));
+
+    @Test
+    public void identicalRestrictions() throws Exception {
+        RestrictionFingerprint fingerprint1 = RestrictionFingerprint.of(new DlsRestriction(ImmutableList.of(QUERY_A, QUERY_B)), FlsRule.of("~secret"),
+                FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "ip"), DlsFlsConfig.FieldMasking.DEFAULT);
+        RestrictionFingerprint fingerprint2 = RestrictionFingerprint.of(new DlsRestriction(ImmutableList.of(QUERY_B, QUERY_A)), FlsRule.of("~secret"),
+                FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "ip"), DlsFlsConfig.FieldMasking.DEFAULT);
+
+        Assert.assertEquals(fingerprint1, fingerprint2);
+        Assert.assertEquals(fingerprint1.toSearchExt(), fingerprint2.toSearchExt());
+    }
+
+    @Test
+    public void differentDlsRestrictions() throws Exception {
+        RestrictionFingerprint fingerprint1 = RestrictionFingerprint.of(new DlsRestriction(ImmutableList.of(QUERY_A)), FlsRule.ALLOW_ALL,
+                FieldMaskingRule.ALLOW_ALL, DlsFlsConfig.FieldMasking.DEFAULT);
+        RestrictionFingerprint fingerprint2 = RestrictionFingerprint.of(new DlsRestriction(ImmutableList.of(QUERY_B)), FlsRule.ALLOW_ALL,
+                FieldMaskingRule.ALLOW_ALL, DlsFlsConfig.FieldMasking.DEFAULT);
+        RestrictionFingerprint fingerprint3 = RestrictionFingerprint.of(DlsRestriction.NONE, FlsRule.ALLOW_ALL, FieldMaskingRule.ALLOW_ALL,
+                DlsFlsConfig.FieldMasking.DEFAULT);
+
+        Assert.assertNotEquals(fingerprint1, fingerprint2);
+        Assert.assertNotEquals(fingerprint1, fingerprint3);
+    }
+
+    @Test
+    public void differentFlsRestrictions() throws Exception {
+        RestrictionFingerprint fingerprint1 = RestrictionFingerprint.of(DlsRestriction.NONE, FlsRule.of("~a"), FieldMaskingRule.ALLOW_ALL,
+                DlsFlsConfig.FieldMasking.DEFAULT);
+        RestrictionFingerprint fingerprint2 = RestrictionFingerprint.of(DlsRestriction.NONE, FlsRule.of("~b"), FieldMaskingRule.ALLOW_ALL,
+                DlsFlsConfig.FieldMasking.DEFAULT);
+
+        Assert.assertNotEquals(fingerprint1, fingerprint2);
+    }
+
+    @Test
+    public void differentFieldMaskingConfig() throws Exception {
+        DlsFlsConfig.FieldMasking otherConfig = new DlsFlsConfig.FieldMasking(null, new byte[16], DlsFlsConfig.FieldMasking.DEFAULT.getPersonalization(),
+                null);
+
+        RestrictionFingerprint fingerprint1 = RestrictionFingerprint.of(DlsRestriction.NONE, FlsRule.ALLOW_ALL,
+                FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "ip"), DlsFlsConfig.FieldMasking.DEFAULT);
+        RestrictionFingerprint fingerprint2 = RestrictionFingerprint.of(DlsRestriction.NONE, FlsRule.ALLOW_ALL, FieldMaskingRule.of(otherConfig, "ip"),
+                otherConfig);
+
+        Assert.assertNotEquals(fingerprint1, fingerprint2);
+    }
+}
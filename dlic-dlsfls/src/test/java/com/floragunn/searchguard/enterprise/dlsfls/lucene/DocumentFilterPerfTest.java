@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.lucene;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.floragunn.codova.documents.DocNode;
+import com.floragunn.codova.documents.Format;
+import com.floragunn.searchguard.enterprise.dlsfls.DlsFlsConfig;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldAuthorization.FlsRule;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+import com.floragunn.searchguard.enterprise.dlsfls.lucene.FlsStoredFieldVisitor.DocumentFilter;
+
+@Ignore
+public class DocumentFilterPerfTest {
+
+    @Test
+    public void smallDocument() throws Exception {
+        run("1 KB", createDocument(1024), 100000);
+    }
+
+    @Test
+    public void mediumDocument() throws Exception {
+        run("100 KB", createDocument(100 * 1024), 2000);
+    }
+
+    @Test
+    public void largeDocument() throws Exception {
+        run("5 MB", createDocument(5 * 1024 * 1024), 40);
+    }
+
+    private void run(String name, byte[] document, int iterations) throws Exception {
+        FlsRule excludeTopLevel = FlsRule.of("*", "~field_0");
+        FlsRule excludeNested = FlsRule.of("*", "~object_0.field_0");
+        FieldMaskingRule maskNested = FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "object_0.field_1");
+
+        measure(name + "; allow all", document, iterations, FlsRule.ALLOW_ALL, FieldMaskingRule.ALLOW_ALL);
+        measure(name + "; exclude top level field", document, iterations, excludeTopLevel, FieldMaskingRule.ALLOW_ALL);
+        measure(name + "; exclude nested field", document, iterations, excludeNested, FieldMaskingRule.ALLOW_ALL);
+        measure(name + "; mask nested field", document, iterations, FlsRule.ALLOW_ALL, maskNested);
+    }
+
+    private void measure(String name, byte[] document, int iterations, FlsRule flsRule, FieldMaskingRule fieldMaskingRule) throws Exception {
+        // Warm up
+        for (int i = 0; i < iterations / 10 + 1; i++) {
+            Assert.assertNotNull(DocumentFilter.filter(Format.JSON, document, flsRule, fieldMaskingRule));
+        }
+
+        long start = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            DocumentFilter.filter(Format.JSON, document, flsRule, fieldMaskingRule);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        System.out.println(name + ": " + (duration / iterations / 1000) + " µs/doc");
+    }
+
+    private static byte[] createDocument(int size) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        int length = 0;
+
+        for (int i = 0; length < size; i++) {
+            Map<String, Object> object = new LinkedHashMap<>();
+
+            for (int k = 0; k < 10; k++) {
+                object.put("field_" + k, "value " + i + " " + k);
+            }
+
+            object.put("numbers", Arrays.asList(i, i * 2, i * 3));
+
+            document.put("field_" + i, "top level value " + i);
+            document.put("object_" + i, object);
+            length += 220;
+        }
+
+        return DocNode.wrap(document).toBytes(Format.JSON);
+    }
+}
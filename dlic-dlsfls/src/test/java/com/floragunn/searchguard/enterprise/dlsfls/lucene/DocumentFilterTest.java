@@ -103,4 +103,67 @@ public class DocumentFilterTest {
         Assert.assertEquals(document.with("x", "0f9768c7af6190a3707258090b7966d429ae72b29ce19afeacb7c26b59b5448f").toDeepBasicObject(),
                 filteredDocument.toDeepBasicObject());
     }
+
+    @Test
+    public void skipNestedAttributeInArrayOfObjects() throws Exception {
+        FlsRule flsRule = FlsRule.of("*", "~array.secret");
+
+        DocNode document = DocNode.of("array", DocNode.array(DocNode.of("a", DocNode.of("b", 1), "secret", 1), DocNode.of("secret", 2, "c", 3)),
+                "x", "y");
+
+        byte[] filteredDocumentBytes = DocumentFilter.filter(Format.JSON, document.toBytes(Format.JSON), flsRule, FieldMaskingRule.ALLOW_ALL);
+
+        DocNode filteredDocument = DocNode.parse(Format.JSON).from(filteredDocumentBytes);
+
+        Assert.assertEquals(DocNode.of("array", DocNode.array(DocNode.of("a", DocNode.of("b", 1)), DocNode.of("c", 3)), "x", "y").toDeepBasicObject(),
+                filteredDocument.toDeepBasicObject());
+    }
+
+    @Test
+    public void skipDeeplyNestedAttributeWithWildcard() throws Exception {
+        FlsRule flsRule = FlsRule.of("*", "~object.*.secret");
+
+        DocNode document = DocNode.of("object", DocNode.of("a", DocNode.of("secret", 1, "b", 2), "c", DocNode.array(1, 2, 3)), "other",
+                DocNode.of("a", DocNode.of("secret", 1)));
+
+        byte[] filteredDocumentBytes = DocumentFilter.filter(Format.JSON, document.toBytes(Format.JSON), flsRule, FieldMaskingRule.ALLOW_ALL);
+
+        DocNode filteredDocument = DocNode.parse(Format.JSON).from(filteredDocumentBytes);
+
+        Assert.assertEquals(DocNode.of("object", DocNode.of("a", DocNode.of("b", 2), "c", DocNode.array(1, 2, 3)), "other",
+                DocNode.of("a", DocNode.of("secret", 1))).toDeepBasicObject(), filteredDocument.toDeepBasicObject());
+    }
+
+    @Test
+    public void hashNestedAttribute() throws Exception {
+        FieldMaskingRule fieldMaskingRule = FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "object.x");
+        DocNode document = DocNode.of("object", DocNode.of("x", "y", "z", "y"), "x", "y");
+
+        byte[] filteredDocumentBytes = DocumentFilter.filter(Format.JSON, document.toBytes(Format.JSON), FlsRule.ALLOW_ALL, fieldMaskingRule);
+
+        DocNode filteredDocument = DocNode.parse(Format.JSON).from(filteredDocumentBytes);
+
+        Assert.assertEquals(
+                DocNode.of("object", DocNode.of("x", "0f9768c7af6190a3707258090b7966d429ae72b29ce19afeacb7c26b59b5448f", "z", "y"), "x", "y")
+                        .toDeepBasicObject(),
+                filteredDocument.toDeepBasicObject());
+    }
+
+    @Test
+    public void largeNumbers() throws Exception {
+        FlsRule flsRule = FlsRule.of("*", "~x");
+
+        byte[] filteredDocumentBytes = DocumentFilter.filter(Format.JSON,
+                "{\"int\":1,\"long\":12345678901234,\"big\":123456789012345678901234567890,\"x\":1}".getBytes(), flsRule,
+                FieldMaskingRule.ALLOW_ALL);
+
+        Assert.assertEquals("{\"int\":1,\"long\":12345678901234,\"big\":123456789012345678901234567890}", new String(filteredDocumentBytes));
+    }
+
+    @Test
+    public void allowAllReturnsOriginalBytes() throws Exception {
+        byte[] documentBytes = DocNode.of("a", 1, "b", DocNode.of("c", "d")).toBytes(Format.JSON);
+
+        Assert.assertSame(documentBytes, DocumentFilter.filter(Format.JSON, documentBytes, FlsRule.ALLOW_ALL, FieldMaskingRule.ALLOW_ALL));
+    }
 }
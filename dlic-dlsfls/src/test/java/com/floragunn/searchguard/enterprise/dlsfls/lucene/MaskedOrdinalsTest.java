@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016-2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.dlsfls.lucene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.enterprise.dlsfls.DlsFlsConfig;
+import com.floragunn.searchguard.enterprise.dlsfls.RoleBasedFieldMasking.FieldMaskingRule;
+
+public class MaskedOrdinalsTest {
+
+    @Test
+    public void sortedSetDocValues() throws Exception {
+        FieldMaskingRule.Field fieldMasking = FieldMaskingRule.of(DlsFlsConfig.FieldMasking.DEFAULT, "ip").get("ip");
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (int i = 0; i < 100; i++) {
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("ip", new BytesRef("10.0.0." + i)));
+                    document.add(new SortedSetDocValuesField("ip", new BytesRef("10.0.1." + i)));
+                    writer.addDocument(document);
+                }
+            }
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                LeafReader leafReader = reader.leaves().get(0).reader();
+                MaskedOrdinalsCache cache = new MaskedOrdinalsCache(MaskedOrdinalsCache.DEFAULT_MAX_SIZE_IN_BYTES);
+
+                SortedSetDocValues original = leafReader.getSortedSetDocValues("ip");
+                MaskedOrdinals maskedOrdinals = cache.get(leafReader, "ip", fieldMasking, original.getValueCount(),
+                        () -> leafReader.getSortedSetDocValues("ip").termsEnum());
+
+                Assert.assertEquals(200, maskedOrdinals.getValueCount());
+                Assert.assertSame(maskedOrdinals, cache.get(leafReader, "ip", fieldMasking, original.getValueCount(),
+                        () -> leafReader.getSortedSetDocValues("ip").termsEnum()));
+
+                SortedSetDocValues masked = new MaskedOrdinals.MaskedSortedSetDocValues(original, maskedOrdinals);
+                SortedSetDocValues reference = leafReader.getSortedSetDocValues("ip");
+
+                for (int doc = 0; doc < leafReader.maxDoc(); doc++) {
+                    Assert.assertTrue(masked.advanceExact(doc));
+                    Assert.assertTrue(reference.advanceExact(doc));
+
+                    List<BytesRef> expected = new ArrayList<>();
+
+                    for (long ord = reference.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = reference.nextOrd()) {
+                        expected.add(fieldMasking.apply(reference.lookupOrd(ord)));
+                    }
+
+                    expected.sort(null);
+
+                    List<BytesRef> actual = new ArrayList<>();
+                    long previousOrd = -1;
+
+                    for (long ord = masked.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = masked.nextOrd()) {
+                        Assert.assertTrue("Ordinals must be increasing", ord > previousOrd);
+                        previousOrd = ord;
+                        BytesRef term = masked.lookupOrd(ord);
+                        actual.add(BytesRef.deepCopyOf(term));
+                        Assert.assertEquals(ord, masked.lookupTerm(term));
+                    }
+
+                    Assert.assertEquals(expected, actual);
+                }
+
+                Assert.assertTrue(masked.lookupTerm(new BytesRef("10.0.0.1")) < 0);
+            }
+        }
+    }
+}
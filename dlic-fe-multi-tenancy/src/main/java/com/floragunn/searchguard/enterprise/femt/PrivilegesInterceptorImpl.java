@@ -504,19 +504,21 @@ public class PrivilegesInterceptorImpl implements PrivilegesInterceptor {
 
         PrivilegesEvaluationContext context = new PrivilegesEvaluationContext(user, roles, null, null, false, null, null);
         
-        for (String tenant : this.tenantNames) {
-            try {
-                boolean hasReadPermission = actionAuthorization.hasTenantPermission(context, KIBANA_ALL_SAVED_OBJECTS_READ, tenant).isOk();
-                boolean hasWritePermission = actionAuthorization.hasTenantPermission(context, KIBANA_ALL_SAVED_OBJECTS_WRITE, tenant).isOk();
-
-                if (hasWritePermission) {
-                    result.put(tenant, true);
-                } else if (hasReadPermission) {
+        try {
+            ImmutableSet<String> writableTenants = actionAuthorization.getPermittedTenants(context, KIBANA_ALL_SAVED_OBJECTS_WRITE, this.tenantNames);
+            ImmutableSet<String> readableTenants = actionAuthorization.getPermittedTenants(context, KIBANA_ALL_SAVED_OBJECTS_READ, this.tenantNames);
+
+            for (String tenant : writableTenants) {
+                result.put(tenant, true);
+            }
+
+            for (String tenant : readableTenants) {
+                if (!writableTenants.contains(tenant)) {
                     result.put(tenant, false);
                 }
-            } catch (PrivilegesEvaluationException e) {
-                log.error("Error while evaluating privileges for " + user + " " + tenant, e);
             }
+        } catch (PrivilegesEvaluationException e) {
+            log.error("Error while evaluating tenant privileges for " + user, e);
         }
 
         return result.build();
@@ -57,4 +57,30 @@ public class PrivilegesInterceptorImplTest {
                 subject.mapTenants(user, ImmutableSet.of("all_access"), actionAuthorization));
     }
 
+    @Test
+    public void readWriteAndTemplatedTenantMapping() throws Exception {
+        SgDynamicConfiguration<Role> roles = SgDynamicConfiguration.fromMap(DocNode.of(//
+                "writer", DocNode.of("tenant_permissions", Arrays.asList(ImmutableMap.of("tenant_patterns", Arrays.asList("dept_a*"), "allowed_actions",
+                        Arrays.asList("kibana:saved_objects/*/write")))), //
+                "reader", DocNode.of("tenant_permissions", Arrays.asList(ImmutableMap.of("tenant_patterns", Arrays.asList("dept_*"), "allowed_actions",
+                        Arrays.asList("kibana:saved_objects/*/read")))), //
+                "templated", DocNode.of("tenant_permissions", Arrays.asList(ImmutableMap.of("tenant_patterns", Arrays.asList("user_${user.name}"),
+                        "allowed_actions", Arrays.asList("kibana:saved_objects/*/write"))))),
+                CType.ROLES, null).get();
+
+        ImmutableSet<String> tenants = ImmutableSet.of("dept_a1", "dept_a2", "dept_b", "user_test", "user_other", "unrelated");
+
+        RoleBasedActionAuthorization actionAuthorization = new RoleBasedActionAuthorization(roles, emptyActionGroups, actions, null, tenants);
+        PrivilegesInterceptorImpl subject = new PrivilegesInterceptorImpl(FeMultiTenancyConfig.DEFAULT, tenants, actions);
+
+        User user = User.forUser("test").build();
+
+        Assert.assertEquals(ImmutableMap.of("test", true, "dept_a1", true, "dept_a2", true, "dept_b", false, "user_test", true),
+                subject.mapTenants(user, ImmutableSet.of("writer", "reader", "templated"), actionAuthorization));
+        Assert.assertEquals(ImmutableMap.of("test", true, "dept_a1", false, "dept_a2", false, "dept_b", false),
+                subject.mapTenants(user, ImmutableSet.of("reader"), actionAuthorization));
+        Assert.assertEquals(ImmutableMap.of("test", true, "user_test", true),
+                subject.mapTenants(user, ImmutableSet.of("templated"), actionAuthorization));
+    }
+
 }
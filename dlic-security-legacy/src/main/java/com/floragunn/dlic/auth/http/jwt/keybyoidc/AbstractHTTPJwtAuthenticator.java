@@ -20,6 +20,7 @@ import java.security.PrivilegedAction;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -33,6 +34,7 @@ import org.elasticsearch.SpecialPermission;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -42,6 +44,9 @@ import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
 import com.floragunn.searchguard.authc.legacy.LegacyHTTPAuthenticator;
 import com.floragunn.searchguard.user.Attributes;
 import com.floragunn.searchguard.user.AuthCredentials;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.Option;
@@ -75,7 +80,7 @@ public abstract class AbstractHTTPJwtAuthenticator implements LegacyHTTPAuthenti
 
         try {
             this.keyProvider = this.initKeyProvider(settings, configPath);
-            jwtVerifier = new JwtVerifier(keyProvider);
+            jwtVerifier = new JwtVerifier(keyProvider, createVerifiedTokenCache(settings));
         } catch (Exception e) {
             log.error("Error creating JWT authenticator: " + e + ". JWT authentication will not work", e);
         }
@@ -88,6 +93,16 @@ public abstract class AbstractHTTPJwtAuthenticator implements LegacyHTTPAuthenti
         attributeMapping = Attributes.getAttributeMapping(settings.getAsSettings("map_claims_to_user_attrs"));
     }
 
+    private static Cache<HashCode, JwtVerifier.VerifiedToken> createVerifiedTokenCache(Settings settings) {
+        if (!settings.getAsBoolean("verified_token_cache.enabled", true)) {
+            return null;
+        }
+
+        return CacheBuilder.newBuilder().maximumSize(settings.getAsLong("verified_token_cache.max_size", 10000L))
+                .expireAfterWrite(settings.getAsTime("verified_token_cache.ttl", TimeValue.timeValueMinutes(10)).millis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     @Override
     public AuthCredentials extractCredentials(RestRequest request, ThreadContext context) throws ElasticsearchSecurityException {
         final SecurityManager sm = System.getSecurityManager();
@@ -14,6 +14,9 @@
 
 package com.floragunn.dlic.auth.http.jwt.keybyoidc;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.cxf.rs.security.jose.jwa.SignatureAlgorithm;
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKey;
 import org.apache.cxf.rs.security.jose.jws.JwsJwtCompactConsumer;
@@ -26,16 +29,63 @@ import org.apache.cxf.rs.security.jose.jwt.JwtUtils;
 
 import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 
 public class JwtVerifier {
 
 	private final KeyProvider keyProvider;
+	private final Cache<HashCode, VerifiedToken> verifiedTokenCache;
+	private final AtomicLong savedVerifications = new AtomicLong();
 
 	public JwtVerifier(KeyProvider keyProvider) {
+		this(keyProvider, null);
+	}
+
+	/**
+	 * @param verifiedTokenCache caches the verified tokens by the SHA-256 hash of the encoded token. Entries are used until the expiry
+	 *                           configured for the cache or the expiry of the token, whichever is earlier, and only as long as the keys of the
+	 *                           key provider are unchanged. May be null.
+	 */
+	public JwtVerifier(KeyProvider keyProvider, Cache<HashCode, VerifiedToken> verifiedTokenCache) {
 		this.keyProvider = keyProvider;
+		this.verifiedTokenCache = verifiedTokenCache;
 	}
 
 	public JwtToken getVerifiedJwtToken(String encodedJwt) throws BadCredentialsException, AuthenticatorUnavailableException {
+		if (verifiedTokenCache == null) {
+			return verify(encodedJwt);
+		}
+
+		HashCode tokenHash = Hashing.sha256().hashString(encodedJwt, StandardCharsets.UTF_8);
+		VerifiedToken cachedToken = verifiedTokenCache.getIfPresent(tokenHash);
+		long keyGeneration = keyProvider.getKeyGeneration();
+
+		if (cachedToken != null) {
+			if (cachedToken.isValid(keyGeneration, System.currentTimeMillis())) {
+				savedVerifications.incrementAndGet();
+				return cachedToken.jwt;
+			} else {
+				verifiedTokenCache.invalidate(tokenHash);
+			}
+		}
+
+		JwtToken jwt = verify(encodedJwt);
+
+		verifiedTokenCache.put(tokenHash, new VerifiedToken(jwt, keyGeneration));
+
+		return jwt;
+	}
+
+	/**
+	 * Returns the number of signature verifications which were saved by the verified token cache.
+	 */
+	public long getSavedVerificationCount() {
+		return savedVerifications.get();
+	}
+
+	private JwtToken verify(String encodedJwt) throws BadCredentialsException, AuthenticatorUnavailableException {
 		try {
 			JwsJwtCompactConsumer jwtConsumer = new JwsJwtCompactConsumer(encodedJwt);
 			JwtToken jwt = jwtConsumer.getJwtToken();
@@ -97,4 +147,26 @@ public class JwtVerifier {
 			JwtUtils.validateJwtNotBefore(claims, 0, false);
 		}
 	}
+
+	/**
+	 * A token which has passed verification. The key generation is the one which was current before the verification started; thus, a key
+	 * change during the verification also invalidates the entry.
+	 */
+	public static class VerifiedToken {
+		private final JwtToken jwt;
+		private final long keyGeneration;
+		private final long expiresAtMillis;
+
+		VerifiedToken(JwtToken jwt, long keyGeneration) {
+			this.jwt = jwt;
+			this.keyGeneration = keyGeneration;
+
+			Long expiryTime = jwt.getClaims() != null ? jwt.getClaims().getExpiryTime() : null;
+			this.expiresAtMillis = expiryTime != null ? expiryTime * 1000 : Long.MAX_VALUE;
+		}
+
+		boolean isValid(long currentKeyGeneration, long now) {
+			return keyGeneration == currentKeyGeneration && now < expiresAtMillis;
+		}
+	}
 }
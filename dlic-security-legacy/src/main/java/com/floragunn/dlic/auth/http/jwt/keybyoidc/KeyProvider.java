@@ -21,4 +21,12 @@ import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
 public interface KeyProvider {
 	public JsonWebKey getKey(String kid) throws AuthenticatorUnavailableException, BadCredentialsException;
 	public JsonWebKey getKeyAfterRefresh(String kid) throws AuthenticatorUnavailableException, BadCredentialsException;
+
+	/**
+	 * Returns a number which changes whenever the keys provided by this provider might have changed. Can be used to invalidate the results
+	 * of signature verifications. Providers with constant keys return always the same value.
+	 */
+	public default long getKeyGeneration() {
+		return 0;
+	}
 }
@@ -163,9 +163,9 @@ public class AuthTokenModule implements SearchGuardModule, ComponentStateProvide
 
     @Override
     public StaticSettings.AttributeSet getSettings() {
-        return StaticSettings.AttributeSet.of(AuthTokenService.INDEX_NAME, AuthTokenService.CLEANUP_INTERVAL, ConfigHistoryService.CACHE_MAX_SIZE,
-                ConfigHistoryService.CACHE_TTL, ConfigHistoryService.INDEX_NAME, ConfigHistoryService.MODEL_CACHE_MAX_SIZE,
-                ConfigHistoryService.MODEL_CACHE_TTL);
+        return StaticSettings.AttributeSet.of(AuthTokenService.INDEX_NAME, AuthTokenService.CLEANUP_INTERVAL,
+                AuthTokenService.USER_TOKEN_INDEX_RELOAD_INTERVAL, ConfigHistoryService.CACHE_MAX_SIZE, ConfigHistoryService.CACHE_TTL,
+                ConfigHistoryService.INDEX_NAME, ConfigHistoryService.MODEL_CACHE_MAX_SIZE, ConfigHistoryService.MODEL_CACHE_TTL);
     }
 
     @Override
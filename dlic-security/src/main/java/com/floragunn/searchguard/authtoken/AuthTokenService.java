@@ -64,6 +64,7 @@ import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.threadpool.Scheduler.Cancellable;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.XContentBuilder;
@@ -115,6 +116,8 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
             .withDefault(".searchguard_authtokens").asString();
     public static final StaticSettings.Attribute<TimeValue> CLEANUP_INTERVAL = StaticSettings.Attribute
             .define("searchguard.authtokens.cleanup_interval").withDefault(TimeValue.timeValueHours(1)).asTimeValue();
+    public static final StaticSettings.Attribute<TimeValue> USER_TOKEN_INDEX_RELOAD_INTERVAL = StaticSettings.Attribute
+            .define("searchguard.authtokens.user_token_index.reload_interval").withDefault(TimeValue.timeValueMinutes(10)).asTimeValue();
 
     public static final String USER_TYPE = "sg_auth_token";
     public static final String USER_TYPE_FULL_CURRENT_PERMISSIONS = "sg_auth_token_full_current_permissions";
@@ -126,6 +129,9 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
     private final AuthorizationService authorizationService;
     private final PrivilegesEvaluator privilegesEvaluator;
     private final Actions actions;
+    private final ThreadPool threadPool;
+    private final UserAuthTokenIndex userAuthTokenIndex;
+    private final TimeValue userAuthTokenIndexReloadInterval;
 
     private Cache<String, AuthToken> idToAuthTokenMap;
     private JoseJwtProducer jwtProducer;
@@ -139,6 +145,7 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
     private boolean initialized = false;
     private IndexCleanupAgent indexCleanupAgent;
     private long maxTokensPerUser = 100;
+    private Cancellable userAuthTokenIndexReloadJob;
 
     public AuthTokenService(PrivilegedConfigClient privilegedConfigClient, AuthorizationService authorizationService,
             PrivilegesEvaluator privilegesEvaluator, ConfigHistoryService configHistoryService, StaticSettings settings, ThreadPool threadPool,
@@ -151,6 +158,9 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
         this.authorizationService = authorizationService;
         this.privilegesEvaluator = privilegesEvaluator;
         this.actions = actions;
+        this.threadPool = threadPool;
+        this.userAuthTokenIndex = new UserAuthTokenIndex(indexName, privilegedConfigClient);
+        this.userAuthTokenIndexReloadInterval = settings.get(USER_TOKEN_INDEX_RELOAD_INTERVAL);
 
         this.idToAuthTokenMap = AuthTokenServiceConfig.DEFAULT_TOKEN_CACHE_CONFIG.build();
 
@@ -163,6 +173,7 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
         }
 
         componentState.addPart(protectedConfigIndexService.createIndex(configIndex));
+        componentState.addPart(userAuthTokenIndex.getComponentState());
 
         this.indexCleanupAgent = new IndexCleanupAgent(indexName, AuthToken.EXPIRES_AT, settings.get(CLEANUP_INTERVAL), privilegedConfigClient,
                 clusterService, threadPool);
@@ -389,7 +400,7 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
         if (maxTokensPerUser == 0) {
             throw new TokenCreationException("Cannot create token. max_tokens_per_user is set to 0", RestStatus.FORBIDDEN);
         } else if (maxTokensPerUser > 0) {
-            long existingTokenCount = countAuthTokensOfUser(user);
+            long existingTokenCount = getAuthTokenCountOfUser(user);
 
             if (existingTokenCount + 1 > maxTokensPerUser) {
                 throw new TokenCreationException(
@@ -415,6 +426,8 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
             throw new TokenCreationException("Error while creating token", RestStatus.INTERNAL_SERVER_ERROR, e);
         }
 
+        userAuthTokenIndex.add(authToken.getUserName(), authToken.getId());
+
         return authToken;
     }
 
@@ -555,6 +568,14 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
     }
 
     private void init(ProtectedConfigIndexService.FailureListener failureListener) {
+        synchronized (this) {
+            if (userAuthTokenIndexReloadJob == null) {
+                threadPool.generic().execute(userAuthTokenIndex::reload);
+                userAuthTokenIndexReloadJob = threadPool.scheduleWithFixedDelay(userAuthTokenIndex::reload, userAuthTokenIndexReloadInterval,
+                        ThreadPool.Names.GENERIC);
+            }
+        }
+
         initComplete();
         failureListener.onSuccess();
         this.componentState.updateStateFromParts();
@@ -610,6 +631,11 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
         }
 
         AuthToken updatedAuthToken = request.getUpdatedToken();
+
+        if (request.getUpdateType() == UpdateType.NEW) {
+            userAuthTokenIndex.add(updatedAuthToken.getUserName(), updatedAuthToken.getId());
+        }
+
         Optional<AuthToken> existingAuthToken = getTokenFromCache(updatedAuthToken.getId());
 
         if (! existingAuthToken.isPresent()) {
@@ -678,6 +704,21 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
         return null;
     }
 
+    /**
+     * Uses the in-memory user token index if possible. The auth token index is only searched if the user token index is not available yet or if
+     * the token limit would be exceeded. In the latter case, the search makes sure that the request is not rejected due to an outdated count;
+     * for example, expired tokens might have been deleted in the meantime.
+     */
+    private long getAuthTokenCountOfUser(User user) {
+        long count = userAuthTokenIndex.getTokenCount(user.getName());
+
+        if (count != -1 && count + 1 <= maxTokensPerUser) {
+            return count;
+        }
+
+        return countAuthTokensOfUser(user);
+    }
+
     private long countAuthTokensOfUser(User user) {
 
         SearchRequest searchRequest = new SearchRequest(getIndexName())
@@ -899,6 +940,13 @@ public class AuthTokenService implements SpecialPrivilegesEvaluationContextProvi
 
     public void shutdown() {
         this.indexCleanupAgent.shutdown();
+
+        synchronized (this) {
+            if (userAuthTokenIndexReloadJob != null) {
+                userAuthTokenIndexReloadJob.cancel();
+                userAuthTokenIndexReloadJob = null;
+            }
+        }
     }
 
     private ConfigModel getCurrentConfigModel() {
@@ -79,6 +79,19 @@ public class RestrictedActionAuthorization implements ActionAuthorization {
         return base.hasTenantPermission(context, action, requestedTenant);
     }
 
+    @Override
+    public ImmutableSet<String> getPermittedTenants(PrivilegesEvaluationContext context, Action action, ImmutableSet<String> tenants)
+            throws PrivilegesEvaluationException {
+        ImmutableSet<String> requestedTenants = restrictionSgRoles.getPermittedTenants(context.mappedRoles(RequestedPrivileges.RESTRICTION_ROLES),
+                action, tenants);
+
+        if (requestedTenants.isEmpty()) {
+            return requestedTenants;
+        }
+
+        return base.getPermittedTenants(context, action, requestedTenants);
+    }
+
     @Override
     public String toString() {
         return "RestrictedActionAuthorization [base=" + base + ", restrictionSgRoles=" + restrictionSgRoles + ", restriction=" + restriction + "]";
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.authtoken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import com.floragunn.searchguard.support.PrivilegedConfigClient;
+import com.floragunn.searchsupport.client.Actions;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+
+/**
+ * Keeps the ids of the auth tokens of each user in memory. This allows AuthTokenService to check the number of tokens of a user without
+ * searching the auth token index.
+ *
+ * The index is updated for tokens created on this node and for new tokens pushed by other nodes. Tokens can also be removed from the auth
+ * token index without any notification, for example by the index cleanup agent. Also, pushed updates can get lost. Thus, the index is
+ * periodically rebuilt from the auth token index by reload(). Until the first reload has finished, the index is not available.
+ */
+class UserAuthTokenIndex implements ComponentStateProvider {
+
+    private static final Logger log = LogManager.getLogger(UserAuthTokenIndex.class);
+    private static final int SCROLL_SIZE = 1000;
+    private static final TimeValue SCROLL_TIMEOUT = TimeValue.timeValueSeconds(10);
+
+    private final String indexName;
+    private final PrivilegedConfigClient privilegedConfigClient;
+
+    private volatile Map<String, Set<String>> tokenIdsByUser;
+
+    /**
+     * Records tokens added while a reload is in progress. These might be missing in the reloaded index.
+     */
+    private List<String[]> tokensAddedDuringReload;
+
+    private final ComponentState componentState = new ComponentState(1, null, "user_auth_token_index", UserAuthTokenIndex.class)
+            .initialized();
+    private final TimeAggregation reloads = new TimeAggregation.Milliseconds();
+    private final CountAggregation failedReloads = new CountAggregation();
+
+    UserAuthTokenIndex(String indexName, PrivilegedConfigClient privilegedConfigClient) {
+        this.indexName = indexName;
+        this.privilegedConfigClient = privilegedConfigClient;
+
+        this.componentState.addMetrics("reloads", reloads, "failed_reloads", failedReloads);
+        this.componentState.addMetrics("users", new Count.Live(() -> {
+            Map<String, Set<String>> tokenIdsByUser = this.tokenIdsByUser;
+            return tokenIdsByUser != null ? (long) tokenIdsByUser.size() : 0L;
+        }));
+    }
+
+    /**
+     * Returns the number of tokens of the given user or -1 if the index is not yet available.
+     */
+    long getTokenCount(String userName) {
+        Map<String, Set<String>> tokenIdsByUser = this.tokenIdsByUser;
+
+        if (tokenIdsByUser == null) {
+            return -1;
+        }
+
+        Set<String> tokenIds = tokenIdsByUser.get(userName);
+
+        return tokenIds != null ? tokenIds.size() : 0;
+    }
+
+    synchronized void add(String userName, String tokenId) {
+        if (tokenIdsByUser != null) {
+            add(tokenIdsByUser, userName, tokenId);
+        }
+
+        if (tokensAddedDuringReload != null) {
+            tokensAddedDuringReload.add(new String[] { userName, tokenId });
+        }
+    }
+
+    /**
+     * Rebuilds the index from the auth token index. Blocks until the auth token index has been read completely.
+     */
+    void reload() {
+        synchronized (this) {
+            if (tokensAddedDuringReload != null) {
+                log.debug("Reload of user auth token index is already in progress");
+                return;
+            }
+
+            tokensAddedDuringReload = new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        Map<String, Set<String>> newTokenIdsByUser = null;
+
+        try {
+            newTokenIdsByUser = readFromIndex();
+            reloads.recordNs(System.nanoTime() - start);
+        } catch (IndexNotFoundException e) {
+            log.debug("Auth token index does not exist yet", e);
+            newTokenIdsByUser = new ConcurrentHashMap<>();
+        } catch (Exception e) {
+            log.error("Error while reloading user auth token index", e);
+            failedReloads.increment();
+            componentState.addLastException("reload", e);
+        } finally {
+            synchronized (this) {
+                if (newTokenIdsByUser != null) {
+                    for (String[] token : tokensAddedDuringReload) {
+                        add(newTokenIdsByUser, token[0], token[1]);
+                    }
+
+                    tokenIdsByUser = newTokenIdsByUser;
+                }
+
+                tokensAddedDuringReload = null;
+            }
+        }
+    }
+
+    private Map<String, Set<String>> readFromIndex() {
+        Map<String, Set<String>> result = new ConcurrentHashMap<>();
+
+        SearchResponse response = privilegedConfigClient.search(new SearchRequest(indexName).source(SearchSourceBuilder.searchSource()
+                .query(QueryBuilders.matchAllQuery()).fetchSource("user_name", null).size(SCROLL_SIZE)).scroll(SCROLL_TIMEOUT)).actionGet();
+
+        try {
+            while (response.getHits().getHits().length != 0) {
+                for (SearchHit searchHit : response.getHits().getHits()) {
+                    Object userName = searchHit.getSourceAsMap().get("user_name");
+
+                    if (userName != null) {
+                        add(result, userName.toString(), searchHit.getId());
+                    }
+                }
+
+                response = privilegedConfigClient.prepareSearchScroll(response.getScrollId()).setScroll(SCROLL_TIMEOUT).execute().actionGet();
+            }
+        } finally {
+            Actions.clearScrollAsync(privilegedConfigClient, response);
+        }
+
+        return result;
+    }
+
+    private static void add(Map<String, Set<String>> tokenIdsByUser, String userName, String tokenId) {
+        tokenIdsByUser.computeIfAbsent(userName, (k) -> ConcurrentHashMap.newKeySet()).add(tokenId);
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+}
@@ -42,6 +42,7 @@ import org.apache.logging.log4j.Logger;
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
 
+import com.floragunn.codova.config.net.CacheConfig;
 import com.floragunn.codova.config.net.ProxyConfig;
 import com.floragunn.codova.config.net.TLSConfig;
 import com.floragunn.codova.documents.DocNode;
@@ -166,10 +167,14 @@ public class JwtAuthenticator implements HttpAuthenticationFrontend, ApiAuthenti
             this.jwksKeySet = null;
         }
 
+        CacheConfig verifiedTokenCacheConfig = vNode.get("verified_token_cache").withDefault(CacheConfig.DEFAULT).by(CacheConfig::new);
+
         vNode.checkForUnusedAttributes();
         validationErrors.throwExceptionForPresentErrors();
 
-        this.jwtVerifier = new JwtVerifier(KeyProvider.combined(staticKeySet, openIdKeySet, jwksKeySet), requiredAudience, requiredIssuer);
+        this.jwtVerifier = new JwtVerifier(KeyProvider.combined(staticKeySet, openIdKeySet, jwksKeySet), requiredAudience, requiredIssuer,
+                verifiedTokenCacheConfig.build());
+        this.componentState.addPart(this.jwtVerifier.getComponentState());
     }
 
     @Override
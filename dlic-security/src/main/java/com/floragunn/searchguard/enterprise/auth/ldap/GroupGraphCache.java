@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auth.ldap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.floragunn.fluent.collections.ImmutableSet;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+import com.google.common.cache.Cache;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.schema.Schema;
+
+/**
+ * Caches the edges of the LDAP group graph which are used for resolving nested groups. A node of the graph is identified by the recursive group
+ * search filter rendered for the DN of a group; the cached value is the set of parent groups found by this filter. Keying by the rendered filter
+ * keeps the cache correct even if the filter refers to other attributes than the DN.
+ *
+ * The cache is shared by all users of an authentication backend. Thus, groups which are part of the hierarchies of many users only need to be
+ * looked up once within the configured TTL.
+ */
+class GroupGraphCache implements ComponentStateProvider {
+
+    private final Cache<Filter, Node> cache;
+    private final ComponentState componentState = new ComponentState(0, null, "ldap_group_graph_cache", GroupGraphCache.class).initialized();
+    private final CountAggregation lookups = new CountAggregation();
+    private final CountAggregation hits = lookups.getSubCount("hit");
+    private final CountAggregation misses = lookups.getSubCount("miss");
+    private final CountAggregation groupSearches = new CountAggregation();
+    private final CountAggregation roundTrips = new CountAggregation();
+    private final CountAggregation cycles = new CountAggregation();
+    private final CountAggregation unassignableResults = new CountAggregation();
+    private final TimeAggregation warmUpTime = new TimeAggregation.Milliseconds();
+
+    /**
+     * @param cache the cache for the graph nodes; null if caching is disabled. In this case, only the metrics are collected.
+     */
+    GroupGraphCache(Cache<Filter, Node> cache) {
+        this.cache = cache;
+
+        componentState.addMetrics("lookups", lookups);
+        componentState.addMetrics("group_searches", groupSearches);
+        componentState.addMetrics("ldap_round_trips", roundTrips);
+        componentState.addMetrics("cycles", cycles);
+        componentState.addMetrics("unassignable_results", unassignableResults);
+        componentState.addMetrics("warm_up", warmUpTime);
+    }
+
+    /**
+     * Returns the cached parent groups of the node identified by the given filter or null if the node is not cached.
+     */
+    Set<Entry> getParents(Filter filter) {
+        if (cache == null) {
+            return null;
+        }
+
+        lookups.increment();
+
+        Node node = cache.getIfPresent(filter);
+
+        if (node != null) {
+            hits.increment();
+            node.lastAccess = System.nanoTime();
+            return node.parents;
+        } else {
+            misses.increment();
+            return null;
+        }
+    }
+
+    void put(Filter filter, Set<Entry> parents) {
+        if (cache != null) {
+            cache.put(filter, new Node(parents, System.nanoTime()));
+        }
+    }
+
+    /**
+     * Replaces the parent groups of a cached node by freshly retrieved ones. The time of the last access is carried over from the previous node;
+     * a refresh does not count as access. Thus, nodes which are not used any more are not refreshed again by the next warm-up and expire.
+     * Nodes which are no longer cached are not added again.
+     */
+    void refresh(Filter filter, Set<Entry> parents) {
+        if (cache != null) {
+            cache.asMap().computeIfPresent(filter, (k, previous) -> new Node(parents, previous.lastAccess));
+        }
+    }
+
+    /**
+     * Returns the filters of all nodes which have been accessed since the given time.
+     */
+    List<Filter> getNodesAccessedSince(long nanoTime) {
+        List<Filter> result = new ArrayList<>();
+
+        if (cache == null) {
+            return result;
+        }
+
+        for (Map.Entry<Filter, Node> entry : cache.asMap().entrySet()) {
+            Node node = entry.getValue();
+
+            if (node.lastAccess - nanoTime >= 0) {
+                result.add(entry.getKey());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Records the number of LDAP searches which were necessary for one group search.
+     */
+    void recordGroupSearch(int ldapRoundTrips) {
+        groupSearches.increment();
+        roundTrips.add(ldapRoundTrips);
+    }
+
+    void recordCycle() {
+        cycles.increment();
+    }
+
+    void recordUnassignableResult() {
+        unassignableResults.increment();
+    }
+
+    TimeAggregation getWarmUpTime() {
+        return warmUpTime;
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    /**
+     * Assigns the entries found by a search with an OR filter to the sub-filters. This is done by client side filter evaluation using the
+     * standard schema, which provides DN normalization for attributes like member and uniqueMember.
+     *
+     * Returns null if there is an entry which does not match any of the filters; this can happen if the filter uses attributes which are not
+     * retrieved or which are not known to the standard schema. Such results must not be cached.
+     */
+    static Map<Filter, Set<Entry>> assignToFilters(Collection<Filter> filters, Collection<? extends Entry> entries) {
+        Map<Filter, Set<Entry>> result = new HashMap<>(filters.size());
+
+        if (filters.size() == 1) {
+            result.put(filters.iterator().next(), new HashSet<>(entries));
+            return result;
+        }
+
+        Schema schema;
+
+        try {
+            schema = Schema.getDefaultStandardSchema();
+        } catch (LDAPException e) {
+            return null;
+        }
+
+        for (Filter filter : filters) {
+            result.put(filter, new HashSet<>());
+        }
+
+        for (Entry entry : entries) {
+            boolean assigned = false;
+
+            for (Filter filter : filters) {
+                try {
+                    if (filter.matchesEntry(entry, schema)) {
+                        result.get(filter).add(entry);
+                        assigned = true;
+                    }
+                } catch (LDAPException e) {
+                    return null;
+                }
+            }
+
+            if (!assigned) {
+                return null;
+            }
+        }
+
+        return result;
+    }
+
+    static class Node {
+        private final ImmutableSet<Entry> parents;
+        private volatile long lastAccess;
+
+        Node(Set<Entry> parents, long lastAccess) {
+            this.parents = ImmutableSet.of(parents);
+            this.lastAccess = lastAccess;
+        }
+    }
+}
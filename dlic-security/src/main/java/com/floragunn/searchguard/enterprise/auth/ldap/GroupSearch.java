@@ -14,12 +14,28 @@
 
 package com.floragunn.searchguard.enterprise.auth.ldap;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 
 import com.floragunn.codova.config.net.CacheConfig;
 import com.floragunn.codova.config.templates.AttributeSource;
@@ -30,20 +46,22 @@ import com.floragunn.codova.documents.Parser;
 import com.floragunn.codova.validation.ConfigValidationException;
 import com.floragunn.codova.validation.ValidatingDocNode;
 import com.floragunn.codova.validation.ValidationErrors;
+import com.floragunn.codova.validation.errors.InvalidAttributeValue;
 import com.floragunn.fluent.collections.ImmutableSet;
 import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 import com.floragunn.searchsupport.cstate.metrics.Meter;
 import com.google.common.cache.Cache;
-import com.unboundid.ldap.sdk.DereferencePolicy;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
-import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.SearchRequest;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchScope;
 
-public class GroupSearch {
+public class GroupSearch implements ComponentStateProvider, AutoCloseable {
+    private static final Logger log = LogManager.getLogger(GroupSearch.class);
 
     private final String searchBaseDn;
     private final SearchScope searchScope;
@@ -56,6 +74,11 @@ public class GroupSearch {
     private final int maxRecusionDepth;
     private final String roleNameAttribute;
     private final Cache<Filter, Set<Entry>> searchCache;
+    private final int recursiveBatchSize;
+    private final GroupGraphCache groupGraphCache;
+    private final boolean warmUpEnabled;
+    private final Duration warmUpInterval;
+    private ScheduledExecutorService warmUpExecutor;
 
     GroupSearch(DocNode docNode, Parser.Context context) throws ConfigValidationException {
 
@@ -75,29 +98,167 @@ public class GroupSearch {
                 .toArray(new String[0]);      
         this.maxRecusionDepth = vNode.get("recursive.max_depth").withDefault(30).asInt();
         this.searchCache = vNode.get("cache").withDefault(CacheConfig.DEFAULT).by(CacheConfig::new).build();
+        this.recursiveBatchSize = vNode.get("recursive.batch_size").withDefault(100).asInt();
+        this.groupGraphCache = new GroupGraphCache(
+                recursive ? vNode.get("recursive.cache").withDefault(CacheConfig.DEFAULT).by(CacheConfig::new).<Filter, GroupGraphCache.Node>build() : null);
+        this.warmUpEnabled = vNode.get("recursive.warm_up.enabled").withDefault(false).asBoolean();
+        this.warmUpInterval = vNode.get("recursive.warm_up.interval").withDefault(Duration.ofMinutes(5)).asDuration();
+
+        if (recursiveBatchSize < 1) {
+            validationErrors.add(new InvalidAttributeValue("recursive.batch_size", recursiveBatchSize, "A number greater than 0"));
+        }
+
+        if (warmUpEnabled && (warmUpInterval == null || warmUpInterval.isNegative() || warmUpInterval.isZero())) {
+            validationErrors.add(new InvalidAttributeValue("recursive.warm_up.interval", warmUpInterval, "A positive duration"));
+        }
 
         validationErrors.throwExceptionForPresentErrors();
     }
 
-    Set<Entry> search(LDAPConnection connection, String dn, AttributeSource attributeSource, Meter meter) throws AuthenticatorUnavailableException {
-        return new SearchState(connection, attributeSource, meter).search(dn);
+    CompletableFuture<Set<Entry>> search(LDAPConnectionManager connectionManager, String dn, AttributeSource attributeSource, Meter meter) {
+        return new SearchState(connectionManager, attributeSource, meter).search(dn);
+    }
+
+    /**
+     * Starts the periodic background refresh of the group graph cache, if configured. Only nodes which have been used since the previous
+     * refresh are refreshed; other nodes are left to expire.
+     */
+    synchronized void startWarmUp(LDAPConnectionManager connectionManager) {
+        if (!recursive || !warmUpEnabled || warmUpExecutor != null) {
+            return;
+        }
+
+        long intervalMs = warmUpInterval.toMillis();
+
+        warmUpExecutor = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("sg_ldap_group_warm_up"));
+
+        AtomicLong lastRun = new AtomicLong(System.nanoTime());
+
+        warmUpExecutor.scheduleWithFixedDelay(() -> {
+            long start = System.nanoTime();
+
+            try {
+                warmUp(connectionManager, groupGraphCache.getNodesAccessedSince(lastRun.getAndSet(start)));
+            } catch (TimeoutException e) {
+                log.warn("LDAP group graph cache refresh did not complete within " + warmUpInterval + "; skipping the remaining nodes");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.warn("Error while refreshing LDAP group graph cache", LDAP.unwrap(e.getCause()));
+            } catch (Exception e) {
+                log.warn("Error while refreshing LDAP group graph cache", LDAP.unwrap(e));
+            } finally {
+                groupGraphCache.getWarmUpTime().recordNs(System.nanoTime() - start);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Refreshes the given nodes batch by batch. Each batch is waited for at most the warm up interval, so that an unresponsive LDAP server
+     * cannot block the warm up thread indefinitely.
+     */
+    private void warmUp(LDAPConnectionManager connectionManager, List<Filter> filters)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        for (int i = 0; i < filters.size(); i += recursiveBatchSize) {
+            List<Filter> batch = filters.subList(i, Math.min(i + recursiveBatchSize, filters.size()));
+            Filter filter = batch.size() == 1 ? batch.get(0) : Filter.createORFilter(batch);
+
+            List<SearchResultEntry> searchResult = connectionManager.search(searchBaseDn, searchScope, filter, recursiveRetrieveAttributes)
+                    .get(warmUpInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+            Map<Filter, Set<Entry>> result = GroupGraphCache.assignToFilters(batch, searchResult);
+
+            if (result != null) {
+                for (Map.Entry<Filter, Set<Entry>> entry : result.entrySet()) {
+                    groupGraphCache.refresh(entry.getKey(), entry.getValue());
+                }
+            } else {
+                groupGraphCache.recordUnassignableResult();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdownNow();
+            warmUpExecutor = null;
+        }
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return groupGraphCache.getComponentState();
+    }
+
+    /**
+     * Returns a list of DNs forming a cycle in the given graph or null if the graph is acyclic.
+     */
+    static List<String> findCycle(Map<String, Set<String>> edges) {
+        Set<String> finished = new HashSet<>();
+
+        for (String start : edges.keySet()) {
+            List<String> cycle = findCycle(start, edges, new ArrayList<>(), new HashSet<>(), finished);
+
+            if (cycle != null) {
+                return cycle;
+            }
+        }
+
+        return null;
     }
 
+    private static List<String> findCycle(String node, Map<String, Set<String>> edges, List<String> path, Set<String> onPath, Set<String> finished) {
+        if (onPath.contains(node)) {
+            List<String> cycle = new ArrayList<>(path.subList(path.indexOf(node), path.size()));
+            cycle.add(node);
+            return cycle;
+        }
+
+        if (!finished.add(node)) {
+            return null;
+        }
+
+        path.add(node);
+        onPath.add(node);
+
+        for (String parent : edges.getOrDefault(node, Collections.emptySet())) {
+            List<String> cycle = findCycle(parent, edges, path, onPath, finished);
+
+            if (cycle != null) {
+                return cycle;
+            }
+        }
+
+        path.remove(path.size() - 1);
+        onPath.remove(node);
+
+        return null;
+    }
+
+    /**
+     * Keeps the state of a group search. The search steps are executed sequentially, each after the completion of the previous one; thus, the
+     * state does not need to be synchronized. Only the searches for the groups of one level of the hierarchy are executed concurrently; these
+     * however only increment the round trip counter.
+     */
     class SearchState {
 
-        private final LDAPConnection connection;
+        private final LDAPConnectionManager connectionManager;
         private final AttributeSource attributeSource;
         private final Meter meter;
 
         private Map<String, Entry> foundEntries = new HashMap<>();
+        private Map<String, Set<String>> edges = new HashMap<>();
+        private boolean revisitedEntries = false;
+        private final AtomicInteger ldapRoundTrips = new AtomicInteger();
 
-        SearchState(LDAPConnection connection, AttributeSource attributeSource, Meter meter) {
-            this.connection = connection;
+        SearchState(LDAPConnectionManager connectionManager, AttributeSource attributeSource, Meter meter) {
+            this.connectionManager = connectionManager;
             this.attributeSource = attributeSource;
             this.meter = meter;
         }
 
-        Set<Entry> search(String dn) throws AuthenticatorUnavailableException {
+        CompletableFuture<Set<Entry>> search(String dn) {
             AttributeSource attributeSource;
 
             if (dn != null) {
@@ -111,41 +272,57 @@ public class GroupSearch {
             try {
                 filter = searchFilter.toFilter(attributeSource);
             } catch (LDAPException | ExpressionEvaluationException e) {
-                throw new AuthenticatorUnavailableException("Could not create query for LDAP group search", e.getMessage(), e);
+                return LDAP.failedFuture(new AuthenticatorUnavailableException("Could not create query for LDAP group search", e.getMessage(), e));
             }
 
             if (searchCache != null) {
                 Set<Entry> cachedResult = searchCache.getIfPresent(filter);
 
                 if (cachedResult != null) {
-                    return cachedResult;
+                    recordRoundTrips();
+                    return CompletableFuture.completedFuture(cachedResult);
                 }
             }
 
-            SearchRequest searchRequest = new SearchRequest(searchBaseDn, searchScope, filter, GroupSearch.this.retrieveAttributes);
-            searchRequest.setDerefPolicy(DereferencePolicy.ALWAYS);
+            Meter subMeter = this.meter.detail("ldap_search_operation");
 
-            try {
+            ldapRoundTrips.incrementAndGet();
 
-                Set<String> newEntryDns = new HashSet<>();
-
-                try (Meter subMeter = this.meter.detail("ldap_search_operation")) {
-                    
-                    List<SearchResultEntry> searchResult = connection.search(searchRequest).getSearchEntries();                     
+            return connectionManager.search(searchBaseDn, searchScope, filter, GroupSearch.this.retrieveAttributes).handle((searchResult, e) -> {
+                if (searchResult != null) {
                     subMeter.count("search_result_entries", searchResult.size());
+                }
 
-                    for (SearchResultEntry entry : searchResult) {
-                        foundEntries.put(entry.getDN(), entry);
+                subMeter.close();
 
-                        if (recursivePattern == null || recursivePattern.matches(entry.getDN())) {
-                            newEntryDns.add(entry.getDN());
-                        }
+                if (e != null) {
+                    throw new CompletionException(toAuthenticatorUnavailableException(e, filter));
+                }
+
+                return searchResult;
+            }).thenCompose((searchResult) -> {
+                Set<String> newEntryDns = new HashSet<>();
+
+                for (SearchResultEntry entry : searchResult) {
+                    foundEntries.put(entry.getDN(), entry);
+
+                    if (recursivePattern == null || recursivePattern.matches(entry.getDN())) {
+                        newEntryDns.add(entry.getDN());
                     }
                 }
-                
+
+                if (dn != null) {
+                    addEdges(dn, foundEntries.values());
+                }
+
                 if (recursive && newEntryDns.size() != 0) {
-                    searchNested(newEntryDns, 0);
+                    return searchNested(newEntryDns, 0);
+                } else {
+                    return CompletableFuture.<Void>completedFuture(null);
                 }
+            }).thenApply((v) -> {
+                checkForCycles();
+                recordRoundTrips();
 
                 Set<Entry> result = ImmutableSet.of(foundEntries.values());
 
@@ -154,53 +331,168 @@ public class GroupSearch {
                 }
 
                 return result;
-            } catch (LDAPException e) {
-                throw new AuthenticatorUnavailableException("LDAP group search failed", LDAP.getBetterErrorMessage(e), e)
-                        .details(LDAP.getDetailsFrom(e).with("ldap_group_base_dn", searchBaseDn).with("ldap_filter", filter.toString()));
-            }
+            });
         }
 
-        void searchNested(Set<String> dnSet, int currentDepth) throws AuthenticatorUnavailableException {
-            Set<String> newEntryDns = new HashSet<>();
+        CompletableFuture<Void> searchNested(Set<String> dnSet, int currentDepth) {
+            Meter subMeter = this.meter.detail("recursive_search");
+            Map<Filter, String> filterToDn = new HashMap<>(dnSet.size());
+            List<Filter> uncachedFilters = new ArrayList<>();
+            Set<Entry> parents = new HashSet<>();
+
+            for (String dn : dnSet) {
+                AttributeSource attributeSource = AttributeSource.joined(AttributeSource.of("dn", dn), this.attributeSource);
+                Filter filter;
+
+                try {
+                    filter = recursiveSearchFilter.toFilter(attributeSource);
+                } catch (LDAPException | ExpressionEvaluationException e) {
+                    subMeter.close();
+                    return LDAP.failedFuture(new AuthenticatorUnavailableException("Could not create query for LDAP group search", e.getMessage(), e));
+                }
+
+                filterToDn.put(filter, dn);
 
-            try (Meter subMeter = this.meter.detail("recursive_search")) {
-                List<Filter> filters = new ArrayList<>(dnSet.size());
+                Set<Entry> cachedParents = groupGraphCache.getParents(filter);
 
-                for (String dn : dnSet) {
-                    AttributeSource attributeSource = AttributeSource.joined(AttributeSource.of("dn", dn), this.attributeSource);
-                    try {
-                        filters.add(recursiveSearchFilter.toFilter(attributeSource));
-                    } catch (LDAPException | ExpressionEvaluationException e) {
-                        throw new AuthenticatorUnavailableException("Could not create query for LDAP group search", e.getMessage(), e);
+                if (cachedParents != null) {
+                    parents.addAll(cachedParents);
+                    addEdges(dn, cachedParents);
+                } else {
+                    uncachedFilters.add(filter);
+                }
+            }
+
+            List<CompletableFuture<Map<Filter, Set<Entry>>>> batches = new ArrayList<>();
+
+            for (int i = 0; i < uncachedFilters.size(); i += recursiveBatchSize) {
+                batches.add(searchParents(uncachedFilters.subList(i, Math.min(i + recursiveBatchSize, uncachedFilters.size())), subMeter));
+            }
+
+            return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).handle((v, e) -> {
+                subMeter.close();
+
+                if (e != null) {
+                    throw new CompletionException(LDAP.unwrap(e));
+                }
+
+                return v;
+            }).thenCompose((v) -> {
+                for (CompletableFuture<Map<Filter, Set<Entry>>> batch : batches) {
+                    for (Map.Entry<Filter, Set<Entry>> entry : batch.join().entrySet()) {
+                        parents.addAll(entry.getValue());
+
+                        String dn = filterToDn.get(entry.getKey());
+
+                        if (dn != null) {
+                            addEdges(dn, entry.getValue());
+                        }
                     }
                 }
 
-                Filter filter = Filter.createORFilter(filters);
+                Set<String> newEntryDns = new HashSet<>();
 
-                try (Meter subSubMeter = subMeter.detail("ldap_search_operation")) {
-                    SearchRequest searchRequest = new SearchRequest(searchBaseDn, searchScope, filter, GroupSearch.this.recursiveRetrieveAttributes);
-                    searchRequest.setDerefPolicy(DereferencePolicy.ALWAYS);
-                    
-                    List<SearchResultEntry> searchResult = connection.search(searchRequest).getSearchEntries();                     
-                    subSubMeter.count("search_result_entries", searchResult.size());
-                    
-                    for (SearchResultEntry entry : searchResult) {
-                        if (!foundEntries.containsKey(entry.getDN())) {
-                            foundEntries.put(entry.getDN(), entry);
+                for (Entry entry : parents) {
+                    if (!foundEntries.containsKey(entry.getDN())) {
+                        foundEntries.put(entry.getDN(), entry);
 
-                            if (recursivePattern == null || recursivePattern.matches(entry.getDN())) {
-                                newEntryDns.add(entry.getDN());
-                            }
+                        if (recursivePattern == null || recursivePattern.matches(entry.getDN())) {
+                            newEntryDns.add(entry.getDN());
                         }
+                    } else {
+                        revisitedEntries = true;
+                    }
+                }
+
+                if (newEntryDns.size() != 0 && currentDepth < maxRecusionDepth) {
+                    return searchNested(newEntryDns, currentDepth + 1);
+                } else {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+            });
+        }
+
+        /**
+         * Searches the parents of the groups identified by the given filters with a single LDAP search. The result is assigned to the single
+         * filters and put into the group graph cache. If the result cannot be assigned, it is returned keyed by the OR filter and not cached.
+         */
+        private CompletableFuture<Map<Filter, Set<Entry>>> searchParents(List<Filter> filters, Meter meter) {
+            Filter filter = filters.size() == 1 ? filters.get(0) : Filter.createORFilter(filters);
+            Meter subMeter = meter.detail("ldap_search_operation");
+
+            ldapRoundTrips.incrementAndGet();
+
+            return connectionManager.search(searchBaseDn, searchScope, filter, GroupSearch.this.recursiveRetrieveAttributes).handle((searchResult, e) -> {
+                if (searchResult != null) {
+                    subMeter.count("search_result_entries", searchResult.size());
+                }
+
+                subMeter.close();
+
+                if (e != null) {
+                    throw new CompletionException(toAuthenticatorUnavailableException(e, filter));
+                }
+
+                Map<Filter, Set<Entry>> result = GroupGraphCache.assignToFilters(filters, searchResult);
+
+                if (result == null) {
+                    groupGraphCache.recordUnassignableResult();
+
+                    result = new HashMap<>();
+                    result.put(filter, new HashSet<>(searchResult));
+                } else {
+                    for (Map.Entry<Filter, Set<Entry>> entry : result.entrySet()) {
+                        groupGraphCache.put(entry.getKey(), entry.getValue());
                     }
-                } catch (LDAPException e) {
-                    throw new AuthenticatorUnavailableException("LDAP group search failed", LDAP.getBetterErrorMessage(e), e)
-                            .details(LDAP.getDetailsFrom(e).with("ldap_group_base_dn", searchBaseDn).with("ldap_filter", filter.toString()));
+                }
+
+                return result;
+            });
+        }
+
+        private void recordRoundTrips() {
+            meter.count("ldap_round_trips", ldapRoundTrips.get());
+
+            groupGraphCache.recordGroupSearch(ldapRoundTrips.get());
+        }
+
+        private void addEdges(String dn, Collection<Entry> parents) {
+            Set<String> parentDns = edges.computeIfAbsent(dn, (k) -> new HashSet<>());
+
+            for (Entry parent : parents) {
+                parentDns.add(parent.getDN());
+            }
+        }
+
+        /**
+         * Checks the collected part of the group graph for cycles. The recursion stops at groups which have been already found, so cycles do
+         * not cause endless searches. However, they usually indicate a misconfiguration of the directory; thus, they are logged.
+         */
+        private void checkForCycles() {
+            if (!revisitedEntries || edges.isEmpty()) {
+                return;
+            }
+
+            List<String> cycle = findCycle(edges);
+
+            if (cycle != null) {
+                groupGraphCache.recordCycle();
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Found cycle in LDAP group hierarchy: " + String.join(" -> ", cycle));
                 }
             }
+        }
+
+        private Throwable toAuthenticatorUnavailableException(Throwable e, Filter filter) {
+            e = LDAP.unwrap(e);
 
-            if (newEntryDns.size() != 0 && currentDepth < maxRecusionDepth) {
-                searchNested(newEntryDns, currentDepth + 1);
+            if (e instanceof LDAPException) {
+                LDAPException ldapException = (LDAPException) e;
+                return new AuthenticatorUnavailableException("LDAP group search failed", LDAP.getBetterErrorMessage(ldapException), ldapException)
+                        .details(LDAP.getDetailsFrom(ldapException).with("ldap_group_base_dn", searchBaseDn).with("ldap_filter", filter.toString()));
+            } else {
+                return e;
             }
         }
     }
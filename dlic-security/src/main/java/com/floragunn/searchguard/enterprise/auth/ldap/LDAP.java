@@ -15,6 +15,8 @@
 package com.floragunn.searchguard.enterprise.auth.ldap;
 
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import com.floragunn.codova.validation.ConfigValidationException;
@@ -93,4 +95,21 @@ public class LDAP {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the original exception if the given exception was wrapped by a dependent stage of a CompletableFuture.
+     */
+    static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+
+        return e;
+    }
+
+    static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(e);
+        return result;
+    }
+}
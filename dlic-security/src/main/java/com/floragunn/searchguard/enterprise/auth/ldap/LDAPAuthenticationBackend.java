@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -42,20 +43,15 @@ import com.floragunn.searchguard.authc.UserInformationBackend;
 import com.floragunn.searchguard.authc.base.AuthcResult;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
 import com.floragunn.searchguard.user.AuthCredentials;
-import com.floragunn.searchsupport.PrivilegedCode;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.metrics.Meter;
 import com.unboundid.ldap.sdk.Attribute;
-import com.unboundid.ldap.sdk.DereferencePolicy;
 import com.unboundid.ldap.sdk.Entry;
 import com.unboundid.ldap.sdk.Filter;
-import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPException;
 import com.unboundid.ldap.sdk.SearchRequest;
-import com.unboundid.ldap.sdk.SearchResult;
 import com.unboundid.ldap.sdk.SearchResultEntry;
 import com.unboundid.ldap.sdk.SearchScope;
-import com.unboundid.ldap.sdk.SimpleBindRequest;
 
 public class LDAPAuthenticationBackend implements AuthenticationBackend, UserInformationBackend, AutoCloseable {
 
@@ -96,80 +92,76 @@ public class LDAPAuthenticationBackend implements AuthenticationBackend, UserInf
         validationErrors.throwExceptionForPresentErrors();
         
         this.componentState.addPart(this.connectionManager.getComponentState());
+
+        if (this.groupSearch != null) {
+            this.componentState.addPart(this.groupSearch.getComponentState());
+            this.groupSearch.startWarmUp(this.connectionManager);
+        }
     }
 
     @Override
     public CompletableFuture<AuthCredentials> authenticate(AuthCredentials credentials, Meter meter)
             throws AuthenticatorUnavailableException, CredentialsException {
-        SearchResultEntry entry = PrivilegedCode.execute(() -> search(credentials, meter), AuthenticatorUnavailableException.class);
-
-        // fake a user that does not exist
-        // makes guessing if a user exists or not harder when looking on the
-        // authentication delay time
-        if (entry == null) {
-            if (fakeLoginEnabled) {
-                String fakeLoginDn = this.fakeLoginDn != null ? this.fakeLoginDn : "CN=faketomakebindfail,DC=" + UUID.randomUUID().toString();
-                try (Meter subMeter = meter.detail("invalid_login_delay")) {
-                    checkPassword(fakeLoginDn, fakeLoginPassword);
-                } catch (LDAPException e) {
-                    // This is expected
+        return search(credentials, meter).<AuthCredentials.Builder>thenCompose((entry) -> {
+            // fake a user that does not exist
+            // makes guessing if a user exists or not harder when looking on the
+            // authentication delay time
+            if (entry == null) {
+                CredentialsException userNotFound = new CredentialsException(new AuthcResult.DebugInfo("ldap", false,
+                        "User could not be found by query", ImmutableMap.of("user_name", credentials.getName())));
+
+                if (fakeLoginEnabled) {
+                    String fakeLoginDn = this.fakeLoginDn != null ? this.fakeLoginDn : "CN=faketomakebindfail,DC=" + UUID.randomUUID().toString();
+                    Meter subMeter = meter.detail("invalid_login_delay");
+
+                    return connectionManager.bind(fakeLoginDn, fakeLoginPassword).<AuthCredentials.Builder>handle((v, e) -> {
+                        // An exception is expected here
+                        subMeter.close();
+                        throw new CompletionException(userNotFound);
+                    });
+                } else {
+                    return LDAP.failedFuture(userNotFound);
                 }
             }
 
-            throw new CredentialsException(new AuthcResult.DebugInfo("ldap", false, "User could not be found by query",
-                    ImmutableMap.of("user_name", credentials.getName())));
-        }
-
-        final String dn = entry.getDN();
-
-        if (log.isTraceEnabled()) {
-            log.trace("Try to authenticate dn {}", dn);
-        }
+            if (log.isTraceEnabled()) {
+                log.trace("Try to authenticate dn {}", entry.getDN());
+            }
 
-        try (Meter subMeter = meter.detail("check_password")) {
-            checkPassword(entry.getDN(), credentials.getPassword());
-        } catch (LDAPException e) {
-            throw new CredentialsException(new AuthcResult.DebugInfo("ldap", false, "User could not be authenticated by password",
-                    OrderedImmutableMap.<String, Object>of("user_name", credentials.getName(), "dn", entry.getDN(), "ldap_error", e.getMessage())
-                            .with(LDAP.getDetailsFrom(e))),
-                    e);
-        }
+            Meter subMeter = meter.detail("check_password");
 
-        AuthCredentials updatedCredentials = credentials.userMappingAttribute("ldap_user_entry", entryToMap(entry));
+            return connectionManager.bind(entry.getDN(), credentials.getPassword()).handle((v, e) -> {
+                subMeter.close();
 
-        AuthCredentials.Builder resultBuilder = updatedCredentials.copy();
+                if (e != null) {
+                    e = LDAP.unwrap(e);
 
-        if (groupSearch != null) {
-            Set<Entry> groupEntries = searchGroups(entry, updatedCredentials, meter);
-
-            resultBuilder.userMappingAttribute("ldap_group_entries", ImmutableList.map(groupEntries, (e) -> entryToMap(e)));
-            resultBuilder.backendRoles(extractRoles(groupEntries));
-        }
+                    if (e instanceof LDAPException) {
+                        throw new CompletionException(new CredentialsException(new AuthcResult.DebugInfo("ldap", false,
+                                "User could not be authenticated by password",
+                                OrderedImmutableMap.<String, Object>of("user_name", credentials.getName(), "dn", entry.getDN(), "ldap_error", e.getMessage())
+                                        .with(LDAP.getDetailsFrom((LDAPException) e))),
+                                e));
+                    } else {
+                        throw new CompletionException(e);
+                    }
+                }
 
-        return CompletableFuture.completedFuture(resultBuilder.authDomainInfo(credentials.getAuthDomainInfo().authBackendType(getType())).build());
+                return entry;
+            }).thenCompose((authenticatedEntry) -> collectUserInformation(credentials, authenticatedEntry, meter));
+        }).thenApply((resultBuilder) -> resultBuilder.authDomainInfo(credentials.getAuthDomainInfo().authBackendType(getType())).build());
     }
 
     @Override
     public CompletableFuture<AuthCredentials> getUserInformation(AuthCredentials userInformation, Meter meter)
             throws AuthenticatorUnavailableException {
-        SearchResultEntry entry = PrivilegedCode.execute(() -> search(userInformation, meter), AuthenticatorUnavailableException.class);
-
-        if (entry == null) {
-            return CompletableFuture.completedFuture(null);
-        }
-
-        AuthCredentials updatedCredentials = userInformation.userMappingAttribute("ldap_user_entry", entryToMap(entry));
-
-        AuthCredentials.Builder resultBuilder = updatedCredentials.copy();
-
-        if (groupSearch != null) {
-            Set<Entry> groupEntries = searchGroups(entry, updatedCredentials, meter);
-
-            resultBuilder.userMappingAttribute("ldap_group_entries", ImmutableList.map(groupEntries, (e) -> entryToMap(e)));
-            resultBuilder.backendRoles(extractRoles(groupEntries));
-        }
+        return search(userInformation, meter).<AuthCredentials>thenCompose((entry) -> {
+            if (entry == null) {
+                return CompletableFuture.completedFuture(null);
+            }
 
-        return CompletableFuture.completedFuture(resultBuilder.build());
+            return collectUserInformation(userInformation, entry, meter).thenApply(AuthCredentials.Builder::build);
+        });
     }
 
     @Override
@@ -179,6 +171,10 @@ public class LDAPAuthenticationBackend implements AuthenticationBackend, UserInf
 
     @Override
     public void close() {
+        if (this.groupSearch != null) {
+            this.groupSearch.close();
+        }
+
         if (this.connectionManager != null) {
             try {
                 this.connectionManager.close();
@@ -188,46 +184,71 @@ public class LDAPAuthenticationBackend implements AuthenticationBackend, UserInf
         }
     }
 
-    private SearchResultEntry search(AuthCredentials userName, Meter meter) throws AuthenticatorUnavailableException {
-
-        try (Meter subMeter = meter.detail("user_search"); LDAPConnection connection = connectionManager.getConnection()) {
-            Filter filter;
-            try {
-                filter = userSearchFilter.toFilter(AttributeSource.of("user.name", userName.getName()));
-            } catch (LDAPException | ExpressionEvaluationException e) {
-                throw new AuthenticatorUnavailableException("Could not create query for LDAP user search", e.getMessage(), e);
-            }
+    private CompletableFuture<SearchResultEntry> search(AuthCredentials userName, Meter meter) throws AuthenticatorUnavailableException {
+        Filter filter;
+        try {
+            filter = userSearchFilter.toFilter(AttributeSource.of("user.name", userName.getName()));
+        } catch (LDAPException | ExpressionEvaluationException e) {
+            throw new AuthenticatorUnavailableException("Could not create query for LDAP user search", e.getMessage(), e);
+        }
 
-            SearchRequest searchRequest = new SearchRequest(userSearchBaseDn, userSearchScope, filter, this.userSearchAttributes);
-            searchRequest.setDerefPolicy(DereferencePolicy.ALWAYS);
+        Meter subMeter = meter.detail("user_search");
+        Meter subSubMeter = subMeter.detail("ldap_search_operation");
 
-            try (Meter subSubMeter = subMeter.detail("ldap_search_operation")) {
-                SearchResult searchResult = connection.search(searchRequest);
+        return connectionManager.search(userSearchBaseDn, userSearchScope, filter, this.userSearchAttributes).handle((searchResult, e) -> {
+            subSubMeter.close();
+            subMeter.close();
 
-                log.trace("User search {} yielded {} results", filter, searchResult.getEntryCount());
+            if (e != null) {
+                e = LDAP.unwrap(e);
 
-                if (searchResult != null && searchResult.getEntryCount() > 0) {
-                    return searchResult.getSearchEntries().get(0);
+                if (e instanceof LDAPException) {
+                    throw new CompletionException(
+                            new AuthenticatorUnavailableException("LDAP user search failed", LDAP.getBetterErrorMessage((LDAPException) e), e)
+                                    .details(LDAP.getDetailsFrom((LDAPException) e).with("ldap_base_dn", userSearchBaseDn).with("ldap_filter",
+                                            filter.toString())));
                 } else {
-                    return null;
+                    throw new CompletionException(e);
                 }
+            }
 
-            } catch (LDAPException e) {
-                throw new AuthenticatorUnavailableException("LDAP user search failed", LDAP.getBetterErrorMessage(e), e)
-                        .details(LDAP.getDetailsFrom(e).with("ldap_base_dn", userSearchBaseDn).with("ldap_filter", filter.toString()));
+            log.trace("User search {} yielded {} results", filter, searchResult.size());
+
+            if (searchResult.size() > 0) {
+                return searchResult.get(0);
+            } else {
+                return null;
             }
-        }
+        });
     }
 
-    private Set<Entry> searchGroups(SearchResultEntry entry, AuthCredentials credentials, Meter meter) throws AuthenticatorUnavailableException {
-        try (Meter subMeter = meter.detail("group_search"); LDAPConnection connection = connectionManager.getConnection()) {
-            return groupSearch.search(connection, entry.getDN(), AttributeSource.from(credentials.getAttributesForUserMapping()), subMeter);
+    /**
+     * Adds the attributes of the user entry and the groups of the user to the given credentials.
+     */
+    private CompletableFuture<AuthCredentials.Builder> collectUserInformation(AuthCredentials credentials, SearchResultEntry entry, Meter meter) {
+        AuthCredentials updatedCredentials = credentials.userMappingAttribute("ldap_user_entry", entryToMap(entry));
+
+        AuthCredentials.Builder resultBuilder = updatedCredentials.copy();
+
+        if (groupSearch == null) {
+            return CompletableFuture.completedFuture(resultBuilder);
         }
-    }
 
-    private void checkPassword(String dn, byte[] password) throws LDAPException {
-        PrivilegedCode.execute(() -> connectionManager.getPool().bindAndRevertAuthentication(new SimpleBindRequest(dn, password)),
-                LDAPException.class);
+        Meter subMeter = meter.detail("group_search");
+
+        return groupSearch.search(connectionManager, entry.getDN(), AttributeSource.from(updatedCredentials.getAttributesForUserMapping()), subMeter)
+                .handle((groupEntries, e) -> {
+                    subMeter.close();
+
+                    if (e != null) {
+                        throw new CompletionException(LDAP.unwrap(e));
+                    }
+
+                    resultBuilder.userMappingAttribute("ldap_group_entries", ImmutableList.map(groupEntries, (groupEntry) -> entryToMap(groupEntry)));
+                    resultBuilder.backendRoles(extractRoles(groupEntries));
+
+                    return resultBuilder;
+                });
     }
 
     private ImmutableMap<String, Object> entryToMap(Entry entry) {
@@ -21,11 +21,22 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.SocketFactory;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 
 import com.floragunn.codova.config.net.TLSConfig;
 import com.floragunn.codova.documents.DocNode;
@@ -39,37 +50,76 @@ import com.floragunn.searchsupport.PrivilegedCode;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
 import com.google.common.primitives.Ints;
 import com.unboundid.ldap.sdk.AggregateLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.AsyncRequestID;
+import com.unboundid.ldap.sdk.AsyncSearchResultListener;
 import com.unboundid.ldap.sdk.BindRequest;
+import com.unboundid.ldap.sdk.DereferencePolicy;
 import com.unboundid.ldap.sdk.EXTERNALBindRequest;
 import com.unboundid.ldap.sdk.FailoverServerSet;
 import com.unboundid.ldap.sdk.FastestConnectServerSet;
 import com.unboundid.ldap.sdk.FewestConnectionsServerSet;
+import com.unboundid.ldap.sdk.Filter;
 import com.unboundid.ldap.sdk.GetEntryLDAPConnectionPoolHealthCheck;
 import com.unboundid.ldap.sdk.LDAPConnection;
 import com.unboundid.ldap.sdk.LDAPConnectionOptions;
 import com.unboundid.ldap.sdk.LDAPConnectionPool;
 import com.unboundid.ldap.sdk.LDAPConnectionPoolHealthCheck;
 import com.unboundid.ldap.sdk.LDAPException;
+import com.unboundid.ldap.sdk.LDAPSearchException;
 import com.unboundid.ldap.sdk.PostConnectProcessor;
 import com.unboundid.ldap.sdk.PruneUnneededConnectionsLDAPConnectionPoolHealthCheck;
+import com.unboundid.ldap.sdk.ResultCode;
 import com.unboundid.ldap.sdk.RoundRobinServerSet;
+import com.unboundid.ldap.sdk.SearchRequest;
+import com.unboundid.ldap.sdk.SearchResult;
+import com.unboundid.ldap.sdk.SearchResultEntry;
+import com.unboundid.ldap.sdk.SearchResultReference;
+import com.unboundid.ldap.sdk.SearchScope;
 import com.unboundid.ldap.sdk.ServerSet;
 import com.unboundid.ldap.sdk.SimpleBindRequest;
 import com.unboundid.ldap.sdk.StartTLSPostConnectProcessor;
 import com.unboundid.util.ssl.HostNameSSLSocketVerifier;
 
+/**
+ * Manages the connection pool to the LDAP servers.
+ * 
+ * Searches and binds are executed by the search() and bind() methods on a dedicated bounded thread pool; searches use the asynchronous request
+ * API of the UnboundID SDK. Thus, request threads are not blocked by slow LDAP servers. The number of concurrent requests per LDAP server is
+ * limited; LDAP servers which repeatedly fail or time out are skipped for a while (circuit breaker).
+ */
 public final class LDAPConnectionManager implements Closeable, ComponentStateProvider {
 
     private static final Logger log = LogManager.getLogger(LDAPConnectionManager.class);
+    private static final long[] LATENCY_HISTOGRAM_BUCKETS_MS = { 10, 50, 100, 500, 1000, 5000 };
+
     private final LDAPConnectionPool pool;
+    private final BindRequest bindRequest;
     private final TLSConfig tlsConfig;
     private final int poolMinSize;
     private final int poolMaxSize;
+    private final int serverCount;
     private final ConnectionStrategy connectionStrategy;
+    private final Duration requestTimeout;
+    private final int maxConcurrentRequestsPerServer;
+    private final int circuitBreakerFailureThreshold;
+    private final Duration circuitBreakerOpenDuration;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, ServerState> serverStates = new ConcurrentHashMap<>();
     private final ComponentState componentState = new ComponentState(0, null, "ldap_connection_pool", LDAPConnectionManager.class);
-    
+    private final TimeAggregation searchTime = new TimeAggregation.Milliseconds();
+    private final TimeAggregation bindTime = new TimeAggregation.Milliseconds();
+    private final CountAggregation latencyHistogram = new CountAggregation();
+    private final CountAggregation rejectedRequests = new CountAggregation();
+    private final CountAggregation rejectedBecauseOfFullQueue = rejectedRequests.getSubCount("queue_full");
+    private final CountAggregation rejectedBecauseOfConcurrencyLimit = rejectedRequests.getSubCount("concurrency_limit");
+    private final CountAggregation rejectedBecauseOfOpenCircuit = rejectedRequests.getSubCount("circuit_open");
+    private final CountAggregation rejectedBecauseOfTimeout = rejectedRequests.getSubCount("timeout");
+    private final CountAggregation circuitBreakerTrips = new CountAggregation();
+
     public static enum ConnectionStrategy {
         FEWEST, FAILOVER, FASTEST, ROUNDROBIN;
     }
@@ -86,7 +136,6 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
         String bindDn = vNode.get("bind_dn").asString();
         String password = vNode.get("password").asString();
 
-        final BindRequest bindRequest;
         if (bindDn != null && password != null && password.length() > 0) {
             bindRequest = new SimpleBindRequest(bindDn, password);
         } else if (tlsConfig != null && tlsConfig.getClientCertAuthConfig() != null) {
@@ -117,6 +166,14 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
 
         this.poolMinSize = vNode.get("connection_pool.min_size").withDefault(3).asInt();
         this.poolMaxSize = vNode.get("connection_pool.max_size").withDefault(10).asInt();
+        this.serverCount = ldapHosts != null ? ldapHosts.size() : 0;
+
+        this.requestTimeout = vNode.get("request_timeout").withDefault(responseTimeout != null ? responseTimeout : Duration.ofSeconds(30)).asDuration();
+        this.maxConcurrentRequestsPerServer = vNode.get("max_concurrent_requests_per_server").withDefault(poolMaxSize).asInt();
+        this.circuitBreakerFailureThreshold = vNode.get("circuit_breaker.failure_threshold").withDefault(5).asInt();
+        this.circuitBreakerOpenDuration = vNode.get("circuit_breaker.open_duration").withDefault(Duration.ofSeconds(30)).asDuration();
+        int asyncThreads = vNode.get("async.threads").withDefault(poolMaxSize).asInt();
+        int asyncMaxQueueLength = vNode.get("async.max_queue_length").withDefault(1000).asInt();
 
         boolean createIfNecessary;
         long maxWaitTimeMillis; //0L is the default which means no blocking at all
@@ -148,6 +205,10 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
                 throw new ConfigValidationException(new ValidationError(null, e.getMessage()).cause(e));
             }
 
+            executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(asyncMaxQueueLength),
+                    EsExecutors.daemonThreadFactory("sg_ldap"));
+            executor.allowCoreThreadTimeOut(true);
+
             pool.setCreateIfNecessary(createIfNecessary);
             pool.setMaxWaitTimeMillis(maxWaitTimeMillis);
 
@@ -161,6 +222,8 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
             
             componentState.setConfigProperty("min_size", poolMinSize);
             componentState.setConfigProperty("max_size", poolMaxSize);
+            componentState.setConfigProperty("request_timeout", requestTimeout.toString());
+            componentState.setConfigProperty("max_concurrent_requests_per_server", maxConcurrentRequestsPerServer);
             
             componentState.addMetrics("current_available_connections", new Count.Live(() -> (long) pool.getCurrentAvailableConnections()));
             componentState.addMetrics("connections_closed_defunct", new Count.Live(() -> pool.getConnectionPoolStatistics().getNumConnectionsClosedDefunct()));
@@ -174,11 +237,18 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
             componentState.addMetrics("successful_checkouts_from_pool_without_wait", new Count.Live(() -> pool.getConnectionPoolStatistics().getNumSuccessfulCheckoutsWithoutWaiting()));
             componentState.addMetrics("successful_checkouts_new_connection", new Count.Live(() -> pool.getConnectionPoolStatistics().getNumSuccessfulCheckoutsNewConnection()));
             componentState.addMetrics("successful_connection_attempts", new Count.Live(() -> pool.getConnectionPoolStatistics().getNumSuccessfulConnectionAttempts()));
+            componentState.addMetrics("search", searchTime);
+            componentState.addMetrics("bind", bindTime);
+            componentState.addMetrics("latency_histogram", latencyHistogram);
+            componentState.addMetrics("rejected_requests", rejectedRequests);
+            componentState.addMetrics("circuit_breaker_trips", circuitBreakerTrips);
+            componentState.addMetrics("pending_requests", new Count.Live(() -> (long) executor.getQueue().size()));
 
             
             componentState.setInitialized();
         } else {
             pool = null;
+            executor = null;
         }
     }
 
@@ -295,8 +365,195 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
         }
     }
 
+    /**
+     * Executes a search asynchronously. The returned future completes with the found entries; it completes exceptionally with an LDAPException
+     * if the search failed or with an AuthenticatorUnavailableException if the search could not be executed at all.
+     */
+    public CompletableFuture<List<SearchResultEntry>> search(String baseDn, SearchScope scope, Filter filter, String... attributes) {
+        return execute(searchTime, (lease, timeoutMillis, result) -> {
+            AsyncSearch asyncSearch = new AsyncSearch(lease, result, baseDn, scope, filter, attributes);
+            SearchRequest searchRequest = new SearchRequest(asyncSearch, baseDn, scope, DereferencePolicy.ALWAYS, 0, 0, false, filter, attributes);
+            searchRequest.setResponseTimeoutMillis(timeoutMillis);
+            lease.connection.asyncSearch(searchRequest);
+        });
+    }
+
+    /**
+     * Executes a simple bind with the given credentials. Afterwards, the authentication of the pooled connection is reverted. The returned
+     * future completes exceptionally with an LDAPException if the bind failed.
+     * 
+     * The UnboundID SDK does not provide an asynchronous bind operation; thus, the bind blocks a thread of the LDAP thread pool.
+     */
+    public CompletableFuture<Void> bind(String dn, byte[] password) {
+        return execute(bindTime, (lease, timeoutMillis, result) -> {
+            SimpleBindRequest simpleBindRequest = new SimpleBindRequest(dn, password);
+            simpleBindRequest.setResponseTimeoutMillis(timeoutMillis);
+
+            LDAPException bindException = null;
+
+            try {
+                lease.connection.bind(simpleBindRequest);
+            } catch (LDAPException e) {
+                if (isServerFailure(e.getResultCode())) {
+                    throw e;
+                }
+
+                bindException = e;
+            }
+
+            BindRequest revertBindRequest = bindRequest.duplicate();
+            revertBindRequest.setResponseTimeoutMillis(timeoutMillis);
+
+            // An exception during this bind will release the connection as defunct
+            lease.connection.bind(revertBindRequest);
+            lease.release(null);
+
+            if (bindException != null) {
+                result.completeExceptionally(bindException);
+            } else {
+                result.complete(null);
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> execute(TimeAggregation timeAggregation, Operation<T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                long timeoutMillis = requestTimeout.toMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                if (timeoutMillis <= 0) {
+                    countRejection(rejectedBecauseOfTimeout);
+                    result.completeExceptionally(new LDAPException(ResultCode.TIMEOUT, "The request timed out while waiting for execution"));
+                    return;
+                }
+
+                Lease lease;
+
+                try {
+                    lease = checkOut();
+                } catch (LDAPException | AuthenticatorUnavailableException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+
+                try {
+                    // Binds and searches may open new connections, for example when following referrals
+                    PrivilegedCode.execute(() -> operation.start(lease, timeoutMillis, result), LDAPException.class);
+                } catch (LDAPException e) {
+                    lease.release(e);
+                    result.completeExceptionally(e);
+                } catch (RuntimeException e) {
+                    lease.discard();
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            countRejection(rejectedBecauseOfFullQueue);
+            result.completeExceptionally(new AuthenticatorUnavailableException("LDAP server is overloaded",
+                    "Too many pending LDAP requests; the queue is full (" + executor.getQueue().size() + ")", e));
+            return result;
+        }
+
+        result.whenComplete((r, e) -> {
+            long durationNs = System.nanoTime() - start;
+            timeAggregation.recordNs(durationNs);
+            recordLatency(durationNs);
+        });
+
+        return result;
+    }
+
+    /**
+     * Checks out a connection from the pool. Connections to LDAP servers with an open circuit breaker are discarded; then, the pool will
+     * create a new connection which might go to another server, depending on the connection strategy.
+     * 
+     * Connections to LDAP servers which have reached the concurrency limit are kept checked out until a usable connection has been found.
+     * This way, the pool does not hand out the same connection again and other servers get a chance.
+     */
+    private Lease checkOut() throws LDAPException, AuthenticatorUnavailableException {
+        List<LDAPConnection> connectionsToOverloadedServers = new ArrayList<>();
+        ServerState overloadedServer = null;
+
+        try {
+            for (int i = 0; i <= serverCount; i++) {
+                LDAPConnection connection = PrivilegedCode.execute(() -> pool.getConnection(), LDAPException.class);
+                ServerState serverState = getServerState(connection);
+
+                if (!serverState.permits.tryAcquire()) {
+                    connectionsToOverloadedServers.add(connection);
+                    overloadedServer = serverState;
+                    continue;
+                }
+
+                if (!serverState.allowRequest(System.nanoTime())) {
+                    serverState.permits.release();
+                    pool.releaseDefunctConnection(connection);
+                    continue;
+                }
+
+                return new Lease(connection, serverState);
+            }
+        } finally {
+            for (LDAPConnection connection : connectionsToOverloadedServers) {
+                pool.releaseConnection(connection);
+            }
+        }
+
+        if (overloadedServer != null) {
+            countRejection(rejectedBecauseOfConcurrencyLimit);
+            throw new AuthenticatorUnavailableException("LDAP server is overloaded",
+                    "Too many concurrent requests to " + overloadedServer.name + " (" + maxConcurrentRequestsPerServer + ")")
+                            .details("ldap_server", overloadedServer.name);
+        }
+
+        countRejection(rejectedBecauseOfOpenCircuit);
+        throw new AuthenticatorUnavailableException("LDAP server is unavailable",
+                "Requests to the LDAP servers are suspended because of recent failures. Retrying after " + circuitBreakerOpenDuration);
+    }
+
+    private ServerState getServerState(LDAPConnection connection) {
+        String name = connection.getConnectedAddress() + ":" + connection.getConnectedPort();
+        return serverStates.computeIfAbsent(name, (k) -> new ServerState(k, maxConcurrentRequestsPerServer, circuitBreakerFailureThreshold,
+                circuitBreakerOpenDuration, circuitBreakerTrips));
+    }
+
+    private void countRejection(CountAggregation reason) {
+        rejectedRequests.increment();
+        reason.increment();
+    }
+
+    private void recordLatency(long durationNs) {
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNs);
+        latencyHistogram.increment();
+
+        for (long bucket : LATENCY_HISTOGRAM_BUCKETS_MS) {
+            if (durationMs <= bucket) {
+                latencyHistogram.getSubCount("le_" + bucket + "ms").increment();
+                return;
+            }
+        }
+
+        latencyHistogram.getSubCount("gt_" + LATENCY_HISTOGRAM_BUCKETS_MS[LATENCY_HISTOGRAM_BUCKETS_MS.length - 1] + "ms").increment();
+    }
+
+    /**
+     * Result codes which indicate that the LDAP server or the connection to it is not working properly. These count as failures for the circuit
+     * breaker. Other error codes, such as invalid credentials, indicate a working server.
+     */
+    static boolean isServerFailure(ResultCode resultCode) {
+        return !ResultCode.isConnectionUsable(resultCode) || resultCode == ResultCode.TIMEOUT || resultCode == ResultCode.BUSY
+                || resultCode == ResultCode.UNAVAILABLE;
+    }
+
     @Override
     public void close() throws IOException {
+        if (executor != null) {
+            executor.shutdown();
+        }
+
         if (pool != null) {
             pool.close();
         }
@@ -347,4 +604,197 @@ public final class LDAPConnectionManager implements Closeable, ComponentStatePro
     public ComponentState getComponentState() {
         return componentState;
     }
+
+    @FunctionalInterface
+    private static interface Operation<T> {
+        /**
+         * Starts the operation on the leased connection. The operation must release the lease and complete the result. If an exception is
+         * thrown, this is done by the caller.
+         */
+        void start(Lease lease, long timeoutMillis, CompletableFuture<T> result) throws LDAPException;
+    }
+
+    private class Lease {
+        private final LDAPConnection connection;
+        private final ServerState serverState;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(LDAPConnection connection, ServerState serverState) {
+            this.connection = connection;
+            this.serverState = serverState;
+        }
+
+        /**
+         * Returns the connection to the pool. If the given exception indicates a server failure, the connection is discarded and the failure is
+         * counted by the circuit breaker of the server.
+         */
+        void release(LDAPException e) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+
+            serverState.permits.release();
+
+            if (e != null && isServerFailure(e.getResultCode())) {
+                serverState.onFailure(System.nanoTime());
+                pool.releaseDefunctConnection(connection);
+            } else {
+                serverState.onSuccess();
+                pool.releaseConnection(connection);
+            }
+        }
+
+        /**
+         * Discards the connection without counting a failure of the server.
+         */
+        void discard() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+
+            serverState.permits.release();
+            pool.releaseDefunctConnection(connection);
+        }
+    }
+
+    /**
+     * Collects the results of an asynchronous search. The callbacks are executed by the reader thread of the connection or by the timer thread
+     * of the SDK in case of a timeout. The result future is completed on the LDAP thread pool; its dependent actions must neither block the
+     * reader thread nor run while the monitor of this object is held.
+     */
+    private class AsyncSearch implements AsyncSearchResultListener {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Lease lease;
+        private final transient CompletableFuture<List<SearchResultEntry>> result;
+        private final String baseDn;
+        private final SearchScope scope;
+        private final Filter filter;
+        private final String[] attributes;
+        private final List<SearchResultEntry> entries = new ArrayList<>();
+        private boolean referenceReturned;
+
+        AsyncSearch(Lease lease, CompletableFuture<List<SearchResultEntry>> result, String baseDn, SearchScope scope, Filter filter,
+                String[] attributes) {
+            this.lease = lease;
+            this.result = result;
+            this.baseDn = baseDn;
+            this.scope = scope;
+            this.filter = filter;
+            this.attributes = attributes;
+        }
+
+        @Override
+        public synchronized void searchEntryReturned(SearchResultEntry searchEntry) {
+            entries.add(searchEntry);
+        }
+
+        @Override
+        public synchronized void searchReferenceReturned(SearchResultReference searchReference) {
+            referenceReturned = true;
+        }
+
+        @Override
+        public void searchResultReceived(AsyncRequestID requestID, SearchResult searchResult) {
+            ResultCode resultCode = searchResult.getResultCode();
+            List<SearchResultEntry> entries;
+            boolean referenceReturned;
+
+            synchronized (this) {
+                entries = new ArrayList<>(this.entries);
+                referenceReturned = this.referenceReturned;
+            }
+
+            if (resultCode == ResultCode.REFERRAL || (referenceReturned && resultCode == ResultCode.SUCCESS)) {
+                // Asynchronous requests do not follow referrals. Thus, we repeat the search synchronously on the LDAP thread pool
+                lease.release(null);
+                searchFollowingReferrals().whenComplete((referralResult, e) -> {
+                    if (e != null) {
+                        result.completeExceptionally(e);
+                    } else {
+                        result.complete(referralResult);
+                    }
+                });
+            } else if (resultCode == ResultCode.SUCCESS) {
+                lease.release(null);
+                completeOnExecutor(() -> result.complete(entries));
+            } else {
+                LDAPSearchException searchException = new LDAPSearchException(searchResult);
+                lease.release(searchException);
+                completeOnExecutor(() -> result.completeExceptionally(searchException));
+            }
+        }
+
+        private void completeOnExecutor(Runnable completion) {
+            try {
+                executor.execute(completion);
+            } catch (RejectedExecutionException e) {
+                // The queue is full or the executor is shut down; completing here is still better than never completing
+                completion.run();
+            }
+        }
+
+        private CompletableFuture<List<SearchResultEntry>> searchFollowingReferrals() {
+            return execute(searchTime, (syncLease, timeoutMillis, syncResult) -> {
+                SearchRequest searchRequest = new SearchRequest(baseDn, scope, DereferencePolicy.ALWAYS, 0, 0, false, filter, attributes);
+                searchRequest.setResponseTimeoutMillis(timeoutMillis);
+                searchRequest.setFollowReferrals(true);
+                SearchResult searchResult = syncLease.connection.search(searchRequest);
+                syncLease.release(null);
+                syncResult.complete(searchResult.getSearchEntries());
+            });
+        }
+    }
+
+    /**
+     * Tracks the number of concurrent requests and the state of the circuit breaker for a single LDAP server.
+     * 
+     * The circuit opens after the configured number of consecutive failures. While it is open, no requests are sent to the server. After the
+     * open duration has passed, a single trial request is admitted; if it succeeds, the circuit is closed again. Otherwise, it stays open for
+     * another open duration.
+     */
+    static class ServerState {
+        final String name;
+        final Semaphore permits;
+        private final int failureThreshold;
+        private final long openDurationNanos;
+        private final CountAggregation trips;
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final AtomicLong openUntilNanos = new AtomicLong();
+
+        ServerState(String name, int maxConcurrentRequests, int failureThreshold, Duration openDuration, CountAggregation trips) {
+            this.name = name;
+            this.permits = new Semaphore(maxConcurrentRequests);
+            this.failureThreshold = failureThreshold;
+            this.openDurationNanos = openDuration.toNanos();
+            this.trips = trips;
+        }
+
+        boolean allowRequest(long now) {
+            if (failureThreshold <= 0 || consecutiveFailures.get() < failureThreshold) {
+                return true;
+            }
+
+            long openUntil = openUntilNanos.get();
+
+            // Admit a single trial request once the open duration has passed
+            return now - openUntil >= 0 && openUntilNanos.compareAndSet(openUntil, now + openDurationNanos);
+        }
+
+        void onSuccess() {
+            consecutiveFailures.set(0);
+        }
+
+        void onFailure(long now) {
+            if (failureThreshold > 0 && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                if (consecutiveFailures.get() == failureThreshold) {
+                    log.warn("Suspending requests to LDAP server " + name + " for " + TimeUnit.NANOSECONDS.toMillis(openDurationNanos)
+                            + " ms because of " + failureThreshold + " consecutive failures");
+                    trips.increment();
+                }
+
+                openUntilNanos.set(now + openDurationNanos);
+            }
+        }
+    }
 }
@@ -14,6 +14,8 @@
 
 package com.floragunn.searchguard.enterprise.auth.oidc;
 
+import java.nio.charset.StandardCharsets;
+
 import org.apache.cxf.rs.security.jose.jwa.SignatureAlgorithm;
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKey;
 import org.apache.cxf.rs.security.jose.jws.JwsJwtCompactConsumer;
@@ -25,21 +27,72 @@ import org.apache.cxf.rs.security.jose.jwt.JwtToken;
 import org.apache.cxf.rs.security.jose.jwt.JwtUtils;
 
 import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 
-public class JwtVerifier {
+public class JwtVerifier implements ComponentStateProvider {
 
     private final KeyProvider keyProvider;
     private final String requiredAudience;
     private final String requiredIssuer;
+    private final Cache<HashCode, VerifiedToken> verifiedTokenCache;
+    private final ComponentState componentState = new ComponentState(0, null, "jwt_verifier", JwtVerifier.class).initialized();
+    private final CountAggregation verifications = new CountAggregation();
+    private final CountAggregation savedVerifications = verifications.getSubCount("saved_by_cache");
+    private final CountAggregation performedVerifications = verifications.getSubCount("performed");
 
     public JwtVerifier(KeyProvider keyProvider, String requiredAudience, String requiredIssuer) {
+        this(keyProvider, requiredAudience, requiredIssuer, null);
+    }
+
+    /**
+     * @param verifiedTokenCache caches the verified tokens by the SHA-256 hash of the encoded token. Entries are used until the expiry
+     *                           configured for the cache or the expiry of the token, whichever is earlier, and only as long as the keys of the
+     *                           key provider are unchanged. May be null.
+     */
+    public JwtVerifier(KeyProvider keyProvider, String requiredAudience, String requiredIssuer, Cache<HashCode, VerifiedToken> verifiedTokenCache) {
         this.keyProvider = keyProvider;
         this.requiredAudience = requiredAudience;
         this.requiredIssuer = requiredIssuer;
+        this.verifiedTokenCache = verifiedTokenCache;
+        this.componentState.addMetrics("verifications", verifications);
     }
 
     public JwtToken getVerifiedJwtToken(String encodedJwt) throws BadCredentialsException, AuthenticatorUnavailableException {
+        if (verifiedTokenCache == null) {
+            return verify(encodedJwt);
+        }
+
+        HashCode tokenHash = Hashing.sha256().hashString(encodedJwt, StandardCharsets.UTF_8);
+        VerifiedToken cachedToken = verifiedTokenCache.getIfPresent(tokenHash);
+        long keyGeneration = keyProvider.getKeyGeneration();
+
+        verifications.increment();
+
+        if (cachedToken != null) {
+            if (cachedToken.isValid(keyGeneration, System.currentTimeMillis())) {
+                savedVerifications.increment();
+                return cachedToken.jwt;
+            } else {
+                verifiedTokenCache.invalidate(tokenHash);
+            }
+        }
+
+        performedVerifications.increment();
+
+        JwtToken jwt = verify(encodedJwt);
+
+        verifiedTokenCache.put(tokenHash, new VerifiedToken(jwt, keyGeneration));
+
+        return jwt;
+    }
+
+    private JwtToken verify(String encodedJwt) throws BadCredentialsException, AuthenticatorUnavailableException {
         try {
             JwsJwtCompactConsumer jwtConsumer = new JwsJwtCompactConsumer(encodedJwt);
             JwtToken jwt = jwtConsumer.getJwtToken();
@@ -137,4 +190,31 @@ public class JwtVerifier {
             throw new JwtException("Invalid issuer claim: " + claims.getIssuer());
         }
     }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    /**
+     * A token which has passed verification. The key generation is the one which was current before the verification started; thus, a key
+     * change during the verification also invalidates the entry.
+     */
+    public static class VerifiedToken {
+        private final JwtToken jwt;
+        private final long keyGeneration;
+        private final long expiresAtMillis;
+
+        VerifiedToken(JwtToken jwt, long keyGeneration) {
+            this.jwt = jwt;
+            this.keyGeneration = keyGeneration;
+
+            Long expiryTime = jwt.getClaims() != null ? jwt.getClaims().getExpiryTime() : null;
+            this.expiresAtMillis = expiryTime != null ? expiryTime * 1000 : Long.MAX_VALUE;
+        }
+
+        boolean isValid(long currentKeyGeneration, long now) {
+            return keyGeneration == currentKeyGeneration && now < expiresAtMillis;
+        }
+    }
 }
@@ -14,34 +14,59 @@
 
 package com.floragunn.searchguard.enterprise.auth.oidc;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKey;
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKeys;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 
 import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
 import com.google.common.base.Strings;
 
+/**
+ * Provides keys from a key set which is refreshed when a key is requested which is not known yet.
+ *
+ * The current keys are kept in an immutable snapshot which is swapped atomically; thus, requests for known keys never block. Refreshes are
+ * executed by a single background thread. Requests for unknown keys either start a refresh or wait for the refresh already in progress; in
+ * both cases, they wait only for the shared future of the refresh and only up to the configured timeout.
+ *
+ * Refreshes are rate limited. After failed refreshes, further refreshes are delayed by a jittered exponential backoff; requests needing a
+ * refresh during that time fail fast.
+ */
 public class SelfRefreshingKeySet implements KeyProvider {
     private static final Logger log = LogManager.getLogger(SelfRefreshingKeySet.class);
 
+    private static final long INITIAL_BACKOFF_MS = 500;
+
     private final KeySetProvider keySetProvider;
-    private final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 10, 1000, TimeUnit.MILLISECONDS,
-            new LinkedBlockingQueue<Runnable>());
-    private volatile JsonWebKeys jsonWebKeys = new JsonWebKeys();
-    private boolean refreshInProgress = false;
-    private long refreshCount = 0;
-    private long queuedGetCount = 0;
-    private long recentRefreshCount = 0;
-    private long refreshTime = 0;
-    private Throwable lastRefreshFailure = null;
+    private final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, 1000, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), EsExecutors.daemonThreadFactory("sg_jwks_refresh"));
+    private volatile KeySnapshot keys = KeySnapshot.EMPTY;
+    private final AtomicReference<Refresh> pendingRefresh = new AtomicReference<>();
+    private final AtomicReference<RateLimitWindow> rateLimitWindow = new AtomicReference<>(new RateLimitWindow(System.nanoTime() - TimeUnit.DAYS.toNanos(1), 0));
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong queuedGetCount = new AtomicLong();
+    private final AtomicLong keyGeneration = new AtomicLong();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long backoffUntilNanos = System.nanoTime();
+    private volatile Throwable lastRefreshFailure = null;
     private int requestTimeoutMs = 5000;
     private int queuedThreadTimeoutMs = 2500;
     private int refreshRateLimitTimeWindowMs = 10000;
@@ -49,6 +74,7 @@ public class SelfRefreshingKeySet implements KeyProvider {
 
     public SelfRefreshingKeySet(KeySetProvider refreshFunction) {
         this.keySetProvider = refreshFunction;
+        this.threadPoolExecutor.allowCoreThreadTimeOut(true);
     }
 
     public JsonWebKey getKey(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
@@ -59,31 +85,23 @@ public class SelfRefreshingKeySet implements KeyProvider {
         }
     }
 
-    public synchronized JsonWebKey getKeyAfterRefresh(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
+    public JsonWebKey getKeyAfterRefresh(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
         JsonWebKey result = getKeyAfterRefreshInternal(kid);
 
         if (result != null) {
             return result;
-        } else if (jsonWebKeys.getKeys().size() == 0) {
+        } else if (keys.size() == 0) {
             throw new AuthenticatorUnavailableException("IdP configuration error", "No JWK are available from IdP");
         } else {
             throw new BadCredentialsException("JWT did not contain KID which is required if IdP provides multiple JWK");
         }
     }
 
-    private synchronized JsonWebKey getKeyAfterRefreshInternal(String kid) throws AuthenticatorUnavailableException {
-        if (refreshInProgress) {
-            return waitForRefreshToFinish(kid);
-        } else {
-            return performRefresh(kid);
-        }
-    }
-
     private JsonWebKey getKeyWithoutKeyId() throws AuthenticatorUnavailableException, BadCredentialsException {
-        List<JsonWebKey> keys = jsonWebKeys.getKeys();
+        KeySnapshot keys = this.keys;
 
-        if (keys == null || keys.size() == 0) {
-            JsonWebKey result = getKeyWithRefresh(null);
+        if (keys.size() == 0) {
+            JsonWebKey result = getKeyAfterRefreshInternal(null);
 
             if (result != null) {
                 return result;
@@ -91,9 +109,9 @@ public class SelfRefreshingKeySet implements KeyProvider {
                 throw new AuthenticatorUnavailableException("IdP configuration error", "No JWK are available from IdP");
             }
         } else if (keys.size() == 1) {
-            return keys.get(0);
+            return keys.getSingleKey();
         } else {
-            JsonWebKey result = getKeyWithRefresh(null);
+            JsonWebKey result = getKeyAfterRefreshInternal(null);
 
             if (result != null) {
                 return result;
@@ -104,13 +122,13 @@ public class SelfRefreshingKeySet implements KeyProvider {
     }
 
     private JsonWebKey getKeyWithKeyId(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
-        JsonWebKey result = jsonWebKeys.getKey(kid);
+        JsonWebKey result = keys.getKey(kid);
 
         if (result != null) {
             return result;
         }
 
-        result = getKeyWithRefresh(kid);
+        result = getKeyAfterRefreshInternal(kid);
 
         if (result == null) {
             throw new BadCredentialsException("Unknown kid " + kid);
@@ -119,164 +137,172 @@ public class SelfRefreshingKeySet implements KeyProvider {
         return result;
     }
 
-    private synchronized JsonWebKey getKeyWithRefresh(String kid) throws AuthenticatorUnavailableException {
+    private JsonWebKey getKeyAfterRefreshInternal(String kid) throws AuthenticatorUnavailableException {
+        Refresh refresh = pendingRefresh.get();
 
-        // Always re-check within synchronized to handle any races
-
-        JsonWebKey result = getKeySimple(kid);
-
-        if (result != null) {
-            return result;
+        if (refresh != null) {
+            queuedGetCount.incrementAndGet();
+            return waitForRefresh(refresh, kid, queuedThreadTimeoutMs, false);
         }
 
-        return getKeyAfterRefreshInternal(kid);
-    }
+        refresh = new Refresh();
 
-    private JsonWebKey getKeySimple(String kid) {
-        if (Strings.isNullOrEmpty(kid)) {
-            List<JsonWebKey> keys = jsonWebKeys.getKeys();
+        if (!pendingRefresh.compareAndSet(null, refresh)) {
+            Refresh otherRefresh = pendingRefresh.get();
 
-            if (keys != null && keys.size() == 1) {
-                return keys.get(0);
-            } else {
-                return null;
+            if (otherRefresh != null) {
+                queuedGetCount.incrementAndGet();
+                return waitForRefresh(otherRefresh, kid, queuedThreadTimeoutMs, false);
             }
 
-        } else {
-            return jsonWebKeys.getKey(kid);
-        }
-    }
-
-    private synchronized JsonWebKey waitForRefreshToFinish(String kid) throws AuthenticatorUnavailableException {
-        queuedGetCount++;
-        long currentRefreshCount = refreshCount;
-
-        try {
-            wait(queuedThreadTimeoutMs);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.debug(e);
+            // The other refresh has been already finished; as its result might be newer than the start of this request, we just check again
+            return keys.getKeySimple(kid);
         }
 
-        // Just be optimistic and re-check the key
-
-        JsonWebKey result = getKeySimple(kid);
-
-        if (result != null) {
-            return result;
-        }
+        startRefresh(refresh);
 
-        if (refreshInProgress && currentRefreshCount == refreshCount) {
-            // The wait() call returned due to the timeout.
-            throw new AuthenticatorUnavailableException("IdP communication error", "Authentication backend timed out");
-        } else if (lastRefreshFailure != null) {
-            throw new AuthenticatorUnavailableException("Authentication backend failed", lastRefreshFailure);
-        } else {
-            // Refresh was successful, but we did not get a matching key
-            return null;
-        }
+        return waitForRefresh(refresh, kid, requestTimeoutMs, true);
     }
 
-    private synchronized JsonWebKey performRefresh(String kid) throws AuthenticatorUnavailableException {
-        if (log.isDebugEnabled()) {
-            log.debug("performRefresh({})", kid);
-        }
-
-        final boolean recentRefresh;
+    private void startRefresh(Refresh refresh) throws AuthenticatorUnavailableException {
+        long now = System.nanoTime();
 
-        if (System.currentTimeMillis() - refreshTime < refreshRateLimitTimeWindowMs) {
-            recentRefreshCount++;
-            recentRefresh = true;
-
-            if (recentRefreshCount > refreshRateLimitCount) {
-                throw new AuthenticatorUnavailableException("IdP refresh rate limit reached",
-                        "Too many unknown kids recently: " + recentRefreshCount);
-            }
-        } else {
-            recentRefresh = false;
+        if (now - backoffUntilNanos < 0) {
+            AuthenticatorUnavailableException e = new AuthenticatorUnavailableException("IdP communication error",
+                    "Not refreshing keys because of recent failure: " + lastRefreshFailure, lastRefreshFailure);
+            finish(refresh, null, e, false);
+            throw e;
         }
 
-        refreshInProgress = true;
-        refreshCount++;
+        if (!tryAcquireRateLimit(now)) {
+            AuthenticatorUnavailableException e = new AuthenticatorUnavailableException("IdP refresh rate limit reached",
+                    "Too many unknown kids recently: " + rateLimitWindow.get().count);
+            finish(refresh, null, e, false);
+            throw e;
+        }
 
-        log.info("Performing refresh {}", refreshCount);
+        long currentRefreshCount = refreshCount.incrementAndGet();
 
-        long currentRefreshCount = refreshCount;
+        log.info("Performing refresh {}", currentRefreshCount);
 
         try {
+            refresh.task = threadPoolExecutor.submit(() -> {
+                try {
+                    JsonWebKeys newKeys = keySetProvider.get();
 
-            Future<?> future = threadPoolExecutor.submit(new Runnable() {
-
-                @Override
-                public void run() {
-                    try {
-                        JsonWebKeys newKeys = keySetProvider.get();
-
-                        if (newKeys == null) {
-                            throw new RuntimeException("Refresh function " + keySetProvider + " yielded null");
-                        }
-
-                        log.info("KeySetProvider finished");
-
-                        synchronized (SelfRefreshingKeySet.this) {
-                            jsonWebKeys = newKeys;
-                            refreshInProgress = false;
-                            lastRefreshFailure = null;
-                            SelfRefreshingKeySet.this.notifyAll();
-                        }
-                    } catch (Throwable e) {
-                        synchronized (SelfRefreshingKeySet.this) {
-                            lastRefreshFailure = e;
-                            refreshInProgress = false;
-                            SelfRefreshingKeySet.this.notifyAll();
-                        }
-                        log.warn("KeySetProvider threw error", e);
-                    } finally {
-                        if (!recentRefresh) {
-                            recentRefreshCount = 0;
-                            refreshTime = System.currentTimeMillis();
-                        }
+                    if (newKeys == null) {
+                        throw new RuntimeException("Refresh function " + keySetProvider + " yielded null");
                     }
 
+                    log.info("KeySetProvider finished");
+
+                    finish(refresh, new KeySnapshot(newKeys), null, false);
+                } catch (Throwable e) {
+                    log.warn("KeySetProvider threw error", e);
+                    finish(refresh, null, e, true);
                 }
             });
+        } catch (RejectedExecutionException e) {
+            AuthenticatorUnavailableException exception = new AuthenticatorUnavailableException("IdP refresh rate limit reached",
+                    "Did not try to call authentication backend because of " + threadPoolExecutor.getActiveCount() + " pending threads", e);
+            finish(refresh, null, exception, false);
+            throw exception;
+        }
+    }
 
-            try {
-                wait(requestTimeoutMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                log.debug(e);
-            }
-
-            JsonWebKey result = getKeySimple(kid);
+    private JsonWebKey waitForRefresh(Refresh refresh, String kid, int timeoutMs, boolean cancelOnTimeout) throws AuthenticatorUnavailableException {
+        try {
+            return refresh.future.get(timeoutMs, TimeUnit.MILLISECONDS).getKeySimple(kid);
+        } catch (TimeoutException e) {
+            // Just be optimistic and re-check the key
+            JsonWebKey result = keys.getKeySimple(kid);
 
             if (result != null) {
                 return result;
             }
 
-            if (refreshInProgress && currentRefreshCount == refreshCount) {
-                if (!future.isDone()) {
-                    future.cancel(true);
+            AuthenticatorUnavailableException exception = new AuthenticatorUnavailableException("IdP communication error",
+                    "Authentication backend timed out");
+
+            if (cancelOnTimeout) {
+                finish(refresh, null, exception, true);
+
+                Future<?> task = refresh.task;
+
+                if (task != null && !task.isDone()) {
+                    task.cancel(true);
                 }
+            }
 
-                lastRefreshFailure = new AuthenticatorUnavailableException("IdP communication error", "Authentication backend timed out");
+            throw exception;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticatorUnavailableException) {
+                throw (AuthenticatorUnavailableException) e.getCause();
+            } else {
+                throw new AuthenticatorUnavailableException("Authentication backend failed", e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticatorUnavailableException("IdP communication error", "Interrupted while waiting for key refresh", e);
+        }
+    }
 
-                throw new AuthenticatorUnavailableException("IdP communication error", "Authentication backend timed out");
+    /**
+     * Publishes the result of a refresh. Only the first call for a refresh has an effect. If countAsFailure is true, the backoff delay for
+     * the next refresh is increased.
+     */
+    private void finish(Refresh refresh, KeySnapshot newKeys, Throwable failure, boolean countAsFailure) {
+        if (newKeys != null) {
+            if (!newKeys.equals(this.keys)) {
+                this.keys = newKeys;
+                this.keyGeneration.incrementAndGet();
             }
 
-            if (lastRefreshFailure != null) {
-                throw new AuthenticatorUnavailableException("Authentication backend failed", lastRefreshFailure);
+            this.lastRefreshFailure = null;
+            this.consecutiveFailures.set(0);
+            this.backoffUntilNanos = System.nanoTime();
+            pendingRefresh.compareAndSet(refresh, null);
+            refresh.future.complete(newKeys);
+        } else {
+            if (refresh.future.isDone()) {
+                return;
             }
 
-            return null;
+            if (countAsFailure) {
+                this.lastRefreshFailure = failure;
+                this.backoffUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(nextBackoffMs(consecutiveFailures.incrementAndGet()));
+            }
 
-        } catch (RejectedExecutionException e) {
-            throw new AuthenticatorUnavailableException("IdP refresh rate limit reached",
-                    "Did not try to call authentication backend because of " + threadPoolExecutor.getActiveCount() + " pending threads", e);
-        } finally {
-            if (refreshInProgress && currentRefreshCount == refreshCount) {
-                refreshInProgress = false;
-                notifyAll();
+            pendingRefresh.compareAndSet(refresh, null);
+            refresh.future.completeExceptionally(failure);
+        }
+    }
+
+    private long nextBackoffMs(int failures) {
+        long maxBackoffMs = Math.max(INITIAL_BACKOFF_MS, refreshRateLimitTimeWindowMs);
+        long backoffMs = Math.min(maxBackoffMs, INITIAL_BACKOFF_MS << Math.min(failures - 1, 20));
+
+        // Full jitter on the upper half of the interval keeps clients of several nodes from retrying in lockstep
+        return backoffMs / 2 + ThreadLocalRandom.current().nextLong(backoffMs / 2 + 1);
+    }
+
+    private boolean tryAcquireRateLimit(long now) {
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(refreshRateLimitTimeWindowMs);
+
+        while (true) {
+            RateLimitWindow window = rateLimitWindow.get();
+            RateLimitWindow newWindow;
+
+            if (now - window.startNanos >= windowNanos) {
+                newWindow = new RateLimitWindow(now, 1);
+            } else if (window.count >= refreshRateLimitCount) {
+                return false;
+            } else {
+                newWindow = new RateLimitWindow(window.startNanos, window.count + 1);
+            }
+
+            if (rateLimitWindow.compareAndSet(window, newWindow)) {
+                return true;
             }
         }
     }
@@ -298,11 +324,16 @@ public class SelfRefreshingKeySet implements KeyProvider {
     }
 
     public long getRefreshCount() {
-        return refreshCount;
+        return refreshCount.get();
     }
 
     public long getQueuedGetCount() {
-        return queuedGetCount;
+        return queuedGetCount.get();
+    }
+
+    @Override
+    public long getKeyGeneration() {
+        return keyGeneration.get();
     }
 
     public int getRefreshRateLimitTimeWindowMs() {
@@ -320,4 +351,99 @@ public class SelfRefreshingKeySet implements KeyProvider {
     public void setRefreshRateLimitCount(int refreshRateLimitCount) {
         this.refreshRateLimitCount = refreshRateLimitCount;
     }
+
+    /**
+     * Immutable snapshot of a key set with an index by key id.
+     */
+    static class KeySnapshot {
+        static final KeySnapshot EMPTY = new KeySnapshot(new JsonWebKeys());
+
+        private final List<JsonWebKey> keys;
+        private final Map<String, JsonWebKey> keysById;
+
+        KeySnapshot(JsonWebKeys jsonWebKeys) {
+            List<JsonWebKey> keys = jsonWebKeys.getKeys();
+            Map<String, JsonWebKey> keysById = new HashMap<>();
+
+            if (keys != null) {
+                for (JsonWebKey key : keys) {
+                    if (key.getKeyId() != null) {
+                        keysById.putIfAbsent(key.getKeyId(), key);
+                    }
+                }
+            }
+
+            this.keys = keys != null ? Collections.unmodifiableList(keys) : Collections.emptyList();
+            this.keysById = Collections.unmodifiableMap(keysById);
+        }
+
+        int size() {
+            return keys.size();
+        }
+
+        JsonWebKey getKey(String kid) {
+            return keysById.get(kid);
+        }
+
+        JsonWebKey getSingleKey() {
+            return keys.size() == 1 ? keys.get(0) : null;
+        }
+
+        JsonWebKey getKeySimple(String kid) {
+            if (Strings.isNullOrEmpty(kid)) {
+                return getSingleKey();
+            } else {
+                return getKey(kid);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 1;
+
+            for (JsonWebKey key : keys) {
+                result = 31 * result + key.asMap().hashCode();
+            }
+
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof KeySnapshot)) {
+                return false;
+            }
+            KeySnapshot other = (KeySnapshot) obj;
+
+            if (keys.size() != other.keys.size()) {
+                return false;
+            }
+
+            for (int i = 0; i < keys.size(); i++) {
+                if (!keys.get(i).asMap().equals(other.keys.get(i).asMap())) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class Refresh {
+        private final CompletableFuture<KeySnapshot> future = new CompletableFuture<>();
+        private volatile Future<?> task;
+    }
+
+    private static class RateLimitWindow {
+        private final long startNanos;
+        private final int count;
+
+        RateLimitWindow(long startNanos, int count) {
+            this.startNanos = startNanos;
+            this.count = count;
+        }
+    }
 }
@@ -326,6 +326,67 @@ public class AuthTokenServiceTest {
         }
     }
 
+    @Test
+    public void maxTokensPerUserTest() throws Exception {
+        User testUser = User.forUser("max_tokens_test_user").backendRoles("r1", "r2", "r3").build();
+        Actions actions = new Actions(null);
+
+        AuthTokenServiceConfig config = new AuthTokenServiceConfig();
+        config.setEnabled(true);
+        config.setJwtSigningKey(TestJwk.OCT_1);
+        config.setJwtAud("_test_aud");
+        config.setMaxTokensPerUser(3);
+        config.setCacheConfig(CacheConfig.DEFAULT);
+
+        ConfigHistoryService configHistoryService = new ConfigHistoryService(configurationRepository, staticSgConfig, privilegedConfigClient,
+                protectedConfigIndexService, actions, StaticSettings.EMPTY, privilegesEvaluator);
+        AuthTokenService authTokenService = new AuthTokenService(privilegedConfigClient, authorizationService, privilegesEvaluator,
+                configHistoryService, StaticSettings.EMPTY, threadPool, clusterService, protectedConfigIndexService, actions, config);
+
+        try {
+            authTokenService.setSendTokenUpdates(false);
+            authTokenService.waitForInitComplete(10000);
+
+            RequestedPrivileges requestedPrivileges = RequestedPrivileges.parseYaml("cluster_permissions:\n- cluster:test\nroles:\n- r1");
+            CreateAuthTokenRequest request = new CreateAuthTokenRequest(requestedPrivileges);
+
+            for (int i = 0; i < 3; i++) {
+                authTokenService.create(testUser, request);
+            }
+
+            try {
+                AuthToken authToken = authTokenService.create(testUser, request);
+
+                Assert.fail(authToken + "");
+            } catch (TokenCreationException e) {
+                Assert.assertEquals("Cannot create token. Token limit per user exceeded. Max number of allowed tokens is 3", e.getMessage());
+            }
+        } finally {
+            authTokenService.shutdown();
+        }
+
+        // A new instance must get the existing tokens from the index
+
+        AuthTokenService authTokenService2 = new AuthTokenService(privilegedConfigClient, authorizationService, privilegesEvaluator,
+                configHistoryService, StaticSettings.EMPTY, threadPool, clusterService, protectedConfigIndexService, actions, config);
+
+        try {
+            authTokenService2.setSendTokenUpdates(false);
+            authTokenService2.waitForInitComplete(10000);
+
+            try {
+                AuthToken authToken = authTokenService2.create(testUser,
+                        new CreateAuthTokenRequest(RequestedPrivileges.parseYaml("cluster_permissions:\n- cluster:test\nroles:\n- r1")));
+
+                Assert.fail(authToken + "");
+            } catch (TokenCreationException e) {
+                Assert.assertEquals("Cannot create token. Token limit per user exceeded. Max number of allowed tokens is 3", e.getMessage());
+            }
+        } finally {
+            authTokenService2.shutdown();
+        }
+    }
+
     @Test
     public void authTokenBasedOnAuthTokenTest() throws Exception {
         try (GenericRestClient restClient = cluster.getAdminCertRestClient()) {
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auth.ldap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.unboundid.ldap.sdk.Attribute;
+import com.unboundid.ldap.sdk.Entry;
+import com.unboundid.ldap.sdk.Filter;
+
+public class GroupSearchTest {
+
+    @Test
+    public void assignToFilters() throws Exception {
+        Entry parentA = new Entry("cn=parent_a,ou=groups,o=TEST", new Attribute("member", "cn=a,ou=groups,o=TEST"));
+        Entry parentAB = new Entry("cn=parent_ab,ou=groups,o=TEST", new Attribute("member",
+                "CN=A, OU=groups, O=TEST", "cn=b,ou=groups,o=TEST"));
+
+        Filter filterA = Filter.createEqualityFilter("member", "cn=a,ou=groups,o=TEST");
+        Filter filterB = Filter.createEqualityFilter("member", "cn=b,ou=groups,o=TEST");
+        Filter filterC = Filter.createEqualityFilter("member", "cn=c,ou=groups,o=TEST");
+
+        Map<Filter, Set<Entry>> result = GroupGraphCache.assignToFilters(Arrays.asList(filterA, filterB, filterC), Arrays.asList(parentA, parentAB));
+
+        Assert.assertEquals(ImmutableSet.of(parentA, parentAB), result.get(filterA));
+        Assert.assertEquals(ImmutableSet.of(parentAB), result.get(filterB));
+        Assert.assertEquals(ImmutableSet.of(), result.get(filterC));
+    }
+
+    @Test
+    public void assignToFilters_unassignable() throws Exception {
+        Entry parentWithoutMemberAttribute = new Entry("cn=parent,ou=groups,o=TEST");
+
+        Filter filterA = Filter.createEqualityFilter("member", "cn=a,ou=groups,o=TEST");
+        Filter filterB = Filter.createEqualityFilter("member", "cn=b,ou=groups,o=TEST");
+
+        Assert.assertNull(GroupGraphCache.assignToFilters(Arrays.asList(filterA, filterB), Arrays.asList(parentWithoutMemberAttribute)));
+    }
+
+    @Test
+    public void findCycle() {
+        Map<String, Set<String>> acyclic = ImmutableMap.of(//
+                "user", ImmutableSet.of("a", "b"), //
+                "a", ImmutableSet.of("c"), //
+                "b", ImmutableSet.of("c"));
+
+        Assert.assertNull(GroupSearch.findCycle(acyclic));
+
+        Map<String, Set<String>> cyclic = ImmutableMap.of(//
+                "user", ImmutableSet.of("a"), //
+                "a", ImmutableSet.of("b"), //
+                "b", ImmutableSet.of("c"), //
+                "c", ImmutableSet.of("a"));
+
+        List<String> cycle = GroupSearch.findCycle(cyclic);
+
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "a"), cycle);
+    }
+
+    @Test
+    public void groupGraphCache_hit() throws Exception {
+        GroupGraphCache cache = new GroupGraphCache(CacheBuilder.newBuilder().<Filter, GroupGraphCache.Node>build());
+        Entry parent = new Entry("cn=parent,ou=groups,o=TEST", new Attribute("member", "cn=a,ou=groups,o=TEST"));
+        Filter filterA = Filter.createEqualityFilter("member", "cn=a,ou=groups,o=TEST");
+        Filter filterB = Filter.createEqualityFilter("member", "cn=b,ou=groups,o=TEST");
+
+        Assert.assertNull(cache.getParents(filterA));
+
+        cache.put(filterA, ImmutableSet.of(parent));
+
+        Assert.assertEquals(ImmutableSet.of(parent), cache.getParents(filterA));
+        Assert.assertNull(cache.getParents(filterB));
+    }
+
+    @Test
+    public void groupGraphCache_warmUpOnlyRefreshesAccessedNodes() throws Exception {
+        GroupGraphCache cache = new GroupGraphCache(CacheBuilder.newBuilder().<Filter, GroupGraphCache.Node>build());
+        Entry oldParent = new Entry("cn=old_parent,ou=groups,o=TEST");
+        Entry newParent = new Entry("cn=new_parent,ou=groups,o=TEST");
+        Filter filterA = Filter.createEqualityFilter("member", "cn=a,ou=groups,o=TEST");
+        Filter filterB = Filter.createEqualityFilter("member", "cn=b,ou=groups,o=TEST");
+        Filter filterC = Filter.createEqualityFilter("member", "cn=c,ou=groups,o=TEST");
+
+        cache.put(filterA, ImmutableSet.of(oldParent));
+        cache.put(filterB, ImmutableSet.of(oldParent));
+        Thread.sleep(5);
+
+        long firstWarmUp = System.nanoTime();
+        Thread.sleep(5);
+        cache.getParents(filterB);
+
+        Assert.assertEquals(Arrays.asList(filterB), cache.getNodesAccessedSince(firstWarmUp));
+
+        cache.refresh(filterB, ImmutableSet.of(newParent));
+        cache.refresh(filterC, ImmutableSet.of(newParent));
+        Thread.sleep(5);
+
+        long secondWarmUp = System.nanoTime();
+
+        // The refresh must not count as access; otherwise, the node would be refreshed forever
+        Assert.assertEquals(Collections.emptyList(), cache.getNodesAccessedSince(secondWarmUp));
+        // Refreshes do not add nodes which are not cached
+        Assert.assertNull(cache.getParents(filterC));
+        Assert.assertEquals(ImmutableSet.of(newParent), cache.getParents(filterB));
+        Assert.assertEquals(ImmutableSet.of(oldParent), cache.getParents(filterA));
+    }
+
+    @Test
+    public void groupGraphCache_unusedNodesExpire() throws Exception {
+        AtomicLong time = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return time.get();
+            }
+        };
+        GroupGraphCache cache = new GroupGraphCache(
+                CacheBuilder.newBuilder().ticker(ticker).expireAfterWrite(10, TimeUnit.MINUTES).<Filter, GroupGraphCache.Node>build());
+        Entry parent = new Entry("cn=parent,ou=groups,o=TEST");
+        Filter filterA = Filter.createEqualityFilter("member", "cn=a,ou=groups,o=TEST");
+        Filter filterB = Filter.createEqualityFilter("member", "cn=b,ou=groups,o=TEST");
+
+        cache.put(filterA, ImmutableSet.of(parent));
+        cache.put(filterB, ImmutableSet.of(parent));
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(6));
+
+        // Simulates a warm-up which only refreshes the node used since the last warm-up
+        cache.refresh(filterB, ImmutableSet.of(parent));
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        Assert.assertNull(cache.getParents(filterA));
+        Assert.assertEquals(ImmutableSet.of(parent), cache.getParents(filterB));
+    }
+}
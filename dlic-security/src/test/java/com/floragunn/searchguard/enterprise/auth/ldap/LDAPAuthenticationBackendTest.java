@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auth.ldap;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.floragunn.searchguard.authc.CredentialsException;
+import com.floragunn.searchguard.configuration.ConfigurationRepository;
+import com.floragunn.searchguard.test.helper.certificate.TestCertificate;
+import com.floragunn.searchguard.test.helper.certificate.TestCertificates;
+import com.floragunn.searchguard.user.AuthCredentials;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.Meter;
+import com.google.common.collect.ImmutableMap;
+
+public class LDAPAuthenticationBackendTest {
+
+    static TestCertificates certificatesContext = TestCertificates.builder().build();
+
+    static TestCertificate ldapServerCertificate = certificatesContext.create("CN=ldap.example.com,OU=MyOU,O=MyO");
+
+    static TestLdapDirectory.Entry KARLOTTA = new TestLdapDirectory.Entry("cn=Karlotta,ou=people,o=TEST").cn("Karlotta").uid("karlotta")
+            .userpassword("karlottas-secret").objectClass("inetOrgPerson");
+
+    static TestLdapDirectory.Entry ALL_ACCESS_GROUP = new TestLdapDirectory.Entry("cn=all_access,ou=groups,o=TEST").cn("all_access")
+            .objectClass("groupOfUniqueNames").uniqueMember(KARLOTTA);
+
+    static TestLdapDirectory.Entry NESTED_GROUP = new TestLdapDirectory.Entry("cn=nested,ou=groups,o=TEST").cn("nested")
+            .objectClass("groupOfUniqueNames").uniqueMember(ALL_ACCESS_GROUP);
+
+    @ClassRule
+    public static TestLdapServer tlsLdapServer = TestLdapServer.with(TestLdapDirectory.BASE, KARLOTTA, ALL_ACCESS_GROUP, NESTED_GROUP)
+            .tls(ldapServerCertificate).bindRequestDelay(Duration.ofMillis(300)).build();
+
+    static ConfigurationRepository.Context context = new ConfigurationRepository.Context(null, null, null, null, null).withExternalResources();
+
+    @Test
+    public void authenticateAsync() throws Exception {
+        try (LDAPAuthenticationBackend backend = new LDAPAuthenticationBackend(config(), context)) {
+            CompletableFuture<AuthCredentials> future = backend
+                    .authenticate(AuthCredentials.forUser("karlotta").password("karlottas-secret").build(), Meter.NO_OP);
+
+            // The bind is delayed by the server; thus, the calling thread must not have been blocked until now
+            Assert.assertFalse(future.isDone());
+
+            AuthCredentials result = future.get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals("karlotta", result.getName());
+            Assert.assertTrue(result.getBackendRoles().toString(), result.getBackendRoles().contains(ALL_ACCESS_GROUP.getDn()));
+            Assert.assertTrue(result.getBackendRoles().toString(), result.getBackendRoles().contains(NESTED_GROUP.getDn()));
+        }
+    }
+
+    @Test
+    public void wrongPassword() throws Exception {
+        try (LDAPAuthenticationBackend backend = new LDAPAuthenticationBackend(config(), context)) {
+            CompletableFuture<AuthCredentials> future = backend.authenticate(AuthCredentials.forUser("karlotta").password("wrong").build(),
+                    Meter.NO_OP);
+
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause().toString(), e.getCause() instanceof CredentialsException);
+            }
+        }
+    }
+
+    @Test
+    public void unknownUser() throws Exception {
+        try (LDAPAuthenticationBackend backend = new LDAPAuthenticationBackend(config(), context)) {
+            CompletableFuture<AuthCredentials> future = backend.authenticate(AuthCredentials.forUser("unknown").password("secret").build(),
+                    Meter.NO_OP);
+
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause().toString(), e.getCause() instanceof CredentialsException);
+            }
+        }
+    }
+
+    @Test
+    public void getUserInformation() throws Exception {
+        try (LDAPAuthenticationBackend backend = new LDAPAuthenticationBackend(config(), context)) {
+            AuthCredentials result = backend.getUserInformation(AuthCredentials.forUser("karlotta").build(), Meter.NO_OP).get(10, TimeUnit.SECONDS);
+
+            Assert.assertTrue(result.getBackendRoles().toString(), result.getBackendRoles().contains(ALL_ACCESS_GROUP.getDn()));
+            Assert.assertNull(backend.getUserInformation(AuthCredentials.forUser("unknown").build(), Meter.NO_OP).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void circuitBreaker() {
+        CountAggregation trips = new CountAggregation();
+        LDAPConnectionManager.ServerState serverState = new LDAPConnectionManager.ServerState("ldap:389", 10, 3, Duration.ofSeconds(30), trips);
+        long openNanos = Duration.ofSeconds(30).toNanos();
+        long now = 0;
+
+        serverState.onFailure(now);
+        serverState.onFailure(now);
+        Assert.assertTrue(serverState.allowRequest(now));
+
+        serverState.onFailure(now);
+        Assert.assertFalse(serverState.allowRequest(now));
+        Assert.assertFalse(serverState.allowRequest(now + openNanos - 1));
+        Assert.assertEquals(1, trips.getCount());
+
+        // Only a single trial request is admitted after the open duration
+        now += openNanos;
+        Assert.assertTrue(serverState.allowRequest(now));
+        Assert.assertFalse(serverState.allowRequest(now));
+
+        // Failed trial: The circuit stays open
+        serverState.onFailure(now);
+        Assert.assertFalse(serverState.allowRequest(now + 1));
+
+        // Successful trial: The circuit is closed
+        now += openNanos;
+        Assert.assertTrue(serverState.allowRequest(now));
+        serverState.onSuccess();
+        Assert.assertTrue(serverState.allowRequest(now));
+        Assert.assertTrue(serverState.allowRequest(now));
+    }
+
+    private static Map<String, Object> config() {
+        return ImmutableMap.of(//
+                "idp", ImmutableMap.of(//
+                        "hosts", tlsLdapServer.hostAndPort(), //
+                        "tls", ImmutableMap.of("trusted_cas", certificatesContext.getCaCertificate().getCertificateString(), "verify_hostnames", false), //
+                        "connection_pool", ImmutableMap.of("min_size", 1, "max_size", 4)), //
+                "user_search", ImmutableMap.of("filter", ImmutableMap.of("raw", "(uid=${user.name})")), //
+                "group_search", ImmutableMap.of(//
+                        "base_dn", TestLdapDirectory.GROUPS.getDn(), //
+                        "filter", ImmutableMap.of("raw", "(uniqueMember=${dn})"), //
+                        "role_name_attribute", "dn", //
+                        "recursive", ImmutableMap.of("enabled", true)));
+    }
+}
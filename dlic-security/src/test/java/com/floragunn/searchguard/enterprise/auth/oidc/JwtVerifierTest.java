@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022 by floragunn GmbH - All rights reserved
+ *
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed here is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *
+ * This software is free of charge for non-commercial and academic use.
+ * For commercial use in a production environment you have to obtain a license
+ * from https://floragunn.com
+ *
+ */
+
+package com.floragunn.searchguard.enterprise.auth.oidc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cxf.rs.security.jose.jwk.JsonWebKey;
+import org.apache.cxf.rs.security.jose.jwt.JwtConstants;
+import org.apache.cxf.rs.security.jose.jwt.JwtToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
+import com.google.common.cache.CacheBuilder;
+
+public class JwtVerifierTest {
+
+    @Test
+    public void verifiedTokenIsCached() throws Exception {
+        CountingKeyProvider keyProvider = new CountingKeyProvider();
+        JwtVerifier jwtVerifier = new JwtVerifier(keyProvider, null, null, CacheBuilder.newBuilder().maximumSize(100).build());
+
+        JwtToken first = jwtVerifier.getVerifiedJwtToken(TestJwts.MC_COY_SIGNED_OCT_1);
+        JwtToken second = jwtVerifier.getVerifiedJwtToken(TestJwts.MC_COY_SIGNED_OCT_1);
+
+        Assert.assertEquals(TestJwts.MCCOY_SUBJECT, second.getClaims().getSubject());
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, keyProvider.keyRequests.get());
+    }
+
+    @Test
+    public void cacheIsInvalidatedByKeyChange() throws Exception {
+        CountingKeyProvider keyProvider = new CountingKeyProvider();
+        JwtVerifier jwtVerifier = new JwtVerifier(keyProvider, null, null, CacheBuilder.newBuilder().maximumSize(100).build());
+
+        jwtVerifier.getVerifiedJwtToken(TestJwts.MC_COY_SIGNED_OCT_1);
+        keyProvider.generation.incrementAndGet();
+        jwtVerifier.getVerifiedJwtToken(TestJwts.MC_COY_SIGNED_OCT_1);
+
+        Assert.assertEquals(2, keyProvider.keyRequests.get());
+    }
+
+    @Test
+    public void expiredTokenIsNotServedFromCache() throws Exception {
+        CountingKeyProvider keyProvider = new CountingKeyProvider();
+        JwtVerifier jwtVerifier = new JwtVerifier(keyProvider, null, null, CacheBuilder.newBuilder().maximumSize(100).build());
+
+        long exp = System.currentTimeMillis() / 1000 + 2;
+        String jwt = TestJwts.createSigned(TestJwts.create(TestJwts.MCCOY_SUBJECT, TestJwts.TEST_AUDIENCE, JwtConstants.CLAIM_EXPIRY, exp),
+                TestJwk.OCT_1);
+
+        jwtVerifier.getVerifiedJwtToken(jwt);
+
+        Thread.sleep(exp * 1000 - System.currentTimeMillis() + 100);
+
+        try {
+            jwtVerifier.getVerifiedJwtToken(jwt);
+            Assert.fail("Expected a BadCredentialsException");
+        } catch (BadCredentialsException e) {
+            Assert.assertEquals(2, keyProvider.keyRequests.get());
+        }
+    }
+
+    static class CountingKeyProvider implements KeyProvider {
+        final AtomicInteger keyRequests = new AtomicInteger();
+        final AtomicLong generation = new AtomicLong();
+
+        @Override
+        public JsonWebKey getKey(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
+            keyRequests.incrementAndGet();
+            return TestJwk.OCT_1_2_3.getKey(kid);
+        }
+
+        @Override
+        public JsonWebKey getKeyAfterRefresh(String kid) throws AuthenticatorUnavailableException, BadCredentialsException {
+            return getKey(kid);
+        }
+
+        @Override
+        public long getKeyGeneration() {
+            return generation.get();
+        }
+    }
+}
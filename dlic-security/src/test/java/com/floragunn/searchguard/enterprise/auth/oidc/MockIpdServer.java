@@ -102,7 +102,7 @@ public class MockIpdServer implements Closeable {
     private String uri;
     private boolean requireTlsClientCertAuth;
     private String requireTlsClientCertFingerprint;
-    private JsonWebKeys jwks;
+    private volatile JsonWebKeys jwks;
     private boolean requireValidCodes = true;
     private boolean requirePkce = false;
 
@@ -213,6 +213,13 @@ public class MockIpdServer implements Closeable {
         httpServer.start();
     }
 
+    /**
+     * Replaces the key set served by this server; can be used to simulate key rotation.
+     */
+    public void setJwks(JsonWebKeys jwks) {
+        this.jwks = jwks;
+    }
+
     public MockIpdServer acceptOnlyRequestsWithHeader(Header header) {
         this.requiredHttpHeader = header;
         return this;
@@ -17,6 +17,7 @@ package com.floragunn.searchguard.enterprise.auth.oidc;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKey;
 import org.apache.cxf.rs.security.jose.jwk.JsonWebKeys;
@@ -78,6 +79,87 @@ public class SelfRefreshingKeySetTest {
 
 	}
 
+	@Test(timeout = 10000)
+	public void rotatingKeySet() throws Exception {
+		try (MockIpdServer mockIdpServer = MockIpdServer.forKeySet(TestJwk.Jwks.RSA_1).start()) {
+			SelfRefreshingKeySet selfRefreshingKeySet = new SelfRefreshingKeySet(
+					new KeySetRetriever(new OpenIdProviderClient(mockIdpServer.getDiscoverUri(), null, null, false)));
+
+			Assert.assertEquals("kid/1", selfRefreshingKeySet.getKey("kid/1").getKeyId());
+			Assert.assertEquals(1, selfRefreshingKeySet.getRefreshCount());
+
+			try {
+				selfRefreshingKeySet.getKey("kid/2");
+				Assert.fail("Expected a BadCredentialsException");
+			} catch (BadCredentialsException e) {
+				Assert.assertEquals(2, selfRefreshingKeySet.getRefreshCount());
+			}
+
+			mockIdpServer.setJwks(TestJwk.Jwks.RSA_2);
+
+			Assert.assertEquals("kid/2", selfRefreshingKeySet.getKey("kid/2").getKeyId());
+			Assert.assertEquals(3, selfRefreshingKeySet.getRefreshCount());
+
+			// Keys which are not available any more are removed by the refresh
+			try {
+				selfRefreshingKeySet.getKey("kid/1");
+				Assert.fail("Expected a BadCredentialsException");
+			} catch (BadCredentialsException e) {
+				Assert.assertEquals(4, selfRefreshingKeySet.getRefreshCount());
+			}
+		}
+	}
+
+	@Test
+	public void failedRefreshIsBackedOff() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+
+		SelfRefreshingKeySet selfRefreshingKeySet = new SelfRefreshingKeySet(() -> {
+			calls.incrementAndGet();
+			throw new AuthenticatorUnavailableException("IdP not available", "Test");
+		});
+
+		try {
+			selfRefreshingKeySet.getKey("kid/a");
+			Assert.fail("Expected an AuthenticatorUnavailableException");
+		} catch (AuthenticatorUnavailableException e) {
+			Assert.assertEquals(1, calls.get());
+		}
+
+		// The next refresh is delayed; thus, the request fails fast without calling the provider
+		try {
+			selfRefreshingKeySet.getKey("kid/a");
+			Assert.fail("Expected an AuthenticatorUnavailableException");
+		} catch (AuthenticatorUnavailableException e) {
+			Assert.assertEquals(1, calls.get());
+			Assert.assertEquals(1, selfRefreshingKeySet.getRefreshCount());
+		}
+	}
+
+	@Test
+	public void refreshRateLimit() throws Exception {
+		SelfRefreshingKeySet selfRefreshingKeySet = new SelfRefreshingKeySet(new MockKeySetProvider());
+		selfRefreshingKeySet.setRefreshRateLimitCount(2);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				selfRefreshingKeySet.getKey("kid/X");
+				Assert.fail("Expected a BadCredentialsException");
+			} catch (BadCredentialsException e) {
+			}
+		}
+
+		try {
+			selfRefreshingKeySet.getKey("kid/X");
+			Assert.fail("Expected an AuthenticatorUnavailableException");
+		} catch (AuthenticatorUnavailableException e) {
+			Assert.assertEquals(2, selfRefreshingKeySet.getRefreshCount());
+		}
+
+		// Known keys are still available
+		Assert.assertEquals(TestJwk.OCT_1_K, selfRefreshingKeySet.getKey("kid/a").getProperty("k"));
+	}
+
 	static class MockKeySetProvider implements KeySetProvider {
 
 		@Override
@@ -149,6 +149,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.core.CheckedFunction;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.http.HttpPreRequest;
@@ -219,6 +220,7 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
     private ConfigVarService configVarService;
     private LicenseRepository licenseRepository;
     private Actions actions;
+    private InternalUsersDatabase internalUsersDatabase;
     
     @Override
     public void close() throws IOException {
@@ -229,6 +231,14 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
                 log.error("Error while closing auditLog", e);
             }
         }
+
+        if (internalUsersDatabase != null) {
+            internalUsersDatabase.close();
+        }
+
+        if (authorizationService != null) {
+            authorizationService.close();
+        }
     }
 
     private final SslExceptionHandler evaluateSslExceptionHandler() {
@@ -813,7 +823,9 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
         final ClusterInfoHolder cih = new ClusterInfoHolder();
         this.clusterService.addListener(cih);
 
-        actionRequestIntrospector = new ActionRequestIntrospector(indexNameExpressionResolver, clusterService, cih, guiceDependencies);
+        actionRequestIntrospector = new ActionRequestIntrospector(indexNameExpressionResolver, clusterService, cih, guiceDependencies,
+                staticSettings);
+        moduleRegistry.addComponentStateProvider(actionRequestIntrospector);
     
         final String DEFAULT_INTERCLUSTER_REQUEST_EVALUATOR_CLASS = DefaultInterClusterRequestEvaluator.class.getName();
         InterClusterRequestEvaluator interClusterRequestEvaluator = new DefaultInterClusterRequestEvaluator(settings);
@@ -858,7 +870,7 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
         diagnosticContext = new DiagnosticContext(settings, threadPool.getThreadContext());
      
         
-        InternalUsersDatabase internalUsersDatabase = new InternalUsersDatabase(cr);
+        internalUsersDatabase = new InternalUsersDatabase(cr, staticSettings, threadPool);
         moduleRegistry.addComponentStateProvider(internalUsersDatabase);
         moduleRegistry.getTypedComponentRegistry().register(new InternalUsersAuthenticationBackend.Info(internalUsersDatabase));
         moduleRegistry.getTypedComponentRegistry().register(new InternalUsersAuthenticationBackend.UserInformationBackendInfo(internalUsersDatabase));
@@ -1011,6 +1023,17 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
                     Property.NodeScope)
             );
 
+            // External ES / Webhooks - Batching
+            settings.add(Setting.intSetting(ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_SIZE, 1,
+                    1, Property.NodeScope, Property.Filtered));
+            settings.add(Setting.timeSetting(ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_AGE,
+                    TimeValue.timeValueSeconds(1), Property.NodeScope, Property.Filtered));
+            settings.add(Setting.intSetting(ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_BATCH_MAX_RETRIES,
+                    3, 0, Property.NodeScope, Property.Filtered));
+            settings.add(Setting.timeSetting(
+                    ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_BATCH_RETRY_BACKOFF,
+                    TimeValue.timeValueMillis(100), Property.NodeScope, Property.Filtered));
+
             // External ES
             settings.add(Setting.listSetting(
                     ConfigConstants.SEARCHGUARD_AUDIT_CONFIG_DEFAULT_PREFIX + ConfigConstants.SEARCHGUARD_AUDIT_EXTERNAL_ES_HTTP_ENDPOINTS,
@@ -1105,6 +1128,10 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
                     Function.identity(), Property.NodeScope)); //not filtered here
             settings.add(Setting.listSetting(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_WATCHED_FIELDS, Collections.emptyList(),
                     Function.identity(), Property.NodeScope)); //not filtered here
+            settings.add(Setting.listSetting(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_SAMPLING, Collections.emptyList(),
+                    Function.identity(), Property.NodeScope)); //not filtered here
+            settings.add(Setting.timeSetting(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_DEDUP_WINDOW, TimeValue.ZERO, Property.NodeScope,
+                    Property.Filtered));
             settings.add(Setting.boolSetting(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_METADATA_ONLY, false, Property.NodeScope,
                     Property.Filtered));
             settings.add(Setting.boolSetting(ConfigConstants.SEARCHGUARD_COMPLIANCE_HISTORY_READ_METADATA_ONLY, false, Property.NodeScope,
@@ -1155,7 +1182,9 @@ public final class SearchGuardPlugin extends SearchGuardSSLPlugin implements Clu
             settings.addAll(moduleRegistry.getSettings());
             settings.addAll(DiagnosticContext.SETTINGS);
             settings.addAll(PrivilegesEvaluator.STATIC_SETTINGS.toPlatform());
+            settings.addAll(ActionRequestIntrospector.STATIC_SETTINGS.toPlatform());
             settings.addAll(AuthorizationService.STATIC_SETTINGS.toPlatform());
+            settings.addAll(InternalUsersDatabase.STATIC_SETTINGS.toPlatform());
 
         }
 
@@ -20,10 +20,12 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchSecurityException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -51,6 +53,7 @@ public abstract class RequestAuthenticationProcessor<AuthenticatorType extends A
 
     protected final RequestMetaData<RestRequest> request;
     protected final AuditLog auditLog;
+    private final ThreadContext threadContext;
     private final Collection<AuthenticationDomain<AuthenticatorType>> authenticationDomains;
     private final Iterator<AuthenticationDomain<AuthenticatorType>> authenticationDomainIter;
     private final List<AuthFailureListener> ipAuthFailureListeners;
@@ -66,13 +69,14 @@ public abstract class RequestAuthenticationProcessor<AuthenticatorType extends A
 
     protected AuthCredentials authCredentials = null;
 
-    public RequestAuthenticationProcessor(RequestMetaData<RestRequest> request,
+    public RequestAuthenticationProcessor(RequestMetaData<RestRequest> request, ThreadContext threadContext,
             Collection<AuthenticationDomain<AuthenticatorType>> authenticationDomains, AdminDNs adminDns, PrivilegesEvaluator privilegesEvaluator,
             Cache<AuthCredentials, User> userCache, Cache<String, User> impersonationCache, AuditLog auditLog,
             BlockedUserRegistry blockedUserRegistry, List<AuthFailureListener> ipAuthFailureListeners, List<String> requiredLoginPrivileges,
             boolean debug) {
 
         this.request = request;
+        this.threadContext = threadContext;
         this.authenticationDomains = authenticationDomains;
         this.authenticationDomainIter = authenticationDomains.iterator();
         this.ipAuthFailureListeners = ipAuthFailureListeners;
@@ -97,6 +101,21 @@ public abstract class RequestAuthenticationProcessor<AuthenticatorType extends A
         checkNextAuthenticationDomains(onResult, onFailure);
     }
 
+    /**
+     * Wraps the given consumer such that it is executed with the thread context that is active when this method is called, even if the consumer
+     * is called by another thread. This is necessary because authentication backends may complete their results asynchronously on their own
+     * threads. All continuations of the authentication process must be wrapped this way.
+     */
+    private <T> Consumer<T> preserveThreadContext(Consumer<T> consumer) {
+        Supplier<ThreadContext.StoredContext> restorableContext = threadContext.newRestorableContext(false);
+
+        return (value) -> {
+            try (ThreadContext.StoredContext ctx = restorableContext.get()) {
+                consumer.accept(value);
+            }
+        };
+    }
+
     protected abstract AuthDomainState handleCurrentAuthenticationDomain(AuthenticationDomain<AuthenticatorType> authenticationDomain,
             Consumer<AuthcResult> onResult, Consumer<Exception> onFailure);
 
@@ -262,12 +281,12 @@ public abstract class RequestAuthenticationProcessor<AuthenticatorType extends A
 
                     if (isImpersonationRequested()) {
                         new RestImpersonationProcessor<AuthenticatorType>(authenticatedUser, getImpersonationUser(), authenticationDomains, adminDns,
-                                impersonationCache).impersonate((result) -> {
+                                impersonationCache).impersonate(preserveThreadContext((result) -> {
                                     if (result.getUser() != null) {
                                         auditLog.logSucceededLogin(result.getUser(), false, authenticatedUser, request.getRequest());
                                     }
                                     onResult.accept(result);
-                                }, onFailure);
+                                }), preserveThreadContext(onFailure));
                     } else {
                         // This is the happy case :-)
 
@@ -346,10 +365,14 @@ public abstract class RequestAuthenticationProcessor<AuthenticatorType extends A
         }
     }
 
-    private void callAuthcBackends(AuthCredentials ac, AuthenticationDomain<AuthenticatorType> authenticationDomain, Consumer<User> onSuccess,
-            Consumer<Exception> onFailure) {
+    private void callAuthcBackends(AuthCredentials ac, AuthenticationDomain<AuthenticatorType> authenticationDomain,
+            Consumer<User> onSuccessCallback, Consumer<Exception> onFailureCallback) {
         // TODO Optimization: If we have SyncAuthenticationBackend use the guarantees of Cache to avoid redundant concurrent loads
 
+        // The backends might complete on their own threads; the continuations need the thread context of the request
+        Consumer<User> onSuccess = preserveThreadContext(onSuccessCallback);
+        Consumer<Exception> onFailure = preserveThreadContext(onFailureCallback);
+
         try {
 
             debug.success(authenticationDomain.getType(), "Extracted credentials", "user_name", ac.getUsername(), "user_mapping_attributes",
@@ -42,6 +42,7 @@ import com.google.common.hash.Hashing;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.logging.log4j.LogManager;
@@ -329,63 +330,120 @@ public class StandardAuthenticationDomain<AuthenticatorType extends Authenticati
         return additionalUserInformationBackends;
     }
 
+    /**
+     * Authenticates the user using the authentication backend and the additional user information backends. The backends may complete their
+     * futures asynchronously; in this case, the returned future is completed by the thread completing the last backend future.
+     * 
+     * The returned future is completed exceptionally with the original exceptions thrown by the backends (i.e., not wrapped in
+     * CompletionException).
+     */
     @Override
     public CompletableFuture<User> authenticate(AuthCredentials authCredentials, AuthenticationDebugLogger debug)
             throws AuthenticatorUnavailableException, CredentialsException {
-        try (Meter meter = Meter.basic(metricsLevel, authenticationBackendMetrics)) {
-            authCredentials = authenticationBackend.authenticate(authCredentials, meter).get();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof AuthenticatorUnavailableException) {
-                throw (AuthenticatorUnavailableException) e.getCause();
-            } else if (e.getCause() instanceof CredentialsException) {
-                throw (CredentialsException) e.getCause();
-            } else if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
+        CompletableFuture<User> result = new CompletableFuture<>();
+        Meter meter = Meter.basic(metricsLevel, authenticationBackendMetrics);
+        CompletableFuture<AuthCredentials> backendResult;
+
+        try {
+            backendResult = authenticationBackend.authenticate(authCredentials, meter);
+        } catch (AuthenticatorUnavailableException | CredentialsException | RuntimeException e) {
+            meter.close();
+            throw e;
+        }
+
+        backendResult.whenComplete((authenticatedCredentials, e) -> {
+            meter.close();
+
+            if (e != null) {
+                result.completeExceptionally(unwrap(e, true));
+            } else if (authenticatedCredentials == null) {
+                result.complete(null);
             } else {
-                throw new RuntimeException(e.getCause());
+                AuthCredentials credentialsWithDomainInfo = authenticatedCredentials
+                        .with(AuthDomainInfo.forAuthenticatorType(authenticationFrontend.getType())
+                                .authBackendType(authenticationBackend != null ? authenticationBackend.getType() : null));
+
+                if (additionalUserInformationBackends.size() != 0) {
+                    Meter userInformationMeter = Meter.basic(metricsLevel, userInformationBackendMetrics);
+                    addUserInformation(credentialsWithDomainInfo, 0, userInformationMeter, debug, result);
+                } else {
+                    completeAuthentication(credentialsWithDomainInfo, debug, result);
+                }
             }
+        });
+
+        return result;
+    }
+
+    private void addUserInformation(AuthCredentials authCredentials, int backendIndex, Meter meter, AuthenticationDebugLogger debug,
+            CompletableFuture<User> result) {
+        if (backendIndex >= additionalUserInformationBackends.size()) {
+            meter.close();
+            completeAuthentication(authCredentials, debug, result);
+            return;
         }
 
-        if (authCredentials == null) {
-            return CompletableFuture.completedFuture(null);
+        UserInformationBackend backend = additionalUserInformationBackends.get(backendIndex);
+        Meter subMeter = meter.basic(backend.getType());
+        CompletableFuture<AuthCredentials> backendResult;
+
+        try {
+            backendResult = backend.getUserInformation(authCredentials, subMeter);
+        } catch (Exception e) {
+            subMeter.close();
+            meter.close();
+            result.completeExceptionally(unwrap(e, false));
+            return;
         }
 
-        authCredentials = authCredentials.with(AuthDomainInfo.forAuthenticatorType(authenticationFrontend.getType())
-                .authBackendType(authenticationBackend != null ? authenticationBackend.getType() : null));
+        backendResult.whenComplete((userInformation, e) -> {
+            subMeter.close();
 
-        if (additionalUserInformationBackends.size() != 0) {
-            try (Meter meter = Meter.basic(metricsLevel, userInformationBackendMetrics)) {
-                for (UserInformationBackend backend : additionalUserInformationBackends) {
-                    try (Meter subMeter = meter.basic(backend.getType())) {
-                        authCredentials = authCredentials.with(backend.getUserInformation(authCredentials, subMeter).get());
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    } catch (ExecutionException e) {
-                        if (e.getCause() instanceof AuthenticatorUnavailableException) {
-                            throw (AuthenticatorUnavailableException) e.getCause();
-                        } else if (e.getCause() instanceof RuntimeException) {
-                            throw (RuntimeException) e.getCause();
-                        } else {
-                            throw new RuntimeException(e.getCause());
-                        }
-                    }
-                }
+            if (e != null) {
+                meter.close();
+                result.completeExceptionally(unwrap(e, false));
+            } else {
+                addUserInformation(authCredentials.with(userInformation), backendIndex + 1, meter, debug, result);
             }
-        }
+        });
+    }
 
-        debug.success(getType(), "Backends successful", "user_mapping_attributes", authCredentials.getAttributesForUserMapping());
+    private void completeAuthentication(AuthCredentials authCredentials, AuthenticationDebugLogger debug, CompletableFuture<User> result) {
+        try {
+            debug.success(getType(), "Backends successful", "user_mapping_attributes", authCredentials.getAttributesForUserMapping());
 
-        User authenticatedUser;
+            User authenticatedUser;
 
-        if (userMapping != null) {
-            authenticatedUser = userMapping.map(authCredentials);
-        } else {
-            authenticatedUser = UserMapper.DIRECT.map(authCredentials);
+            if (userMapping != null) {
+                authenticatedUser = userMapping.map(authCredentials);
+            } else {
+                authenticatedUser = UserMapper.DIRECT.map(authCredentials);
+            }
+
+            result.complete(authenticatedUser);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
         }
+    }
 
-        return CompletableFuture.completedFuture(authenticatedUser);
+    /**
+     * Mirrors the exception handling which was applied when waiting synchronously for the backends: AuthenticatorUnavailableExceptions and
+     * RuntimeExceptions are passed on; CredentialsExceptions are only passed on for the primary authentication backend.
+     */
+    private static Exception unwrap(Throwable e, boolean passCredentialsException) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+
+        if (e instanceof AuthenticatorUnavailableException) {
+            return (AuthenticatorUnavailableException) e;
+        } else if (passCredentialsException && e instanceof CredentialsException) {
+            return (CredentialsException) e;
+        } else if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        } else {
+            return new RuntimeException(e);
+        }
     }
 
     @Override
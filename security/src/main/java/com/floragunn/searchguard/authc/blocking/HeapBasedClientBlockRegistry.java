@@ -27,13 +27,20 @@ import java.util.concurrent.TimeUnit;
 
 public class HeapBasedClientBlockRegistry<ClientIdType> implements ClientBlockRegistry<ClientIdType> {
 
+    /**
+     * isBlocked() is called for each authentication attempt; a high number of cache segments reduces lock contention when many distinct clients
+     * are blocked at the same time.
+     */
+    private static final int CONCURRENCY_LEVEL = 64;
+
     protected final Logger log = LogManager.getLogger(this.getClass());
     protected final Cache<ClientIdType, Long> cache;
     private final Class<ClientIdType> clientIdType;
 
     public HeapBasedClientBlockRegistry(long expiryMs, int maxEntries, Class<ClientIdType> clientIdType) {
         this.clientIdType = clientIdType;
-        this.cache = CacheBuilder.newBuilder().expireAfterWrite(expiryMs, TimeUnit.MILLISECONDS).maximumSize(maxEntries).concurrencyLevel(4)
+        this.cache = CacheBuilder.newBuilder().expireAfterWrite(expiryMs, TimeUnit.MILLISECONDS).maximumSize(maxEntries)
+                .concurrencyLevel(CONCURRENCY_LEVEL)
                 .removalListener((RemovalListener<ClientIdType, Long>) notification -> {
                     if (log.isInfoEnabled()) {
                         log.info("Unblocking " + notification.getKey());
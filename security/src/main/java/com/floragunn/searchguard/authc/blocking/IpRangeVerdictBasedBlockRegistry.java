@@ -1,20 +1,43 @@
 package com.floragunn.searchguard.authc.blocking;
 
-import java.util.Collection;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.function.Predicate;
+
+import com.floragunn.searchguard.support.IPPrefixTrie;
 
 import inet.ipaddr.IPAddress;
 
+/**
+ * Checks client addresses against allowed and disallowed netmasks. The netmasks are indexed in prefix tries; thus, the lookup costs do not
+ * depend on the number of configured netmasks.
+ */
 public class IpRangeVerdictBasedBlockRegistry extends VerdictBasedBlockRegistry<IPAddress> {
 
+    private final IPPrefixTrie<IPAddress> allowsTrie;
+    private final IPPrefixTrie<IPAddress> disallowsTrie;
+
     public IpRangeVerdictBasedBlockRegistry(Set<IPAddress> allows, Set<IPAddress> disallows) {
         super(IPAddress.class, allows, disallows);
+        this.allowsTrie = buildTrie(allows);
+        this.disallowsTrie = buildTrie(disallows);
+    }
+
+    @Override
+    protected boolean isAllowed(IPAddress clientId) {
+        return allowsTrie.containsMatch(clientId);
     }
 
     @Override
-    protected Function<IPAddress, Predicate<Collection<IPAddress>>> check() {
-        return ip -> nets -> nets.stream().anyMatch(net -> net.contains(ip));
+    protected boolean isDisallowed(IPAddress clientId) {
+        return disallowsTrie.containsMatch(clientId);
+    }
+
+    private static IPPrefixTrie<IPAddress> buildTrie(Set<IPAddress> nets) {
+        IPPrefixTrie.Builder<IPAddress> builder = new IPPrefixTrie.Builder<>();
+
+        for (IPAddress net : nets) {
+            builder.add(net, net);
+        }
+
+        return builder.build();
     }
 }
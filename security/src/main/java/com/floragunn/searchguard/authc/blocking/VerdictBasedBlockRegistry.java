@@ -19,15 +19,25 @@ public class VerdictBasedBlockRegistry<ClientIdType> implements ClientBlockRegis
 
     @Override
     public boolean isBlocked(ClientIdType clientId) {
-        Predicate<Collection<ClientIdType>> p = check().apply(clientId);
-
         if (allows.isEmpty()) {
-            return p.test(disallows);
+            return isDisallowed(clientId);
         }
 
-        boolean isAllowed = p.test(allows);
-        boolean disAllowed = p.test(disallows);
-        return !isAllowed || disAllowed;
+        return !isAllowed(clientId) || isDisallowed(clientId);
+    }
+
+    /**
+     * Returns true if the client is matched by the allows. Sub-classes can override this to use an index instead of checking each entry.
+     */
+    protected boolean isAllowed(ClientIdType clientId) {
+        return check().apply(clientId).test(allows);
+    }
+
+    /**
+     * Returns true if the client is matched by the disallows. Sub-classes can override this to use an index instead of checking each entry.
+     */
+    protected boolean isDisallowed(ClientIdType clientId) {
+        return check().apply(clientId).test(disallows);
     }
 
     @Override
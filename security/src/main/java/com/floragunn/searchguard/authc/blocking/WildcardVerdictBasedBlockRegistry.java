@@ -1,20 +1,27 @@
 package com.floragunn.searchguard.authc.blocking;
 
-import com.floragunn.searchguard.support.WildcardMatcher;
+import com.floragunn.searchguard.support.CompiledWildcardSet;
 
-import java.util.Collection;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.function.Predicate;
 
 public class WildcardVerdictBasedBlockRegistry extends VerdictBasedBlockRegistry<String> {
 
+    private final CompiledWildcardSet allowsMatcher;
+    private final CompiledWildcardSet disallowsMatcher;
+
     public WildcardVerdictBasedBlockRegistry(Set<String> allows, Set<String> disallows) {
         super(String.class, allows, disallows);
+        this.allowsMatcher = CompiledWildcardSet.compile(allows, false);
+        this.disallowsMatcher = CompiledWildcardSet.compile(disallows, false);
+    }
+
+    @Override
+    protected boolean isAllowed(String clientId) {
+        return allowsMatcher.test(clientId);
     }
 
     @Override
-    protected Function<String, Predicate<Collection<String>>> check() {
-        return a -> as -> WildcardMatcher.matchAny(as, a);
+    protected boolean isDisallowed(String clientId) {
+        return disallowsMatcher.test(clientId);
     }
 }
@@ -18,6 +18,7 @@
 package com.floragunn.searchguard.authc.internal_users_db;
 
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -95,6 +96,18 @@ public class InternalUser implements PatchableDocument<InternalUser>, Redactable
         return passwordHash;
     }
 
+    InternalUser withPasswordHash(String passwordHash) {
+        Map<String, Object> rawDocument = null;
+
+        if (this.rawDocument != null) {
+            rawDocument = new LinkedHashMap<>(this.rawDocument);
+            rawDocument.put("hash", passwordHash);
+        }
+
+        return new InternalUser(rawDocument, description, passwordHash, reserved, hidden, new ArrayList<>(backendRoles),
+                new ArrayList<>(searchGuardRoles), attributes);
+    }
+
     public boolean isReserved() {
         return reserved;
     }
@@ -23,8 +23,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 
-import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
-
 import com.floragunn.fluent.collections.ImmutableMap;
 import com.floragunn.searchguard.TypedComponent;
 import com.floragunn.searchguard.authc.AuthenticationBackend;
@@ -77,26 +75,23 @@ public class InternalUsersAuthenticationBackend implements AuthenticationBackend
         buf.get(array);
 
         Arrays.fill(password, (byte) 0);
+        Arrays.fill(wrap.array(), (byte) 0);
+        Arrays.fill(buf.array(), '\0');
 
-        try {
-            if (OpenBSDBCrypt.checkPassword(internalUser.getPasswordHash(), array)) {
-                authCredentials = authCredentials.copy()//
+        // The password array is zeroed by the database after the check
+        return internalUsersDatabase.checkPassword(authCredentials.getUsername(), internalUser, array).thenApply((valid) -> {
+            if (valid) {
+                return authCredentials.copy()//
                         .backendRoles(internalUser.getBackendRoles())//
                         .searchGuardRoles(internalUser.getSearchGuardRoles())//
                         .userMappingAttribute(UserMappingAttributes.USER_ENTRY,
                                 internalUser.toRedactedBasicObject().with("name", authCredentials.getUsername()))//
                         .authDomainInfo(authCredentials.getAuthDomainInfo().authBackendType(getType()))//
                         .build();
-
-                return CompletableFuture.completedFuture(authCredentials);
             } else {
-                return CompletableFuture.completedFuture(null);
+                return null;
             }
-        } finally {
-            Arrays.fill(wrap.array(), (byte) 0);
-            Arrays.fill(buf.array(), '\0');
-            Arrays.fill(array, '\0');
-        }
+        });
     }
 
     @Override
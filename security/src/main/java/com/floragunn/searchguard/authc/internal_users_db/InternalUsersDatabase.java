@@ -17,6 +17,12 @@
 
 package com.floragunn.searchguard.authc.internal_users_db;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
 import com.floragunn.fluent.collections.ImmutableMap;
 import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
 import com.floragunn.searchguard.configuration.CType;
@@ -24,16 +30,46 @@ import com.floragunn.searchguard.configuration.ConfigMap;
 import com.floragunn.searchguard.configuration.ConfigurationChangeListener;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
 import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
+import com.floragunn.searchsupport.StaticSettings;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 import com.floragunn.searchsupport.cstate.ComponentState.State;
 
 public class InternalUsersDatabase implements ComponentStateProvider {
 
+    static final StaticSettings.Attribute<Integer> PASSWORD_VERIFICATION_THREADS = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.password_verification.threads").withDefault(4).asInteger();
+    static final StaticSettings.Attribute<Integer> PASSWORD_VERIFICATION_MAX_QUEUE_LENGTH = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.password_verification.max_queue_length").withDefault(1000).asInteger();
+    static final StaticSettings.Attribute<TimeValue> VERIFIED_CREDENTIALS_CACHE_TTL = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.verified_credentials_cache.ttl").withDefault(TimeValue.timeValueMinutes(1))
+                    .asTimeValue();
+    static final StaticSettings.Attribute<Integer> VERIFIED_CREDENTIALS_CACHE_MAX_SIZE = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.verified_credentials_cache.max_size").withDefault(10000).asInteger();
+    static final StaticSettings.Attribute<Boolean> REHASH_ENABLED = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.rehash_on_login.enabled").withDefault(false).asBoolean();
+    static final StaticSettings.Attribute<Integer> REHASH_MIN_COST = //
+            StaticSettings.Attribute.define("searchguard.internal_users_db.rehash_on_login.min_cost").withDefault(12).asInteger();
+
+    public static final StaticSettings.AttributeSet STATIC_SETTINGS = //
+            StaticSettings.AttributeSet.of(PASSWORD_VERIFICATION_THREADS, PASSWORD_VERIFICATION_MAX_QUEUE_LENGTH, VERIFIED_CREDENTIALS_CACHE_TTL,
+                    VERIFIED_CREDENTIALS_CACHE_MAX_SIZE, REHASH_ENABLED, REHASH_MIN_COST);
+
     private final ComponentState componentState = new ComponentState(100, null, "internal_users_database");
+    private final ConfigurationRepository configurationRepository;
+    private final PasswordVerifier passwordVerifier;
     private volatile ImmutableMap<String, InternalUser> userMap;
+    private volatile String configETag;
+
+    public InternalUsersDatabase(ConfigurationRepository configurationRepository, StaticSettings staticSettings, ThreadPool threadPool) {
+        this.configurationRepository = configurationRepository;
+        this.passwordVerifier = new PasswordVerifier(staticSettings.get(PASSWORD_VERIFICATION_THREADS),
+                staticSettings.get(PASSWORD_VERIFICATION_MAX_QUEUE_LENGTH),
+                Duration.ofMillis(staticSettings.get(VERIFIED_CREDENTIALS_CACHE_TTL).millis()),
+                staticSettings.get(VERIFIED_CREDENTIALS_CACHE_MAX_SIZE),
+                staticSettings.get(REHASH_ENABLED) ? staticSettings.get(REHASH_MIN_COST) : 0, threadPool.generic(), threadPool.getThreadContext());
+        this.componentState.addPart(passwordVerifier.getComponentState());
 
-    public InternalUsersDatabase(ConfigurationRepository configurationRepository) {
         configurationRepository.subscribeOnChange(new ConfigurationChangeListener() {
 
             @Override
@@ -42,6 +78,7 @@ public class InternalUsersDatabase implements ComponentStateProvider {
 
                 if (config != null) {
                     userMap = ImmutableMap.of(config.getCEntries());
+                    configETag = config.getETag();
                     componentState.setState(State.INITIALIZED);
                     componentState.setConfigVersion(config.getDocVersion());
                     componentState.setMessage(userMap.size() + " users");
@@ -61,6 +98,24 @@ public class InternalUsersDatabase implements ComponentStateProvider {
         return userMap.get(userName);
     }
 
+    /**
+     * Checks the password of the given user on the password verification pool. This method takes ownership of the password array; it is
+     * zeroed after the check.
+     */
+    CompletableFuture<Boolean> checkPassword(String userName, InternalUser internalUser, char[] password) {
+        return passwordVerifier.verify(userName, internalUser.getPasswordHash(), password,
+                internalUser.isReserved() ? null : (user, newHash) -> updatePasswordHash(user, internalUser, newHash));
+    }
+
+    private void updatePasswordHash(String userName, InternalUser internalUser, String newPasswordHash) throws Exception {
+        // The ETag guards against overwriting a password which has been changed since the configuration was loaded
+        configurationRepository.addOrUpdate(CType.INTERNALUSERS, userName, internalUser.withPasswordHash(newPasswordHash), configETag);
+    }
+
+    public void close() {
+        passwordVerifier.close();
+    }
+
     @Override
     public ComponentState getComponentState() {
         return componentState;
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authc.internal_users_db;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+
+import com.floragunn.searchguard.authc.AuthenticatorUnavailableException;
+import com.floragunn.searchsupport.PrivilegedCode;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Verifies passwords against BCrypt hashes on a dedicated, bounded thread pool. BCrypt is deliberately expensive; running it on the request
+ * threads would let a burst of logins starve the node. The dedicated pool only runs BCrypt; the returned futures are completed and password
+ * hash updates are written on the given completion executor, usually the generic thread pool.
+ *
+ * Successful verifications are remembered for a short time. The cache keys are SHA-256 hashes of a random per-process salt, the user name,
+ * the BCrypt hash and the password. Thus, the cache never contains passwords or unsalted password digests. As the BCrypt hash is part of the
+ * key, cached verifications become void as soon as the password of a user is changed.
+ */
+class PasswordVerifier implements ComponentStateProvider {
+    private static final Logger log = LogManager.getLogger(PasswordVerifier.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final byte[] salt = new byte[32];
+    private final ThreadPoolExecutor executor;
+    private final Executor completionExecutor;
+    private final ThreadContext threadContext;
+    private final Cache<HashCode, Boolean> cache;
+    private final int rehashCost;
+    private final Set<String> pendingRehashes = ConcurrentHashMap.newKeySet();
+
+    private final ComponentState componentState = new ComponentState(0, null, "password_verifier", PasswordVerifier.class).initialized();
+    private final CountAggregation verifications = new CountAggregation();
+    private final CountAggregation cacheHits = verifications.getSubCount("cache_hit");
+    private final CountAggregation bcryptSuccess = verifications.getSubCount("bcrypt_success");
+    private final CountAggregation bcryptFailure = verifications.getSubCount("bcrypt_failure");
+    private final CountAggregation rejected = verifications.getSubCount("rejected");
+    private final CountAggregation rehashes = new CountAggregation();
+    private final CountAggregation rehashSuccess = rehashes.getSubCount("success");
+    private final CountAggregation rehashFailure = rehashes.getSubCount("failure");
+    private final TimeAggregation bcryptTime = new TimeAggregation.Milliseconds();
+    private final TimeAggregation queueTime = new TimeAggregation.Milliseconds();
+
+    /**
+     * @param cacheTtl the time successful verifications are remembered; zero disables the cache
+     * @param rehashCost the minimum BCrypt cost factor; on successful logins, hashes with a lower cost are replaced. Use 0 to disable rehashing.
+     * @param completionExecutor the executor which completes the futures returned by verify() and which calls the rehash handler
+     */
+    PasswordVerifier(int threads, int maxQueueLength, Duration cacheTtl, int cacheMaxSize, int rehashCost, Executor completionExecutor,
+            ThreadContext threadContext) {
+        RANDOM.nextBytes(salt);
+
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(maxQueueLength),
+                EsExecutors.daemonThreadFactory("sg_password_verifier"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.completionExecutor = completionExecutor;
+        this.threadContext = threadContext;
+        this.rehashCost = rehashCost;
+
+        if (!cacheTtl.isZero() && !cacheTtl.isNegative()) {
+            this.cache = CacheBuilder.newBuilder().expireAfterWrite(cacheTtl.toMillis(), TimeUnit.MILLISECONDS).maximumSize(cacheMaxSize)
+                    .recordStats().build();
+            this.componentState.addMetrics("verified_credentials_cache", CacheStats.from(cache));
+        } else {
+            this.cache = null;
+        }
+
+        this.componentState.addMetrics("verifications", verifications);
+        this.componentState.addMetrics("bcrypt", bcryptTime);
+        this.componentState.addMetrics("queue_wait", queueTime);
+        this.componentState.addMetrics("queue_length", new Count.Live(() -> (long) executor.getQueue().size()));
+        this.componentState.addMetrics("rehashes", rehashes);
+    }
+
+    /**
+     * Checks the given password against the given BCrypt hash. This method takes ownership of the password array; it is zeroed after the check.
+     *
+     * If the check was successful and the hash uses a cost factor below the configured minimum, a new hash is computed and passed to the
+     * rehash handler. This happens after the returned future has been completed. The rehash handler is called with a stashed thread context.
+     *
+     * The returned future fails with an AuthenticatorUnavailableException if the verification queue is full.
+     */
+    CompletableFuture<Boolean> verify(String userName, String passwordHash, char[] password, RehashHandler rehashHandler) {
+        verifications.increment();
+
+        HashCode cacheKey = cache != null ? cacheKey(userName, passwordHash, password) : null;
+
+        if (cacheKey != null && cache.getIfPresent(cacheKey) != null) {
+            cacheHits.increment();
+            Arrays.fill(password, '\0');
+            return CompletableFuture.completedFuture(Boolean.TRUE);
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Supplier<StoredContext> callerContext = threadContext.newRestorableContext(false);
+        long enqueued = System.nanoTime();
+
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                queueTime.recordNs(start - enqueued);
+
+                try {
+                    boolean valid = OpenBSDBCrypt.checkPassword(passwordHash, password);
+                    bcryptTime.recordNs(System.nanoTime() - start);
+
+                    if (valid) {
+                        bcryptSuccess.increment();
+
+                        if (cacheKey != null) {
+                            cache.put(cacheKey, Boolean.TRUE);
+                        }
+                    } else {
+                        bcryptFailure.increment();
+                    }
+
+                    complete(result, valid, null, callerContext);
+
+                    if (valid && rehashHandler != null && needsRehash(passwordHash)) {
+                        rehash(userName, password, rehashHandler);
+                    }
+                } catch (Exception e) {
+                    complete(result, null, e, callerContext);
+                } finally {
+                    Arrays.fill(password, '\0');
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            Arrays.fill(password, '\0');
+            result.completeExceptionally(new AuthenticatorUnavailableException("Internal users database is overloaded",
+                    "Too many pending password verifications; the queue is full (" + executor.getQueue().size() + ")", e));
+        }
+
+        return result;
+    }
+
+    /**
+     * Completes the future on the completion executor with the thread context of the caller of verify(). This keeps the authentication
+     * continuations off the BCrypt threads.
+     */
+    private void complete(CompletableFuture<Boolean> result, Boolean valid, Exception exception, Supplier<StoredContext> callerContext) {
+        Runnable completion = () -> {
+            try (StoredContext ctx = callerContext.get()) {
+                if (exception == null) {
+                    result.complete(valid);
+                } else {
+                    result.completeExceptionally(exception);
+                }
+            }
+        };
+
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not dispatch completion of password verification; completing on the verification thread", e);
+            completion.run();
+        }
+    }
+
+    boolean needsRehash(String passwordHash) {
+        if (rehashCost <= 0) {
+            return false;
+        }
+
+        int cost = getCost(passwordHash);
+
+        return cost != -1 && cost < rehashCost;
+    }
+
+    private void rehash(String userName, char[] password, RehashHandler rehashHandler) {
+        if (!pendingRehashes.add(userName)) {
+            return;
+        }
+
+        rehashes.increment();
+
+        String newHash;
+
+        try {
+            byte[] hashSalt = new byte[16];
+            RANDOM.nextBytes(hashSalt);
+            newHash = OpenBSDBCrypt.generate(password, hashSalt, rehashCost);
+        } catch (Exception e) {
+            rehashFailure.increment();
+            pendingRehashes.remove(userName);
+            log.warn("Could not compute a new password hash for user " + userName, e);
+            return;
+        }
+
+        try {
+            // The update blocks on the configuration index; thus, it must not occupy the BCrypt threads
+            completionExecutor.execute(() -> updatePasswordHash(userName, newHash, rehashHandler));
+        } catch (RejectedExecutionException e) {
+            rehashFailure.increment();
+            pendingRehashes.remove(userName);
+            log.warn("Could not update the password hash of user " + userName, e);
+        }
+    }
+
+    private void updatePasswordHash(String userName, String newHash, RehashHandler rehashHandler) {
+        try (StoredContext ctx = threadContext.stashContext()) {
+            PrivilegedCode.execute(() -> rehashHandler.updatePasswordHash(userName, newHash), Exception.class);
+            rehashSuccess.increment();
+        } catch (Exception e) {
+            rehashFailure.increment();
+            log.warn("Could not update the password hash of user " + userName, e);
+        } finally {
+            pendingRehashes.remove(userName);
+        }
+    }
+
+    /**
+     * Stops the verification threads. Pending verifications are still processed.
+     */
+    void close() {
+        executor.shutdown();
+    }
+
+    private HashCode cacheKey(String userName, String passwordHash, char[] password) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putBytes(salt);
+        hasher.putString(userName, StandardCharsets.UTF_8);
+        hasher.putByte((byte) 0);
+        hasher.putString(passwordHash, StandardCharsets.UTF_8);
+        hasher.putByte((byte) 0);
+        hasher.putString(CharBuffer.wrap(password), StandardCharsets.UTF_8);
+        return hasher.hash();
+    }
+
+    /**
+     * Returns the cost factor of a hash in the format $2a$12$... or -1 if the hash cannot be parsed.
+     */
+    static int getCost(String passwordHash) {
+        if (passwordHash == null || passwordHash.length() < 7 || passwordHash.charAt(0) != '$' || passwordHash.charAt(3) != '$'
+                || passwordHash.charAt(6) != '$') {
+            return -1;
+        }
+
+        try {
+            return Integer.parseInt(passwordHash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    @FunctionalInterface
+    static interface RehashHandler {
+        void updatePasswordHash(String userName, String newPasswordHash) throws Exception;
+    }
+}
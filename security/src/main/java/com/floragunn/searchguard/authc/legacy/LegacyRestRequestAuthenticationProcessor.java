@@ -22,6 +22,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.function.Consumer;
 
+import org.apache.logging.log4j.CloseableThreadContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
@@ -63,7 +64,7 @@ public class LegacyRestRequestAuthenticationProcessor extends RequestAuthenticat
             PrivilegesEvaluator privilegesEvaluator, Cache<AuthCredentials, User> userCache, Cache<String, User> impersonationCache,
             AuditLog auditLog, BlockedUserRegistry blockedUserRegistry, List<AuthFailureListener> ipAuthFailureListeners,
             List<String> requiredLoginPrivileges, boolean debug) {
-        super(request, authenticationDomains, adminDns, privilegesEvaluator, userCache, impersonationCache, auditLog,
+        super(request, threadContext, authenticationDomains, adminDns, privilegesEvaluator, userCache, impersonationCache, auditLog,
                 blockedUserRegistry, ipAuthFailureListeners, requiredLoginPrivileges, debug);
 
         this.restHandler = restHandler;
@@ -125,29 +126,31 @@ public class LegacyRestRequestAuthenticationProcessor extends RequestAuthenticat
 
             return AuthDomainState.SKIP;
         } else {
-            org.apache.logging.log4j.ThreadContext.put("user", ac.getUsername());
-            if (!ac.isComplete()) {
-                //credentials found in request but we need another client challenge
-
-                if (isChallengeEnabled(authenticationDomain) && httpAuthenticator instanceof LegacyHTTPAuthenticator
-                        && ((LegacyHTTPAuthenticator) httpAuthenticator).reRequestAuthentication(restChannel, ac)) {
-                    ac.clearSecrets();
-                    return AuthDomainState.STOP;
+            // This might be executed on a thread of an authentication backend; thus, the log4j context must be reverted afterwards
+            try (CloseableThreadContext.Instance logContext = CloseableThreadContext.put("user", ac.getUsername())) {
+                if (!ac.isComplete()) {
+                    //credentials found in request but we need another client challenge
+
+                    if (isChallengeEnabled(authenticationDomain) && httpAuthenticator instanceof LegacyHTTPAuthenticator
+                            && ((LegacyHTTPAuthenticator) httpAuthenticator).reRequestAuthentication(restChannel, ac)) {
+                        ac.clearSecrets();
+                        return AuthDomainState.STOP;
+                    }
+
+                    String challenge = httpAuthenticator.getChallenge(ac);
+
+                    if (challenge != null) {
+                        challenges.add(challenge);
+                        ac.clearSecrets();
+                        return AuthDomainState.STOP;
+                    }
                 }
-                
-                String challenge = httpAuthenticator.getChallenge(ac);
 
-                if (challenge != null) {
-                    challenges.add(challenge);
-                    ac.clearSecrets();
-                    return AuthDomainState.STOP;
-                }
-            }
+                ac = ac.userMappingAttributes(ImmutableMap.of("request", ImmutableMap.of("headers", restRequest.getHeaders(), "direct_ip_address",
+                        String.valueOf(request.getDirectIpAddress()), "originating_ip_address", String.valueOf(request.getOriginatingIpAddress()))));
 
-            ac = ac.userMappingAttributes(ImmutableMap.of("request", ImmutableMap.of("headers", restRequest.getHeaders(), "direct_ip_address",
-                    String.valueOf(request.getDirectIpAddress()), "originating_ip_address", String.valueOf(request.getOriginatingIpAddress()))));
-
-            return proceed(ac, authenticationDomain, onResult, onFailure);
+                return proceed(ac, authenticationDomain, onResult, onFailure);
+            }
         }
 
     }
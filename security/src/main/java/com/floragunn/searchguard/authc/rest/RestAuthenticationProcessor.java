@@ -167,8 +167,8 @@ public interface RestAuthenticationProcessor extends ComponentStateProvider {
                 return;
             }
 
-            new RestRequestAuthenticationProcessor(restHandler, requestMetaData, authenticationDomains, adminDns, privilegesEvaluator, userCache,
-                    impersonationCache, auditLog, blockedUserRegistry, ipAuthFailureListeners, requiredLoginPrivileges, debug)
+            new RestRequestAuthenticationProcessor(restHandler, requestMetaData, threadContext, authenticationDomains, adminDns, privilegesEvaluator,
+                    userCache, impersonationCache, auditLog, blockedUserRegistry, ipAuthFailureListeners, requiredLoginPrivileges, debug)
                             .authenticate(meter.consumer(onResult), meter.consumer(onFailure));
 
         }
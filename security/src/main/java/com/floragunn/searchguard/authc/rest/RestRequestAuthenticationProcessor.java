@@ -22,8 +22,10 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.function.Consumer;
 
+import org.apache.logging.log4j.CloseableThreadContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
@@ -53,12 +55,12 @@ public class RestRequestAuthenticationProcessor extends RequestAuthenticationPro
 
     private LinkedHashSet<String> challenges = new LinkedHashSet<>(2);
 
-    public RestRequestAuthenticationProcessor(RestHandler restHandler, RequestMetaData<RestRequest> request, 
+    public RestRequestAuthenticationProcessor(RestHandler restHandler, RequestMetaData<RestRequest> request, ThreadContext threadContext,
              Collection<AuthenticationDomain<HttpAuthenticationFrontend>> authenticationDomains, AdminDNs adminDns,
             PrivilegesEvaluator privilegesEvaluator, Cache<AuthCredentials, User> userCache, Cache<String, User> impersonationCache,
             AuditLog auditLog, BlockedUserRegistry blockedUserRegistry, List<AuthFailureListener> ipAuthFailureListeners,
             List<String> requiredLoginPrivileges, boolean debug) {
-        super(request, authenticationDomains, adminDns, privilegesEvaluator, userCache, impersonationCache, auditLog,
+        super(request, threadContext, authenticationDomains, adminDns, privilegesEvaluator, userCache, impersonationCache, auditLog,
                 blockedUserRegistry, ipAuthFailureListeners, requiredLoginPrivileges, debug);
 
         this.restHandler = restHandler;
@@ -118,23 +120,25 @@ public class RestRequestAuthenticationProcessor extends RequestAuthenticationPro
 
             return AuthDomainState.SKIP;
         } else {
-            org.apache.logging.log4j.ThreadContext.put("user", ac.getUsername());
-            if (!ac.isComplete()) {
-                //credentials found in request but we need anot)her client challenge
-
-                String challenge = authenticationFrontend.getChallenge(ac);
-
-                if (challenge != null) {
-                    challenges.add(challenge);
-                    ac.clearSecrets();
-                    return AuthDomainState.STOP;
+            // This might be executed on a thread of an authentication backend; thus, the log4j context must be reverted afterwards
+            try (CloseableThreadContext.Instance logContext = CloseableThreadContext.put("user", ac.getUsername())) {
+                if (!ac.isComplete()) {
+                    //credentials found in request but we need anot)her client challenge
+
+                    String challenge = authenticationFrontend.getChallenge(ac);
+
+                    if (challenge != null) {
+                        challenges.add(challenge);
+                        ac.clearSecrets();
+                        return AuthDomainState.STOP;
+                    }
                 }
-            }
 
-            ac = ac.userMappingAttributes(ImmutableMap.of("request", ImmutableMap.of("headers", request.getHeaders(), "direct_ip_address",
-                    String.valueOf(request.getDirectIpAddress()), "originating_ip_address", String.valueOf(request.getOriginatingIpAddress()))));
+                ac = ac.userMappingAttributes(ImmutableMap.of("request", ImmutableMap.of("headers", request.getHeaders(), "direct_ip_address",
+                        String.valueOf(request.getDirectIpAddress()), "originating_ip_address", String.valueOf(request.getOriginatingIpAddress()))));
 
-            return proceed(ac, authenticationDomain, onResult, onFailure);
+                return proceed(ac, authenticationDomain, onResult, onFailure);
+            }
         }
 
     }
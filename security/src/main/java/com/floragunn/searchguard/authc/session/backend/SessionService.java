@@ -407,7 +407,7 @@ public class SessionService {
 
         RequestMetaData<RestRequest> requestMetaData = new RestRequestMetaData(restRequest, remoteIpAddress, null);
 
-        new ApiAuthenticationProcessor(request, requestMetaData, apiAuthenticationDomains, adminDns, privilegesEvaluator, auditLog,
+        new ApiAuthenticationProcessor(request, requestMetaData, threadContext, apiAuthenticationDomains, adminDns, privilegesEvaluator, auditLog,
                 blockedUserRegistry, ipAuthFailureListeners, requiredLoginPrivileges, authcConfig.isDebugEnabled(configId))
                         .authenticate(subMeter.consumer(onResult), subMeter.consumer(onFailure));
     }
@@ -41,4 +41,21 @@ public interface ActionAuthorization {
     PrivilegesEvaluationResult hasTenantPermission(PrivilegesEvaluationContext context, Action action, String requestedTenant)
             throws PrivilegesEvaluationException;
 
+    /**
+     * Returns the subset of the given tenants for which the given action is permitted. The default implementation checks each tenant
+     * separately; implementations may provide a more efficient implementation.
+     */
+    default ImmutableSet<String> getPermittedTenants(PrivilegesEvaluationContext context, Action action, ImmutableSet<String> tenants)
+            throws PrivilegesEvaluationException {
+        ImmutableSet.Builder<String> result = new ImmutableSet.Builder<>();
+
+        for (String tenant : tenants) {
+            if (hasTenantPermission(context, action, tenant).isOk()) {
+                result.add(tenant);
+            }
+        }
+
+        return result.build();
+    }
+
 }
@@ -28,11 +28,13 @@ import com.floragunn.searchguard.authc.legacy.LegacySgConfig;
 import com.floragunn.searchguard.authz.config.AuthorizationConfig;
 import com.floragunn.searchguard.authz.config.RoleMapping;
 import com.floragunn.searchguard.configuration.CType;
+import com.floragunn.searchguard.configuration.ConfigChange;
 import com.floragunn.searchguard.configuration.ConfigMap;
 import com.floragunn.searchguard.configuration.ConfigurationChangeListener;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
 import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
 import com.floragunn.searchguard.privileges.SpecialPrivilegesEvaluationContext;
+import com.floragunn.searchguard.support.ReverseDnsCache;
 import com.floragunn.searchguard.user.User;
 import com.floragunn.searchsupport.StaticSettings;
 import com.floragunn.searchsupport.cstate.ComponentState;
@@ -53,6 +55,7 @@ public class AuthorizationService implements ComponentStateProvider {
 
     private final AuthInfoService authInfoService;
     private final ComponentState componentState = new ComponentState(9, null, "authorization_service");
+    private final ReverseDnsCache reverseDnsCache = new ReverseDnsCache(ReverseDnsCache.Config.DEFAULT);
 
     private volatile AuthorizationConfig authzConfig = AuthorizationConfig.DEFAULT;
     private volatile RoleMapping.InvertedIndex roleMapping;
@@ -62,6 +65,35 @@ public class AuthorizationService implements ComponentStateProvider {
 
         configurationRepository.subscribeOnChange(new ConfigurationChangeListener() {
 
+            @Override
+            public void onChange(ConfigMap configMap, ConfigChange change) {
+                if (roleMapping != null && !change.isChanged(CType.ROLESMAPPING, CType.AUTHZ, CType.CONFIG)) {
+                    // Keeping the existing index also keeps its role mapping cache
+                    log.debug("Role mapping relevant configuration did not change; keeping role mapping");
+                    componentState.setConfigVersion(configMap.getVersionsAsString());
+                    return;
+                }
+
+                if (roleMapping != null && !change.isChanged(CType.AUTHZ, CType.CONFIG)) {
+                    // Only role mappings changed; the new index takes over the cached results not affected by the change
+                    ImmutableSet<String> changedRoles = change.getAdded(CType.ROLESMAPPING).with(change.getChanged(CType.ROLESMAPPING))
+                            .with(change.getRemoved(CType.ROLESMAPPING));
+
+                    log.debug("Updating role mapping for changed roles {}", changedRoles);
+
+                    RoleMapping.InvertedIndex roleMapping = AuthorizationService.this.roleMapping
+                            .withChangedRoleMappings(configMap.get(CType.ROLESMAPPING), changedRoles);
+                    AuthorizationService.this.roleMapping = roleMapping;
+
+                    componentState.setConfigVersion(configMap.getVersionsAsString());
+                    componentState.replacePart(roleMapping.getComponentState());
+                    componentState.updateStateFromParts();
+                    return;
+                }
+
+                onChange(configMap);
+            }
+
             @Override
             public void onChange(ConfigMap configMap) {
                 SgDynamicConfiguration<AuthorizationConfig> config = configMap.get(CType.AUTHZ);
@@ -90,10 +122,13 @@ public class AuthorizationService implements ComponentStateProvider {
                     }
                 }
 
-                roleMapping = new RoleMapping.InvertedIndex(configMap.get(CType.ROLESMAPPING), authzConfig.getMetricsLevel());
+                reverseDnsCache.setConfig(authzConfig.getReverseDnsConfig());
+                roleMapping = new RoleMapping.InvertedIndex(configMap.get(CType.ROLESMAPPING), authzConfig.getMetricsLevel(), reverseDnsCache,
+                        authzConfig.getRoleMappingCacheMaxSize(), authzConfig.isRoleMappingCacheOnUser());
 
                 componentState.setConfigVersion(configMap.getVersionsAsString());
                 componentState.replacePart(roleMapping.getComponentState());
+                componentState.replacePart(reverseDnsCache.getComponentState());
                 componentState.updateStateFromParts();
             }
         });
@@ -132,4 +167,8 @@ public class AuthorizationService implements ComponentStateProvider {
         return roleMapping;
     }
 
+    public void close() {
+        reverseDnsCache.shutdown();
+    }
+
 }
@@ -240,6 +240,13 @@ public class PrivilegesEvaluationResult {
             return cause;
         }
 
+        /**
+         * Returns the name of the role which caused this error; null if the error is not related to a specific role.
+         */
+        public String getRole() {
+            return role;
+        }
+
         @Override
         public String toString() {
             if (rootCause != null) {
@@ -42,13 +42,13 @@ import org.elasticsearch.action.support.ActionFilter;
 import org.elasticsearch.action.support.ActionFilterChain;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.Client;
-import org.elasticsearch.cluster.ClusterChangedEvent;
-import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.metadata.IndexTemplateMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
@@ -74,6 +74,7 @@ import com.floragunn.searchguard.authz.config.RoleMapping;
 import com.floragunn.searchguard.authz.config.Tenant;
 import com.floragunn.searchguard.configuration.CType;
 import com.floragunn.searchguard.configuration.ClusterInfoHolder;
+import com.floragunn.searchguard.configuration.ConfigChange;
 import com.floragunn.searchguard.configuration.ConfigMap;
 import com.floragunn.searchguard.configuration.ConfigurationChangeListener;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
@@ -101,9 +102,13 @@ public class PrivilegesEvaluator implements ComponentStateProvider {
     static final StaticSettings.Attribute<Boolean> UNSUPPORTED_RESTORE_SGINDEX_ENABLED = //
             StaticSettings.Attribute.define("searchguard.unsupported.restore.sgindex.enabled").withDefault(false).asBoolean();
 
+    static final StaticSettings.Attribute<TimeValue> STATEFUL_INDEX_REBUILD_DEBOUNCE = //
+            StaticSettings.Attribute.define("searchguard.privileges.stateful_index.rebuild_debounce").withDefault(TimeValue.timeValueMillis(100))
+                    .asTimeValue();
+
     public static final StaticSettings.AttributeSet STATIC_SETTINGS = //
             StaticSettings.AttributeSet.of(ADMIN_ONLY_ACTIONS, ADMIN_ONLY_INDICES, CHECK_SNAPSHOT_RESTORE_WRITE_PRIVILEGES,
-                    UNSUPPORTED_RESTORE_SGINDEX_ENABLED);
+                    UNSUPPORTED_RESTORE_SGINDEX_ENABLED, STATEFUL_INDEX_REBUILD_DEBOUNCE);
 
     private static final String USER_TENANT = "__user__";
     private static final Logger log = LogManager.getLogger(PrivilegesEvaluator.class);
@@ -128,6 +133,7 @@ public class PrivilegesEvaluator implements ComponentStateProvider {
     private final Pattern adminOnlyIndices;
     private final Actions actions;
     private final ComponentState componentState = new ComponentState(10, null, "privileges_evaluator");
+    private final StatefulIndexRebuildService statefulIndexRebuildService;
 
     private volatile AuthorizationConfig authzConfig = AuthorizationConfig.DEFAULT;
     private volatile RoleBasedActionAuthorization actionAuthorization = null;
@@ -162,9 +168,42 @@ public class PrivilegesEvaluator implements ComponentStateProvider {
         this.snapshotRestoreEvaluator = new SnapshotRestoreEvaluator(auditLog, guiceDependencies, settings.get(UNSUPPORTED_RESTORE_SGINDEX_ENABLED));
         this.adminOnlyActions = settings.get(ADMIN_ONLY_ACTIONS);
         this.adminOnlyIndices = settings.get(ADMIN_ONLY_INDICES);
+        this.statefulIndexRebuildService = new StatefulIndexRebuildService(() -> this.actionAuthorization,
+                settings.get(STATEFUL_INDEX_REBUILD_DEBOUNCE), threadPool);
+        this.componentState.addPart(statefulIndexRebuildService.getComponentState());
 
         configurationRepository.subscribeOnChange(new ConfigurationChangeListener() {
 
+            @Override
+            public void onChange(ConfigMap configMap, ConfigChange change) {
+                if (actionAuthorization != null && !change.isChanged(CType.ROLES, CType.ACTIONGROUPS, CType.TENANTS, CType.AUTHZ, CType.CONFIG)) {
+                    // Rebuilding RoleBasedActionAuthorization is expensive; the existing instance is still valid
+                    log.debug("Authorization relevant configuration did not change; keeping action authorization");
+                    componentState.setConfigVersion(configMap.getVersionsAsString());
+                    return;
+                }
+
+                if (actionAuthorization != null && !change.isChanged(CType.ACTIONGROUPS, CType.TENANTS, CType.AUTHZ, CType.CONFIG)) {
+                    // Only roles changed; just process these again and take over the data of the other roles
+                    ImmutableSet<String> changedRoles = change.getAdded(CType.ROLES).with(change.getChanged(CType.ROLES))
+                            .with(change.getRemoved(CType.ROLES));
+
+                    log.debug("Updating action authorization for changed roles {}", changedRoles);
+
+                    RoleBasedActionAuthorization actionAuthorization = PrivilegesEvaluator.this.actionAuthorization
+                            .withChangedRoles(configMap.get(CType.ROLES), changedRoles);
+                    PrivilegesEvaluator.this.actionAuthorization = actionAuthorization;
+                    statefulIndexRebuildService.actionAuthorizationChanged();
+
+                    componentState.setConfigVersion(configMap.getVersionsAsString());
+                    componentState.replacePart(actionAuthorization.getComponentState());
+                    componentState.updateStateFromParts();
+                    return;
+                }
+
+                onChange(configMap);
+            }
+
             @Override
             public void onChange(ConfigMap configMap) {
                 SgDynamicConfiguration<AuthorizationConfig> config = configMap.get(CType.AUTHZ);
@@ -200,9 +239,11 @@ public class PrivilegesEvaluator implements ComponentStateProvider {
                         ? new ActionGroup.FlattenedIndex(configMap.get(CType.ACTIONGROUPS))
                         : ActionGroup.FlattenedIndex.EMPTY;
 
-                actionAuthorization = new RoleBasedActionAuthorization(roles, actionGroups, actions,
-                        clusterService.state().metadata().indices().keySet(), tenants.getCEntries().keySet(), adminOnlyIndices,
-                        authzConfig.getMetricsLevel());
+                ClusterState clusterState = clusterService.state();
+
+                actionAuthorization = new RoleBasedActionAuthorization(roles, actionGroups, actions, clusterState.metadata().indices().keySet(),
+                        clusterState.version(), tenants.getCEntries().keySet(), adminOnlyIndices, authzConfig.getMetricsLevel());
+                statefulIndexRebuildService.actionAuthorizationChanged();
 
                 componentState.setConfigVersion(configMap.getVersionsAsString());
                 componentState.replacePart(actionAuthorization.getComponentState());
@@ -211,18 +252,7 @@ public class PrivilegesEvaluator implements ComponentStateProvider {
             }
         });
 
-        clusterService.addListener(new ClusterStateListener() {
-
-            @Override
-            public void clusterChanged(ClusterChangedEvent event) {
-                RoleBasedActionAuthorization actionAuthorization = PrivilegesEvaluator.this.actionAuthorization;
-
-                if (actionAuthorization != null) {
-                    actionAuthorization.updateIndices(event.state().metadata().indices().keySet());
-                }
-
-            }
-        });
+        clusterService.addListener(statefulIndexRebuildService);
     }
 
     public boolean isInitialized() {
@@ -18,6 +18,8 @@
 package com.floragunn.searchguard.authz;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -45,12 +47,15 @@ import com.floragunn.searchguard.user.User;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentState.State;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
 import com.floragunn.searchsupport.cstate.metrics.Count;
 import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
 import com.floragunn.searchsupport.cstate.metrics.Measurement;
 import com.floragunn.searchsupport.cstate.metrics.Meter;
 import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
 import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class RoleBasedActionAuthorization implements ActionAuthorization, ComponentStateProvider {
     private static final Logger log = LogManager.getLogger(RoleBasedActionAuthorization.class);
@@ -96,17 +101,43 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
     public RoleBasedActionAuthorization(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
             Set<String> indices, Set<String> tenants, Pattern universallyDeniedIndices, MetricsLevel metricsLevel) {
+        this(roles, actionGroups, actions, indices, -1, tenants, universallyDeniedIndices, metricsLevel);
+    }
+
+    /**
+     * @param indicesClusterStateVersion the version of the cluster state the indices were taken from; -1 if unknown
+     */
+    public RoleBasedActionAuthorization(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
+            Set<String> indices, long indicesClusterStateVersion, Set<String> tenants, Pattern universallyDeniedIndices, MetricsLevel metricsLevel) {
+        this(roles, actionGroups, actions, indices, indicesClusterStateVersion, tenants, universallyDeniedIndices, metricsLevel, null, null);
+    }
+
+    /**
+     * If previous is not null, only the roles contained in changedRoles are processed; the data of all other roles is taken from previous.
+     */
+    private RoleBasedActionAuthorization(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
+            Set<String> indices, long indicesClusterStateVersion, Set<String> tenants, Pattern universallyDeniedIndices, MetricsLevel metricsLevel,
+            RoleBasedActionAuthorization previous, ImmutableSet<String> changedRoles) {
         this.roles = roles;
         this.actionGroups = actionGroups;
         this.actions = actions;
         this.metricsLevel = metricsLevel;
         this.tenants = ImmutableSet.of(tenants);
 
-        this.cluster = new ClusterPermissions(roles, actionGroups, actions, metricsLevel);
-        this.clusterExclusions = new ClusterPermissionExclusions(roles, actionGroups, actions);
-        this.index = new IndexPermissions(roles, actionGroups, actions);
-        this.indexExclusions = new IndexPermissionExclusions(roles, actionGroups, actions);
-        this.tenant = new TenantPermissions(roles, actionGroups, actions, this.tenants);
+        if (previous == null) {
+            this.cluster = new ClusterPermissions(roles, actionGroups, actions, metricsLevel);
+            this.clusterExclusions = new ClusterPermissionExclusions(roles, actionGroups, actions);
+            this.index = new IndexPermissions(roles, actionGroups, actions);
+            this.indexExclusions = new IndexPermissionExclusions(roles, actionGroups, actions);
+            this.tenant = new TenantPermissions(roles, actionGroups, actions, this.tenants);
+        } else {
+            this.cluster = new ClusterPermissions(roles, actionGroups, actions, metricsLevel, previous.cluster, changedRoles);
+            this.clusterExclusions = new ClusterPermissionExclusions(roles, actionGroups, actions, previous.clusterExclusions, changedRoles);
+            this.index = new IndexPermissions(roles, actionGroups, actions, previous.index, changedRoles);
+            this.indexExclusions = new IndexPermissionExclusions(roles, actionGroups, actions, previous.indexExclusions, changedRoles);
+            this.tenant = new TenantPermissions(roles, actionGroups, actions, this.tenants, previous.tenant, changedRoles);
+        }
+
         this.universallyDeniedIndices = universallyDeniedIndices;
 
         this.componentState = new ComponentState("role_based_action_authorization");
@@ -114,8 +145,11 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 indexExclusions.getComponentState(), tenant.getComponentState(), statefulIndexState);
 
         if (indices != null) {
+            StatefulIndexPermssions previousStatefulIndex = previous != null ? previous.statefulIndex : null;
+
             try (Meter meter = Meter.basic(metricsLevel, statefulIndexRebuild)) {
-                this.statefulIndex = new StatefulIndexPermssions(roles, actionGroups, actions, indices, universallyDeniedIndices, statefulIndexState);
+                this.statefulIndex = new StatefulIndexPermssions(roles, actionGroups, actions, indices, indicesClusterStateVersion,
+                        universallyDeniedIndices, statefulIndexState, previousStatefulIndex, changedRoles);
             }
         } else {
             this.statefulIndexState.setState(State.SUSPENDED, "no_index_information");
@@ -438,17 +472,111 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         }
     }
 
+    /**
+     * Uses the inverted index from roles to tenants for the constant tenant patterns. Thus, only the tenants actually matched by the roles of
+     * the user need to be looked at. Tenant pattern templates are rendered only once for all tenants.
+     */
+    @Override
+    public ImmutableSet<String> getPermittedTenants(PrivilegesEvaluationContext context, Action action, ImmutableSet<String> requestedTenants)
+            throws PrivilegesEvaluationException {
+        try (Meter meter = Meter.basic(metricsLevel, tenantActionChecks)) {
+            User user = context.getUser();
+            ImmutableSet<String> mappedRoles = context.getMappedRoles();
+            ImmutableSet.Builder<String> result = new ImmutableSet.Builder<>();
+
+            for (String tenantName : tenant.getConstantPermittedTenants(action, mappedRoles)) {
+                if (requestedTenants.contains(tenantName)) {
+                    result.add(tenantName);
+                }
+            }
+
+            try (Meter subMeter = meter.basic("action_tenant_pattern")) {
+                for (String role : mappedRoles) {
+                    ImmutableMap<Action, ImmutableSet<Template<Pattern>>> actionToTenantPattern = tenant.roleToActionToTenantPattern.get(role);
+
+                    if (actionToTenantPattern != null) {
+                        ImmutableSet<Template<Pattern>> tenantTemplates = actionToTenantPattern.get(action);
+
+                        if (tenantTemplates != null) {
+                            for (Template<Pattern> tenantTemplate : tenantTemplates) {
+                                try (Meter subMeter2 = subMeter.basic("render_tenant_template")) {
+                                    Pattern tenantPattern = tenantTemplate.render(user);
+
+                                    for (String tenantName : requestedTenants.matching(tenantPattern)) {
+                                        if (isTenantValid(tenantName)) {
+                                            result.add(tenantName);
+                                        }
+                                    }
+                                } catch (ExpressionEvaluationException e) {
+                                    log.error("Error while evaluating tenant privilege", e);
+                                    this.componentState.addLastException("has_tenant_permission", e);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            return result.build();
+        }
+    }
+
     public void updateIndices(Set<String> indices) {
+        updateIndices(indices, -1);
+    }
+
+    /**
+     * Creates a new instance for the given roles, which must differ from the roles of this instance only by the roles listed in changedRoles.
+     * Action groups, tenants and indices are taken over from this instance. Only the changed roles are processed; the data of all other roles
+     * is copied from the structures of this instance. Thus, changing a single role does not require processing all other roles again.
+     * 
+     * @param changedRoles the names of the roles which were added, changed or removed
+     */
+    public synchronized RoleBasedActionAuthorization withChangedRoles(SgDynamicConfiguration<Role> roles, ImmutableSet<String> changedRoles) {
+        StatefulIndexPermssions statefulIndex = this.statefulIndex;
+
+        return new RoleBasedActionAuthorization(roles, actionGroups, actions, statefulIndex != null ? statefulIndex.indices : null,
+                statefulIndex != null ? statefulIndex.clusterStateVersion : -1, tenants, universallyDeniedIndices, metricsLevel, this, changedRoles);
+    }
+
+    /**
+     * Rebuilds the stateful index permissions for the given indices, unless these already reflect the given cluster state version. The new
+     * structure is published atomically together with the cluster state version.
+     * 
+     * While the structure lags behind the cluster state, indices unknown to it are just evaluated by the stateless code path.
+     * 
+     * @return true if the structure was rebuilt
+     */
+    public synchronized boolean updateIndices(Set<String> indices, long clusterStateVersion) {
         StatefulIndexPermssions statefulIndex = this.statefulIndex;
 
+        if (statefulIndex != null && clusterStateVersion != -1 && statefulIndex.clusterStateVersion >= clusterStateVersion) {
+            return false;
+        }
+
         if (statefulIndex != null && statefulIndex.indices.equals(indices)) {
-            return;
+            if (clusterStateVersion != -1) {
+                statefulIndex.clusterStateVersion = clusterStateVersion;
+            }
+            return false;
         }
 
         try (Meter meter = Meter.basic(metricsLevel, statefulIndexRebuild)) {
-            this.statefulIndex = new StatefulIndexPermssions(roles, actionGroups, actions, indices, universallyDeniedIndices, statefulIndexState);
+            this.statefulIndex = new StatefulIndexPermssions(roles, actionGroups, actions, indices, clusterStateVersion, universallyDeniedIndices,
+                    statefulIndexState);
             this.componentState.updateStateFromParts();
         }
+
+        return true;
+    }
+
+    /**
+     * Returns the version of the cluster state the stateful index permissions reflect; -1 if unknown.
+     */
+    public long getIndicesClusterStateVersion() {
+        StatefulIndexPermssions statefulIndex = this.statefulIndex;
+
+        return statefulIndex != null ? statefulIndex.clusterStateVersion : -1;
     }
 
     private boolean isTenantValid(String requestedTenant) {
@@ -472,6 +600,11 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final MetricsLevel metricsLevel;
 
         ClusterPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions, MetricsLevel metricsLevel) {
+            this(roles, actionGroups, actions, metricsLevel, null, null);
+        }
+
+        ClusterPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions, MetricsLevel metricsLevel,
+                ClusterPermissions previous, ImmutableSet<String> changedRoles) {
             this.componentState = new ComponentState("cluster_permissions");
 
             ImmutableMap.Builder<Action, ImmutableSet.Builder<String>> actionToRoles = new ImmutableMap.Builder<Action, ImmutableSet.Builder<String>>()
@@ -480,7 +613,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
             ImmutableMap.Builder<String, Pattern> rolesToActionPattern = new ImmutableMap.Builder<>();
             ImmutableList.Builder<PrivilegesEvaluationResult.Error> initializationErrors = new ImmutableList.Builder<>();
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -526,10 +659,18 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.actionToRoles = actionToRoles.build(ImmutableSet.Builder::build);
-            this.rolesWithWildcardPermissions = rolesWithWildcardPermissions.build();
-            this.rolesToActionPattern = rolesToActionPattern.build();
-            this.initializationErrors = initializationErrors.build();
+            if (previous == null) {
+                this.actionToRoles = actionToRoles.build(ImmutableSet.Builder::build);
+                this.rolesWithWildcardPermissions = rolesWithWildcardPermissions.build();
+                this.rolesToActionPattern = rolesToActionPattern.build();
+                this.initializationErrors = initializationErrors.build();
+            } else {
+                this.actionToRoles = mergeRoleSets(previous.actionToRoles, actionToRoles.build(ImmutableSet.Builder::build), changedRoles);
+                this.rolesWithWildcardPermissions = mergeRoles(previous.rolesWithWildcardPermissions, rolesWithWildcardPermissions.build(),
+                        changedRoles);
+                this.rolesToActionPattern = mergeByRole(previous.rolesToActionPattern, rolesToActionPattern.build(), changedRoles);
+                this.initializationErrors = mergeErrors(previous.initializationErrors, initializationErrors.build(), changedRoles);
+            }
 
             this.componentState.setConfigVersion(roles.getDocVersion());
 
@@ -540,8 +681,8 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
             if (metricsLevel.basicEnabled()) {
                 this.componentState.addMetrics("checks", checks);
-                this.componentState.addMetrics("action_to_roles_map", new Count(actionToRoles.size()));
-                this.componentState.addMetrics("roles_to_action_pattern_map", new Count(rolesToActionPattern.size()));
+                this.componentState.addMetrics("action_to_roles_map", new Count(this.actionToRoles.size()));
+                this.componentState.addMetrics("roles_to_action_pattern_map", new Count(this.rolesToActionPattern.size()));
             }
 
             if (this.initializationErrors.isEmpty()) {
@@ -600,6 +741,11 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final ComponentState componentState;
 
         ClusterPermissionExclusions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions) {
+            this(roles, actionGroups, actions, null, null);
+        }
+
+        ClusterPermissionExclusions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
+                ClusterPermissionExclusions previous, ImmutableSet<String> changedRoles) {
             this.componentState = new ComponentState("cluster_permission_exclusions");
 
             ImmutableMap.Builder<Action, ImmutableSet.Builder<String>> actionToRoles = new ImmutableMap.Builder<Action, ImmutableSet.Builder<String>>()
@@ -607,7 +753,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
             ImmutableMap.Builder<String, Pattern> rolesToActionPattern = new ImmutableMap.Builder<>();
             ImmutableList.Builder<PrivilegesEvaluationResult.Error> initializationErrors = new ImmutableList.Builder<>();
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -644,9 +790,15 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.actionToRoles = actionToRoles.build(ImmutableSet.Builder::build);
-            this.rolesToActionPattern = rolesToActionPattern.build();
-            this.initializationErrors = initializationErrors.build();
+            if (previous == null) {
+                this.actionToRoles = actionToRoles.build(ImmutableSet.Builder::build);
+                this.rolesToActionPattern = rolesToActionPattern.build();
+                this.initializationErrors = initializationErrors.build();
+            } else {
+                this.actionToRoles = mergeRoleSets(previous.actionToRoles, actionToRoles.build(ImmutableSet.Builder::build), changedRoles);
+                this.rolesToActionPattern = mergeByRole(previous.rolesToActionPattern, rolesToActionPattern.build(), changedRoles);
+                this.initializationErrors = mergeErrors(previous.initializationErrors, initializationErrors.build(), changedRoles);
+            }
 
             this.componentState.setConfigVersion(roles.getDocVersion());
 
@@ -697,6 +849,11 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final ComponentState componentState;
 
         IndexPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions) {
+            this(roles, actionGroups, actions, null, null);
+        }
+
+        IndexPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions, IndexPermissions previous,
+                ImmutableSet<String> changedRoles) {
             this.componentState = new ComponentState("index_permissions");
 
             ImmutableMap.Builder<String, ImmutableMap.Builder<Action, IndexPattern.Builder>> rolesToActionToIndexPattern = //
@@ -712,7 +869,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
             ImmutableList.Builder<PrivilegesEvaluationResult.Error> initializationErrors = new ImmutableList.Builder<>();
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -755,12 +912,24 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.rolesToActionToIndexPattern = rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
-            this.rolesToActionPatternToIndexPattern = rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+            if (previous == null) {
+                this.rolesToActionToIndexPattern = rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+                this.rolesToActionPatternToIndexPattern = rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+
+                this.actionToRolesWithWildcardIndexPrivileges = actionToRolesWithWildcardIndexPrivileges.build(ImmutableSet.Builder::build);
 
-            this.actionToRolesWithWildcardIndexPrivileges = actionToRolesWithWildcardIndexPrivileges.build(ImmutableSet.Builder::build);
+                this.initializationErrors = initializationErrors.build();
+            } else {
+                this.rolesToActionToIndexPattern = mergeByRole(previous.rolesToActionToIndexPattern,
+                        rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build)), changedRoles);
+                this.rolesToActionPatternToIndexPattern = mergeByRole(previous.rolesToActionPatternToIndexPattern,
+                        rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build)), changedRoles);
+
+                this.actionToRolesWithWildcardIndexPrivileges = mergeRoleSets(previous.actionToRolesWithWildcardIndexPrivileges,
+                        actionToRolesWithWildcardIndexPrivileges.build(ImmutableSet.Builder::build), changedRoles);
 
-            this.initializationErrors = initializationErrors.build();
+                this.initializationErrors = mergeErrors(previous.initializationErrors, initializationErrors.build(), changedRoles);
+            }
 
             this.componentState.setConfigVersion(roles.getDocVersion());
 
@@ -787,6 +956,11 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final ComponentState componentState;
 
         IndexPermissionExclusions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions) {
+            this(roles, actionGroups, actions, null, null);
+        }
+
+        IndexPermissionExclusions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
+                IndexPermissionExclusions previous, ImmutableSet<String> changedRoles) {
             this.componentState = new ComponentState("index_permission_exclusions");
 
             ImmutableMap.Builder<String, ImmutableMap.Builder<Action, IndexPattern.Builder>> rolesToActionToIndexPattern = //
@@ -800,7 +974,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
             ImmutableMap.Builder<String, ImmutableList.Builder<Exception>> rolesToInitializationErrors = new ImmutableMap.Builder<String, ImmutableList.Builder<Exception>>()
                     .defaultValue((k) -> new ImmutableList.Builder<Exception>());
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -838,10 +1012,20 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.rolesToActionToIndexPattern = rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
-            this.rolesToActionPatternToIndexPattern = rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+            if (previous == null) {
+                this.rolesToActionToIndexPattern = rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+                this.rolesToActionPatternToIndexPattern = rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build));
+
+                this.rolesToInitializationErrors = rolesToInitializationErrors.build(ImmutableList.Builder::build);
+            } else {
+                this.rolesToActionToIndexPattern = mergeByRole(previous.rolesToActionToIndexPattern,
+                        rolesToActionToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build)), changedRoles);
+                this.rolesToActionPatternToIndexPattern = mergeByRole(previous.rolesToActionPatternToIndexPattern,
+                        rolesToActionPatternsToIndexPattern.build((b) -> b.build(IndexPattern.Builder::build)), changedRoles);
 
-            this.rolesToInitializationErrors = rolesToInitializationErrors.build(ImmutableList.Builder::build);
+                this.rolesToInitializationErrors = mergeByRole(previous.rolesToInitializationErrors,
+                        rolesToInitializationErrors.build(ImmutableList.Builder::build), changedRoles);
+            }
             this.componentState.setConfigVersion(roles.getDocVersion());
 
             if (this.rolesToInitializationErrors.isEmpty()) {
@@ -956,12 +1140,31 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final ImmutableSet<String> rolesWithTemplatedExclusions;
         private final ImmutableSet<String> indices;
 
+        /**
+         * The cluster state version the indices were taken from. Can be advanced if a newer cluster state contains the same indices.
+         */
+        private volatile long clusterStateVersion;
+
         private final ImmutableMap<String, ImmutableList<Exception>> rolesToInitializationErrors;
         private final ComponentState componentState;
         private final Pattern universallyDeniedIndices;
 
         StatefulIndexPermssions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions, Set<String> indexNames,
-                Pattern universallyDeniedIndices, ComponentState componentState) {
+                long clusterStateVersion, Pattern universallyDeniedIndices, ComponentState componentState) {
+            this(roles, actionGroups, actions, indexNames, clusterStateVersion, universallyDeniedIndices, componentState, null, null);
+        }
+
+        /**
+         * previous is only used if it was built for the same indices; otherwise, all roles are processed.
+         */
+        StatefulIndexPermssions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions, Set<String> indexNames,
+                long clusterStateVersion, Pattern universallyDeniedIndices, ComponentState componentState, StatefulIndexPermssions previous,
+                ImmutableSet<String> changedRoles) {
+            if (previous != null && !previous.indices.equals(indexNames)) {
+                previous = null;
+                changedRoles = null;
+            }
+
             ImmutableMap.Builder<WellKnownAction<?, ?, ?>, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>> actionToIndexToRoles = //
                     new ImmutableMap.Builder<WellKnownAction<?, ?, ?>, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>>()
                             .defaultValue((k) -> new ImmutableMap.Builder<String, ImmutableSet.Builder<String>>()
@@ -977,7 +1180,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
             ImmutableMap.Builder<String, ImmutableList.Builder<Exception>> rolesToInitializationErrors = new ImmutableMap.Builder<String, ImmutableList.Builder<Exception>>()
                     .defaultValue((k) -> new ImmutableList.Builder<Exception>());
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -1072,14 +1275,27 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.actionToIndexToRoles = actionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
-            this.excludedActionToIndexToRoles = excludedActionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
-            this.rolesWithTemplatedExclusions = rolesWithTemplatedExclusions.build();
+            if (previous == null) {
+                this.actionToIndexToRoles = actionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
+                this.excludedActionToIndexToRoles = excludedActionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
+                this.rolesWithTemplatedExclusions = rolesWithTemplatedExclusions.build();
+                this.rolesToInitializationErrors = rolesToInitializationErrors.build(ImmutableList.Builder::build);
+            } else {
+                this.actionToIndexToRoles = mergeNestedRoleSets(previous.actionToIndexToRoles,
+                        actionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build)), changedRoles);
+                this.excludedActionToIndexToRoles = mergeNestedRoleSets(previous.excludedActionToIndexToRoles,
+                        excludedActionToIndexToRoles.build((b) -> b.build(ImmutableSet.Builder::build)), changedRoles);
+                this.rolesWithTemplatedExclusions = mergeRoles(previous.rolesWithTemplatedExclusions, rolesWithTemplatedExclusions.build(),
+                        changedRoles);
+                this.rolesToInitializationErrors = mergeByRole(previous.rolesToInitializationErrors,
+                        rolesToInitializationErrors.build(ImmutableList.Builder::build), changedRoles);
+            }
+
             this.indices = ImmutableSet.of(indexNames);
+            this.clusterStateVersion = clusterStateVersion;
 
             this.universallyDeniedIndices = universallyDeniedIndices;
 
-            this.rolesToInitializationErrors = rolesToInitializationErrors.build(ImmutableList.Builder::build);
             this.componentState = componentState;
             this.componentState.setConfigVersion(roles.getDocVersion());
 
@@ -1165,17 +1381,39 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
         private final ImmutableMap<Action, ImmutableMap<String, ImmutableSet<String>>> actionToTenantToRoles;
         private final ImmutableMap<String, ImmutableMap<Action, ImmutableSet<Template<Pattern>>>> roleToActionToTenantPattern;
 
+        /**
+         * The inverse of actionToTenantToRoles; used for finding all tenants permitted for a set of roles.
+         */
+        private final ImmutableMap<Action, ImmutableMap<String, ImmutableSet<String>>> actionToRoleToTenants;
+
+        /**
+         * Caches the tenants permitted by constant tenant patterns by action and mapped roles. As a new instance is created for each
+         * configuration update, the cache implicitly depends on the config version.
+         */
+        private final Cache<ActionAndRoles, ImmutableSet<String>> constantPermittedTenantsCache = CacheBuilder.newBuilder().maximumSize(1000)
+                .recordStats().build();
+
         private final ImmutableList<PrivilegesEvaluationResult.Error> initializationErrors;
         private final ComponentState componentState;
 
         TenantPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
                 ImmutableSet<String> tenants) {
+            this(roles, actionGroups, actions, tenants, null, null);
+        }
+
+        TenantPermissions(SgDynamicConfiguration<Role> roles, ActionGroup.FlattenedIndex actionGroups, Actions actions,
+                ImmutableSet<String> tenants, TenantPermissions previous, ImmutableSet<String> changedRoles) {
 
             ImmutableMap.Builder<Action, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>> actionToTenantToRoles = //
                     new ImmutableMap.Builder<Action, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>>()
                             .defaultValue((k) -> new ImmutableMap.Builder<String, ImmutableSet.Builder<String>>()
                                     .defaultValue((k2) -> new ImmutableSet.Builder<String>()));
 
+            ImmutableMap.Builder<Action, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>> actionToRoleToTenants = //
+                    new ImmutableMap.Builder<Action, ImmutableMap.Builder<String, ImmutableSet.Builder<String>>>()
+                            .defaultValue((k) -> new ImmutableMap.Builder<String, ImmutableSet.Builder<String>>()
+                                    .defaultValue((k2) -> new ImmutableSet.Builder<String>()));
+
             ImmutableMap.Builder<String, ImmutableMap.Builder<Action, ImmutableSet.Builder<Template<Pattern>>>> roleToActionToTenantPattern = //
                     new ImmutableMap.Builder<String, ImmutableMap.Builder<Action, ImmutableSet.Builder<Template<Pattern>>>>()
                             .defaultValue((k) -> new ImmutableMap.Builder<Action, ImmutableSet.Builder<Template<Pattern>>>()
@@ -1183,7 +1421,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
             ImmutableList.Builder<PrivilegesEvaluationResult.Error> initializationErrors = new ImmutableList.Builder<>();
 
-            for (Map.Entry<String, Role> entry : roles.getCEntries().entrySet()) {
+            for (Map.Entry<String, Role> entry : getEntriesToProcess(roles, changedRoles).entrySet()) {
                 try {
                     String roleName = entry.getKey();
                     Role role = entry.getValue();
@@ -1200,6 +1438,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                                     if (Pattern.isConstant(permission)) {
                                         for (String tenant : matchingTenants) {
                                             actionToTenantToRoles.get(actions.get(permission)).get(tenant).add(roleName);
+                                            actionToRoleToTenants.get(actions.get(permission)).get(roleName).add(tenant);
                                         }
                                     } else {
                                         Pattern actionPattern = Pattern.create(permission);
@@ -1210,6 +1449,7 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                                         for (WellKnownAction<?, ?, ?> action : providedPrivileges) {
                                             for (String tenant : matchingTenants) {
                                                 actionToTenantToRoles.get(action).get(tenant).add(roleName);
+                                                actionToRoleToTenants.get(action).get(roleName).add(tenant);
                                             }
                                         }
                                     }
@@ -1242,10 +1482,22 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 }
             }
 
-            this.actionToTenantToRoles = actionToTenantToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
-            this.roleToActionToTenantPattern = roleToActionToTenantPattern.build((b) -> b.build(ImmutableSet.Builder::build));
+            if (previous == null) {
+                this.actionToTenantToRoles = actionToTenantToRoles.build((b) -> b.build(ImmutableSet.Builder::build));
+                this.roleToActionToTenantPattern = roleToActionToTenantPattern.build((b) -> b.build(ImmutableSet.Builder::build));
+                this.actionToRoleToTenants = actionToRoleToTenants.build((b) -> b.build(ImmutableSet.Builder::build));
 
-            this.initializationErrors = initializationErrors.build();
+                this.initializationErrors = initializationErrors.build();
+            } else {
+                this.actionToTenantToRoles = mergeNestedRoleSets(previous.actionToTenantToRoles,
+                        actionToTenantToRoles.build((b) -> b.build(ImmutableSet.Builder::build)), changedRoles);
+                this.roleToActionToTenantPattern = mergeByRole(previous.roleToActionToTenantPattern,
+                        roleToActionToTenantPattern.build((b) -> b.build(ImmutableSet.Builder::build)), changedRoles);
+                this.actionToRoleToTenants = mergeNestedByRole(previous.actionToRoleToTenants,
+                        actionToRoleToTenants.build((b) -> b.build(ImmutableSet.Builder::build)), changedRoles);
+
+                this.initializationErrors = mergeErrors(previous.initializationErrors, initializationErrors.build(), changedRoles);
+            }
             this.componentState = new ComponentState("tenant_permissions");
             this.componentState.setConfigVersion(roles.getDocVersion());
 
@@ -1255,6 +1507,36 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
                 this.componentState.setState(State.PARTIALLY_INITIALIZED, "contains_invalid_roles");
                 this.componentState.addDetail(initializationErrors);
             }
+
+            this.componentState.addMetrics("constant_permitted_tenants_cache", CacheStats.from(constantPermittedTenantsCache));
+        }
+
+        ImmutableSet<String> getConstantPermittedTenants(Action action, ImmutableSet<String> mappedRoles) {
+            ImmutableMap<String, ImmutableSet<String>> roleToTenants = actionToRoleToTenants.get(action);
+
+            if (roleToTenants == null) {
+                return ImmutableSet.empty();
+            }
+
+            ActionAndRoles key = new ActionAndRoles(action, mappedRoles);
+            ImmutableSet<String> result = constantPermittedTenantsCache.getIfPresent(key);
+
+            if (result == null) {
+                ImmutableSet.Builder<String> builder = new ImmutableSet.Builder<>();
+
+                for (String role : mappedRoles) {
+                    ImmutableSet<String> tenants = roleToTenants.get(role);
+
+                    if (tenants != null) {
+                        builder.addAll(tenants);
+                    }
+                }
+
+                result = builder.build();
+                constantPermittedTenantsCache.put(key, result);
+            }
+
+            return result;
         }
 
         @Override
@@ -1264,6 +1546,35 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
     }
 
+    private static class ActionAndRoles {
+        private final Action action;
+        private final ImmutableSet<String> roles;
+        private final int hashCode;
+
+        ActionAndRoles(Action action, ImmutableSet<String> roles) {
+            this.action = action;
+            this.roles = roles;
+            this.hashCode = action.hashCode() * 31 + roles.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ActionAndRoles)) {
+                return false;
+            }
+            ActionAndRoles other = (ActionAndRoles) obj;
+            return action.equals(other.action) && roles.equals(other.roles);
+        }
+    }
+
     static class IndexPattern {
 
         private final Pattern pattern;
@@ -1360,6 +1671,153 @@ public class RoleBasedActionAuthorization implements ActionAuthorization, Compon
 
     }
 
+    /**
+     * Returns the roles which need to be processed: all roles if changedRoles is null, otherwise only the changed roles which still exist.
+     */
+    private static Map<String, Role> getEntriesToProcess(SgDynamicConfiguration<Role> roles, ImmutableSet<String> changedRoles) {
+        if (changedRoles == null) {
+            return roles.getCEntries();
+        }
+
+        Map<String, Role> result = new LinkedHashMap<>(changedRoles.size());
+
+        for (String roleName : changedRoles) {
+            Role role = roles.getCEntry(roleName);
+
+            if (role != null) {
+                result.put(roleName, role);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Merges a map with role sets as values with the data built for the changed roles. The changed roles are removed from the sets of
+     * previous; then, the sets of changed are added. Keys with empty sets are removed.
+     */
+    static <K> ImmutableMap<K, ImmutableSet<String>> mergeRoleSets(ImmutableMap<K, ImmutableSet<String>> previous,
+            ImmutableMap<K, ImmutableSet<String>> changed, ImmutableSet<String> changedRoles) {
+        Map<K, ImmutableSet<String>> result = new HashMap<>(previous.size() + changed.size());
+        boolean modified = !changed.isEmpty();
+
+        for (Map.Entry<K, ImmutableSet<String>> entry : previous.entrySet()) {
+            ImmutableSet<String> roles = entry.getValue();
+
+            if (roles.containsAny(changedRoles)) {
+                roles = roles.matching((role) -> !changedRoles.contains(role));
+                modified = true;
+            }
+
+            if (!roles.isEmpty()) {
+                result.put(entry.getKey(), roles);
+            }
+        }
+
+        if (!modified) {
+            return previous;
+        }
+
+        for (Map.Entry<K, ImmutableSet<String>> entry : changed.entrySet()) {
+            ImmutableSet<String> roles = result.get(entry.getKey());
+            result.put(entry.getKey(), roles != null ? roles.with(entry.getValue()) : entry.getValue());
+        }
+
+        return ImmutableMap.of(result);
+    }
+
+    /**
+     * Like mergeRoleSets(), but for maps which have maps with role sets as values.
+     */
+    static <K1, K2> ImmutableMap<K1, ImmutableMap<K2, ImmutableSet<String>>> mergeNestedRoleSets(
+            ImmutableMap<K1, ImmutableMap<K2, ImmutableSet<String>>> previous, ImmutableMap<K1, ImmutableMap<K2, ImmutableSet<String>>> changed,
+            ImmutableSet<String> changedRoles) {
+        Map<K1, ImmutableMap<K2, ImmutableSet<String>>> result = new HashMap<>(previous.size() + changed.size());
+
+        for (Map.Entry<K1, ImmutableMap<K2, ImmutableSet<String>>> entry : previous.entrySet()) {
+            ImmutableMap<K2, ImmutableSet<String>> changedValue = changed.get(entry.getKey());
+            ImmutableMap<K2, ImmutableSet<String>> merged = mergeRoleSets(entry.getValue(),
+                    changedValue != null ? changedValue : ImmutableMap.empty(), changedRoles);
+
+            if (!merged.isEmpty()) {
+                result.put(entry.getKey(), merged);
+            }
+        }
+
+        for (Map.Entry<K1, ImmutableMap<K2, ImmutableSet<String>>> entry : changed.entrySet()) {
+            if (!previous.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return ImmutableMap.of(result);
+    }
+
+    /**
+     * Merges a map with role names as keys with the data built for the changed roles.
+     */
+    static <V> ImmutableMap<String, V> mergeByRole(ImmutableMap<String, V> previous, ImmutableMap<String, V> changed,
+            ImmutableSet<String> changedRoles) {
+        Map<String, V> result = new HashMap<>(previous.size() + changed.size());
+
+        for (Map.Entry<String, V> entry : previous.entrySet()) {
+            if (!changedRoles.contains(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        result.putAll(changed);
+
+        return ImmutableMap.of(result);
+    }
+
+    /**
+     * Like mergeByRole(), but for maps which have maps with role names as keys as values.
+     */
+    static <K, V> ImmutableMap<K, ImmutableMap<String, V>> mergeNestedByRole(ImmutableMap<K, ImmutableMap<String, V>> previous,
+            ImmutableMap<K, ImmutableMap<String, V>> changed, ImmutableSet<String> changedRoles) {
+        Map<K, ImmutableMap<String, V>> result = new HashMap<>(previous.size() + changed.size());
+
+        for (Map.Entry<K, ImmutableMap<String, V>> entry : previous.entrySet()) {
+            ImmutableMap<String, V> changedValue = changed.get(entry.getKey());
+            ImmutableMap<String, V> merged = mergeByRole(entry.getValue(), changedValue != null ? changedValue : ImmutableMap.empty(),
+                    changedRoles);
+
+            if (!merged.isEmpty()) {
+                result.put(entry.getKey(), merged);
+            }
+        }
+
+        for (Map.Entry<K, ImmutableMap<String, V>> entry : changed.entrySet()) {
+            if (!previous.containsKey(entry.getKey())) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return ImmutableMap.of(result);
+    }
+
+    static ImmutableSet<String> mergeRoles(ImmutableSet<String> previous, ImmutableSet<String> changed, ImmutableSet<String> changedRoles) {
+        return previous.matching((role) -> !changedRoles.contains(role)).with(changed);
+    }
+
+    static ImmutableList<PrivilegesEvaluationResult.Error> mergeErrors(ImmutableList<PrivilegesEvaluationResult.Error> previous,
+            ImmutableList<PrivilegesEvaluationResult.Error> changed, ImmutableSet<String> changedRoles) {
+        ImmutableList.Builder<PrivilegesEvaluationResult.Error> result = new ImmutableList.Builder<>();
+
+        for (PrivilegesEvaluationResult.Error error : previous) {
+            if (error.getRole() == null || !changedRoles.contains(error.getRole())) {
+                result.with(error);
+            }
+        }
+
+        for (PrivilegesEvaluationResult.Error error : changed) {
+            result.with(error);
+        }
+
+        return result.build();
+    }
+
     public ImmutableSet<String> getTenants() {
         return tenants;
     }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authz;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+
+/**
+ * Keeps the stateful index permissions of RoleBasedActionAuthorization in sync with the indices in the cluster state.
+ *
+ * Rebuilding the stateful index permissions can take a considerable amount of time on clusters with many indices. Thus, this is not done on the
+ * cluster state applier thread. Instead, the applier thread just records the new cluster state; the rebuild is done on the generic thread pool.
+ * Bursts of cluster state updates are coalesced by waiting for the debounce interval before starting a rebuild.
+ *
+ * While the stateful index permissions lag behind the cluster state, RoleBasedActionAuthorization evaluates indices unknown to them using
+ * the stateless code path.
+ */
+class StatefulIndexRebuildService implements ClusterStateListener, ComponentStateProvider {
+    private static final Logger log = LogManager.getLogger(StatefulIndexRebuildService.class);
+
+    private final Supplier<RoleBasedActionAuthorization> actionAuthorization;
+    private final TimeValue debounce;
+    private final ThreadPool threadPool;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile PendingState pendingState;
+    private volatile long publishedVersion = -1;
+
+    private final ComponentState componentState = new ComponentState(0, null, "stateful_index_rebuild", StatefulIndexRebuildService.class)
+            .initialized();
+    private final TimeAggregation rebuildTime = new TimeAggregation.Milliseconds();
+    private final TimeAggregation publicationLag = new TimeAggregation.Milliseconds();
+    private final CountAggregation skipped = new CountAggregation();
+    private final CountAggregation failed = new CountAggregation();
+
+    StatefulIndexRebuildService(Supplier<RoleBasedActionAuthorization> actionAuthorization, TimeValue debounce, ThreadPool threadPool) {
+        this.actionAuthorization = actionAuthorization;
+        this.debounce = debounce;
+        this.threadPool = threadPool;
+
+        this.componentState.addMetrics("rebuilds", rebuildTime);
+        this.componentState.addMetrics("publication_lag", publicationLag);
+        this.componentState.addMetrics("skipped_unchanged", skipped);
+        this.componentState.addMetrics("failed", failed);
+        this.componentState.addMetrics("lag_cluster_state_versions", new Count.Live(() -> {
+            PendingState pendingState = this.pendingState;
+            return pendingState != null ? Math.max(0, pendingState.version - publishedVersion) : 0;
+        }));
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (pendingState != null && !event.metadataChanged()) {
+            return;
+        }
+
+        // This just records the state; all the expensive work happens on the generic thread pool
+        this.pendingState = new PendingState(event.state().metadata(), event.state().version(), System.nanoTime());
+        schedule();
+    }
+
+    /**
+     * Must be called when a new RoleBasedActionAuthorization instance has been published. As the instance might have been initialized with an
+     * older cluster state, it is brought up to date if necessary.
+     */
+    void actionAuthorizationChanged() {
+        if (pendingState != null) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            // A rebuild is already pending; it will pick up the newest state
+            return;
+        }
+
+        try {
+            threadPool.scheduleUnlessShuttingDown(debounce, ThreadPool.Names.GENERIC, this::rebuild);
+        } catch (EsRejectedExecutionException e) {
+            scheduled.set(false);
+            log.error("Could not schedule rebuild of stateful index permissions", e);
+        }
+    }
+
+    private synchronized void rebuild() {
+        // Reset the flag before reading the state; updates arriving during the rebuild will schedule another run.
+        // That run might start on another generic thread while this one is still busy; thus, rebuild() is synchronized.
+        scheduled.set(false);
+
+        PendingState pendingState = this.pendingState;
+        RoleBasedActionAuthorization actionAuthorization = this.actionAuthorization.get();
+
+        if (pendingState == null || actionAuthorization == null) {
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+
+            if (actionAuthorization.updateIndices(pendingState.metadata.indices().keySet(), pendingState.version)) {
+                rebuildTime.recordNs(System.nanoTime() - start);
+                publicationLag.recordNs(System.nanoTime() - pendingState.receivedNanos);
+            } else {
+                skipped.increment();
+            }
+
+            publishedVersion = actionAuthorization.getIndicesClusterStateVersion();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Error while rebuilding stateful index permissions for cluster state " + pendingState.version, e);
+            componentState.addLastException("rebuild", e);
+        }
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    private static class PendingState {
+        private final Metadata metadata;
+        private final long version;
+        private final long receivedNanos;
+
+        PendingState(Metadata metadata, long version, long receivedNanos) {
+            this.metadata = metadata;
+            this.version = version;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
@@ -78,8 +78,20 @@ import com.floragunn.searchguard.authz.PrivilegesEvaluationException;
 import com.floragunn.searchguard.authz.PrivilegesEvaluationResult;
 import com.floragunn.searchguard.configuration.ClusterInfoHolder;
 import com.floragunn.searchguard.support.SnapshotRestoreHelper;
+import com.floragunn.searchsupport.StaticSettings;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 
-public class ActionRequestIntrospector {
+public class ActionRequestIntrospector implements ComponentStateProvider {
+
+    static final StaticSettings.Attribute<Integer> CONCRETE_INDICES_CACHE_MAX_ENTRIES = //
+            StaticSettings.Attribute.define("searchguard.privileges.concrete_indices_cache.max_entries").withDefault(1000).asInteger();
+
+    static final StaticSettings.Attribute<Integer> CONCRETE_INDICES_CACHE_MAX_BYTES = //
+            StaticSettings.Attribute.define("searchguard.privileges.concrete_indices_cache.max_bytes").withDefault(10 * 1024 * 1024).asInteger();
+
+    public static final StaticSettings.AttributeSet STATIC_SETTINGS = //
+            StaticSettings.AttributeSet.of(CONCRETE_INDICES_CACHE_MAX_ENTRIES, CONCRETE_INDICES_CACHE_MAX_BYTES);
 
     private static final IndicesOptions EXACT = new IndicesOptions(EnumSet.noneOf(IndicesOptions.Option.class),
             EnumSet.noneOf(IndicesOptions.WildcardStates.class));
@@ -93,14 +105,17 @@ public class ActionRequestIntrospector {
     private final ClusterService clusterService;
     private final ClusterInfoHolder clusterInfoHolder;
     private final GuiceDependencies guiceDependencies;
+    private final ConcreteIndicesCache concreteIndicesCache;
 
     public ActionRequestIntrospector(IndexNameExpressionResolver resolver, ClusterService clusterService, ClusterInfoHolder clusterInfoHolder,
-            GuiceDependencies guiceDependencies) {
+            GuiceDependencies guiceDependencies, StaticSettings staticSettings) {
         super();
         this.resolver = resolver;
         this.clusterService = clusterService;
         this.clusterInfoHolder = clusterInfoHolder;
         this.guiceDependencies = guiceDependencies;
+        this.concreteIndicesCache = new ConcreteIndicesCache(resolver, staticSettings.get(CONCRETE_INDICES_CACHE_MAX_ENTRIES),
+                staticSettings.get(CONCRETE_INDICES_CACHE_MAX_BYTES));
     }
 
     public ActionRequestInfo getActionRequestInfo(String action, Object request) {
@@ -722,8 +737,12 @@ public class ActionRequestIntrospector {
 
                 if (expandWildcards) {
                     try {
-                        return ImmutableSet.ofArray(resolver.concreteIndexNames(clusterService.state(), allowNoIndices(indicesOptions),
-                                this.asIndicesRequestWithoutRemoteIndices()));
+                        ClusterState state = clusterService.state();
+                        IndicesOptions indicesOptions = allowNoIndices(this.indicesOptions);
+                        IndicesRequest indicesRequest = this.asIndicesRequestWithoutRemoteIndices();
+
+                        return concreteIndicesCache.get(state, indicesRequest.indices(), indicesOptions, includeDataStreams,
+                                () -> ImmutableSet.ofArray(resolver.concreteIndexNames(state, indicesOptions, indicesRequest)));
                     } catch (IndexNotFoundException | IndexClosedException | InvalidIndexNameException e) {
                         // For some reason, concreteIndexNames() also throws IndexNotFoundException in some cases when ALLOW_NO_INDICES is specified. 
                         // We catch this and just return the raw index names as fallback
@@ -1081,4 +1100,9 @@ public class ActionRequestIntrospector {
                         : false) == (b instanceof Replaceable ? ((Replaceable) b).allowsRemoteIndices() : false)
                 && a.includeDataStreams() == b.includeDataStreams();
     }
+
+    @Override
+    public ComponentState getComponentState() {
+        return concreteIndicesCache.getComponentState();
+    }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authz.actions;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.indices.SystemIndices.SystemIndexAccessLevel;
+
+import com.floragunn.fluent.collections.ImmutableSet;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Caches the results of resolving index expressions to concrete index names. The resolution of wildcard expressions needs to iterate through
+ * all indices, aliases and data streams; on clusters with many indices, this gets expensive.
+ *
+ * The result of the resolution only depends on the expressions, the options and the metadata of the cluster. Thus, the cache is cleared
+ * whenever the metadata version changes.
+ *
+ * The cache is bounded by the number of entries and by the estimated size in bytes. Expressions which depend on the current time (date
+ * math) and requests with restricted system index access (which depends on the product origin of the request) are not cached.
+ */
+class ConcreteIndicesCache implements ComponentStateProvider {
+
+    private static final String[] EMPTY = new String[0];
+
+    private final IndexNameExpressionResolver resolver;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private volatile Generation generation;
+
+    private final ComponentState componentState = new ComponentState(0, null, "concrete_indices_cache", ConcreteIndicesCache.class).initialized();
+    private final CountAggregation lookups = new CountAggregation();
+    private final CountAggregation hits = lookups.getSubCount("hit");
+    private final CountAggregation misses = lookups.getSubCount("miss");
+    private final CountAggregation uncacheable = lookups.getSubCount("uncacheable");
+    private final CountAggregation invalidations = new CountAggregation();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    ConcreteIndicesCache(IndexNameExpressionResolver resolver, int maxEntries, long maxBytes) {
+        this.resolver = resolver;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        this.componentState.addMetrics("lookups", lookups);
+        this.componentState.addMetrics("invalidations", invalidations);
+        this.componentState.addMetrics("hit_ratio_percent", new Count.Live(() -> {
+            long hitCount = this.hitCount.get();
+            long cacheable = hitCount + missCount.get();
+            return cacheable != 0 ? hitCount * 100 / cacheable : 0;
+        }));
+        this.componentState.addMetrics("entries", new Count.Live(() -> {
+            Generation generation = this.generation;
+            return generation != null ? generation.cache.size() : 0;
+        }));
+    }
+
+    /**
+     * Returns the concrete indices for the given expressions. If the result is not cached, it is computed by the given loader, which must use
+     * the given cluster state.
+     */
+    ImmutableSet<String> get(ClusterState state, String[] expressions, IndicesOptions indicesOptions, boolean includeDataStreams,
+            Supplier<ImmutableSet<String>> loader) {
+        lookups.increment();
+
+        if (expressions == null) {
+            // Like an empty array, this stands for all indices
+            expressions = EMPTY;
+        }
+
+        if (maxEntries <= 0 || !isCacheable(expressions)) {
+            uncacheable.increment();
+            return loader.get();
+        }
+
+        SystemIndexAccessLevel systemIndexAccessLevel = resolver.getSystemIndexAccessLevel();
+
+        if (systemIndexAccessLevel == SystemIndexAccessLevel.RESTRICTED) {
+            uncacheable.increment();
+            return loader.get();
+        }
+
+        Cache<Key, ImmutableSet<String>> cache = getCache(state.metadata());
+        Key key = new Key(expressions, indicesOptions, includeDataStreams, systemIndexAccessLevel);
+        ImmutableSet<String> result = cache.getIfPresent(key);
+
+        if (result != null) {
+            hits.increment();
+            hitCount.incrementAndGet();
+            return result;
+        }
+
+        misses.increment();
+        missCount.incrementAndGet();
+        result = loader.get();
+        cache.put(key, result);
+
+        return result;
+    }
+
+    private Cache<Key, ImmutableSet<String>> getCache(Metadata metadata) {
+        Generation generation = this.generation;
+
+        if (generation != null && generation.metadataVersion == metadata.version() && generation.clusterUuid.equals(metadata.clusterUUID())) {
+            return generation.cache;
+        }
+
+        if (generation != null && generation.metadataVersion > metadata.version() && generation.clusterUuid.equals(metadata.clusterUUID())) {
+            // A request still working with an older cluster state; don't disturb the cache for the current state
+            return newCache();
+        }
+
+        if (generation != null) {
+            invalidations.increment();
+        }
+
+        generation = new Generation(metadata.version(), metadata.clusterUUID(), newCache());
+        this.generation = generation;
+        return generation.cache;
+    }
+
+    private Cache<Key, ImmutableSet<String>> newCache() {
+        // Each entry weighs at least maxBytes / maxEntries; thus, the weight limit also limits the number of entries
+        int minWeight = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / maxEntries));
+
+        return CacheBuilder.newBuilder().maximumWeight(maxBytes)
+                .<Key, ImmutableSet<String>>weigher((k, v) -> (int) Math.max(minWeight, Math.min(Integer.MAX_VALUE, k.estimateBytes() + estimateBytes(v))))
+                .build();
+    }
+
+    private static boolean isCacheable(String[] expressions) {
+        for (String expression : expressions) {
+            if (expression.startsWith("<")) {
+                // Date math
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long estimateBytes(ImmutableSet<String> indices) {
+        long result = 64;
+
+        for (String index : indices) {
+            result += 40 + 2 * index.length();
+        }
+
+        return result;
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    private static class Generation {
+        private final long metadataVersion;
+        private final String clusterUuid;
+        private final Cache<Key, ImmutableSet<String>> cache;
+
+        Generation(long metadataVersion, String clusterUuid, Cache<Key, ImmutableSet<String>> cache) {
+            this.metadataVersion = metadataVersion;
+            this.clusterUuid = clusterUuid;
+            this.cache = cache;
+        }
+    }
+
+    private static class Key {
+        private final String[] expressions;
+        private final IndicesOptions indicesOptions;
+        private final boolean includeDataStreams;
+        private final SystemIndexAccessLevel systemIndexAccessLevel;
+        private final int hashCode;
+
+        Key(String[] expressions, IndicesOptions indicesOptions, boolean includeDataStreams, SystemIndexAccessLevel systemIndexAccessLevel) {
+            this.expressions = expressions.clone();
+            this.indicesOptions = indicesOptions;
+            this.includeDataStreams = includeDataStreams;
+            this.systemIndexAccessLevel = systemIndexAccessLevel;
+            this.hashCode = Arrays.hashCode(this.expressions) * 31 * 31 * 31 + indicesOptions.hashCode() * 31 * 31
+                    + (includeDataStreams ? 1231 : 1237) * 31 + (systemIndexAccessLevel != null ? systemIndexAccessLevel.hashCode() : 0);
+        }
+
+        long estimateBytes() {
+            long result = 64;
+
+            for (String expression : expressions) {
+                result += 40 + 2 * expression.length();
+            }
+
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+
+            return hashCode == other.hashCode && includeDataStreams == other.includeDataStreams
+                    && systemIndexAccessLevel == other.systemIndexAccessLevel && indicesOptions.equals(other.indicesOptions)
+                    && Arrays.equals(expressions, other.expressions);
+        }
+    }
+}
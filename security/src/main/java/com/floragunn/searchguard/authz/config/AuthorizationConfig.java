@@ -17,6 +17,8 @@
 
 package com.floragunn.searchguard.authz.config;
 
+import java.time.Duration;
+
 import org.elasticsearch.action.admin.indices.analyze.AnalyzeAction;
 
 import com.floragunn.codova.config.text.Pattern;
@@ -31,6 +33,7 @@ import com.floragunn.codova.validation.ValidationErrors;
 import com.floragunn.codova.validation.ValidationResult;
 import com.floragunn.searchguard.authz.AuthorizationService;
 import com.floragunn.searchguard.configuration.ConfigurationRepository;
+import com.floragunn.searchguard.support.ReverseDnsCache;
 import com.floragunn.searchsupport.StaticSettings;
 import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
 
@@ -49,7 +52,7 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
 
     public static final AuthorizationConfig DEFAULT = new AuthorizationConfig(DocNode.EMPTY, true, DEFAULT_IGNORE_UNAUTHORIZED_INDICES_ACTIONS,
             DEFAULT_IGNORE_UNAUTHORIZED_INDICES_ACTIONS_ALLOWING_EMPTY_RESULT, null, RoleMapping.ResolutionMode.MAPPING_ONLY, false,
-            MetricsLevel.BASIC);
+            MetricsLevel.BASIC, ReverseDnsCache.Config.DEFAULT, 10000, true);
 
     private final DocNode source;
     private final boolean ignoreUnauthorizedIndices;
@@ -60,10 +63,14 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
     private final boolean debugEnabled;
     private final MetricsLevel metricsLevel;
     private final RoleMapping.ResolutionMode roleMappingResolution;
+    private final ReverseDnsCache.Config reverseDnsConfig;
+    private final int roleMappingCacheMaxSize;
+    private final boolean roleMappingCacheOnUser;
 
     AuthorizationConfig(DocNode source, boolean ignoreUnauthorizedIndices, Pattern ignoreUnauthorizedIndicesActions,
             Pattern ignoreUnauthorizedIndicesActionsAllowingEmptyResult, String fieldAnonymizationSalt,
-            RoleMapping.ResolutionMode roleMappingResolution, boolean debugEnabled, MetricsLevel metricsLevel) {
+            RoleMapping.ResolutionMode roleMappingResolution, boolean debugEnabled, MetricsLevel metricsLevel,
+            ReverseDnsCache.Config reverseDnsConfig, int roleMappingCacheMaxSize, boolean roleMappingCacheOnUser) {
         this.source = source;
 
         this.ignoreUnauthorizedIndices = ignoreUnauthorizedIndices;
@@ -73,6 +80,9 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
         this.roleMappingResolution = roleMappingResolution;
         this.debugEnabled = debugEnabled;
         this.metricsLevel = metricsLevel;
+        this.reverseDnsConfig = reverseDnsConfig;
+        this.roleMappingCacheMaxSize = roleMappingCacheMaxSize;
+        this.roleMappingCacheOnUser = roleMappingCacheOnUser;
     }
 
     public static ValidationResult<AuthorizationConfig> parse(DocNode docNode, Parser.Context context) {
@@ -95,10 +105,25 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
         boolean debugEnabled = vNode.get("debug").withDefault(false).asBoolean();
         MetricsLevel metricsLevel = vNode.get("metrics").withDefault(MetricsLevel.BASIC).asEnum(MetricsLevel.class);
 
+        ReverseDnsCache.Config defaultReverseDnsConfig = ReverseDnsCache.Config.DEFAULT;
+        Duration reverseDnsPositiveTtl = vNode.get("role_mapping.reverse_dns.positive_ttl").withDefault(defaultReverseDnsConfig.getPositiveTtl())
+                .asDuration();
+        Duration reverseDnsNegativeTtl = vNode.get("role_mapping.reverse_dns.negative_ttl").withDefault(defaultReverseDnsConfig.getNegativeTtl())
+                .asDuration();
+        int reverseDnsMaxEntries = vNode.get("role_mapping.reverse_dns.max_entries").withDefault(defaultReverseDnsConfig.getMaxEntries()).asInt();
+        Duration reverseDnsLookupTimeout = vNode.get("role_mapping.reverse_dns.lookup_timeout")
+                .withDefault(defaultReverseDnsConfig.getLookupTimeout()).asDuration();
+        int reverseDnsThreads = vNode.get("role_mapping.reverse_dns.threads").withDefault(defaultReverseDnsConfig.getThreads()).asInt();
+        int roleMappingCacheMaxSize = vNode.get("role_mapping.cache.max_size").withDefault(DEFAULT.roleMappingCacheMaxSize).asInt();
+        boolean roleMappingCacheOnUser = vNode.get("role_mapping.cache.store_on_user").withDefault(DEFAULT.roleMappingCacheOnUser).asBoolean();
+
         if (!validationErrors.hasErrors()) {
             return new ValidationResult<AuthorizationConfig>(new AuthorizationConfig(docNode, ignoreUnauthorizedIndices,
                     ignoreUnauthorizedIndicesActions, ignoreUnauthorizedIndicesActionsAllowingEmptyResult, fieldAnonymizationSalt,
-                    roleMappingResolution, debugEnabled, metricsLevel));
+                    roleMappingResolution, debugEnabled, metricsLevel,
+                    new ReverseDnsCache.Config(reverseDnsPositiveTtl, reverseDnsNegativeTtl, Math.max(reverseDnsMaxEntries, 1),
+                            reverseDnsLookupTimeout, Math.max(reverseDnsThreads, 1)),
+                    roleMappingCacheMaxSize, roleMappingCacheOnUser));
         } else {
             return new ValidationResult<AuthorizationConfig>(validationErrors);
         }
@@ -120,7 +145,7 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
 
         return new AuthorizationConfig(docNode, true, DEFAULT_IGNORE_UNAUTHORIZED_INDICES_ACTIONS,
                 DEFAULT_IGNORE_UNAUTHORIZED_INDICES_ACTIONS_ALLOWING_EMPTY_RESULT, fieldAnonymizationSalt, getRolesMappingResolution(settings), false,
-                MetricsLevel.BASIC);
+                MetricsLevel.BASIC, ReverseDnsCache.Config.DEFAULT, DEFAULT.roleMappingCacheMaxSize, DEFAULT.roleMappingCacheOnUser);
     }
 
     public boolean isIgnoreUnauthorizedIndices() {
@@ -176,4 +201,16 @@ public class AuthorizationConfig implements PatchableDocument<AuthorizationConfi
     public RoleMapping.ResolutionMode getRoleMappingResolution() {
         return roleMappingResolution;
     }
+
+    public ReverseDnsCache.Config getReverseDnsConfig() {
+        return reverseDnsConfig;
+    }
+
+    public int getRoleMappingCacheMaxSize() {
+        return roleMappingCacheMaxSize;
+    }
+
+    public boolean isRoleMappingCacheOnUser() {
+        return roleMappingCacheOnUser;
+    }
 }
@@ -17,9 +17,11 @@
 
 package com.floragunn.searchguard.authz.config;
 
-import java.util.Collections;
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -40,14 +42,19 @@ import com.floragunn.searchguard.configuration.ConfigurationRepository;
 import com.floragunn.searchguard.configuration.Hideable;
 import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
 import com.floragunn.searchguard.support.IPAddressCollection;
+import com.floragunn.searchguard.support.IPPrefixTrie;
+import com.floragunn.searchguard.support.ReverseDnsCache;
 import com.floragunn.searchguard.user.User;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
 import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
 import com.floragunn.searchsupport.cstate.metrics.Measurement;
 import com.floragunn.searchsupport.cstate.metrics.Meter;
 import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
 import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 
@@ -171,7 +178,7 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
         private final PatternMap<String> byUsers;
         private final PatternMap<String> byBackendRoles;
         private final PatternMap<String> byHostNames;
-        private final ImmutableMap<IPAddressCollection, ImmutableSet<String>> byIps;
+        private final IPPrefixTrie<String> byIps;
 
         /**
          * @deprecated Undocumented: Backend roles which must existed "and'ed-together"
@@ -181,17 +188,43 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
         private final ComponentState componentState = new ComponentState("role_mapping_index");
         private final MetricsLevel metricsLevel;
         private final Measurement<?> evaluations;
+        private final ReverseDnsCache reverseDnsCache;
+
+        /**
+         * Memoized results of evaluate(). As each config change creates a new InvertedIndex instance, the cache gets implicitly invalidated
+         * by config changes.
+         */
+        private final Cache<MappedRolesKey, ImmutableSet<String>> mappedRolesCache;
+        private final boolean memoizeOnUser;
+        private final int cacheMaxSize;
+        private final CountAggregation userMemoHits = new CountAggregation();
+        private final CountAggregation takenOverCacheEntries = new CountAggregation();
 
         public InvertedIndex(SgDynamicConfiguration<RoleMapping> roleMappings, MetricsLevel metricsLevel) {
+            this(roleMappings, metricsLevel, null, 0, false);
+        }
+
+        /**
+         * @param reverseDnsCache used for resolving the host names of callers; if null, host names are resolved synchronously
+         * @param cacheMaxSize the maximum number of memoized role mapping results; 0 disables memoization
+         * @param memoizeOnUser if true, role mapping results are additionally stored on the User object
+         */
+        public InvertedIndex(SgDynamicConfiguration<RoleMapping> roleMappings, MetricsLevel metricsLevel, ReverseDnsCache reverseDnsCache,
+                int cacheMaxSize, boolean memoizeOnUser) {
+            this(roleMappings.getCEntries(), metricsLevel, reverseDnsCache, cacheMaxSize, memoizeOnUser);
+        }
+
+        private InvertedIndex(Map<String, RoleMapping> roleMappings, MetricsLevel metricsLevel, ReverseDnsCache reverseDnsCache, int cacheMaxSize,
+                boolean memoizeOnUser) {
 
             PatternMap.Builder<String> users = new PatternMap.Builder<>();
             PatternMap.Builder<String> backendRoles = new PatternMap.Builder<>();
             PatternMap.Builder<String> hosts = new PatternMap.Builder<>();
 
-            ListMultimap<String, String> ips = ArrayListMultimap.create();
+            IPPrefixTrie.Builder<String> ips = new IPPrefixTrie.Builder<>();
             ListMultimap<ImmutableSet<Pattern>, String> andBackendRoles = ArrayListMultimap.create();
 
-            for (Entry<String, RoleMapping> entry : roleMappings.getCEntries().entrySet()) {
+            for (Entry<String, RoleMapping> entry : roleMappings.entrySet()) {
                 String role = entry.getKey();
                 RoleMapping mapping = entry.getValue();
 
@@ -201,7 +234,12 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
 
                 if (mapping.getIps() != null && !mapping.getIps().getSource().isEmpty()) {
                     for (String ip : mapping.getIps().getSource()) {
-                        ips.put(ip, role);
+                        try {
+                            ips.add(ip, role);
+                        } catch (Exception e) {
+                            // This should not happen, as the addresses have been validated before
+                            log.error("Error while compiling IP address " + ip, e);
+                        }
                     }
                 }
 
@@ -213,9 +251,23 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
             this.byUsers = users.build();
             this.byBackendRoles = backendRoles.build();
             this.byHostNames = hosts.build();
-            this.byIps = ImmutableMap.map(ips.asMap(), (k) -> ip(k), (v) -> ImmutableSet.of(v));
+            this.byIps = ips.build();
             this.byBackendRolesAnded = ImmutableMap.map(andBackendRoles.asMap(), (k) -> k, (v) -> ImmutableSet.of(v));
             this.metricsLevel = metricsLevel;
+            this.reverseDnsCache = reverseDnsCache;
+            this.cacheMaxSize = cacheMaxSize;
+
+            // Host name based mappings depend on the state of the reverse DNS cache; thus, we cannot memoize the results then
+            if (cacheMaxSize > 0 && this.byHostNames.isEmpty()) {
+                this.mappedRolesCache = CacheBuilder.newBuilder().maximumSize(cacheMaxSize).recordStats().build();
+                this.memoizeOnUser = memoizeOnUser;
+                componentState.addMetrics("cache", CacheStats.from(mappedRolesCache));
+                componentState.addMetrics("user_memo_hits", userMemoHits);
+                componentState.addMetrics("taken_over_cache_entries", takenOverCacheEntries);
+            } else {
+                this.mappedRolesCache = null;
+                this.memoizeOnUser = false;
+            }
 
             if (metricsLevel == MetricsLevel.DETAILED) {
                 evaluations = new TimeAggregation.Milliseconds();
@@ -227,12 +279,92 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
             componentState.initialized();
         }
 
+        /**
+         * Creates a new index for the given role mappings, which must differ from the role mappings of this index only by the roles listed in
+         * changedRoles. The memoized results of this index which cannot be affected by the changed role mappings are taken over by the new
+         * index. Thus, changing a single role mapping does not require evaluating the role mappings for all users again.
+         * 
+         * @param changedRoles the names of the roles whose mappings were added, changed or removed
+         */
+        public InvertedIndex withChangedRoleMappings(SgDynamicConfiguration<RoleMapping> roleMappings, ImmutableSet<String> changedRoles) {
+            InvertedIndex result = new InvertedIndex(roleMappings.getCEntries(), metricsLevel, reverseDnsCache, cacheMaxSize, memoizeOnUser);
+
+            if (this.mappedRolesCache == null || result.mappedRolesCache == null || this.byIps.isEmpty() != result.byIps.isEmpty()) {
+                // The cache keys of the indices are not compatible
+                return result;
+            }
+
+            Map<String, RoleMapping> changedRoleMappings = new LinkedHashMap<>(changedRoles.size());
+
+            for (String role : changedRoles) {
+                RoleMapping roleMapping = roleMappings.getCEntry(role);
+
+                if (roleMapping != null) {
+                    changedRoleMappings.put(role, roleMapping);
+                }
+            }
+
+            // Only maps to changed roles
+            InvertedIndex changedIndex = new InvertedIndex(changedRoleMappings, MetricsLevel.NONE, reverseDnsCache, 0, false);
+
+            for (Map.Entry<MappedRolesKey, ImmutableSet<String>> entry : this.mappedRolesCache.asMap().entrySet()) {
+                MappedRolesKey key = entry.getKey();
+
+                if (entry.getValue().containsAny(changedRoles)) {
+                    continue;
+                }
+
+                if (changedIndex.evaluateUncached(key.toUser(), key.toTransportAddress(), key.resolutionMode).containsAny(changedRoles)) {
+                    continue;
+                }
+
+                result.mappedRolesCache.put(key, entry.getValue());
+                result.takenOverCacheEntries.increment();
+            }
+
+            return result;
+        }
+
         public ImmutableSet<String> evaluate(User user, TransportAddress transportAddress, ResolutionMode rolesMappingResolution) {
-            try (Meter meter = Meter.detail(metricsLevel, evaluations)) {
-                if (user == null) {
-                    return ImmutableSet.empty();
+            if (user == null) {
+                return ImmutableSet.empty();
+            }
+
+            if (mappedRolesCache == null) {
+                return evaluateUncached(user, transportAddress, rolesMappingResolution);
+            }
+
+            // The address only needs to be part of the key if there are mappings by IP
+            InetAddress address = transportAddress != null && !byIps.isEmpty() ? transportAddress.address().getAddress() : null;
+
+            if (memoizeOnUser) {
+                Object memo = user.getMappedRolesMemo();
+
+                if (memo instanceof MappedRolesMemo && ((MappedRolesMemo) memo).matches(this, address, rolesMappingResolution)) {
+                    userMemoHits.increment();
+                    return ((MappedRolesMemo) memo).mappedRoles;
                 }
+            }
+
+            MappedRolesKey key = new MappedRolesKey(user.getName(), ImmutableSet.of(user.getRoles()), ImmutableSet.of(user.getSearchGuardRoles()),
+                    address, rolesMappingResolution);
+
+            ImmutableSet<String> result = mappedRolesCache.getIfPresent(key);
+
+            if (result == null) {
+                result = evaluateUncached(user, transportAddress, rolesMappingResolution);
+                mappedRolesCache.put(key, result);
+            }
+
+            if (memoizeOnUser) {
+                user.setMappedRolesMemo(new MappedRolesMemo(this, address, rolesMappingResolution, result));
+            }
 
+            return result;
+        }
+
+        private ImmutableSet<String> evaluateUncached(User user, TransportAddress transportAddress, ResolutionMode rolesMappingResolution) {
+            try (Meter meter = Meter.detail(metricsLevel, evaluations)) {
                 ImmutableSet.Builder<String> result = new ImmutableSet.Builder<String>(user.getSearchGuardRoles());
 
                 if (rolesMappingResolution == ResolutionMode.BOTH || rolesMappingResolution == ResolutionMode.BACKENDROLES_ONLY) {
@@ -246,8 +378,12 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
                     if (transportAddress != null) {
                         if (!byHostNames.isEmpty()) {
                             try (Meter subMeter = meter.detail("by_host_name")) {
-                                // The following may trigger a reverse DNS lookup
-                                result.addAll(byHostNames.get(transportAddress.address().getHostName()));
+                                String hostName = getHostName(transportAddress);
+
+                                if (hostName != null) {
+                                    result.addAll(byHostNames.get(hostName));
+                                }
+
                                 // Backwards compatibility:
                                 result.addAll(byHostNames.get(transportAddress.getAddress()));
                             }
@@ -256,12 +392,7 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
                         if (!byIps.isEmpty()) {
                             try (Meter subMeter = meter.detail("by_ip")) {
                                 IPAddress ipAddress = ipAddressGenerator.from(transportAddress.address().getAddress());
-
-                                for (Map.Entry<IPAddressCollection, ImmutableSet<String>> entry : byIps.entrySet()) {
-                                    if (entry.getKey().contains(ipAddress)) {
-                                        result.addAll(entry.getValue());
-                                    }
-                                }
+                                byIps.forEachMatch(ipAddress, result::add);
                             }
                         }
                     }
@@ -279,13 +410,12 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
             }
         }
 
-        private static IPAddressCollection ip(String source) {
-            try {
-                return IPAddressCollection.parse(Collections.singletonList(source));
-            } catch (Exception e) {
-                // This should not happen, as the pattern has been complied before 
-                log.error("Error while compiling IP address " + source, e);
-                return null;
+        private String getHostName(TransportAddress transportAddress) {
+            if (reverseDnsCache != null) {
+                return reverseDnsCache.getHostName(transportAddress.address().getAddress());
+            } else {
+                // The following may trigger a reverse DNS lookup
+                return transportAddress.address().getHostName();
             }
         }
 
@@ -293,6 +423,70 @@ public class RoleMapping implements Document<RoleMapping>, Hideable {
         public ComponentState getComponentState() {
             return componentState;
         }
+
+        private static class MappedRolesKey {
+            private final String userName;
+            private final ImmutableSet<String> backendRoles;
+            private final ImmutableSet<String> searchGuardRoles;
+            private final InetAddress address;
+            private final ResolutionMode resolutionMode;
+            private final int hashCode;
+
+            MappedRolesKey(String userName, ImmutableSet<String> backendRoles, ImmutableSet<String> searchGuardRoles, InetAddress address,
+                    ResolutionMode resolutionMode) {
+                this.userName = userName;
+                this.backendRoles = backendRoles;
+                this.searchGuardRoles = searchGuardRoles;
+                this.address = address;
+                this.resolutionMode = resolutionMode;
+                this.hashCode = Objects.hash(userName, backendRoles, searchGuardRoles, address, resolutionMode);
+            }
+
+            User toUser() {
+                return User.forUser(userName).backendRoles(backendRoles).searchGuardRoles(searchGuardRoles).build();
+            }
+
+            TransportAddress toTransportAddress() {
+                return address != null ? new TransportAddress(address, 0) : null;
+            }
+
+            @Override
+            public int hashCode() {
+                return hashCode;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (this == obj) {
+                    return true;
+                }
+                if (!(obj instanceof MappedRolesKey)) {
+                    return false;
+                }
+                MappedRolesKey other = (MappedRolesKey) obj;
+                return hashCode == other.hashCode && Objects.equals(userName, other.userName) && backendRoles.equals(other.backendRoles)
+                        && searchGuardRoles.equals(other.searchGuardRoles) && Objects.equals(address, other.address)
+                        && resolutionMode == other.resolutionMode;
+            }
+        }
+
+        private static class MappedRolesMemo {
+            private final InvertedIndex index;
+            private final InetAddress address;
+            private final ResolutionMode resolutionMode;
+            private final ImmutableSet<String> mappedRoles;
+
+            MappedRolesMemo(InvertedIndex index, InetAddress address, ResolutionMode resolutionMode, ImmutableSet<String> mappedRoles) {
+                this.index = index;
+                this.address = address;
+                this.resolutionMode = resolutionMode;
+                this.mappedRoles = mappedRoles;
+            }
+
+            boolean matches(InvertedIndex index, InetAddress address, ResolutionMode resolutionMode) {
+                return this.index == index && Objects.equals(this.address, address) && this.resolutionMode == resolutionMode;
+            }
+        }
     }
 
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.configuration;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.floragunn.fluent.collections.ImmutableMap;
+import com.floragunn.fluent.collections.ImmutableSet;
+import com.google.common.hash.HashCode;
+
+/**
+ * Describes the entries which were added, changed or removed by a configuration reload. Entries are compared by hashes of their content; see
+ * SgDynamicConfiguration.getEntryHashes().
+ */
+public class ConfigChange {
+
+    /**
+     * Compares the given types of the two configurations.
+     */
+    public static ConfigChange between(ConfigMap oldConfig, ConfigMap newConfig, Set<CType<?>> types) {
+        ImmutableMap.Builder<CType<?>, TypeChange> changes = new ImmutableMap.Builder<>(types.size());
+
+        for (CType<?> type : types) {
+            SgDynamicConfiguration<?> oldTypeConfig = oldConfig.get(type);
+            SgDynamicConfiguration<?> newTypeConfig = newConfig.get(type);
+
+            if (newTypeConfig == null) {
+                continue;
+            }
+
+            changes.put(type, TypeChange.between(oldTypeConfig, newTypeConfig));
+        }
+
+        return new ConfigChange(changes.build(), false);
+    }
+
+    /**
+     * Describes the initial load of the given configuration. All entries are reported as added.
+     */
+    public static ConfigChange initial(ConfigMap config) {
+        ImmutableMap.Builder<CType<?>, TypeChange> changes = new ImmutableMap.Builder<>(config.getTypes().size());
+
+        for (CType<?> type : config.getTypes()) {
+            changes.put(type, TypeChange.between(null, config.get(type)));
+        }
+
+        return new ConfigChange(changes.build(), true);
+    }
+
+    private final ImmutableMap<CType<?>, TypeChange> changes;
+    private final boolean initial;
+
+    private ConfigChange(ImmutableMap<CType<?>, TypeChange> changes, boolean initial) {
+        this.changes = changes;
+        this.initial = initial;
+    }
+
+    public boolean isInitial() {
+        return initial;
+    }
+
+    /**
+     * Returns true if an entry of at least one of the given types was added, changed or removed. Always returns true for the initial load.
+     */
+    public boolean isChanged(CType<?>... types) {
+        if (initial) {
+            return true;
+        }
+
+        for (CType<?> type : types) {
+            TypeChange typeChange = changes.get(type);
+
+            if (typeChange != null && !typeChange.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public ImmutableSet<String> getAdded(CType<?> type) {
+        TypeChange typeChange = changes.get(type);
+        return typeChange != null ? typeChange.added : ImmutableSet.empty();
+    }
+
+    public ImmutableSet<String> getChanged(CType<?> type) {
+        TypeChange typeChange = changes.get(type);
+        return typeChange != null ? typeChange.changed : ImmutableSet.empty();
+    }
+
+    public ImmutableSet<String> getRemoved(CType<?> type) {
+        TypeChange typeChange = changes.get(type);
+        return typeChange != null ? typeChange.removed : ImmutableSet.empty();
+    }
+
+    /**
+     * Returns the total number of added, changed and removed entries.
+     */
+    public int size() {
+        int result = 0;
+
+        for (TypeChange typeChange : changes.values()) {
+            result += typeChange.size();
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return changes.toString();
+    }
+
+    private static class TypeChange {
+        private final ImmutableSet<String> added;
+        private final ImmutableSet<String> changed;
+        private final ImmutableSet<String> removed;
+
+        TypeChange(ImmutableSet<String> added, ImmutableSet<String> changed, ImmutableSet<String> removed) {
+            this.added = added;
+            this.changed = changed;
+            this.removed = removed;
+        }
+
+        static TypeChange between(SgDynamicConfiguration<?> oldConfig, SgDynamicConfiguration<?> newConfig) {
+            Map<String, HashCode> newHashes = newConfig.getEntryHashes();
+
+            if (oldConfig == null) {
+                return new TypeChange(ImmutableSet.of(newHashes.keySet()), ImmutableSet.empty(), ImmutableSet.empty());
+            }
+
+            Map<String, HashCode> oldHashes = oldConfig.getEntryHashes();
+            ImmutableSet.Builder<String> added = new ImmutableSet.Builder<>();
+            ImmutableSet.Builder<String> changed = new ImmutableSet.Builder<>();
+            ImmutableSet.Builder<String> removed = new ImmutableSet.Builder<>();
+
+            for (Map.Entry<String, HashCode> entry : newHashes.entrySet()) {
+                if (!oldHashes.containsKey(entry.getKey())) {
+                    added.add(entry.getKey());
+                } else {
+                    HashCode oldHash = oldHashes.get(entry.getKey());
+
+                    // Null hashes denote entries which cannot be compared; these are always regarded as changed
+                    if (oldHash == null || entry.getValue() == null || !Objects.equals(oldHash, entry.getValue())) {
+                        changed.add(entry.getKey());
+                    }
+                }
+            }
+
+            for (String key : oldHashes.keySet()) {
+                if (!newHashes.containsKey(key)) {
+                    removed.add(key);
+                }
+            }
+
+            return new TypeChange(added.build(), changed.build(), removed.build());
+        }
+
+        boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        int size() {
+            return added.size() + changed.size() + removed.size();
+        }
+
+        @Override
+        public String toString() {
+            return "added: " + added + "; changed: " + changed + "; removed: " + removed;
+        }
+    }
+}
@@ -32,4 +32,17 @@ public interface ConfigurationChangeListener {
      * @param configMap The updated configuration. Note: The map will only contain the config types that were changed. Unchanged types are not present here.
      */
     void onChange(ConfigMap configMap);
+
+    /**
+     * This method is called whenever the configuration changes. In addition to the updated configuration, it receives the entries which were actually
+     * added, changed or removed. Listeners can override this method in order to skip expensive rebuilds if the relevant entries did not change.
+     * 
+     * The default implementation delegates to onChange(ConfigMap).
+     * 
+     * @param configMap The updated configuration. Note: The map will only contain the config types that were changed. Unchanged types are not present here.
+     * @param change The entries which were added, changed or removed by the reload.
+     */
+    default void onChange(ConfigMap configMap, ConfigChange change) {
+        onChange(configMap);
+    }
 }
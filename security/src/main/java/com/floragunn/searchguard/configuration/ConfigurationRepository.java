@@ -110,6 +110,8 @@ import com.floragunn.searchsupport.action.StandardResponse;
 import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentState.State;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
 import com.floragunn.searchsupport.xcontent.XContentParserContext;
 
 public class ConfigurationRepository implements ComponentStateProvider {
@@ -160,6 +162,8 @@ public class ConfigurationRepository implements ComponentStateProvider {
     private final StaticSettings settings;
     private final ClusterService clusterService;
     private final ComponentState componentState = new ComponentState(-1000, null, "config_repository", ConfigurationRepository.class);
+    private final TimeAggregation changeNotifications = new TimeAggregation.Milliseconds();
+    private final CountAggregation changedEntries = new CountAggregation();
     private final PrivilegedConfigClient privilegedConfigClient;
     private final ThreadPool threadPool;
 
@@ -187,6 +191,7 @@ public class ConfigurationRepository implements ComponentStateProvider {
         this.configurationChangedListener = new ArrayList<>();
         this.privilegedConfigClient = PrivilegedConfigClient.adapt(client);
         this.componentState.setMandatory(true);
+        this.componentState.addMetrics("change_notifications", changeNotifications, "changed_entries", changedEntries);
         this.mainConfigLoader = new ConfigurationLoader(client, componentState, this, staticSgConfig);
         this.externalUseConfigLoader = new ConfigurationLoader(client, null, this, null);
         this.variableResolvers = new VariableResolvers()
@@ -638,6 +643,7 @@ public class ConfigurationRepository implements ComponentStateProvider {
         try {
             ConfigMap loadedConfig = mainConfigLoader.load(configTypes, reason, parserContext.withExternalResources()).get();
             ConfigMap discardedConfig;
+            ConfigChange change;
             boolean initialLoad = false;
 
             componentState.setConfigProperty("effective_main_config_index", loadedConfig.getSourceIndex());
@@ -646,15 +652,23 @@ public class ConfigurationRepository implements ComponentStateProvider {
                 this.currentConfig = loadedConfig;
                 initialLoad = true;
                 discardedConfig = null;
+                change = ConfigChange.initial(loadedConfig);
             } else {
                 ConfigMap oldConfig = this.currentConfig;
                 ConfigMap mergedConfig = oldConfig.with(loadedConfig);
                 discardedConfig = oldConfig.only(loadedConfig.getTypes());
+                change = ConfigChange.between(oldConfig, mergedConfig, loadedConfig.getTypes());
 
                 this.currentConfig = mergedConfig;
             }
 
-            notifyAboutChanges(this.currentConfig);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Reloaded configuration {} ({}); changes: {}", configTypes, reason, change);
+            }
+
+            changedEntries.add(change.size());
+
+            notifyAboutChanges(this.currentConfig, change);
 
             if (initialLoad) {
                 LOGGER.info("Search Guard configuration has been successfully initialized");
@@ -684,16 +698,20 @@ public class ConfigurationRepository implements ComponentStateProvider {
         configurationChangedListener.add(listener);
     }
 
-    private synchronized void notifyAboutChanges(ConfigMap configMap) {
+    private synchronized void notifyAboutChanges(ConfigMap configMap, ConfigChange change) {
+        long start = System.nanoTime();
+
         for (ConfigurationChangeListener listener : configurationChangedListener) {
             try {
                 LOGGER.debug("Notify {} listener about change configuration with type {}", listener);
-                listener.onChange(configMap);
+                listener.onChange(configMap, change);
             } catch (Exception e) {
                 LOGGER.error("{} listener errored: " + e, listener, e);
                 throw ExceptionsHelper.convertToElastic(e);
             }
         }
+
+        changeNotifications.recordNs(System.nanoTime() - start);
     }
 
     /**
@@ -24,6 +24,7 @@ import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -55,6 +56,8 @@ import com.floragunn.searchsupport.cstate.ComponentState;
 import com.floragunn.searchsupport.cstate.ComponentState.State;
 import com.floragunn.searchsupport.cstate.ComponentStateProvider;
 import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 
 public class SgDynamicConfiguration<T> implements ToXContent, Document<Object>, RedactableDocument, ComponentStateProvider, AutoCloseable {
 
@@ -71,6 +74,7 @@ public class SgDynamicConfiguration<T> implements ToXContent, Document<Object>,
     private String uninterpolatedJson;
     private long docVersion = -1;
     private final ValidationErrors validationErrors;
+    private volatile Map<String, HashCode> entryHashes;
 
     public static <T> SgDynamicConfiguration<T> empty(CType<T> type) {
         return new SgDynamicConfiguration<T>(type, OrderedImmutableMap.empty());
@@ -374,6 +378,45 @@ public class SgDynamicConfiguration<T> implements ToXContent, Document<Object>,
         return componentState;
     }
 
+    /**
+     * Returns hashes of the entries of this configuration. Entries which cannot be reliably compared by their content are mapped to null;
+     * these are entries which are not documents and entries which use variables, as variables may change independently of the entry.
+     */
+    Map<String, HashCode> getEntryHashes() {
+        Map<String, HashCode> result = this.entryHashes;
+
+        if (result == null) {
+            Map<String, HashCode> map = new HashMap<>(centries.size());
+
+            for (Map.Entry<String, T> entry : centries.entrySet()) {
+                map.put(entry.getKey(), hashEntry(entry.getValue()));
+            }
+
+            this.entryHashes = result = Collections.unmodifiableMap(map);
+        }
+
+        return result;
+    }
+
+    private static HashCode hashEntry(Object entry) {
+        if (!(entry instanceof Document)) {
+            return null;
+        }
+
+        try {
+            String json = ((Document<?>) entry).toJsonString();
+
+            if (json.contains("#{")) {
+                return null;
+            }
+
+            return Hashing.murmur3_128().hashString(json, StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.debug("Cannot hash config entry {}", entry, e);
+            return null;
+        }
+    }
+
     @Override
     public void close() {
         for (T entry : this.centries.values()) {
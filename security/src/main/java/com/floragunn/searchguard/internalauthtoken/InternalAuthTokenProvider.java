@@ -155,6 +155,30 @@ public class InternalAuthTokenProvider {
         }
     }
 
+    /**
+     * Verifies the given token and returns the claims which determine the privileges granted by it: the subject and the roles. Tokens with equal
+     * privilege claims grant equal privileges, regardless of their audience.
+     *
+     * @return the privilege claims; null if the token is not valid
+     */
+    public ImmutableMap<String, Object> getPrivilegeClaims(String authToken, String authTokenAudience) {
+        try {
+            JwtToken verifiedToken = getVerifiedJwtToken(authToken, authTokenAudience);
+
+            Map<String, Object> rolesMap = verifiedToken.getClaims().getMapProperty("sg_roles");
+
+            if (rolesMap == null) {
+                throw new JwtException("JWT does not contain claim sg_roles");
+            }
+
+            return ImmutableMap.of("sub", String.valueOf(verifiedToken.getClaims().getSubject()), "sg_roles", rolesMap);
+        } catch (Exception e) {
+            log.warn("Error while verifying internal auth token: " + authToken + "\n" + authTokenAudience, e);
+
+            return null;
+        }
+    }
+
     void initJwtProducer() {
         try {
             this.jwtProducer = new JoseJwtProducer();
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A pattern in the syntax of WildcardMatcher which has been parsed once into a specialized matcher. Patterns enclosed in slashes are
+ * regular expressions; other patterns may use the wildcards * and ?.
+ *
+ * Use get() to obtain interned instances for frequently used patterns.
+ */
+public abstract class CompiledWildcard implements Predicate<String> {
+
+    private static final int INTERN_CACHE_MAX_SIZE = 10000;
+
+    private static final Cache<String, CompiledWildcard> caseSensitiveCache = CacheBuilder.newBuilder().maximumSize(INTERN_CACHE_MAX_SIZE).build();
+    private static final Cache<String, CompiledWildcard> ignoreCaseCache = CacheBuilder.newBuilder().maximumSize(INTERN_CACHE_MAX_SIZE).build();
+
+    static final CompiledWildcard NONE = new None();
+
+    /**
+     * Returns an interned compiled instance of the given pattern. Returns a matcher which never matches if the pattern is null.
+     *
+     * @throws PatternSyntaxException if the pattern is an invalid regular expression
+     */
+    public static CompiledWildcard get(String pattern, boolean ignoreCase) {
+        if (pattern == null) {
+            return NONE;
+        }
+
+        Cache<String, CompiledWildcard> cache = ignoreCase ? ignoreCaseCache : caseSensitiveCache;
+        CompiledWildcard result = cache.getIfPresent(pattern);
+
+        if (result == null) {
+            result = compile(pattern, ignoreCase);
+            cache.put(pattern, result);
+        }
+
+        return result;
+    }
+
+    public static CompiledWildcard get(String pattern) {
+        return get(pattern, false);
+    }
+
+    /**
+     * Compiles the given pattern without using the intern cache.
+     *
+     * @throws PatternSyntaxException if the pattern is an invalid regular expression
+     */
+    public static CompiledWildcard compile(String pattern, boolean ignoreCase) {
+        if (pattern == null) {
+            return NONE;
+        }
+
+        String normalized = ignoreCase ? pattern.toLowerCase() : pattern;
+
+        if (isRegex(normalized)) {
+            return new Regex(pattern, ignoreCase, Pattern.compile(toRegex(normalized)));
+        }
+
+        int firstStar = normalized.indexOf('*');
+
+        if (firstStar == -1 && normalized.indexOf('?') == -1) {
+            return new Constant(pattern, ignoreCase, normalized);
+        }
+
+        if (normalized.length() == 1) {
+            return normalized.equals("*") ? new All(pattern, ignoreCase) : new SimpleGlob(pattern, ignoreCase, normalized);
+        }
+
+        int lastStar = normalized.lastIndexOf('*');
+
+        if (firstStar == lastStar && normalized.indexOf('?') == -1) {
+            if (firstStar == normalized.length() - 1) {
+                return new Prefix(pattern, ignoreCase, normalized.substring(0, firstStar));
+            } else if (firstStar == 0) {
+                return new Suffix(pattern, ignoreCase, normalized.substring(1));
+            }
+        }
+
+        return new SimpleGlob(pattern, ignoreCase, normalized);
+    }
+
+    static boolean isRegex(String pattern) {
+        return pattern.length() > 1 && pattern.startsWith("/") && pattern.endsWith("/");
+    }
+
+    static String toRegex(String pattern) {
+        return "^" + pattern.substring(1, pattern.length() - 1) + "$";
+    }
+
+    private final String pattern;
+    private final boolean ignoreCase;
+
+    CompiledWildcard(String pattern, boolean ignoreCase) {
+        this.pattern = pattern;
+        this.ignoreCase = ignoreCase;
+    }
+
+    @Override
+    public boolean test(String candidate) {
+        if (candidate == null) {
+            return false;
+        }
+
+        return matchesNormalized(ignoreCase ? candidate.toLowerCase() : candidate);
+    }
+
+    /**
+     * Tests a candidate which has already been lower cased if this pattern ignores case.
+     */
+    abstract boolean matchesNormalized(String candidate);
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    static class Constant extends CompiledWildcard {
+        final String value;
+
+        Constant(String pattern, boolean ignoreCase, String value) {
+            super(pattern, ignoreCase);
+            this.value = value;
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return value.equals(candidate);
+        }
+    }
+
+    static class Prefix extends CompiledWildcard {
+        final String prefix;
+
+        Prefix(String pattern, boolean ignoreCase, String prefix) {
+            super(pattern, ignoreCase);
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return candidate.startsWith(prefix);
+        }
+    }
+
+    static class Suffix extends CompiledWildcard {
+        final String suffix;
+
+        Suffix(String pattern, boolean ignoreCase, String suffix) {
+            super(pattern, ignoreCase);
+            this.suffix = suffix;
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return candidate.endsWith(suffix);
+        }
+    }
+
+    static class SimpleGlob extends CompiledWildcard {
+        private final String[] tokens;
+
+        SimpleGlob(String pattern, boolean ignoreCase, String normalized) {
+            super(pattern, ignoreCase);
+            this.tokens = WildcardMatcher.splitOnTokens(normalized);
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return WildcardMatcher.simpleWildcardMatch(tokens, candidate);
+        }
+    }
+
+    static class Regex extends CompiledWildcard {
+        final Pattern regex;
+
+        Regex(String pattern, boolean ignoreCase, Pattern regex) {
+            super(pattern, ignoreCase);
+            this.regex = regex;
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return regex.matcher(candidate).matches();
+        }
+    }
+
+    static class All extends CompiledWildcard {
+        All(String pattern, boolean ignoreCase) {
+            super(pattern, ignoreCase);
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return true;
+        }
+    }
+
+    /**
+     * Stands for an invalid regular expression in a CompiledWildcardSet; the error is only raised when the pattern is actually evaluated.
+     */
+    static class Invalid extends CompiledWildcard {
+        private final PatternSyntaxException exception;
+
+        Invalid(String pattern, boolean ignoreCase, PatternSyntaxException exception) {
+            super(pattern, ignoreCase);
+            this.exception = exception;
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            throw new PatternSyntaxException(exception.getDescription(), exception.getPattern(), exception.getIndex());
+        }
+    }
+
+    private static class None extends CompiledWildcard {
+        None() {
+            super(null, false);
+        }
+
+        @Override
+        boolean matchesNormalized(String candidate) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A set of patterns in the syntax of WildcardMatcher which is merged into a single matcher: Constant patterns are looked up in a hash set,
+ * regular expressions are combined into one alternation. A candidate matches the set if it matches at least one of the patterns.
+ *
+ * For case insensitive sets, each candidate is lower cased only once, regardless of the number of patterns.
+ *
+ * Use get() to obtain interned instances of pattern sets which are derived from the configuration and thus recur; get() copies and hashes
+ * the patterns on each call. Ad-hoc pattern lists should be compiled with compile() or matched pattern by pattern with WildcardMatcher.
+ * Invalid regular expressions only cause an exception if no valid pattern matches a candidate.
+ */
+public class CompiledWildcardSet implements Predicate<String> {
+
+    private static final int INTERN_CACHE_MAX_SIZE = 1000;
+
+    private static final Cache<List<String>, CompiledWildcardSet> caseSensitiveCache = CacheBuilder.newBuilder().maximumSize(INTERN_CACHE_MAX_SIZE)
+            .build();
+    private static final Cache<List<String>, CompiledWildcardSet> ignoreCaseCache = CacheBuilder.newBuilder().maximumSize(INTERN_CACHE_MAX_SIZE)
+            .build();
+
+    private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+
+    /**
+     * Returns an interned compiled instance of the given patterns.
+     */
+    public static CompiledWildcardSet get(Collection<String> patterns, boolean ignoreCase) {
+        return get(new ArrayList<>(patterns), ignoreCase);
+    }
+
+    /**
+     * Returns an interned compiled instance of the given patterns.
+     */
+    public static CompiledWildcardSet get(String[] patterns, boolean ignoreCase) {
+        return get(Arrays.asList(patterns.clone()), ignoreCase);
+    }
+
+    private static CompiledWildcardSet get(List<String> key, boolean ignoreCase) {
+        Cache<List<String>, CompiledWildcardSet> cache = ignoreCase ? ignoreCaseCache : caseSensitiveCache;
+        CompiledWildcardSet result = cache.getIfPresent(key);
+
+        if (result == null) {
+            result = compile(key, ignoreCase);
+            cache.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Compiles the given patterns without using the intern cache.
+     */
+    public static CompiledWildcardSet compile(Collection<String> patterns, boolean ignoreCase) {
+        boolean all = false;
+        Set<String> constants = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        List<String> suffixes = new ArrayList<>();
+        List<CompiledWildcard> others = new ArrayList<>();
+        List<CompiledWildcard.Regex> regexes = new ArrayList<>();
+        List<CompiledWildcard> invalid = new ArrayList<>();
+
+        for (String pattern : patterns) {
+            CompiledWildcard compiled;
+
+            try {
+                compiled = CompiledWildcard.compile(pattern, ignoreCase);
+            } catch (PatternSyntaxException e) {
+                // Like the uncompiled matching, only fail if no valid pattern matches
+                invalid.add(new CompiledWildcard.Invalid(pattern, ignoreCase, e));
+                continue;
+            }
+
+            if (compiled instanceof CompiledWildcard.All) {
+                all = true;
+            } else if (compiled instanceof CompiledWildcard.Constant) {
+                constants.add(((CompiledWildcard.Constant) compiled).value);
+            } else if (compiled instanceof CompiledWildcard.Prefix) {
+                prefixes.add(((CompiledWildcard.Prefix) compiled).prefix);
+            } else if (compiled instanceof CompiledWildcard.Suffix) {
+                suffixes.add(((CompiledWildcard.Suffix) compiled).suffix);
+            } else if (compiled instanceof CompiledWildcard.Regex) {
+                regexes.add((CompiledWildcard.Regex) compiled);
+            } else if (compiled != CompiledWildcard.NONE) {
+                others.add(compiled);
+            }
+        }
+
+        Pattern combinedRegex = null;
+
+        if (regexes.size() == 1) {
+            combinedRegex = regexes.get(0).regex;
+        } else if (regexes.size() > 1) {
+            combinedRegex = combine(regexes);
+
+            if (combinedRegex == null) {
+                others.addAll(regexes);
+            }
+        }
+
+        others.addAll(invalid);
+
+        return new CompiledWildcardSet(ignoreCase, all, constants, prefixes.toArray(new String[prefixes.size()]),
+                suffixes.toArray(new String[suffixes.size()]), others.toArray(new CompiledWildcard[others.size()]), combinedRegex);
+    }
+
+    /**
+     * Combines the regexes into one alternation. Returns null if the regexes cannot be combined without changing their semantics.
+     */
+    private static Pattern combine(List<CompiledWildcard.Regex> regexes) {
+        StringBuilder result = new StringBuilder();
+
+        for (CompiledWildcard.Regex regex : regexes) {
+            String source = regex.regex.pattern();
+
+            if (BACK_REFERENCE.matcher(source).find()) {
+                // Group numbers would refer to other groups in the combined regex
+                return null;
+            }
+
+            if (result.length() != 0) {
+                result.append('|');
+            }
+
+            result.append("(?:").append(source).append(')');
+        }
+
+        try {
+            return Pattern.compile(result.toString());
+        } catch (PatternSyntaxException e) {
+            // For example duplicate named groups
+            return null;
+        }
+    }
+
+    private final boolean ignoreCase;
+    private final boolean all;
+    private final Set<String> constants;
+    private final String[] prefixes;
+    private final String[] suffixes;
+    private final CompiledWildcard[] others;
+    private final Pattern combinedRegex;
+
+    private CompiledWildcardSet(boolean ignoreCase, boolean all, Set<String> constants, String[] prefixes, String[] suffixes,
+            CompiledWildcard[] others, Pattern combinedRegex) {
+        this.ignoreCase = ignoreCase;
+        this.all = all;
+        this.constants = constants;
+        this.prefixes = prefixes;
+        this.suffixes = suffixes;
+        this.others = others;
+        this.combinedRegex = combinedRegex;
+    }
+
+    /**
+     * Returns true if the candidate matches at least one pattern
+     */
+    @Override
+    public boolean test(String candidate) {
+        if (candidate == null) {
+            return false;
+        }
+
+        if (all) {
+            return true;
+        }
+
+        if (ignoreCase) {
+            candidate = candidate.toLowerCase();
+        }
+
+        if (constants.contains(candidate)) {
+            return true;
+        }
+
+        for (int i = 0; i < prefixes.length; i++) {
+            if (candidate.startsWith(prefixes[i])) {
+                return true;
+            }
+        }
+
+        for (int i = 0; i < suffixes.length; i++) {
+            if (candidate.endsWith(suffixes[i])) {
+                return true;
+            }
+        }
+
+        if (combinedRegex != null && combinedRegex.matcher(candidate).matches()) {
+            return true;
+        }
+
+        for (int i = 0; i < others.length; i++) {
+            if (others[i].matchesNormalized(candidate)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns true if at least one candidate matches at least one pattern
+     */
+    public boolean matchesAny(String[] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (test(candidates[i])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns true if at least one candidate matches at least one pattern
+     */
+    public boolean matchesAny(Collection<String> candidates) {
+        for (String candidate : candidates) {
+            if (test(candidate)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the candidates which match at least one pattern
+     */
+    public List<String> getMatching(String[] candidates) {
+        List<String> result = new ArrayList<>(candidates.length);
+
+        for (int i = 0; i < candidates.length; i++) {
+            if (test(candidates[i])) {
+                result.add(candidates[i]);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the candidates which match at least one pattern
+     */
+    public List<String> getMatching(Collection<String> candidates) {
+        List<String> result = new ArrayList<>(candidates.size());
+
+        for (String candidate : candidates) {
+            if (test(candidate)) {
+                result.add(candidate);
+            }
+        }
+
+        return result;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+}
@@ -122,6 +122,12 @@ public class ConfigConstants {
 
     public static final String SEARCHGUARD_AUDIT_CONFIG_CUSTOM_ATTRIBUTES_PREFIX = "custom_attributes.";
 
+    // External ES / Webhooks
+    public static final String SEARCHGUARD_AUDIT_BATCH_MAX_SIZE = "batch.max_size";
+    public static final String SEARCHGUARD_AUDIT_BATCH_MAX_AGE = "batch.max_age";
+    public static final String SEARCHGUARD_AUDIT_BATCH_MAX_RETRIES = "batch.max_retries";
+    public static final String SEARCHGUARD_AUDIT_BATCH_RETRY_BACKOFF = "batch.retry_backoff";
+
     // Internal / External ES
     public static final String SEARCHGUARD_AUDIT_ES_INDEX = "index";
     public static final String SEARCHGUARD_AUDIT_ES_TYPE = "type";
@@ -174,6 +180,8 @@ public class ConfigConstants {
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_METADATA_ONLY = "searchguard.compliance.history.write.metadata_only";
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_READ_METADATA_ONLY = "searchguard.compliance.history.read.metadata_only";
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_READ_WATCHED_FIELDS = "searchguard.compliance.history.read.watched_fields";
+    public static final String SEARCHGUARD_COMPLIANCE_HISTORY_READ_SAMPLING = "searchguard.compliance.history.read.sampling";
+    public static final String SEARCHGUARD_COMPLIANCE_HISTORY_READ_DEDUP_WINDOW = "searchguard.compliance.history.read.dedup_window";
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_WATCHED_INDICES = "searchguard.compliance.history.write.watched_indices";
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_WRITE_LOG_DIFFS = "searchguard.compliance.history.write.log_diffs";
     public static final String SEARCHGUARD_COMPLIANCE_HISTORY_READ_IGNORE_USERS = "searchguard.compliance.history.read.ignore_users";
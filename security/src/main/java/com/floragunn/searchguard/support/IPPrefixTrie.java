@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import inet.ipaddr.AddressStringException;
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+import inet.ipaddr.format.util.AssociativeAddressTrie.AssociativeTrieNode;
+import inet.ipaddr.ipv4.IPv4Address;
+import inet.ipaddr.ipv4.IPv4AddressAssociativeTrie;
+import inet.ipaddr.ipv6.IPv6Address;
+import inet.ipaddr.ipv6.IPv6AddressAssociativeTrie;
+
+/**
+ * Maps IPv4 and IPv6 prefixes (netmasks in CIDR notation) to values. Like IPAddressCollection, this uses the address tries of the IPAddress
+ * library, one per address family; thus, all values associated with prefixes containing a given address can be found in a single lookup.
+ *
+ * Instances are immutable after they have been built by the Builder.
+ */
+public class IPPrefixTrie<V> {
+
+    private final IPv4AddressAssociativeTrie<List<V>> ipv4Trie;
+    private final IPv6AddressAssociativeTrie<List<V>> ipv6Trie;
+    private final int size;
+
+    private IPPrefixTrie(IPv4AddressAssociativeTrie<List<V>> ipv4Trie, IPv6AddressAssociativeTrie<List<V>> ipv6Trie, int size) {
+        this.ipv4Trie = ipv4Trie.size() > 0 ? ipv4Trie : null;
+        this.ipv6Trie = ipv6Trie.size() > 0 ? ipv6Trie : null;
+        this.size = size;
+    }
+
+    /**
+     * Calls the consumer for all values associated with prefixes containing the given address. Like IPAddressCollection, IPv4 addresses
+     * are also matched against IPv4-mapped IPv6 prefixes and vice versa.
+     */
+    public void forEachMatch(IPAddress address, Consumer<V> consumer) {
+        if (ipv4Trie != null) {
+            IPv4Address ipv4Address = address.toIPv4();
+
+            if (ipv4Address != null) {
+                forEachValue(ipv4Trie.elementsContaining(ipv4Address), consumer);
+            }
+        }
+
+        if (ipv6Trie != null) {
+            IPv6Address ipv6Address = address.toIPv6();
+
+            if (ipv6Address != null) {
+                forEachValue(ipv6Trie.elementsContaining(ipv6Address), consumer);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given address is contained in at least one prefix of this trie. In contrast to forEachMatch(), only prefixes of the
+     * address family of the given address are considered. Otherwise, ::/0 would also contain all IPv4 addresses.
+     */
+    public boolean containsMatch(IPAddress address) {
+        if (address.isIPv4()) {
+            return ipv4Trie != null && ipv4Trie.elementContains(address.toIPv4());
+        } else {
+            return ipv6Trie != null && ipv6Trie.elementContains(address.toIPv6());
+        }
+    }
+
+    public List<V> getMatches(IPAddress address) {
+        List<V> result = new ArrayList<>();
+        forEachMatch(address, result::add);
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer for the values of the nodes returned by elementsContaining(). These form a trie with a single branch.
+     */
+    private static <V> void forEachValue(AssociativeTrieNode<?, List<V>> node, Consumer<V> consumer) {
+        while (node != null) {
+            if (node.isAdded()) {
+                for (V value : node.getValue()) {
+                    consumer.accept(value);
+                }
+            }
+
+            node = node.getLowerSubNode() != null ? node.getLowerSubNode() : node.getUpperSubNode();
+        }
+    }
+
+    public static class Builder<V> {
+        private IPv4AddressAssociativeTrie<List<V>> ipv4Trie = new IPv4AddressAssociativeTrie<>();
+        private IPv6AddressAssociativeTrie<List<V>> ipv6Trie = new IPv6AddressAssociativeTrie<>();
+        private int size;
+
+        /**
+         * Adds a mapping for the given address, netmask in CIDR notation or address range. Ranges which are not a single prefix block are
+         * split into several prefix blocks.
+         */
+        public Builder<V> add(String addressString, V value) throws AddressStringException {
+            IPAddressString ipAddressString = new IPAddressString(addressString);
+            ipAddressString.validate();
+            return add(ipAddressString.getAddress(), value);
+        }
+
+        public Builder<V> add(IPAddress address, V value) {
+            if (address.getNetworkPrefixLength() != null) {
+                address = address.toPrefixBlock();
+            }
+
+            for (IPAddress block : address.spanWithPrefixBlocks()) {
+                List<V> values;
+
+                if (block.isIPv4()) {
+                    values = ipv4Trie.get(block.toIPv4());
+
+                    if (values == null) {
+                        values = new ArrayList<>(1);
+                        ipv4Trie.put(block.toIPv4(), values);
+                    }
+                } else {
+                    values = ipv6Trie.get(block.toIPv6());
+
+                    if (values == null) {
+                        values = new ArrayList<>(1);
+                        ipv6Trie.put(block.toIPv6(), values);
+                    }
+                }
+
+                if (!values.contains(value)) {
+                    values.add(value);
+                }
+            }
+
+            size++;
+
+            return this;
+        }
+
+        public IPPrefixTrie<V> build() {
+            IPPrefixTrie<V> result = new IPPrefixTrie<>(ipv4Trie, ipv6Trie, size);
+            ipv4Trie = new IPv4AddressAssociativeTrie<>();
+            ipv6Trie = new IPv6AddressAssociativeTrie<>();
+            size = 0;
+            return result;
+        }
+    }
+}
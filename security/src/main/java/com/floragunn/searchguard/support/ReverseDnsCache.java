@@ -0,0 +1,339 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.CacheStats;
+import com.floragunn.searchsupport.cstate.metrics.CountAggregation;
+import com.floragunn.searchsupport.cstate.metrics.TimeAggregation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Resolves host names of IP addresses asynchronously on a dedicated thread pool and caches the results. This keeps slow DNS servers from
+ * blocking request threads.
+ *
+ * If a resolution is still pending, getHostName() waits at most for the configured lookup timeout. If the host name is not available by then,
+ * null is returned; callers should treat this as "no match". Expired entries are refreshed in the background while the old value is still
+ * served.
+ */
+public class ReverseDnsCache implements ComponentStateProvider {
+    private static final Logger log = LogManager.getLogger(ReverseDnsCache.class);
+
+    public static final Resolver DEFAULT_RESOLVER = (address) -> {
+        String hostName = address.getHostName();
+
+        // InetAddress.getHostName() returns the textual IP address if the reverse lookup fails
+        if (hostName == null || hostName.equals(address.getHostAddress())) {
+            return null;
+        } else {
+            return hostName;
+        }
+    };
+
+    /**
+     * The maximum number of pending resolutions. This is fixed, as the queue of a ThreadPoolExecutor cannot be resized.
+     */
+    static final int MAX_QUEUE_LENGTH = 1000;
+
+    private final Resolver resolver;
+    private final ThreadPoolExecutor executor;
+    private final ComponentState componentState = new ComponentState(10, null, "reverse_dns_cache", ReverseDnsCache.class).initialized();
+    private final CountAggregation lookups = new CountAggregation();
+    private final CountAggregation hits = lookups.getSubCount("hit");
+    private final CountAggregation misses = lookups.getSubCount("miss");
+    private final CountAggregation pending = lookups.getSubCount("pending");
+    private final CountAggregation failures = lookups.getSubCount("failed");
+    private final TimeAggregation resolutionTime = new TimeAggregation.Milliseconds();
+
+    private volatile Config config;
+    private volatile Cache<InetAddress, Entry> cache;
+
+    public ReverseDnsCache(Config config) {
+        this(config, DEFAULT_RESOLVER);
+    }
+
+    public ReverseDnsCache(Config config, Resolver resolver) {
+        this.resolver = resolver;
+        this.config = config;
+        this.cache = createCache(config);
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUE_LENGTH), EsExecutors.daemonThreadFactory("sg_reverse_dns"));
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.componentState.addMetrics("lookups", lookups);
+        this.componentState.addMetrics("resolution", resolutionTime);
+        this.componentState.addMetrics("cache", CacheStats.from(cache));
+    }
+
+    /**
+     * Returns the host name of the given address or null if the host name is unknown or could not be resolved within the lookup timeout.
+     */
+    public String getHostName(InetAddress address) {
+        Config config = this.config;
+        long now = System.nanoTime();
+        Entry entry = cache.getIfPresent(address);
+
+        lookups.increment();
+
+        if (entry == null) {
+            misses.increment();
+            entry = resolve(address, null);
+
+            if (entry == null) {
+                return null;
+            }
+        } else {
+            hits.increment();
+
+            if (entry.isExpired(now)) {
+                resolve(address, entry);
+                // Serve the old value while refreshing
+                return entry.getHostName();
+            }
+        }
+
+        if (entry.isDone() || entry.previousHostName != null) {
+            return entry.getHostName();
+        }
+
+        if (config.getLookupTimeout().isZero()) {
+            pending.increment();
+            return null;
+        }
+
+        try {
+            return entry.future.get(config.getLookupTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            pending.increment();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts the resolution of the given address. If there is already a resolution in progress, the existing entry is returned.
+     */
+    private Entry resolve(InetAddress address, Entry expiredEntry) {
+        Entry newEntry = new Entry(expiredEntry != null ? expiredEntry.getHostName() : null);
+
+        if (expiredEntry == null) {
+            Entry existingEntry = cache.asMap().putIfAbsent(address, newEntry);
+
+            if (existingEntry != null) {
+                return existingEntry;
+            }
+        } else if (!cache.asMap().replace(address, expiredEntry, newEntry)) {
+            // Another thread is already refreshing the entry
+            return cache.getIfPresent(address);
+        }
+
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+
+                try {
+                    String hostName = resolver.getHostName(address);
+                    Config config = this.config;
+                    newEntry.complete(hostName, hostName != null ? config.getPositiveTtl() : config.getNegativeTtl());
+                } catch (Exception e) {
+                    log.debug("Error while resolving host name of " + address, e);
+                    failures.increment();
+                    newEntry.complete(null, this.config.getNegativeTtl());
+                } finally {
+                    resolutionTime.recordNs(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Could not resolve host name of " + address + " because the resolver queue is full");
+            cache.asMap().remove(address, newEntry);
+            pending.increment();
+            return null;
+        }
+
+        return newEntry;
+    }
+
+    public void setConfig(Config config) {
+        if (config.equals(this.config)) {
+            return;
+        }
+
+        if (config.getMaxEntries() != this.config.getMaxEntries()) {
+            this.cache = createCache(config);
+            this.componentState.addMetrics("cache", CacheStats.from(cache));
+        }
+
+        if (config.getThreads() > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(config.getThreads());
+            executor.setCorePoolSize(config.getThreads());
+        } else {
+            executor.setCorePoolSize(config.getThreads());
+            executor.setMaximumPoolSize(config.getThreads());
+        }
+
+        this.config = config;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Stops the resolver threads. Must be called when the cache is no longer used.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    private static Cache<InetAddress, Entry> createCache(Config config) {
+        return CacheBuilder.newBuilder().maximumSize(config.getMaxEntries()).recordStats().build();
+    }
+
+    @FunctionalInterface
+    public static interface Resolver {
+        /**
+         * Returns the host name of the given address or null if none is available.
+         */
+        String getHostName(InetAddress address) throws Exception;
+    }
+
+    public static class Config {
+        public static final Config DEFAULT = new Config(Duration.ofMinutes(10), Duration.ofMinutes(1), 10000, Duration.ofMillis(100), 4);
+
+        private final Duration positiveTtl;
+        private final Duration negativeTtl;
+        private final int maxEntries;
+        private final Duration lookupTimeout;
+        private final int threads;
+
+        public Config(Duration positiveTtl, Duration negativeTtl, int maxEntries, Duration lookupTimeout, int threads) {
+            this.positiveTtl = positiveTtl;
+            this.negativeTtl = negativeTtl;
+            this.maxEntries = maxEntries;
+            this.lookupTimeout = lookupTimeout;
+            this.threads = threads;
+        }
+
+        public Duration getPositiveTtl() {
+            return positiveTtl;
+        }
+
+        public Duration getNegativeTtl() {
+            return negativeTtl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        /**
+         * The maximum time a request waits for a pending resolution. Zero means that pending resolutions are never waited for.
+         */
+        public Duration getLookupTimeout() {
+            return lookupTimeout;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(positiveTtl, negativeTtl, maxEntries, lookupTimeout, threads);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Config)) {
+                return false;
+            }
+            Config other = (Config) obj;
+            return positiveTtl.equals(other.positiveTtl) && negativeTtl.equals(other.negativeTtl) && maxEntries == other.maxEntries
+                    && lookupTimeout.equals(other.lookupTimeout) && threads == other.threads;
+        }
+
+        @Override
+        public String toString() {
+            return "ReverseDnsCache.Config [positiveTtl=" + positiveTtl + ", negativeTtl=" + negativeTtl + ", maxEntries=" + maxEntries
+                    + ", lookupTimeout=" + lookupTimeout + ", threads=" + threads + "]";
+        }
+    }
+
+    private static class Entry {
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final String previousHostName;
+        private volatile long expiresAtNanos;
+
+        Entry(String previousHostName) {
+            this.previousHostName = previousHostName;
+        }
+
+        void complete(String hostName, Duration ttl) {
+            this.expiresAtNanos = System.nanoTime() + ttl.toNanos();
+            future.complete(hostName);
+        }
+
+        boolean isDone() {
+            return future.isDone();
+        }
+
+        boolean isExpired(long now) {
+            return isDone() && now - expiresAtNanos > 0;
+        }
+
+        /**
+         * Returns the resolved host name; while a refresh is pending, the host name of the expired entry is returned.
+         */
+        String getHostName() {
+            if (future.isDone()) {
+                return future.getNow(null);
+            } else {
+                return previousHostName;
+            }
+        }
+    }
+}
@@ -24,7 +24,6 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Stack;
-import java.util.regex.Pattern;
 
 public class WildcardMatcher {
 
@@ -179,9 +178,11 @@ public class WildcardMatcher {
      */
     public static boolean matchAny(final String pattern, final String[] candidate, boolean ignoreCase) {
 
+        final CompiledWildcard compiledPattern = CompiledWildcard.get(pattern, ignoreCase);
+
         for (int i = 0; i < candidate.length; i++) {
             final String string = candidate[i];
-            if (match(pattern, string, ignoreCase)) {
+            if (compiledPattern.test(string)) {
                 return true;
             }
         }
@@ -191,8 +192,10 @@ public class WildcardMatcher {
 
     public static boolean matchAny(final String pattern, final Collection<String> candidates, boolean ignoreCase) {
 
+        final CompiledWildcard compiledPattern = CompiledWildcard.get(pattern, ignoreCase);
+
         for (String candidate: candidates) {
-            if (match(pattern, candidate, ignoreCase)) {
+            if (compiledPattern.test(candidate)) {
                 return true;
             }
         }
@@ -202,10 +205,11 @@ public class WildcardMatcher {
 
     public static String[] matches(final String pattern, final String[] candidate, boolean ignoreCase) {
 
+        final CompiledWildcard compiledPattern = CompiledWildcard.get(pattern, ignoreCase);
         final List<String> ret = new ArrayList<String>(candidate.length);
         for (int i = 0; i < candidate.length; i++) {
             final String string = candidate[i];
-            if (match(pattern, string, ignoreCase)) {
+            if (compiledPattern.test(string)) {
                 ret.add(string);
             }
         }
@@ -215,11 +219,12 @@ public class WildcardMatcher {
 
     public static List<String> getMatchAny(final String pattern, final String[] candidate) {
 
+        final CompiledWildcard compiledPattern = CompiledWildcard.get(pattern);
         final List<String> matches = new ArrayList<String>(candidate.length);
 
         for (int i = 0; i < candidate.length; i++) {
             final String string = candidate[i];
-            if (match(pattern, string)) {
+            if (compiledPattern.test(string)) {
                 matches.add(string);
             }
         }
@@ -270,10 +275,11 @@ public class WildcardMatcher {
 
     public static List<String> getMatchAny(final String pattern, final Collection<String> candidate) {
 
+        final CompiledWildcard compiledPattern = CompiledWildcard.get(pattern);
         final List<String> matches = new ArrayList<String>(candidate.size());
 
         for (final String string: candidate) {
-            if (match(pattern, string)) {
+            if (compiledPattern.test(string)) {
                 matches.add(string);
             }
         }
@@ -321,9 +327,18 @@ public class WildcardMatcher {
     public static List<String> getAllMatchingPatterns(final Collection<String> pattern, final Collection<String> candidates) {
 
         final List<String> matches = new ArrayList<String>(pattern.size());
-        
+        final List<CompiledWildcard> compiledPatterns = new ArrayList<>(pattern.size());
+
+        for (String p : pattern) {
+            compiledPatterns.add(CompiledWildcard.get(p));
+        }
+
         for (String c : candidates) {
-            matches.addAll(getAllMatchingPatterns(pattern, c));
+            for (CompiledWildcard p : compiledPatterns) {
+                if (p.test(c)) {
+                    matches.add(p.getPattern());
+                }
+            }
         }
 
         return matches;
@@ -376,21 +391,7 @@ public class WildcardMatcher {
             return false;
         }
 
-        if(ignoreCase) {
-            pattern = pattern.toLowerCase();
-            candidate = candidate.toLowerCase();
-        }
-
-        if (pattern.startsWith("/") && pattern.endsWith("/")) {
-            // regex
-            return Pattern.matches("^"+pattern.substring(1, pattern.length() - 1)+"$", candidate);
-        } else if (pattern.length() == 1 && pattern.charAt(0) == '*') {
-            return true;
-        } else if (pattern.indexOf('?') == NOT_FOUND && pattern.indexOf('*') == NOT_FOUND) {
-            return pattern.equals(candidate);
-        } else {
-            return simpleWildcardMatch(pattern, candidate);
-        }
+        return CompiledWildcard.get(pattern, ignoreCase).test(candidate);
     }
 
     public static boolean containsWildcard(final String pattern) {
@@ -418,9 +419,10 @@ public class WildcardMatcher {
         } else {
             boolean modified = false;
             Set<String> copy = new HashSet<>(set);
+            CompiledWildcard compiledWc = CompiledWildcard.get(stringContainingWc);
 
             for(String it: copy) {
-                if(WildcardMatcher.match(stringContainingWc, it)) {
+                if(compiledWc.test(it)) {
                     modified = set.remove(it) || modified;
                 }
             }
@@ -514,7 +516,13 @@ public class WildcardMatcher {
             return false;
         }
 
-        final String[] wcs = splitOnTokens(pattern);
+        return simpleWildcardMatch(splitOnTokens(pattern), candidate);
+    }
+
+    /**
+     * Like simpleWildcardMatch(String, String), but uses a pattern which has already been split by splitOnTokens()
+     */
+    static boolean simpleWildcardMatch(final String[] wcs, final String candidate) {
         boolean anyChars = false;
         int textIdx = 0;
         int wcsIdx = 0;
@@ -594,7 +602,7 @@ public class WildcardMatcher {
      * @param text  the text to split
      * @return the array of tokens, never null
      */
-    private static String[] splitOnTokens(final String text) {
+    static String[] splitOnTokens(final String text) {
         // used by wildcardMatch
         // package level so a unit test may run on this
 
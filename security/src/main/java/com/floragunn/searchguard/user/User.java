@@ -69,6 +69,12 @@ public class User implements Serializable, UserInformation, AttributeSource {
     private boolean isInjected = false;
     private transient boolean authzComplete = false;
 
+    /**
+     * Memoized role mapping result. As users are cached by the authentication backends, this allows to skip role mapping for subsequent requests.
+     * Only to be used by RoleMapping.InvertedIndex.
+     */
+    private transient volatile Object mappedRolesMemo;
+
     public User(String name, String subName, AuthDomainInfo authDomainInfo, String type, Set<String> roles, Set<String> searchGuardRoles,
             Object specialAuthzConfig, String requestedTenant, Map<String, Object> structuredAttributes, Map<String, String> attributes, boolean authzComplete) {
         super();
@@ -162,6 +168,7 @@ public class User implements Serializable, UserInformation, AttributeSource {
      */
     public final void addRole(final String role) {
         this.roles.add(role);
+        this.mappedRolesMemo = null;
     }
 
     /**
@@ -172,6 +179,7 @@ public class User implements Serializable, UserInformation, AttributeSource {
     public final void addRoles(final Collection<String> roles) {
         if (roles != null) {
             this.roles.addAll(roles);
+            this.mappedRolesMemo = null;
         }
     }
 
@@ -371,6 +379,7 @@ public class User implements Serializable, UserInformation, AttributeSource {
     public final void addSearchGuardRoles(final Collection<String> sgRoles) {
         if (sgRoles != null && this.searchGuardRoles != null) {
             this.searchGuardRoles.addAll(sgRoles);
+            this.mappedRolesMemo = null;
         }
     }
 
@@ -390,6 +399,14 @@ public class User implements Serializable, UserInformation, AttributeSource {
         return authzComplete;
     }
 
+    public Object getMappedRolesMemo() {
+        return mappedRolesMemo;
+    }
+
+    public void setMappedRolesMemo(Object mappedRolesMemo) {
+        this.mappedRolesMemo = mappedRolesMemo;
+    }
+
     public Builder copy() {
         Builder builder = new Builder();
         builder.name = name;
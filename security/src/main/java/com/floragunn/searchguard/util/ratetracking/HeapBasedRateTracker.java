@@ -17,9 +17,10 @@
 
 package com.floragunn.searchguard.util.ratetracking;
 
-import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -29,23 +30,42 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 
+/**
+ * Tracks the number of tries per client in a sliding time window. A client exceeds the rate if allowedTries tries were made within the time
+ * window.
+ *
+ * The records of the clients are kept in a cache which is split into many segments, so that concurrent tracking of different clients does
+ * not contend on the same lock. The records themselves are lock-free: each record keeps the timestamps of the most recent allowedTries tries in
+ * an atomic ring buffer. The timestamps are stored as int milliseconds relative to the creation time of the tracker; differences are computed
+ * with int arithmetic, so the offsets may wrap around as long as the compared tries are less than about 24 days apart.
+ */
 public class HeapBasedRateTracker<ClientIdType> implements RateTracker<ClientIdType> {
 
+    /**
+     * The number of segments of the cache. A high number reduces lock contention if many distinct clients are tracked concurrently.
+     */
+    static final int CONCURRENCY_LEVEL = 64;
+
     private final Logger log = LogManager.getLogger(this.getClass());
 
     private final Cache<ClientIdType, ClientRecord> cache;
     private final long timeWindowMs;
-    private final int maxTimeOffsets;
+    private final int allowedTries;
+    private final long baseTime = System.nanoTime();
 
     public HeapBasedRateTracker(long timeWindowMs, int allowedTries, int maxEntries) {
         if (allowedTries < 2) {
             throw new IllegalArgumentException("allowedTries must be >= 2");
         }
 
+        if (timeWindowMs > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("timeWindowMs must be <= " + Integer.MAX_VALUE);
+        }
+
         this.timeWindowMs = timeWindowMs;
-        this.maxTimeOffsets = allowedTries > 2 ? allowedTries - 2 : 0;
-        this.cache = CacheBuilder.newBuilder().expireAfterAccess(this.timeWindowMs, TimeUnit.MILLISECONDS).maximumSize(maxEntries).concurrencyLevel(4)
-                .removalListener(new RemovalListener<ClientIdType, ClientRecord>() {
+        this.allowedTries = allowedTries;
+        this.cache = CacheBuilder.newBuilder().expireAfterAccess(this.timeWindowMs, TimeUnit.MILLISECONDS).maximumSize(maxEntries)
+                .concurrencyLevel(CONCURRENCY_LEVEL).removalListener(new RemovalListener<ClientIdType, ClientRecord>() {
                     @Override
                     public void onRemoval(RemovalNotification<ClientIdType, ClientRecord> notification) {
                         if (log.isDebugEnabled()) {
@@ -57,21 +77,23 @@ public class HeapBasedRateTracker<ClientIdType> implements RateTracker<ClientIdT
 
     @Override
     public boolean track(ClientIdType clientId) {
+        ClientRecord clientRecord = this.cache.getIfPresent(clientId);
 
-        try {
-            ClientRecord clientRecord = this.cache.get(clientId, () -> new ClientRecord());
-
-            boolean result = clientRecord.track();
-
-            if (log.isDebugEnabled()) {
-                log.debug("track(" + clientId + "): " + clientRecord + " => " + result);
+        if (clientRecord == null) {
+            try {
+                clientRecord = this.cache.get(clientId, () -> new ClientRecord());
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e);
             }
+        }
 
-            return result;
+        boolean result = clientRecord.track((int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - baseTime));
 
-        } catch (ExecutionException e) {
-            throw new RuntimeException(e);
+        if (log.isDebugEnabled()) {
+            log.debug("track(" + clientId + "): " + clientRecord + " => " + result);
         }
+
+        return result;
     }
 
     @Override
@@ -80,178 +102,35 @@ public class HeapBasedRateTracker<ClientIdType> implements RateTracker<ClientIdT
     }
 
     private class ClientRecord {
-        private long startTime = -1;
-        private final int[] timeOffsets = new int[maxTimeOffsets];
-        private short timeOffsetStart = -1;
-        private short timeOffsetEnd = -1;
+        /**
+         * The timestamps of the most recent tries, relative to baseTime. The try with the sequence number n is stored at n % allowedTries.
+         */
+        private final AtomicIntegerArray timestamps = new AtomicIntegerArray(allowedTries);
+        private final AtomicLong tries = new AtomicLong();
 
-        synchronized boolean track() {
-            long timestamp = System.currentTimeMillis();
+        boolean track(int timestamp) {
+            long sequence = tries.getAndIncrement();
+            int slot = (int) (sequence % allowedTries);
 
-            if (this.startTime == -1 || timestamp - getMostRecent() >= timeWindowMs) {
-                this.startTime = timestamp;
-                timeOffsetStart = timeOffsetEnd = -1;
+            timestamps.set(slot, timestamp);
 
+            if (sequence < allowedTries - 1) {
                 return false;
             }
 
-            if (timestamp - this.startTime >= timeWindowMs) {
-                removeExpiredEntries(timestamp);
-            } else if (isFull()) {
-                shiftFull(timestamp);
-
-                return true;
-            }
-
-            if (this.startTime == -1) {
-                this.startTime = timestamp;
-                timeOffsetStart = timeOffsetEnd = -1;
-
-                return false;
-            } else if (this.timeOffsetStart == -1) {
-                this.timeOffsets[0] = (int) (timestamp - this.startTime);
-                this.timeOffsetStart = 0;
-                this.timeOffsetEnd = 0;
-            } else {
-                short newEnd = next(this.timeOffsetEnd);
-
-                this.timeOffsets[newEnd] = (int) (timestamp - this.startTime);
-                this.timeOffsetEnd = newEnd;
-            }
-
-            return false;
-        }
-
-        private boolean isFull() {
-            return this.startTime != 0 && ((timeOffsetStart == timeOffsetEnd + 1)
-                    || (timeOffsetStart == 0 && timeOffsetEnd == this.timeOffsets.length - 1) || this.timeOffsets.length == 0);
-        }
-
-        private void shiftFull(long timestamp) {
-            if (this.timeOffsets.length == 0) {
-                this.startTime = timestamp;
-                return;
-            }
-            
-            int shiftOffset = this.timeOffsets[this.timeOffsetStart];
-            this.startTime += shiftOffset;
-
-            short oldStart = this.timeOffsetStart;
-            short second = next(this.timeOffsetStart);
-
-            short i = second;
-
-            for (;;) {
-                this.timeOffsets[i] -= shiftOffset;
-
-                if (i == this.timeOffsetEnd) {
-                    break;
-                }
-
-                i++;
-
-                if (i >= this.timeOffsets.length) {
-                    i = 0;
-                }
-            }
-
-            this.timeOffsetStart = second;
-            this.timeOffsets[oldStart] = (int) (timestamp - this.startTime);
-            this.timeOffsetEnd = oldStart;
-        }
-
-        private long getMostRecent() {
-            if (timeOffsetStart == -1) {
-                return this.startTime;
-            }
-
-            return this.startTime + this.timeOffsets[this.timeOffsetEnd];
-        }
-
-        private void removeExpiredEntries(long timestamp) {
-            short firstNonExpired = this.findFirstNonExpiredEntry(timestamp);
-
-            if (firstNonExpired == -1) {
-                this.startTime = -1;
-                this.timeOffsetStart = this.timeOffsetEnd = -1;
-                return;
-            }
-
-            long newStartTime = this.startTime + this.timeOffsets[firstNonExpired];
-
-            if (firstNonExpired == this.timeOffsetEnd) {
-                this.startTime = newStartTime;
-                this.timeOffsetStart = this.timeOffsetEnd = -1;
-                return;
-            }
-
-            short secondNonExpired = next(firstNonExpired);
-            int offsetBetweenOldAndNew = this.timeOffsets[firstNonExpired];
+            // The next slot contains the oldest of the most recent allowedTries tries. If it was overwritten concurrently by a newer try,
+            // allowedTries tries have been made anyway.
+            int oldest = timestamps.get(slot + 1 < allowedTries ? slot + 1 : 0);
+            int age = timestamp - oldest;
 
-            short i = secondNonExpired;
-
-            for (;;) {
-                this.timeOffsets[i] -= offsetBetweenOldAndNew;
-
-                if (i == this.timeOffsetEnd) {
-                    break;
-                }
-
-                i++;
-
-                if (i >= this.timeOffsets.length) {
-                    i = 0;
-                }
-            }
-
-            this.startTime = newStartTime;
-            this.timeOffsetStart = secondNonExpired;
-        }
-
-        private short next(short i) {
-            i++;
-
-            if (i >= this.timeOffsets.length) {
-                i = 0;
-            }
-
-            return i;
-        }
-
-        private short findFirstNonExpiredEntry(long timestamp) {
-            short i = this.timeOffsetStart;
-
-            if (i == -1) {
-                return -1;
-            }
-
-            for (;;) {
-
-                if (timestamp - (this.startTime + this.timeOffsets[i]) < timeWindowMs) {
-                    return i;
-                }
-
-                if (i == this.timeOffsetEnd) {
-                    break;
-                }
-
-                i++;
-
-                if (i >= this.timeOffsets.length) {
-                    i = 0;
-                }
-
-            }
-
-            return -1;
+            // A negative age means that the offsets are more than Integer.MAX_VALUE ms apart
+            return age >= 0 && age < timeWindowMs;
         }
 
         @Override
         public String toString() {
-            return "ClientRecord [startTime=" + startTime + ", timeOffsets=" + Arrays.toString(timeOffsets) + ", timeOffsetStart=" + timeOffsetStart
-                    + ", timeOffsetEnd=" + timeOffsetEnd + "]";
+            return "ClientRecord [tries=" + tries + ", timestamps=" + timestamps + "]";
         }
-
     }
 
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authc.internal_users_db;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PasswordVerifierTest {
+
+    private static final String HASH_COST_4 = OpenBSDBCrypt.generate("secret".toCharArray(), new byte[16], 4);
+
+    @Test
+    public void verify() throws Exception {
+        PasswordVerifier passwordVerifier = new PasswordVerifier(1, 10, Duration.ofMinutes(1), 100, 0, Runnable::run, new ThreadContext(Settings.EMPTY));
+
+        Assert.assertTrue(passwordVerifier.verify("user", HASH_COST_4, "secret".toCharArray(), null).get(10, TimeUnit.SECONDS));
+        Assert.assertFalse(passwordVerifier.verify("user", HASH_COST_4, "wrong".toCharArray(), null).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void verifiedCredentialsAreCached() throws Exception {
+        PasswordVerifier passwordVerifier = new PasswordVerifier(1, 10, Duration.ofMinutes(1), 100, 0, Runnable::run, new ThreadContext(Settings.EMPTY));
+
+        passwordVerifier.verify("user", HASH_COST_4, "secret".toCharArray(), null).get(10, TimeUnit.SECONDS);
+
+        // A cache hit is answered without going through the pool
+        Assert.assertTrue(passwordVerifier.verify("user", HASH_COST_4, "secret".toCharArray(), null).isDone());
+        Assert.assertFalse(passwordVerifier.verify("user", HASH_COST_4, "wrong".toCharArray(), null).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void passwordIsZeroed() throws Exception {
+        PasswordVerifier passwordVerifier = new PasswordVerifier(1, 10, Duration.ofMinutes(1), 100, 0, Runnable::run, new ThreadContext(Settings.EMPTY));
+        char[] password = "secret".toCharArray();
+
+        passwordVerifier.verify("user", HASH_COST_4, password, null).get(10, TimeUnit.SECONDS);
+
+        // The array is zeroed after the future has been completed; a second task on the single thread pool waits for it
+        passwordVerifier.verify("user", HASH_COST_4, "wrong".toCharArray(), null).get(10, TimeUnit.SECONDS);
+
+        Assert.assertArrayEquals(new char[6], password);
+    }
+
+    @Test
+    public void rehash() throws Exception {
+        PasswordVerifier passwordVerifier = new PasswordVerifier(1, 10, Duration.ZERO, 100, 5, Runnable::run, new ThreadContext(Settings.EMPTY));
+        AtomicReference<String> newHash = new AtomicReference<>();
+
+        passwordVerifier.verify("user", HASH_COST_4, "secret".toCharArray(), (user, hash) -> newHash.set(hash)).get(10, TimeUnit.SECONDS);
+
+        // The rehash happens after the future has been completed; a second task on the single thread pool waits for it. The password hash
+        // update is done by the completion executor, which runs directly on the pool thread here
+        passwordVerifier.verify("user", HASH_COST_4, "wrong".toCharArray(), null).get(10, TimeUnit.SECONDS);
+
+        Assert.assertEquals(5, PasswordVerifier.getCost(newHash.get()));
+        Assert.assertTrue(OpenBSDBCrypt.checkPassword(newHash.get(), "secret".toCharArray()));
+    }
+
+    @Test
+    public void getCost() {
+        Assert.assertEquals(4, PasswordVerifier.getCost(HASH_COST_4));
+        Assert.assertEquals(12, PasswordVerifier.getCost("$2y$12$abcdefghijklmnopqrstuv"));
+        Assert.assertEquals(-1, PasswordVerifier.getCost("plain"));
+    }
+}
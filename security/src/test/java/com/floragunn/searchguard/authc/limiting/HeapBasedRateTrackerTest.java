@@ -17,9 +17,16 @@
 
 package com.floragunn.searchguard.authc.limiting;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
 
 import com.floragunn.searchguard.util.ratetracking.HeapBasedRateTracker;
@@ -96,4 +103,40 @@ public class HeapBasedRateTrackerTest {
         assertTrue(tracker.track("b"));
 
     }
+
+    @Test
+    public void concurrentTest() throws Exception {
+        HeapBasedRateTracker<String> tracker = new HeapBasedRateTracker<>(60_000, 100, 100_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+
+            for (int i = 0; i < 99; i++) {
+                results.add(executor.submit(() -> tracker.track("a")));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertFalse(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(tracker.track("a"));
+        assertTrue(tracker.track("a"));
+
+        tracker.reset("a");
+        assertFalse(tracker.track("a"));
+
+        int exceeded = 0;
+
+        for (int i = 0; i < 100; i++) {
+            if (tracker.track("b")) {
+                exceeded++;
+            }
+        }
+
+        assertEquals(1, exceeded);
+    }
 }
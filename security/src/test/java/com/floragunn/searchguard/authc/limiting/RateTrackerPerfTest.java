@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authc.limiting;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.floragunn.searchguard.authc.blocking.HeapBasedClientBlockRegistry;
+import com.floragunn.searchguard.authc.blocking.IpRangeVerdictBasedBlockRegistry;
+import com.floragunn.searchguard.util.ratetracking.HeapBasedRateTracker;
+
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+
+/**
+ * Simulates a credential stuffing attack: 100k distinct clients fail to authenticate, spread over 64 threads. Each attempt checks the block
+ * registries and tracks the failure, like the rate limiters do.
+ */
+@Ignore
+public class RateTrackerPerfTest {
+
+    private static final int CLIENTS = 100_000;
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS_PER_THREAD = 100_000;
+    private static final int BLOCKED_NETS = 10_000;
+
+    @Test
+    public void credentialStuffing() throws Exception {
+        Random random = new Random(1);
+        InetAddress[] clients = new InetAddress[CLIENTS];
+        IPAddress[] clientIpAddresses = new IPAddress[CLIENTS];
+
+        for (int i = 0; i < CLIENTS; i++) {
+            clientIpAddresses[i] = new IPAddressString(
+                    (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256)).toAddress();
+            clients[i] = clientIpAddresses[i].toInetAddress();
+        }
+
+        Set<IPAddress> blockedNets = new HashSet<>();
+
+        for (int i = 0; i < BLOCKED_NETS; i++) {
+            blockedNets.add(new IPAddressString((1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/24")
+                    .toAddress());
+        }
+
+        IpRangeVerdictBasedBlockRegistry netmaskRegistry = new IpRangeVerdictBasedBlockRegistry(new HashSet<>(), blockedNets);
+
+        // Warm up
+        run(clients, clientIpAddresses, netmaskRegistry, ATTEMPTS_PER_THREAD / 10);
+
+        long start = System.nanoTime();
+        long blocked = run(clients, clientIpAddresses, netmaskRegistry, ATTEMPTS_PER_THREAD);
+        long duration = System.nanoTime() - start;
+        long attempts = (long) THREADS * ATTEMPTS_PER_THREAD;
+
+        System.out.println(attempts + " attempts of " + CLIENTS + " clients on " + THREADS + " threads: " + TimeUnit.NANOSECONDS.toMillis(duration)
+                + " ms; " + (attempts * 1_000_000_000L / duration) + " attempts/s; " + blocked + " blocked");
+    }
+
+    private long run(InetAddress[] clients, IPAddress[] clientIpAddresses, IpRangeVerdictBasedBlockRegistry netmaskRegistry, int attemptsPerThread)
+            throws Exception {
+        HeapBasedRateTracker<InetAddress> rateTracker = new HeapBasedRateTracker<>(60 * 60 * 1000, 10, CLIENTS);
+        HeapBasedClientBlockRegistry<InetAddress> blockRegistry = new HeapBasedClientBlockRegistry<>(10 * 60 * 1000, CLIENTS, InetAddress.class);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startLatch = new CountDownLatch(1);
+
+        try {
+            List<Future<Long>> results = new ArrayList<>(THREADS);
+
+            for (int t = 0; t < THREADS; t++) {
+                int seed = t;
+
+                results.add(executor.submit(() -> {
+                    Random threadRandom = new Random(seed);
+                    long blocked = 0;
+
+                    startLatch.await();
+
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        int client = threadRandom.nextInt(CLIENTS);
+
+                        if (netmaskRegistry.isBlocked(clientIpAddresses[client]) || blockRegistry.isBlocked(clients[client])) {
+                            blocked++;
+                        } else if (rateTracker.track(clients[client])) {
+                            blockRegistry.block(clients[client]);
+                            rateTracker.reset(clients[client]);
+                        }
+                    }
+
+                    return blocked;
+                }));
+            }
+
+            startLatch.countDown();
+
+            long blocked = 0;
+
+            for (Future<Long> result : results) {
+                blocked += result.get();
+            }
+
+            return blocked;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
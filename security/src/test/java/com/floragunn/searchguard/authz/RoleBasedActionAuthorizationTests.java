@@ -22,6 +22,7 @@ import java.util.Arrays;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.floragunn.codova.config.text.Pattern;
 import com.floragunn.codova.documents.DocNode;
 import com.floragunn.codova.documents.Format;
 import com.floragunn.fluent.collections.ImmutableSet;
@@ -34,6 +35,7 @@ import com.floragunn.searchguard.configuration.CType;
 import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
 import com.floragunn.searchguard.authz.actions.Actions;
 import com.floragunn.searchguard.user.User;
+import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
 
 public class RoleBasedActionAuthorizationTests {
 
@@ -622,6 +624,113 @@ public class RoleBasedActionAuthorizationTests {
         Assert.assertTrue(result.toString(), result.getStatus() == PrivilegesEvaluationResult.Status.INSUFFICIENT);
     }
     
+    @Test
+    public void updateIndices_clusterStateVersion() throws Exception {
+        Action indexAction = actions.get("indices:data/write/index");
+
+        SgDynamicConfiguration<Role> roles = SgDynamicConfiguration.fromMap(DocNode.parse(Format.YAML).from(//
+                "test_role:\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_*']\n" + //
+                        "    allowed_actions: ['indices:data/write/index']"),
+                CType.ROLES, null).get();
+
+        RoleBasedActionAuthorization subject = new RoleBasedActionAuthorization(roles, ActionGroup.FlattenedIndex.EMPTY, actions,
+                ImmutableSet.of("index_a"), 5, ImmutableSet.empty(), Pattern.blank(), MetricsLevel.NONE);
+
+        User user = User.forUser("test").build();
+
+        // index_b is not yet known to the stateful index permissions; it must be evaluated by the stateless code path
+        PrivilegesEvaluationResult result = subject.hasIndexPermission(ctx(user, "test_role"), ImmutableSet.of(indexAction),
+                ResolvedIndices.empty().localIndices("index_a", "index_b"));
+        Assert.assertTrue(result.toString(), result.getStatus() == PrivilegesEvaluationResult.Status.OK);
+
+        Assert.assertEquals(5, subject.getIndicesClusterStateVersion());
+        Assert.assertFalse(subject.updateIndices(ImmutableSet.of("index_a", "index_b"), 4));
+        Assert.assertEquals(5, subject.getIndicesClusterStateVersion());
+        Assert.assertFalse(subject.updateIndices(ImmutableSet.of("index_a"), 6));
+        Assert.assertEquals(6, subject.getIndicesClusterStateVersion());
+        Assert.assertTrue(subject.updateIndices(ImmutableSet.of("index_a", "index_b"), 7));
+        Assert.assertEquals(7, subject.getIndicesClusterStateVersion());
+
+        result = subject.hasIndexPermission(ctx(user, "test_role"), ImmutableSet.of(indexAction),
+                ResolvedIndices.empty().localIndices("index_a", "index_b"));
+        Assert.assertTrue(result.toString(), result.getStatus() == PrivilegesEvaluationResult.Status.OK);
+    }
+
+    @Test
+    public void withChangedRoles() throws Exception {
+        Action indexAction = actions.get("indices:data/write/index");
+        Action nodesStatsAction = actions.get("cluster:monitor/nodes/stats");
+
+        SgDynamicConfiguration<Role> roles = SgDynamicConfiguration.fromMap(DocNode.parse(Format.YAML).from(//
+                "role_a:\n" + //
+                        "  cluster_permissions: ['cluster:monitor/*']\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_a']\n" + //
+                        "    allowed_actions: ['indices:data/write/index']\n" + //
+                        "role_b:\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_b']\n" + //
+                        "    allowed_actions: ['indices:data/write/*']\n" + //
+                        "role_c:\n" + //
+                        "  cluster_permissions: ['cluster:monitor/nodes/stats']\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_*']\n" + //
+                        "    allowed_actions: ['indices:data/write/index']"),
+                CType.ROLES, null).get();
+
+        SgDynamicConfiguration<Role> changedRoles = SgDynamicConfiguration.fromMap(DocNode.parse(Format.YAML).from(//
+                "role_a:\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_b']\n" + //
+                        "    allowed_actions: ['indices:data/write/index']\n" + //
+                        "role_c:\n" + //
+                        "  cluster_permissions: ['cluster:monitor/nodes/stats']\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_*']\n" + //
+                        "    allowed_actions: ['indices:data/write/index']\n" + //
+                        "role_d:\n" + //
+                        "  cluster_permissions: ['cluster:monitor/*']\n" + //
+                        "  index_permissions:\n" + //
+                        "  - index_patterns: ['index_a']\n" + //
+                        "    allowed_actions: ['indices:data/write/*']"),
+                CType.ROLES, null).get();
+
+        RoleBasedActionAuthorization original = new RoleBasedActionAuthorization(roles, ActionGroup.FlattenedIndex.EMPTY, actions,
+                ImmutableSet.of("index_a", "index_b"), 5, ImmutableSet.empty(), Pattern.blank(), MetricsLevel.NONE);
+        RoleBasedActionAuthorization subject = original.withChangedRoles(changedRoles, ImmutableSet.of("role_a", "role_b", "role_d"));
+        RoleBasedActionAuthorization rebuilt = new RoleBasedActionAuthorization(changedRoles, ActionGroup.FlattenedIndex.EMPTY, actions,
+                ImmutableSet.of("index_a", "index_b"), 5, ImmutableSet.empty(), Pattern.blank(), MetricsLevel.NONE);
+
+        User user = User.forUser("test").build();
+
+        Assert.assertEquals(5, subject.getIndicesClusterStateVersion());
+
+        for (String role : Arrays.asList("role_a", "role_b", "role_c", "role_d")) {
+            Assert.assertEquals(role, rebuilt.hasClusterPermission(ctx(user, role), nodesStatsAction).getStatus(),
+                    subject.hasClusterPermission(ctx(user, role), nodesStatsAction).getStatus());
+
+            for (String index : Arrays.asList("index_a", "index_b")) {
+                ResolvedIndices resolved = ResolvedIndices.empty().localIndices(index);
+
+                Assert.assertEquals(role + " " + index,
+                        rebuilt.hasIndexPermission(ctx(user, role), ImmutableSet.of(indexAction), resolved).getStatus(),
+                        subject.hasIndexPermission(ctx(user, role), ImmutableSet.of(indexAction), resolved).getStatus());
+            }
+        }
+
+        Assert.assertFalse(subject.hasClusterPermission(ctx(user, "role_a"), nodesStatsAction).isOk());
+        Assert.assertTrue(subject.hasClusterPermission(ctx(user, "role_d"), nodesStatsAction).isOk());
+        Assert.assertTrue(subject.hasIndexPermission(ctx(user, "role_a"), ImmutableSet.of(indexAction), ResolvedIndices.empty().localIndices("index_b"))
+                .isOk());
+        Assert.assertFalse(subject.hasIndexPermission(ctx(user, "role_b"), ImmutableSet.of(indexAction), ResolvedIndices.empty().localIndices("index_b"))
+                .isOk());
+
+        // The original instance is not modified
+        Assert.assertTrue(original.hasClusterPermission(ctx(user, "role_a"), nodesStatsAction).isOk());
+    }
+
     private static PrivilegesEvaluationContext ctx(User user, String... roles) {
         return new PrivilegesEvaluationContext(user, ImmutableSet.ofArray(roles), null, roles, true, null, null);
     }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authz.actions;
+
+import java.util.Collections;
+
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.indices.SystemIndices;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import com.floragunn.fluent.collections.ImmutableSet;
+
+@Ignore
+public class ConcreteIndicesCachePerfTest {
+
+    private static final int INDEX_COUNT = 10000;
+    private static final int LOOKUPS = 10000;
+
+    // Typical index patterns used by dashboards
+    private static final String[][] PATTERNS = { { "logs-*" }, { "metrics-*", "logs-*" }, { "filebeat-*" }, { "*" }, { "logs-2022.0*" },
+            { "metricbeat-*", "-metricbeat-2022.01*" } };
+
+    @Test
+    public void tenThousandIndices() throws Exception {
+        IndexNameExpressionResolver resolver = new IndexNameExpressionResolver(new ThreadContext(Settings.EMPTY),
+                new SystemIndices(Collections.emptyMap()));
+        String[] prefixes = { "logs-", "metrics-", "filebeat-", "metricbeat-" };
+        String[] indices = new String[INDEX_COUNT];
+
+        for (int i = 0; i < INDEX_COUNT; i++) {
+            indices[i] = prefixes[i % prefixes.length] + "2022." + String.format("%02d.%02d", 1 + (i / 28) % 12, 1 + i % 28) + "-" + i;
+        }
+
+        ClusterState state = ConcreteIndicesCacheTest.clusterState(1, indices);
+        ConcreteIndicesCache cache = new ConcreteIndicesCache(resolver, 1000, 10 * 1024 * 1024);
+
+        // Warm up
+        measureUncached(resolver, state, LOOKUPS / 10);
+        measureCached(cache, resolver, state, LOOKUPS / 10);
+
+        long start = System.nanoTime();
+        long resolved = measureUncached(resolver, state, LOOKUPS);
+        long duration = System.nanoTime() - start;
+
+        System.out.println("Uncached: " + (duration / LOOKUPS) + " ns/lookup; " + resolved + " indices");
+
+        start = System.nanoTime();
+        resolved = measureCached(cache, resolver, state, LOOKUPS);
+        duration = System.nanoTime() - start;
+
+        System.out.println("Cached: " + (duration / LOOKUPS) + " ns/lookup; " + resolved + " indices");
+        System.out.println(cache.getComponentState().toBasicObject());
+    }
+
+    private long measureUncached(IndexNameExpressionResolver resolver, ClusterState state, int iterations) {
+        long resolved = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            resolved += resolver.concreteIndexNames(state, IndicesOptions.LENIENT_EXPAND_OPEN, PATTERNS[i % PATTERNS.length]).length;
+        }
+
+        return resolved;
+    }
+
+    private long measureCached(ConcreteIndicesCache cache, IndexNameExpressionResolver resolver, ClusterState state, int iterations) {
+        long resolved = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            String[] pattern = PATTERNS[i % PATTERNS.length];
+            resolved += cache.get(state, pattern, IndicesOptions.LENIENT_EXPAND_OPEN, false,
+                    () -> ImmutableSet.ofArray(resolver.concreteIndexNames(state, IndicesOptions.LENIENT_EXPAND_OPEN, pattern))).size();
+        }
+
+        return resolved;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authz.actions;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.indices.SystemIndices;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.fluent.collections.ImmutableSet;
+
+public class ConcreteIndicesCacheTest {
+
+    private static final IndexNameExpressionResolver RESOLVER = new IndexNameExpressionResolver(new ThreadContext(Settings.EMPTY),
+            new SystemIndices(Collections.emptyMap()));
+
+    @Test
+    public void hit() {
+        ConcreteIndicesCache cache = new ConcreteIndicesCache(RESOLVER, 100, 1024 * 1024);
+        ClusterState state = clusterState(1, "logs-1", "logs-2", "metrics-1");
+        AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2"), get(cache, state, loads, "logs-*"));
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2"), get(cache, state, loads, "logs-*"));
+        Assert.assertEquals(1, loads.get());
+
+        Assert.assertEquals(ImmutableSet.of("metrics-1"), get(cache, state, loads, "metrics-*"));
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void invalidatedByMetadataVersion() {
+        ConcreteIndicesCache cache = new ConcreteIndicesCache(RESOLVER, 100, 1024 * 1024);
+        ClusterState state1 = clusterState(1, "logs-1", "logs-2");
+        ClusterState state2 = clusterState(2, "logs-1", "logs-2", "logs-3");
+        AtomicInteger loads = new AtomicInteger();
+
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2"), get(cache, state1, loads, "logs-*"));
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2", "logs-3"), get(cache, state2, loads, "logs-*"));
+        Assert.assertEquals(2, loads.get());
+
+        // A request still using the older state must not evict the entries for the current state
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2"), get(cache, state1, loads, "logs-*"));
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(ImmutableSet.of("logs-1", "logs-2", "logs-3"), get(cache, state2, loads, "logs-*"));
+        Assert.assertEquals(3, loads.get());
+    }
+
+    @Test
+    public void dateMathIsNotCached() {
+        ConcreteIndicesCache cache = new ConcreteIndicesCache(RESOLVER, 100, 1024 * 1024);
+        ClusterState state = clusterState(1, "logs-1");
+        AtomicInteger loads = new AtomicInteger();
+
+        get(cache, state, loads, "<logs-{now/d}>");
+        get(cache, state, loads, "<logs-{now/d}>");
+        Assert.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void disabled() {
+        ConcreteIndicesCache cache = new ConcreteIndicesCache(RESOLVER, 0, 1024 * 1024);
+        ClusterState state = clusterState(1, "logs-1");
+        AtomicInteger loads = new AtomicInteger();
+
+        get(cache, state, loads, "logs-*");
+        get(cache, state, loads, "logs-*");
+        Assert.assertEquals(2, loads.get());
+    }
+
+    private static ImmutableSet<String> get(ConcreteIndicesCache cache, ClusterState state, AtomicInteger loads, String... expressions) {
+        IndicesOptions indicesOptions = IndicesOptions.LENIENT_EXPAND_OPEN;
+
+        return cache.get(state, expressions, indicesOptions, false, () -> {
+            loads.incrementAndGet();
+            return ImmutableSet.ofArray(RESOLVER.concreteIndexNames(state, indicesOptions, expressions));
+        });
+    }
+
+    static ClusterState clusterState(long metadataVersion, String... indices) {
+        Metadata.Builder metadata = Metadata.builder().version(metadataVersion).clusterUUID("test_cluster");
+
+        for (String index : indices) {
+            metadata.put(IndexMetadata.builder(index).settings(Settings.builder().put(IndexMetadata.SETTING_VERSION_CREATED, Version.CURRENT))
+                    .numberOfShards(1).numberOfReplicas(0), false);
+        }
+
+        return ClusterState.builder(ClusterName.DEFAULT).metadata(metadata).build();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.authz.config;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import org.elasticsearch.common.transport.TransportAddress;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.codova.documents.DocNode;
+import com.floragunn.fluent.collections.ImmutableSet;
+import com.floragunn.searchguard.configuration.CType;
+import com.floragunn.searchguard.configuration.SgDynamicConfiguration;
+import com.floragunn.searchguard.user.User;
+import com.floragunn.searchsupport.cstate.metrics.MetricsLevel;
+
+public class RoleMappingInvertedIndexTest {
+
+    private static final TransportAddress INTERNAL_ADDRESS = address(10, 1, 2, 3);
+    private static final TransportAddress EXTERNAL_ADDRESS = address(192, 168, 1, 1);
+
+    @Test
+    public void memoizedResultsAreCorrect() throws Exception {
+        SgDynamicConfiguration<RoleMapping> config = SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_by_user", DocNode.of("users", Arrays.asList("user_*")), //
+                "role_by_backend_role", DocNode.of("backend_roles", Arrays.asList("be_a")), //
+                "role_by_ip", DocNode.of("ips", Arrays.asList("10.0.0.0/8"))), CType.ROLESMAPPING, null).get();
+
+        RoleMapping.InvertedIndex subject = new RoleMapping.InvertedIndex(config, MetricsLevel.NONE, null, 100, true);
+        RoleMapping.InvertedIndex uncached = new RoleMapping.InvertedIndex(config, MetricsLevel.NONE);
+
+        User user = User.forUser("user_1").backendRoles("be_a").build();
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(ImmutableSet.of("role_by_user", "role_by_backend_role", "role_by_ip"),
+                    subject.evaluate(user, INTERNAL_ADDRESS, RoleMapping.ResolutionMode.MAPPING_ONLY));
+            Assert.assertEquals(ImmutableSet.of("role_by_user", "role_by_backend_role"),
+                    subject.evaluate(user, EXTERNAL_ADDRESS, RoleMapping.ResolutionMode.MAPPING_ONLY));
+            Assert.assertEquals(ImmutableSet.of("role_by_user", "role_by_backend_role", "role_by_ip", "be_a"),
+                    subject.evaluate(user, INTERNAL_ADDRESS, RoleMapping.ResolutionMode.BOTH));
+        }
+
+        User otherUserWithSameName = User.forUser("user_1").build();
+
+        Assert.assertEquals(ImmutableSet.of("role_by_user"), subject.evaluate(otherUserWithSameName, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        Assert.assertEquals(uncached.evaluate(otherUserWithSameName, null, RoleMapping.ResolutionMode.MAPPING_ONLY),
+                subject.evaluate(otherUserWithSameName, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+    }
+
+    @Test
+    public void memoOnUserIsInvalidatedByRoleChanges() throws Exception {
+        SgDynamicConfiguration<RoleMapping> config = SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_a", DocNode.of("backend_roles", Arrays.asList("be_a")), //
+                "role_b", DocNode.of("backend_roles", Arrays.asList("be_b"))), CType.ROLESMAPPING, null).get();
+
+        RoleMapping.InvertedIndex subject = new RoleMapping.InvertedIndex(config, MetricsLevel.NONE, null, 100, true);
+
+        User user = User.forUser("user").backendRoles("be_a").build();
+
+        Assert.assertEquals(ImmutableSet.of("role_a"), subject.evaluate(user, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        Assert.assertNotNull(user.getMappedRolesMemo());
+
+        user.addRole("be_b");
+
+        Assert.assertEquals(ImmutableSet.of("role_a", "role_b"), subject.evaluate(user, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+    }
+
+    @Test
+    public void memoOnUserIsInvalidatedByConfigChanges() throws Exception {
+        User user = User.forUser("user").backendRoles("be_a").build();
+
+        RoleMapping.InvertedIndex subject1 = new RoleMapping.InvertedIndex(SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_a", DocNode.of("backend_roles", Arrays.asList("be_a"))), CType.ROLESMAPPING, null).get(), MetricsLevel.NONE, null, 100, true);
+        RoleMapping.InvertedIndex subject2 = new RoleMapping.InvertedIndex(SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_b", DocNode.of("backend_roles", Arrays.asList("be_a"))), CType.ROLESMAPPING, null).get(), MetricsLevel.NONE, null, 100, true);
+
+        Assert.assertEquals(ImmutableSet.of("role_a"), subject1.evaluate(user, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        Assert.assertEquals(ImmutableSet.of("role_b"), subject2.evaluate(user, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+    }
+
+    @Test
+    public void withChangedRoleMappings() throws Exception {
+        SgDynamicConfiguration<RoleMapping> config = SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_a", DocNode.of("backend_roles", Arrays.asList("be_a")), //
+                "role_b", DocNode.of("backend_roles", Arrays.asList("be_b")), //
+                "role_c", DocNode.of("users", Arrays.asList("user_c*"))), CType.ROLESMAPPING, null).get();
+        SgDynamicConfiguration<RoleMapping> changedConfig = SgDynamicConfiguration.fromMap(DocNode.of(//
+                "role_a", DocNode.of("backend_roles", Arrays.asList("be_a")), //
+                "role_b", DocNode.of("backend_roles", Arrays.asList("be_x")), //
+                "role_c", DocNode.of("users", Arrays.asList("user_c*")), //
+                "role_d", DocNode.of("backend_roles", Arrays.asList("be_a"))), CType.ROLESMAPPING, null).get();
+
+        RoleMapping.InvertedIndex original = new RoleMapping.InvertedIndex(config, MetricsLevel.NONE, null, 100, false);
+
+        User userA = User.forUser("user_a").backendRoles("be_a").build();
+        User userB = User.forUser("user_b").backendRoles("be_b").build();
+        User userC = User.forUser("user_c1").build();
+
+        Assert.assertEquals(ImmutableSet.of("role_a"), original.evaluate(userA, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        Assert.assertEquals(ImmutableSet.of("role_b"), original.evaluate(userB, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        Assert.assertEquals(ImmutableSet.of("role_c"), original.evaluate(userC, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+
+        RoleMapping.InvertedIndex subject = original.withChangedRoleMappings(changedConfig, ImmutableSet.of("role_b", "role_d"));
+
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(ImmutableSet.of("role_a", "role_d"), subject.evaluate(userA, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+            Assert.assertEquals(ImmutableSet.empty(), subject.evaluate(userB, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+            Assert.assertEquals(ImmutableSet.of("role_c"), subject.evaluate(userC, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+        }
+
+        Assert.assertEquals(ImmutableSet.of("role_b"), original.evaluate(userB, null, RoleMapping.ResolutionMode.MAPPING_ONLY));
+    }
+
+    private static TransportAddress address(int a, int b, int c, int d) {
+        try {
+            return new TransportAddress(InetAddress.getByAddress(new byte[] { (byte) a, (byte) b, (byte) c, (byte) d }), 9300);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
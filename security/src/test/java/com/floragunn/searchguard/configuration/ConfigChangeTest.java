@@ -0,0 +1,83 @@
+package com.floragunn.searchguard.configuration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.floragunn.codova.documents.DocNode;
+import com.floragunn.fluent.collections.ImmutableMap;
+import com.floragunn.fluent.collections.ImmutableSet;
+import com.floragunn.searchguard.authz.config.Role;
+import com.floragunn.searchguard.authz.config.Tenant;
+
+public class ConfigChangeTest {
+
+    @Test
+    public void shouldDetectAddedChangedAndRemovedEntries() throws Exception {
+        ConfigMap oldConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.ROLES, ImmutableMap.of("unchanged", role("indices:data/read/*"),
+                "changed", role("indices:data/read/*"), "removed", role("indices:data/write/*"))));
+        ConfigMap newConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.ROLES, ImmutableMap.of("unchanged", role("indices:data/read/*"),
+                "changed", role("indices:data/write/*"), "added", role("indices:data/write/*"))));
+
+        ConfigChange change = ConfigChange.between(oldConfig, newConfig, ImmutableSet.<CType<?>>of(CType.ROLES));
+
+        assertThat(change.getAdded(CType.ROLES), contains("added"));
+        assertThat(change.getChanged(CType.ROLES), contains("changed"));
+        assertThat(change.getRemoved(CType.ROLES), contains("removed"));
+        assertThat(change.size(), equalTo(3));
+        Assert.assertTrue(change.isChanged(CType.ROLES));
+        Assert.assertFalse(change.isInitial());
+    }
+
+    @Test
+    public void shouldNotReportUnchangedEntries() throws Exception {
+        ConfigMap oldConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.ROLES, "role", role("indices:data/read/*")));
+        ConfigMap newConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.ROLES, "role", role("indices:data/read/*")));
+
+        ConfigChange change = ConfigChange.between(oldConfig, newConfig, ImmutableSet.<CType<?>>of(CType.ROLES));
+
+        assertThat(change.getAdded(CType.ROLES), empty());
+        assertThat(change.getChanged(CType.ROLES), empty());
+        assertThat(change.getRemoved(CType.ROLES), empty());
+        Assert.assertFalse(change.isChanged(CType.ROLES, CType.TENANTS));
+    }
+
+    @Test
+    public void shouldAlwaysReportEntriesWithVariablesAsChanged() throws Exception {
+        ConfigMap oldConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.TENANTS, "tenant", tenant("#{var:description}")));
+        ConfigMap newConfig = configMapWithConfig(SgDynamicConfiguration.of(CType.TENANTS, "tenant", tenant("#{var:description}")));
+
+        ConfigChange change = ConfigChange.between(oldConfig, newConfig, ImmutableSet.<CType<?>>of(CType.TENANTS));
+
+        assertThat(change.getChanged(CType.TENANTS), contains("tenant"));
+        Assert.assertTrue(change.isChanged(CType.TENANTS));
+    }
+
+    @Test
+    public void shouldReportAllEntriesAsAddedForInitialLoad() throws Exception {
+        ConfigMap config = configMapWithConfig(SgDynamicConfiguration.of(CType.TENANTS, "a", tenant("a"), "b", tenant("b")));
+
+        ConfigChange change = ConfigChange.initial(config);
+
+        assertThat(change.getAdded(CType.TENANTS), containsInAnyOrder("a", "b"));
+        Assert.assertTrue(change.isInitial());
+        Assert.assertTrue(change.isChanged(CType.ROLES));
+    }
+
+    private static Role role(String clusterPermission) throws Exception {
+        return Role.parse(DocNode.of("cluster_permissions", DocNode.array(clusterPermission)), null).get();
+    }
+
+    private static Tenant tenant(String description) throws Exception {
+        return Tenant.parse(DocNode.of("description", description), null).get();
+    }
+
+    private static ConfigMap configMapWithConfig(SgDynamicConfiguration<?> config) {
+        return new ConfigMap.Builder("index").with(config).build();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+@Ignore
+public class CompiledWildcardPerfTest {
+
+    private static final int ITERATIONS = 1000000;
+
+    private static final List<String> PATTERNS = Arrays.asList("logs-*", "metrics-*", "*-archive", ".kibana_*", "filebeat-*-2022.*",
+            "/audit-[0-9]{4}\\.[0-9]{2}/", "/security-.*/", "sg7-auditlog", "searchguard");
+
+    private static final String[] CANDIDATES = { "logs-app-2022.01.01", "metrics-2022.01.01", "old-archive", ".kibana_1", "filebeat-7.17.0-2022.01.01",
+            "audit-2022.01", "security-events", "sg7-auditlog", "other-index", "Logs-App" };
+
+    @Test
+    public void matchAny() throws Exception {
+        for (boolean ignoreCase : new boolean[] { false, true }) {
+            // Warm up
+            measureUncompiled(ignoreCase, ITERATIONS / 10);
+            measureCompiled(ignoreCase, ITERATIONS / 10);
+
+            long start = System.nanoTime();
+            int matches = measureUncompiled(ignoreCase, ITERATIONS);
+            long duration = System.nanoTime() - start;
+
+            System.out.println("Uncompiled, ignoreCase=" + ignoreCase + ": " + (duration / ITERATIONS) + " ns/candidate; " + matches + " matches");
+
+            start = System.nanoTime();
+            matches = measureCompiled(ignoreCase, ITERATIONS);
+            duration = System.nanoTime() - start;
+
+            System.out.println("Compiled, ignoreCase=" + ignoreCase + ": " + (duration / ITERATIONS) + " ns/candidate; " + matches + " matches");
+
+            start = System.nanoTime();
+            matches = measureStatic(ignoreCase, ITERATIONS);
+            duration = System.nanoTime() - start;
+
+            System.out.println("WildcardMatcher, ignoreCase=" + ignoreCase + ": " + (duration / ITERATIONS) + " ns/candidate; " + matches + " matches");
+        }
+    }
+
+    private int measureUncompiled(boolean ignoreCase, int iterations) {
+        int matches = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            if (CompiledWildcardTest.uncompiledMatchAny(PATTERNS, CANDIDATES[i % CANDIDATES.length], ignoreCase)) {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+
+    private int measureCompiled(boolean ignoreCase, int iterations) {
+        CompiledWildcardSet compiled = CompiledWildcardSet.compile(PATTERNS, ignoreCase);
+        int matches = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            if (compiled.test(CANDIDATES[i % CANDIDATES.length])) {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+
+    private int measureStatic(boolean ignoreCase, int iterations) {
+        int matches = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            if (WildcardMatcher.matchAny(PATTERNS, new String[] { CANDIDATES[i % CANDIDATES.length] }, ignoreCase)) {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+}
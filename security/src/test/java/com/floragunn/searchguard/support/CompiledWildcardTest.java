@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledWildcardTest {
+
+    static final List<String> PATTERNS = Arrays.asList("abc", "ABC", "*", "a*", "*index", "*my*index", "a*?", "?kibana", "?kibana?", "logs-*-2022",
+            "/(\\d{3}-?\\d{2}-?\\d{4})/", "/\\S*/", "/[A-Z]+/", "/(a)\\1/", "/", "", "**", "?");
+
+    static final List<String> CANDIDATES = Arrays.asList("abc", "ABC", "a", "aa", "ab", "myindex", "myindex1", "this_is_my_great_index", "MYindex",
+            "kibana", ".kibana", "kibana.", "?kibana.", "logs-app-2022", "logs-2022", "123-45-6789", "XYZ", "aa", "", "/", "\u0130ndex");
+
+    @Test
+    public void sameResultsAsUncompiledMatching() {
+        for (boolean ignoreCase : new boolean[] { false, true }) {
+            for (String pattern : PATTERNS) {
+                CompiledWildcard compiled = CompiledWildcard.compile(pattern, ignoreCase);
+
+                for (String candidate : CANDIDATES) {
+                    Assert.assertEquals(pattern + " " + candidate + " " + ignoreCase, uncompiledMatch(pattern, candidate, ignoreCase),
+                            compiled.test(candidate));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void specializedMatchers() {
+        Assert.assertTrue(CompiledWildcard.compile("abc", false) instanceof CompiledWildcard.Constant);
+        Assert.assertTrue(CompiledWildcard.compile("abc*", false) instanceof CompiledWildcard.Prefix);
+        Assert.assertTrue(CompiledWildcard.compile("*abc", false) instanceof CompiledWildcard.Suffix);
+        Assert.assertTrue(CompiledWildcard.compile("a*c", false) instanceof CompiledWildcard.SimpleGlob);
+        Assert.assertTrue(CompiledWildcard.compile("ab?", false) instanceof CompiledWildcard.SimpleGlob);
+        Assert.assertTrue(CompiledWildcard.compile("/ab.*/", false) instanceof CompiledWildcard.Regex);
+        Assert.assertTrue(CompiledWildcard.compile("*", false) instanceof CompiledWildcard.All);
+    }
+
+    @Test
+    public void interned() {
+        Assert.assertSame(CompiledWildcard.get("logs-*", true), CompiledWildcard.get("logs-*", true));
+        Assert.assertNotSame(CompiledWildcard.get("logs-*", true), CompiledWildcard.get("logs-*", false));
+        Assert.assertFalse(CompiledWildcard.get(null, false).test("a"));
+    }
+
+    @Test
+    public void set_sameResultsAsUncompiledMatching() {
+        for (boolean ignoreCase : new boolean[] { false, true }) {
+            for (int i = 0; i < PATTERNS.size(); i++) {
+                for (int k = i; k <= PATTERNS.size(); k++) {
+                    List<String> patterns = PATTERNS.subList(i, k);
+                    CompiledWildcardSet compiled = CompiledWildcardSet.compile(patterns, ignoreCase);
+
+                    for (String candidate : CANDIDATES) {
+                        Assert.assertEquals(patterns + " " + candidate + " " + ignoreCase, uncompiledMatchAny(patterns, candidate, ignoreCase),
+                                compiled.test(candidate));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void set_combinedRegexes() {
+        CompiledWildcardSet compiled = CompiledWildcardSet.compile(Arrays.asList("/a+/", "/b|c/", "/(?<x>d)e/", "/(?<x>f)g/"), false);
+
+        Assert.assertTrue(compiled.test("aaa"));
+        Assert.assertTrue(compiled.test("c"));
+        Assert.assertTrue(compiled.test("fg"));
+        Assert.assertFalse(compiled.test("ab"));
+        Assert.assertFalse(compiled.test("bc"));
+    }
+
+    @Test
+    public void set_invalidRegex() {
+        CompiledWildcardSet compiled = CompiledWildcardSet.compile(Arrays.asList("/(/", "abc"), false);
+
+        Assert.assertTrue(compiled.test("abc"));
+
+        try {
+            compiled.test("xyz");
+            Assert.fail();
+        } catch (PatternSyntaxException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void set_interned() {
+        String[] patterns = { "a*", "b" };
+        CompiledWildcardSet compiled = CompiledWildcardSet.get(patterns, false);
+
+        Assert.assertSame(compiled, CompiledWildcardSet.get(Arrays.asList("a*", "b"), false));
+
+        patterns[1] = "c";
+
+        Assert.assertTrue(CompiledWildcardSet.get(patterns, false).test("c"));
+        Assert.assertFalse(compiled.test("c"));
+    }
+
+    /**
+     * The matching logic of WildcardMatcher before patterns were compiled
+     */
+    static boolean uncompiledMatch(String pattern, String candidate, boolean ignoreCase) {
+        if (ignoreCase) {
+            pattern = pattern.toLowerCase();
+            candidate = candidate.toLowerCase();
+        }
+
+        if (pattern.length() > 1 && pattern.startsWith("/") && pattern.endsWith("/")) {
+            return Pattern.matches("^" + pattern.substring(1, pattern.length() - 1) + "$", candidate);
+        } else if (pattern.equals("*")) {
+            return true;
+        } else if (pattern.indexOf('?') == -1 && pattern.indexOf('*') == -1) {
+            return pattern.equals(candidate);
+        } else {
+            return WildcardMatcher.simpleWildcardMatch(pattern, candidate);
+        }
+    }
+
+    static boolean uncompiledMatchAny(List<String> patterns, String candidate, boolean ignoreCase) {
+        for (String pattern : patterns) {
+            if (uncompiledMatch(pattern, candidate, ignoreCase)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+
+@Ignore
+public class IPPrefixTriePerfTest {
+
+    private static final int CIDR_COUNT = 10000;
+    private static final int LOOKUPS = 100000;
+
+    @Test
+    public void tenThousandCidrs() throws Exception {
+        Random random = new Random(1);
+        IPPrefixTrie.Builder<String> builder = new IPPrefixTrie.Builder<>();
+        List<IPAddressCollection> collections = new ArrayList<>(CIDR_COUNT);
+
+        for (int i = 0; i < CIDR_COUNT; i++) {
+            String cidr = new IPAddressString(random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + ".0/" + (12 + random.nextInt(13)))
+                    .toAddress().toPrefixBlock().toCanonicalString();
+            builder.add(cidr, "role_" + i);
+            collections.add(IPAddressCollection.parse(Collections.singletonList(cidr)));
+        }
+
+        IPPrefixTrie<String> trie = builder.build();
+        IPAddress[] addresses = new IPAddress[1000];
+
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = new IPAddressString(random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256))
+                    .toAddress();
+        }
+
+        // Warm up
+        measureTrie(trie, addresses, LOOKUPS / 10);
+        measureLinearScan(collections, addresses, LOOKUPS / 100);
+
+        long start = System.nanoTime();
+        int matches = measureTrie(trie, addresses, LOOKUPS);
+        long duration = System.nanoTime() - start;
+
+        System.out.println("Prefix trie: " + (duration / LOOKUPS) + " ns/lookup; " + matches + " matches");
+
+        start = System.nanoTime();
+        matches = measureLinearScan(collections, addresses, LOOKUPS / 10);
+        duration = System.nanoTime() - start;
+
+        System.out.println("Linear scan: " + (duration / (LOOKUPS / 10)) + " ns/lookup; " + matches + " matches");
+    }
+
+    private int measureTrie(IPPrefixTrie<String> trie, IPAddress[] addresses, int iterations) {
+        int[] matches = new int[1];
+
+        for (int i = 0; i < iterations; i++) {
+            trie.forEachMatch(addresses[i % addresses.length], (role) -> matches[0]++);
+        }
+
+        return matches[0];
+    }
+
+    private int measureLinearScan(List<IPAddressCollection> collections, IPAddress[] addresses, int iterations) {
+        int matches = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            IPAddress address = addresses[i % addresses.length];
+
+            for (IPAddressCollection collection : collections) {
+                if (collection.contains(address)) {
+                    matches++;
+                }
+            }
+        }
+
+        return matches;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import inet.ipaddr.IPAddress;
+import inet.ipaddr.IPAddressString;
+
+public class IPPrefixTrieTest {
+
+    @Test
+    public void ipv4() throws Exception {
+        IPPrefixTrie<String> trie = new IPPrefixTrie.Builder<String>().add("10.0.0.0/8", "a").add("10.1.0.0/16", "b").add("10.1.2.3", "c")
+                .add("10.1.128.0/17", "d").add("192.168.0.0/16", "e").add("0.0.0.0/0", "all").build();
+
+        Assert.assertEquals(set("all", "a", "b", "c"), matches(trie, "10.1.2.3"));
+        Assert.assertEquals(set("all", "a", "b"), matches(trie, "10.1.2.4"));
+        Assert.assertEquals(set("all", "a", "b", "d"), matches(trie, "10.1.200.1"));
+        Assert.assertEquals(set("all", "a"), matches(trie, "10.2.0.1"));
+        Assert.assertEquals(set("all", "e"), matches(trie, "192.168.17.1"));
+        Assert.assertEquals(set("all"), matches(trie, "8.8.8.8"));
+    }
+
+    @Test
+    public void ipv6() throws Exception {
+        IPPrefixTrie<String> trie = new IPPrefixTrie.Builder<String>().add("2001:db8::/32", "a").add("2001:db8:1::/48", "b").add("::1", "c")
+                .build();
+
+        Assert.assertEquals(set("a", "b"), matches(trie, "2001:db8:1::17"));
+        Assert.assertEquals(set("a"), matches(trie, "2001:db8:2::17"));
+        Assert.assertEquals(set("c"), matches(trie, "::1"));
+        Assert.assertEquals(set(), matches(trie, "2001:db9::1"));
+        Assert.assertEquals(set(), matches(trie, "10.0.0.1"));
+    }
+
+    @Test
+    public void containsMatchOnlyConsidersOwnAddressFamily() throws Exception {
+        IPPrefixTrie<String> ipv6All = new IPPrefixTrie.Builder<String>().add("::/0", "all").build();
+
+        Assert.assertTrue(ipv6All.containsMatch(address("2001:db8::1")));
+        Assert.assertFalse(ipv6All.containsMatch(address("10.0.0.1")));
+
+        IPPrefixTrie<String> ipv4All = new IPPrefixTrie.Builder<String>().add("0.0.0.0/0", "all").build();
+
+        Assert.assertTrue(ipv4All.containsMatch(address("10.0.0.1")));
+        Assert.assertFalse(ipv4All.containsMatch(address("::ffff:10.0.0.1")));
+    }
+
+    @Test
+    public void sameValueForSeveralPrefixes() throws Exception {
+        IPPrefixTrie<String> trie = new IPPrefixTrie.Builder<String>().add("10.0.0.0/8", "a").add("10.0.0.0/8", "a").add("10.0.0.0/24", "a")
+                .build();
+
+        Assert.assertEquals(Arrays.asList("a", "a"), trie.getMatches(address("10.0.0.1")));
+    }
+
+    @Test
+    public void sameResultAsIPAddressCollection() throws Exception {
+        Random random = new Random(1);
+        IPPrefixTrie.Builder<Integer> builder = new IPPrefixTrie.Builder<>();
+        IPAddressCollection[] collections = new IPAddressCollection[500];
+
+        for (int i = 0; i < collections.length; i++) {
+            String cidr = prefixBlock((10 + random.nextInt(2)) + "." + random.nextInt(4) + "." + random.nextInt(256) + ".0/" + (8 + random.nextInt(25)));
+            builder.add(cidr, i);
+            collections[i] = IPAddressCollection.parse(Arrays.asList(cidr));
+        }
+
+        IPPrefixTrie<Integer> trie = builder.build();
+
+        for (int k = 0; k < 2000; k++) {
+            IPAddress address = address((10 + random.nextInt(2)) + "." + random.nextInt(4) + "." + random.nextInt(256) + "." + random.nextInt(256));
+            Set<Integer> expected = new HashSet<>();
+
+            for (int i = 0; i < collections.length; i++) {
+                if (collections[i].contains(address)) {
+                    expected.add(i);
+                }
+            }
+
+            Assert.assertEquals(address.toString(), expected, new HashSet<>(trie.getMatches(address)));
+        }
+    }
+
+    private static Set<String> matches(IPPrefixTrie<String> trie, String address) throws Exception {
+        return new HashSet<>(trie.getMatches(address(address)));
+    }
+
+    /**
+     * Clears the host bits, so that both implementations get an unambiguous prefix block
+     */
+    private static String prefixBlock(String cidr) throws Exception {
+        return new IPAddressString(cidr).toAddress().toPrefixBlock().toCanonicalString();
+    }
+
+    private static IPAddress address(String address) throws Exception {
+        return new IPAddressString(address).toAddress();
+    }
+
+    private static Set<String> set(String... elements) {
+        return new HashSet<>(Arrays.asList(elements));
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 floragunn GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.floragunn.searchguard.support;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReverseDnsCacheTest {
+
+    private static final InetAddress ADDRESS = address(10, 0, 0, 1);
+
+    @Test
+    public void resolvedHostNameIsCached() throws Exception {
+        AtomicInteger resolutions = new AtomicInteger();
+        ReverseDnsCache cache = new ReverseDnsCache(config(Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(10)), (address) -> {
+            resolutions.incrementAndGet();
+            return "host.example.com";
+        });
+
+        try {
+            Assert.assertEquals("host.example.com", cache.getHostName(ADDRESS));
+            Assert.assertEquals("host.example.com", cache.getHostName(ADDRESS));
+            Assert.assertEquals(1, resolutions.get());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void pendingResolutionIsNoMatch() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ReverseDnsCache cache = new ReverseDnsCache(config(Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ZERO), (address) -> {
+            latch.await(10, TimeUnit.SECONDS);
+            return "slow.example.com";
+        });
+
+        try {
+            Assert.assertNull(cache.getHostName(ADDRESS));
+            Assert.assertNull(cache.getHostName(ADDRESS));
+
+            latch.countDown();
+
+            Assert.assertEquals("slow.example.com", waitForHostName(cache, ADDRESS));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void lookupTimeout() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        ReverseDnsCache cache = new ReverseDnsCache(config(Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofMillis(50)), (address) -> {
+            latch.await(10, TimeUnit.SECONDS);
+            return "slow.example.com";
+        });
+
+        try {
+            long start = System.nanoTime();
+            Assert.assertNull(cache.getHostName(ADDRESS));
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        } finally {
+            latch.countDown();
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void negativeTtl() throws Exception {
+        AtomicInteger resolutions = new AtomicInteger();
+        ReverseDnsCache cache = new ReverseDnsCache(config(Duration.ofMinutes(10), Duration.ofMillis(1), Duration.ofSeconds(10)), (address) -> {
+            if (resolutions.incrementAndGet() == 1) {
+                return null;
+            } else {
+                return "host.example.com";
+            }
+        });
+
+        try {
+            Assert.assertNull(cache.getHostName(ADDRESS));
+            Thread.sleep(10);
+
+            Assert.assertEquals("host.example.com", waitForHostName(cache, ADDRESS));
+            Assert.assertEquals(2, resolutions.get());
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    public void failedResolution() throws Exception {
+        ReverseDnsCache cache = new ReverseDnsCache(config(Duration.ofMinutes(10), Duration.ofMinutes(1), Duration.ofSeconds(10)), (address) -> {
+            throw new Exception("DNS server not available");
+        });
+
+        try {
+            Assert.assertNull(cache.getHostName(ADDRESS));
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    private static String waitForHostName(ReverseDnsCache cache, InetAddress address) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            String hostName = cache.getHostName(address);
+
+            if (hostName != null) {
+                return hostName;
+            }
+
+            Thread.sleep(50);
+        }
+
+        return null;
+    }
+
+    private static ReverseDnsCache.Config config(Duration positiveTtl, Duration negativeTtl, Duration lookupTimeout) {
+        return new ReverseDnsCache.Config(positiveTtl, negativeTtl, 100, lookupTimeout, 2);
+    }
+
+    private static InetAddress address(int a, int b, int c, int d) {
+        try {
+            return InetAddress.getByAddress(new byte[] { (byte) a, (byte) b, (byte) c, (byte) d });
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -33,7 +33,13 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.UpdateByQueryAction;
+import org.elasticsearch.index.reindex.UpdateByQueryRequest;
+import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.watcher.ResourceWatcherService;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
@@ -52,6 +58,7 @@ import com.floragunn.signals.accounts.AccountRegistry;
 import com.floragunn.signals.settings.SignalsSettings;
 import com.floragunn.signals.settings.SignalsSettings.SignalsStaticSettings.IndexNames;
 import com.floragunn.signals.watch.Watch;
+import com.floragunn.signals.watch.action.handlers.IndexActionBulkCoalescer;
 import com.floragunn.signals.watch.state.WatchState;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.BaseEncoding;
@@ -81,6 +88,7 @@ public class Signals extends AbstractLifecycleComponent {
 
     private TrustManagerRegistry trustManagerRegistry;
     private HttpProxyHostRegistry httpProxyHostRegistry;
+    private IndexActionBulkCoalescer indexActionBulkCoalescer;
 
     public Signals(Settings settings, ComponentState componentState) {
         this.componentState = componentState;
@@ -127,6 +135,14 @@ public class Signals extends AbstractLifecycleComponent {
             ProxyRepository proxyRepository = new ProxyRepository(signalsSettings, privilegedConfigClient);
             ProxyCrudService proxyCrudService = new ProxyCrudService(proxyRepository);
             this.httpProxyHostRegistry = new HttpProxyHostRegistry(proxyCrudService);
+
+            if (signalsSettings.getStaticSettings().isIndexActionBulkCoalescingEnabled()) {
+                this.indexActionBulkCoalescer = new IndexActionBulkCoalescer(client, threadPool, internalAuthTokenProvider,
+                        signalsSettings.getStaticSettings().getIndexActionBulkCoalescingMaxActions(),
+                        signalsSettings.getStaticSettings().getIndexActionBulkCoalescingMaxDelay());
+                componentState.addPart(indexActionBulkCoalescer.getComponentState());
+            }
+
             return Collections.singletonList(this);
 
         } catch (Exception e) {
@@ -180,8 +196,9 @@ public class Signals extends AbstractLifecycleComponent {
         componentState.addPart(protectedConfigIndexService.createIndex(truststoreConfigIndex));
         ConfigIndex proxyConfigIndex = new ConfigIndex(IndexNames.PROXIES).mapping(ProxyData.MAPPINGS);
         componentState.addPart(protectedConfigIndexService.createIndex(proxyConfigIndex));
-        componentState.addPart(
-                protectedConfigIndexService.createIndex(new ConfigIndex(indexNames.getWatchesState()).mapping(WatchState.getIndexMapping())));
+        componentState.addPart(protectedConfigIndexService.createIndex(new ConfigIndex(indexNames.getWatchesState())
+                .mapping(WatchState.getIndexMapping(), 2).mappingUpdate(0, WatchState.getIndexMappingUpdate())
+                .onIndexReady(this::addMissingWatchStateDocIds)));
         componentState.addPart(protectedConfigIndexService.createIndex(new ConfigIndex(indexNames.getWatchesTriggerState())));
         componentState.addPart(protectedConfigIndexService.createIndex(new ConfigIndex(indexNames.getAccounts())));
         componentState.addPart(protectedConfigIndexService.createIndex(new ConfigIndex(indexNames.getSettings())));
@@ -219,7 +236,7 @@ public class Signals extends AbstractLifecycleComponent {
 
             SignalsTenant signalsTenant = SignalsTenant.create(name, client, clusterService, nodeEnvironment, scriptService, xContentRegistry,
                     internalAuthTokenProvider, signalsSettings, accountRegistry, tenantState, diagnosticContext, threadPool,
-                    trustManagerRegistry, httpProxyHostRegistry);
+                    trustManagerRegistry, httpProxyHostRegistry, indexActionBulkCoalescer);
 
             tenants.put(name, signalsTenant);
 
@@ -319,6 +336,39 @@ public class Signals extends AbstractLifecycleComponent {
         }
     }
 
+    /**
+     * Watch states written before the introduction of WatchState.DOC_ID_FIELD do not have this field. As the operator summary uses the field as
+     * tie breaker for paginating, it is added to these documents once by the master node.
+     */
+    private void addMissingWatchStateDocIds(FailureListener failureListener) {
+        if (!clusterService.state().nodes().isLocalNodeElectedMaster()) {
+            failureListener.onSuccess();
+            return;
+        }
+
+        UpdateByQueryRequest request = new UpdateByQueryRequest(signalsSettings.getStaticSettings().getIndexNames().getWatchesState());
+        request.setQuery(QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(WatchState.DOC_ID_FIELD)));
+        request.setScript(new Script(ScriptType.INLINE, "painless", "ctx._source." + WatchState.DOC_ID_FIELD + " = ctx._id", Collections.emptyMap()));
+        request.setAbortOnVersionConflict(false);
+
+        PrivilegedConfigClient.adapt(client).execute(UpdateByQueryAction.INSTANCE, request, new ActionListener<BulkByScrollResponse>() {
+
+            @Override
+            public void onResponse(BulkByScrollResponse response) {
+                if (response.getUpdated() != 0) {
+                    log.info("Added " + WatchState.DOC_ID_FIELD + " to " + response.getUpdated() + " watch states");
+                }
+
+                failureListener.onSuccess();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                failureListener.onFailure(e);
+            }
+        });
+    }
+
     private void createSignalsLogIndex() {
         String signalsLogIndex = signalsSettings.getDynamicSettings().getWatchLogIndex();
 
@@ -83,6 +83,7 @@ import com.floragunn.signals.execution.WatchRunner;
 import com.floragunn.signals.settings.SignalsSettings;
 import com.floragunn.signals.support.ToXParams;
 import com.floragunn.signals.watch.Watch;
+import com.floragunn.signals.watch.action.handlers.IndexActionBulkCoalescer;
 import com.floragunn.signals.watch.action.invokers.AlertAction;
 import com.floragunn.signals.watch.checks.StaticInput;
 import com.floragunn.signals.watch.init.WatchInitializationService;
@@ -102,10 +103,11 @@ public class SignalsTenant implements Closeable {
     public static SignalsTenant create(String name, Client client, ClusterService clusterService, NodeEnvironment nodeEnvironment,
             ScriptService scriptService, NamedXContentRegistry xContentRegistry, InternalAuthTokenProvider internalAuthTokenProvider,
             SignalsSettings settings, AccountRegistry accountRegistry, ComponentState tenantState, DiagnosticContext diagnosticContext,
-            ThreadPool threadPool, TrustManagerRegistry trustManagerRegistry, HttpProxyHostRegistry httpProxyHostRegistry)
-            throws SchedulerException {
+            ThreadPool threadPool, TrustManagerRegistry trustManagerRegistry, HttpProxyHostRegistry httpProxyHostRegistry,
+            IndexActionBulkCoalescer indexActionBulkCoalescer) throws SchedulerException {
         SignalsTenant instance = new SignalsTenant(name, client, clusterService, nodeEnvironment, scriptService, xContentRegistry,
-                internalAuthTokenProvider, settings, accountRegistry, tenantState, diagnosticContext, threadPool, trustManagerRegistry, httpProxyHostRegistry);
+                internalAuthTokenProvider, settings, accountRegistry, tenantState, diagnosticContext, threadPool, trustManagerRegistry, httpProxyHostRegistry,
+                indexActionBulkCoalescer);
 
         instance.init();
 
@@ -137,11 +139,12 @@ public class SignalsTenant implements Closeable {
 
     private final TrustManagerRegistry trustManagerRegistry;
     private final HttpProxyHostRegistry httpProxyHostRegistry;
+    private final IndexActionBulkCoalescer indexActionBulkCoalescer;
 
     public SignalsTenant(String name, Client client, ClusterService clusterService, NodeEnvironment nodeEnvironment, ScriptService scriptService,
             NamedXContentRegistry xContentRegistry, InternalAuthTokenProvider internalAuthTokenProvider, SignalsSettings settings,
             AccountRegistry accountRegistry, ComponentState tenantState, DiagnosticContext diagnosticContext, ThreadPool threadPool,
-        TrustManagerRegistry trustManagerRegistry, HttpProxyHostRegistry httpProxyHostRegistry) {
+        TrustManagerRegistry trustManagerRegistry, HttpProxyHostRegistry httpProxyHostRegistry, IndexActionBulkCoalescer indexActionBulkCoalescer) {
         this.name = name;
         this.settings = settings;
         this.scopedName = "signals/" + name;
@@ -167,6 +170,7 @@ public class SignalsTenant implements Closeable {
         this.diagnosticContext = diagnosticContext;
         this.trustManagerRegistry = Objects.requireNonNull(trustManagerRegistry, "Trust manager registry is required");
         this.httpProxyHostRegistry = Objects.requireNonNull(httpProxyHostRegistry, "Http proxy host registry is required");
+        this.indexActionBulkCoalescer = indexActionBulkCoalescer;
         settings.addChangeListener(this.settingsChangeListener);
     }
 
@@ -175,7 +179,7 @@ public class SignalsTenant implements Closeable {
             AccountRegistry accountRegistry, DiagnosticContext diagnosticContext, ThreadPool threadPool,
             TrustManagerRegistry trustManagerRegistry, HttpProxyHostRegistry httpProxyHostRegistry) {
         this(name, client, clusterService, nodeEnvironment, scriptService, xContentRegistry, internalAuthTokenProvider, settings, accountRegistry,
-                new ComponentState(0, null, "tenant"), diagnosticContext, threadPool, trustManagerRegistry, httpProxyHostRegistry);
+                new ComponentState(0, null, "tenant"), diagnosticContext, threadPool, trustManagerRegistry, httpProxyHostRegistry, null);
     }
 
     public void init() throws SchedulerException {
@@ -539,7 +543,7 @@ public class SignalsTenant implements Closeable {
 
             return new WatchRunner(watch, client, accountRegistry, scriptService, watchLogWriter, watchStateWriter, diagnosticContext, watchState,
                     ExecutionEnvironment.SCHEDULED, SimulationMode.FOR_REAL, xContentRegistry, settings, nodeName, null, null,
-                    trustManagerRegistry);
+                    trustManagerRegistry, indexActionBulkCoalescer);
         }
 
         private Watch getConfig(TriggerFiredBundle bundle) {
@@ -25,6 +25,7 @@ import static com.floragunn.signals.actions.summary.SafeDocNodeReader.getLongVal
 public class LoadOperatorSummaryData implements Document {
 
     public static final String FIELD_WATCHES = "watches";
+    public static final String FIELD_NEXT_CURSOR = "next_cursor";
 
     private static final DateFormatter DATE_FORMATTER = DateFormatter.forPattern("strict_date_time").withZone(ZoneOffset.UTC);
 
@@ -187,20 +188,30 @@ public class LoadOperatorSummaryData implements Document {
     }
 
     private final List<WatchSummary> watches;
+    private final String nextCursor;
 
     LoadOperatorSummaryData(UnparsedMessage message) throws ConfigValidationException {
         DocNode docNode = message.requiredDocNode();
         this.watches = docNode.getAsListFromNodes(FIELD_WATCHES, WatchSummary::parse);
+        this.nextCursor = docNode.getAsString(FIELD_NEXT_CURSOR);
     }
 
     public LoadOperatorSummaryData(List<WatchSummary> watches) {
+        this(watches, null);
+    }
+
+    /**
+     * @param nextCursor the cursor for loading the next page, or null if there are no more watches
+     */
+    public LoadOperatorSummaryData(List<WatchSummary> watches, String nextCursor) {
         this.watches = watches;
+        this.nextCursor = nextCursor;
     }
 
     @Override
     public Map<String, Object> toBasicObject() {
         List<Map<String, Object>> watchesMap = watches.stream().map(WatchSummary::toBasicObject).collect(Collectors.toList());
-        return ImmutableMap.of(FIELD_WATCHES, watchesMap);
+        return ImmutableMap.<String, Object>of(FIELD_WATCHES, watchesMap).with(ImmutableMap.ofNonNull(FIELD_NEXT_CURSOR, nextCursor));
     }
 
     private static String instantToString(Instant instant) {
@@ -18,21 +18,29 @@ import com.floragunn.signals.actions.summary.LoadOperatorSummaryData.ActionSumma
 import com.floragunn.signals.actions.summary.LoadOperatorSummaryData.WatchSeverityDetails;
 import com.floragunn.signals.actions.summary.LoadOperatorSummaryData.WatchSummary;
 import com.floragunn.signals.actions.summary.SortParser.SortByField;
+import com.floragunn.signals.settings.SignalsSettings.SignalsStaticSettings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 
 public class LoadOperatorSummaryHandler extends Handler<LoadOperatorSummaryRequest, StandardResponse> {
 
@@ -42,36 +50,76 @@ public class LoadOperatorSummaryHandler extends Handler<LoadOperatorSummaryReque
 
     private final Signals signals;
 
+    /**
+     * Short lived cache for the results of equal searches. Concurrent equal searches share the same pending result. The entries are
+     * keyed by the search source, which contains the normalized filter, the sorting and the pagination.
+     */
+    private final Cache<SearchSourceBuilder, CompletableFuture<LoadOperatorSummaryData>> resultCache;
+
 
     @Inject
     public LoadOperatorSummaryHandler(HandlerDependencies handlerDependencies, NodeClient nodeClient,
-        Signals signals) {
+        Signals signals, ClusterService clusterService) {
         super(LoadOperatorSummaryAction.INSTANCE, handlerDependencies);
         this.signals = signals;
-        this.watchStateRepository = new WatchStateRepository(getStateIndexName(), PrivilegedConfigClient.adapt(nodeClient));
+        this.watchStateRepository = new WatchStateRepository(getStateIndexName(), PrivilegedConfigClient.adapt(nodeClient), clusterService);
+        this.resultCache = createResultCache(signals.getSignalsSettings().getStaticSettings());
     }
 
     @Override
     protected CompletableFuture<StandardResponse> doExecute(LoadOperatorSummaryRequest request) {
-       return supplyAsync(() -> {
-            try {
-                List<SortByField> sorting = SortParser.parseSortingExpression(request.getSorting());
-                SearchResponse search = watchStateRepository.search(request.getWatchFilter(), sorting);
-                LoadOperatorSummaryData loadOperatorSummaryData = convertSearchResultToResponse(search);
-                return new StandardResponse(200).data(loadOperatorSummaryData);
-            } catch (Exception ex) {
-                log.error("Cannot load signal watch state summary", ex);
-                return new StandardResponse(400).error(ex.getMessage());
+        SearchSourceBuilder searchSource;
+        try {
+            List<SortByField> sorting = SortParser.parseSortingExpression(request.getSorting());
+            Object[] searchAfter = WatchStateRepository.decodeCursor(request.getCursor());
+            searchSource = watchStateRepository.buildSearchSource(request.getWatchFilter(), sorting, request.getSize(), searchAfter);
+        } catch (Exception ex) {
+            return CompletableFuture.completedFuture(toErrorResponse(ex));
+        }
+
+        return load(searchSource, request.getSize())//
+            .thenApply(data -> new StandardResponse(200).data(data))//
+            .exceptionally(this::toErrorResponse);
+    }
+
+    private CompletableFuture<LoadOperatorSummaryData> load(SearchSourceBuilder searchSource, Integer size) {
+        if (resultCache == null) {
+            return search(searchSource, size);
+        }
+
+        CompletableFuture<LoadOperatorSummaryData> result = resultCache.asMap().computeIfAbsent(searchSource, (k) -> search(k, size));
+
+        result.whenComplete((data, e) -> {
+            if (e != null) {
+                resultCache.asMap().remove(searchSource, result);
             }
-       });
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<LoadOperatorSummaryData> search(SearchSourceBuilder searchSource, Integer size) {
+        return watchStateRepository.search(searchSource)//
+            .thenApplyAsync(searchResponse -> convertSearchResultToResponse(searchResponse, size), getExecutor());
+    }
+
+    private StandardResponse toErrorResponse(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.error("Cannot load signal watch state summary", cause);
+        return new StandardResponse(400).error(cause.getMessage());
     }
 
-    private LoadOperatorSummaryData convertSearchResultToResponse(SearchResponse searchResponse) {
+    private LoadOperatorSummaryData convertSearchResultToResponse(SearchResponse searchResponse, Integer size) {
         log.debug("Watch state search result '{}'", searchResponse);
-        List<WatchSummary> watches = Arrays.stream(searchResponse.getHits().getHits())//
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        List<WatchSummary> watches = Arrays.stream(hits)//
             .map(this::toWatchSummary)//
             .collect(Collectors.toList());
-        return new LoadOperatorSummaryData(watches);
+        String nextCursor = null;
+        if(Objects.nonNull(size) && size > 0 && hits.length == size) {
+            nextCursor = WatchStateRepository.encodeCursor(hits[hits.length - 1].getSortValues());
+        }
+        return new LoadOperatorSummaryData(watches, nextCursor);
     }
 
     private WatchSummary toWatchSummary(SearchHit documentFields) {
@@ -123,6 +171,18 @@ public class LoadOperatorSummaryHandler extends Handler<LoadOperatorSummaryReque
             getDoubleValue(node, "threshold"));
     }
 
+    private static Cache<SearchSourceBuilder, CompletableFuture<LoadOperatorSummaryData>> createResultCache(SignalsStaticSettings settings) {
+        Duration ttl = settings.getOperatorSummaryCacheTtl();
+        int maxEntries = settings.getOperatorSummaryCacheMaxEntries();
+        if (ttl.isZero() || ttl.isNegative() || maxEntries <= 0) {
+            return null;
+        }
+        return CacheBuilder.newBuilder()//
+            .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)//
+            .maximumSize(maxEntries)//
+            .build();
+    }
+
     private String getStateIndexName() {
         return signals.getSignalsSettings().getStaticSettings().getIndexNames().getWatchesState();
     }
@@ -35,6 +35,8 @@ public class LoadOperatorSummaryRequest extends Request {
     private final List<String> actionNames;
     private final RangesFilters ranges;
     private final ActionProperties actionProperties;
+    private final Integer size;
+    private final String cursor;
 
     public LoadOperatorSummaryRequest(UnparsedMessage message) throws ConfigValidationException {
         DocNode docNode = message.requiredDocNode();
@@ -50,6 +52,9 @@ public class LoadOperatorSummaryRequest extends Request {
         this.actionNames = docNode.getAsListOfStrings(LoadOperatorSummaryRequestConstants.FIELD_ACTION_NAMES);
         this.ranges = prepareRanges(docNode);
         this.actionProperties = prepareActionProperties(docNode);
+        this.size = getIntValue(docNode, LoadOperatorSummaryRequestConstants.FIELD_SIZE);
+        this.cursor = docNode.getAsString(LoadOperatorSummaryRequestConstants.FIELD_CURSOR);
+        validatePagination();
     }
 
     private LoadOperatorSummaryRequest(String tenant, String sorting, DocNode requestBody) {
@@ -65,7 +70,10 @@ public class LoadOperatorSummaryRequest extends Request {
         this.actionNames = requestBody.getAsListOfStrings(LoadOperatorSummaryRequestConstants.FIELD_ACTION_NAMES);
         this.ranges = prepareRanges(requestBody);
         this.actionProperties = prepareActionProperties(requestBody);
+        this.size = getIntValue(requestBody, LoadOperatorSummaryRequestConstants.FIELD_SIZE);
+        this.cursor = requestBody.getAsString(LoadOperatorSummaryRequestConstants.FIELD_CURSOR);
         validateRange("level_numeric", levelNumericEqualTo, levelNumericGreaterThan, levelNumericLessThan);
+        validatePagination();
     }
 
     private ActionProperties prepareActionProperties(DocNode docNode) {
@@ -122,6 +130,14 @@ public class LoadOperatorSummaryRequest extends Request {
         return sorting;
     }
 
+    public Integer getSize() {
+        return size;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
     @Override
     public Object toBasicObject() {
         return ImmutableMap.of(LoadOperatorSummaryRequestConstants.FIELD_TENANT, tenant,
@@ -134,7 +150,9 @@ public class LoadOperatorSummaryRequest extends Request {
             .with(LoadOperatorSummaryRequestConstants.FIELD_LEVEL_NUMERIC_LESS_THAN, levelNumericLessThan)//
             .with(LoadOperatorSummaryRequestConstants.FIELD_ACTION_NAMES, actionNames)//
             .with("ranges", ranges)
-            .with("actionProperties", actionProperties);
+            .with("actionProperties", actionProperties)
+            .with(LoadOperatorSummaryRequestConstants.FIELD_SIZE, size)
+            .with(LoadOperatorSummaryRequestConstants.FIELD_CURSOR, cursor);
     }
 
     WatchFilter getWatchFilter() {
@@ -149,6 +167,15 @@ public class LoadOperatorSummaryRequest extends Request {
         }
     }
 
+    private void validatePagination() {
+        if(Objects.nonNull(size) && size < 0) {
+            throw new ElasticsearchStatusException("Incorrect search criteria, size must not be negative", RestStatus.BAD_REQUEST);
+        }
+        if(Objects.nonNull(cursor) && Objects.isNull(size)) {
+            throw new ElasticsearchStatusException("Incorrect search criteria, field 'cursor' requires field 'size'", RestStatus.BAD_REQUEST);
+        }
+    }
+
     private <T> Range<T> rangeOrNull(T equalTo, T greaterThan, T lessThan, String fieldName) {
         if(Objects.nonNull(equalTo) || Objects.nonNull(greaterThan) || Objects.nonNull(lessThan)) {
             return new Range<>(equalTo, greaterThan, lessThan, fieldName);
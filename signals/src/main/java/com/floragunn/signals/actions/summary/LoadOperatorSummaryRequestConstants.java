@@ -13,6 +13,8 @@ public class LoadOperatorSummaryRequestConstants {
     public static final String FIELD_LEVEL_NUMERIC_GREATER_THAN = "level_numeric_greater_than";
     public static final String FIELD_LEVEL_NUMERIC_LESS_THAN = "level_numeric_less_than";
     public static final String FIELD_ACTION_NAMES = "actions";
+    public static final String FIELD_SIZE = "size";
+    public static final String FIELD_CURSOR = "cursor";
     public static final String CHECKED_BEFORE_SUFFIX = ".checkedBefore";
     public static final Pattern FIELD_ACTIONS_CHECKED_BEFORE = Pattern.compile("actions\\.(?<path>[^.]+)\\" + CHECKED_BEFORE_SUFFIX);
     public static final String CHECKED_AFTER_SUFFIX = ".checkedAfter";
@@ -4,15 +4,27 @@ import static com.floragunn.signals.actions.summary.LoadOperatorSummaryRequestCo
 import static java.util.Objects.requireNonNull;
 
 import com.floragunn.codova.documents.DocNode;
+import com.floragunn.codova.documents.DocReader;
+import com.floragunn.codova.documents.DocWriter;
+import com.floragunn.codova.validation.ConfigValidationException;
 import com.floragunn.searchguard.support.PrivilegedConfigClient;
 import com.floragunn.signals.actions.summary.SortParser.SortByField;
 import com.floragunn.signals.actions.summary.WatchFilter.Range;
+import com.floragunn.signals.watch.state.WatchState;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
-import org.elasticsearch.action.ActionFuture;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.ExistsQueryBuilder;
 import org.elasticsearch.index.query.MatchQueryBuilder;
@@ -20,32 +32,54 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 
+/**
+ * Searches the watch state index for the operator summary.
+ *
+ * The fields defined in the index mapping are taken from the cluster state and are only parsed again when the mapping version changes.
+ * Equal filters and sortings always yield equal search sources; thus, the search source can be used as cache key for the results.
+ */
 class WatchStateRepository {
     private static final String PROP = "properties";
     private static final String FIELDS = "fields";
+    /**
+     * Tie breaker for search_after pagination. This is a keyword field with doc values; sorting on _id would require fielddata.
+     */
+    private static final String ID_FIELD = WatchState.DOC_ID_FIELD;
     private final String stateIndexName;
     private final PrivilegedConfigClient privilegedConfigClient;
+    private final ClusterService clusterService;
+    private volatile MappedFields mappedFields;
 
-    public WatchStateRepository(String stateIndexName, PrivilegedConfigClient privilegedConfigClient) {
+    public WatchStateRepository(String stateIndexName, PrivilegedConfigClient privilegedConfigClient, ClusterService clusterService) {
         this.stateIndexName = requireNonNull(stateIndexName);
         this.privilegedConfigClient = requireNonNull(privilegedConfigClient);
+        this.clusterService = requireNonNull(clusterService);
     }
 
-    public SearchResponse search(WatchFilter watchFilter,  List<SortByField> sorting) {
-        requireNonNull(watchFilter, "Watch filter is required");
-        requireNonNull(sorting, "Sorting is required");
-        GetMappingsResponse mappings = getMappings();
-        DocNode docNode = extractFieldNames(mappings);
-        return searchWithFilteringOutMissingSortingFields(watchFilter, sorting, docNode);
+    /**
+     * Executes the search asynchronously. The search uses the shard request cache, which is invalidated whenever the state index is refreshed.
+     */
+    public CompletableFuture<SearchResponse> search(SearchSourceBuilder sourceBuilder) {
+        CompletableFuture<SearchResponse> result = new CompletableFuture<>();
+        SearchRequest request = new SearchRequest(stateIndexName).source(sourceBuilder.shallowCopy()).requestCache(true);
+        privilegedConfigClient.search(request, ActionListener.wrap(result::complete, result::completeExceptionally));
+        return result;
     }
 
-    private SearchResponse searchWithFilteringOutMissingSortingFields(WatchFilter watchFilter, List<SortByField> sorting,
-        DocNode fieldsDefinedInMappings) {
+    /**
+     * Builds the search source for the given filter and sorting. If size is not null, the results are sorted additionally by the document
+     * id, which is stored in WatchState.DOC_ID_FIELD; this allows to continue the search after the sort values of the last hit (see encodeCursor()).
+     */
+    public SearchSourceBuilder buildSearchSource(WatchFilter watchFilter, List<SortByField> sorting, Integer size, Object[] searchAfter) {
+        requireNonNull(watchFilter, "Watch filter is required");
+        requireNonNull(sorting, "Sorting is required");
+        DocNode fieldsDefinedInMappings = getFieldsDefinedInMappings();
 
         SearchSourceBuilder sourceBuilder = SearchSourceBuilder.searchSource();
         for(SortByField field : sorting) {
@@ -58,6 +92,13 @@ class WatchStateRepository {
             FieldSortBuilder sortBuilder = SortBuilders.fieldSort(field.getDocumentFieldName()).order(order);
             sourceBuilder.sort(sortBuilder);
         }
+        if (size != null) {
+            sourceBuilder.sort(SortBuilders.fieldSort(ID_FIELD).order(SortOrder.ASC));
+            sourceBuilder.size(size);
+            if (searchAfter != null) {
+                sourceBuilder.searchAfter(searchAfter);
+            }
+        }
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
         buildStatusCodeQuery(watchFilter, boolQueryBuilder);
         buildWatchIdQuery(watchFilter, boolQueryBuilder);
@@ -66,8 +107,26 @@ class WatchStateRepository {
         buildActionsPropertiesQuery(watchFilter, boolQueryBuilder);
         buildRangeQueries(watchFilter, boolQueryBuilder);
         sourceBuilder.query(boolQueryBuilder);
-        SearchRequest request = new SearchRequest(stateIndexName).source(sourceBuilder);
-        return privilegedConfigClient.search(request).actionGet();
+        return sourceBuilder;
+    }
+
+    static String encodeCursor(Object[] sortValues) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(DocWriter.json().writeAsString(Arrays.asList(sortValues)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            Object sortValues = DocReader.json().read(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (!(sortValues instanceof List)) {
+                throw new ElasticsearchStatusException("Invalid cursor", RestStatus.BAD_REQUEST);
+            }
+            return ((List<?>) sortValues).toArray();
+        } catch (IllegalArgumentException | ConfigValidationException e) {
+            throw new ElasticsearchStatusException("Invalid cursor", RestStatus.BAD_REQUEST, e);
+        }
     }
 
     private static void buildRangeQueries(WatchFilter watchFilter, BoolQueryBuilder boolQueryBuilder) {
@@ -106,7 +165,7 @@ class WatchStateRepository {
     private static void buildActionsNamesQuery(WatchFilter watchFilter, BoolQueryBuilder boolQueryBuilder) {
         if(watchFilter.containsActions()) {
             BoolQueryBuilder orQueryBuilder = QueryBuilders.boolQuery();
-            for(String action : watchFilter.getActionNames()) {
+            for(String action : new TreeSet<>(watchFilter.getActionNames())) {
                 ExistsQueryBuilder existsQuery = QueryBuilders.existsQuery(ACTIONS_PREFIX + action);
                 orQueryBuilder.should(existsQuery);
             }
@@ -135,7 +194,7 @@ class WatchStateRepository {
     private static void buildSeverityQuery(WatchFilter watchFilter, BoolQueryBuilder boolQueryBuilder) {
         if(watchFilter.containsSeverities()) {
             BoolQueryBuilder orQueryBuilder = QueryBuilders.boolQuery();
-            for(String severity : watchFilter.getSeverities()) {
+            for(String severity : new TreeSet<>(watchFilter.getSeverities())) {
                 TermQueryBuilder query = QueryBuilders.termQuery("last_status.severity", severity);
                 orQueryBuilder.should(query);
             }
@@ -153,7 +212,7 @@ class WatchStateRepository {
     private static void buildStatusCodeQuery(WatchFilter watchFilter, BoolQueryBuilder boolQueryBuilder) {
         if(watchFilter.containsWatchStatusFilter()) {
             BoolQueryBuilder orQueryBuilder = QueryBuilders.boolQuery();
-            for(String status : watchFilter.getWatchStatusCodes()) {
+            for(String status : new TreeSet<>(watchFilter.getWatchStatusCodes())) {
                 TermQueryBuilder query = QueryBuilders.termQuery(SummaryToWatchFieldMapper.getSearchFieldName("status_code"), status);
                 orQueryBuilder.should(query);
             }
@@ -161,17 +220,38 @@ class WatchStateRepository {
         }
     }
 
-    private GetMappingsResponse getMappings() {
-        ActionFuture<GetMappingsResponse> mappings =
-            privilegedConfigClient.admin().indices().getMappings(new GetMappingsRequest().indices(stateIndexName));
-        return mappings.actionGet();
+    private DocNode getFieldsDefinedInMappings() {
+        IndexMetadata indexMetadata = clusterService.state().metadata().index(stateIndexName);
+        if (indexMetadata == null) {
+            return DocNode.EMPTY;
+        }
+        MappedFields mappedFields = this.mappedFields;
+        if (mappedFields != null && mappedFields.isCurrent(indexMetadata)) {
+            return mappedFields.properties;
+        }
+        mappedFields = new MappedFields(indexMetadata, extractFieldNames(indexMetadata.mapping()));
+        this.mappedFields = mappedFields;
+        return mappedFields.properties;
     }
 
-    private DocNode extractFieldNames(GetMappingsResponse response) {
-        try {
-            return DocNode.wrap(response.mappings().get(stateIndexName).get("_doc").sourceAsMap().get(PROP));
-        } catch (NullPointerException npe) {
-            return DocNode.EMPTY;
+    private DocNode extractFieldNames(MappingMetadata mapping) {
+        Object properties = mapping != null ? mapping.sourceAsMap().get(PROP) : null;
+        return properties instanceof Map ? DocNode.wrap(properties) : DocNode.EMPTY;
+    }
+
+    private static class MappedFields {
+        private final String indexUuid;
+        private final long mappingVersion;
+        private final DocNode properties;
+
+        MappedFields(IndexMetadata indexMetadata, DocNode properties) {
+            this.indexUuid = indexMetadata.getIndexUUID();
+            this.mappingVersion = indexMetadata.getMappingVersion();
+            this.properties = properties;
+        }
+
+        boolean isCurrent(IndexMetadata indexMetadata) {
+            return mappingVersion == indexMetadata.getMappingVersion() && indexUuid.equals(indexMetadata.getIndexUUID());
         }
     }
 
@@ -228,7 +228,7 @@ public class TransportExecuteWatchAction extends HandledTransportAction<ExecuteW
 
         WatchRunner watchRunner = new WatchRunner(watch, client, signals.getAccountRegistry(), scriptService, watchLogWriter, null, diagnosticContext,
                 null, ExecutionEnvironment.TEST, request.getSimulationMode(), xContentRegistry, signals.getSignalsSettings(),
-                clusterService.getNodeName(), checkSelector, input, signals.getTruststoreRegistry());
+                clusterService.getNodeName(), checkSelector, input, signals.getTruststoreRegistry(), null);
 
         try {
             WatchLog watchLog = watchRunner.execute();
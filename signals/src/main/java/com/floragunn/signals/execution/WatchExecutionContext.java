@@ -27,6 +27,7 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
 
 import com.floragunn.signals.accounts.AccountRegistry;
+import com.floragunn.signals.watch.action.handlers.IndexActionBulkCoalescer;
 import com.floragunn.signals.watch.action.invokers.ActionInvocationType;
 import com.floragunn.signals.watch.action.invokers.ActionInvoker;
 import com.floragunn.signals.watch.common.HttpEndpointWhitelist;
@@ -49,6 +50,7 @@ public class WatchExecutionContext {
     private final String frontendBaseUrl;
     private final ActionInvoker actionInvoker;
     private final TrustManagerRegistry trustManagerRegistry;
+    private final IndexActionBulkCoalescer indexActionBulkCoalescer;
     
     public Map<String, Object> getMetadata() {
         return metadata;
@@ -65,6 +67,16 @@ public class WatchExecutionContext {
             ExecutionEnvironment executionEnvironment, ActionInvocationType actionInvocationType, WatchExecutionContextData contextData,
             WatchExecutionContextData resolvedContextData, SimulationMode simulationMode, HttpEndpointWhitelist httpEndpointWhitelist,
         HttpProxyConfig httpProxyConfig, String frontendBaseUrl, ActionInvoker actionInvoker, TrustManagerRegistry trustManagerRegistry) {
+        this(client, scriptService, xContentRegistry, accountRegistry, executionEnvironment, actionInvocationType, contextData,
+                resolvedContextData, simulationMode, httpEndpointWhitelist, httpProxyConfig, frontendBaseUrl, actionInvoker, trustManagerRegistry,
+                null);
+    }
+
+    public WatchExecutionContext(Client client, ScriptService scriptService, NamedXContentRegistry xContentRegistry, AccountRegistry accountRegistry,
+            ExecutionEnvironment executionEnvironment, ActionInvocationType actionInvocationType, WatchExecutionContextData contextData,
+            WatchExecutionContextData resolvedContextData, SimulationMode simulationMode, HttpEndpointWhitelist httpEndpointWhitelist,
+            HttpProxyConfig httpProxyConfig, String frontendBaseUrl, ActionInvoker actionInvoker, TrustManagerRegistry trustManagerRegistry,
+            IndexActionBulkCoalescer indexActionBulkCoalescer) {
         this.client = client;
         this.scriptService = scriptService;
         this.xContentRegistry = xContentRegistry;
@@ -80,6 +92,7 @@ public class WatchExecutionContext {
         this.frontendBaseUrl = frontendBaseUrl;
         this.actionInvoker = actionInvoker;
         this.trustManagerRegistry = Objects.requireNonNull(trustManagerRegistry, "Trust manager registry is required");
+        this.indexActionBulkCoalescer = indexActionBulkCoalescer;
     }
 
     public Client getClient() {
@@ -106,6 +119,13 @@ public class WatchExecutionContext {
         return trustManagerRegistry;
     }
 
+    /**
+     * Returns the coalescer which index actions shall use for writing documents; null if index actions shall send their own requests.
+     */
+    public IndexActionBulkCoalescer getIndexActionBulkCoalescer() {
+        return indexActionBulkCoalescer;
+    }
+
     public WatchExecutionContextData getContextData() {
         return contextData;
     }
@@ -139,19 +159,19 @@ public class WatchExecutionContext {
     public WatchExecutionContext with(WatchExecutionContextData contextData, ActionInvoker actionInvoker) {
         return new WatchExecutionContext(client, scriptService, xContentRegistry, accountRegistry, executionEnvironment, actionInvocationType,
                 contextData, resolvedContextData, simulationMode, httpEndpointWhitelist, httpProxyConfig, frontendBaseUrl, actionInvoker,
-                trustManagerRegistry);
+                trustManagerRegistry, indexActionBulkCoalescer);
     }
 
     public WatchExecutionContext with(ActionInvocationType actionInvocationType) {
         return new WatchExecutionContext(client, scriptService, xContentRegistry, accountRegistry, executionEnvironment, actionInvocationType,
                 contextData, resolvedContextData, simulationMode, httpEndpointWhitelist, httpProxyConfig, frontendBaseUrl, actionInvoker,
-                trustManagerRegistry);
+                trustManagerRegistry, indexActionBulkCoalescer);
     }
 
     public WatchExecutionContext clone() {
         return new WatchExecutionContext(client, scriptService, xContentRegistry, accountRegistry, executionEnvironment, actionInvocationType,
                 contextData != null ? contextData.clone() : null, resolvedContextData != null ? resolvedContextData.clone() : null, simulationMode,
-                httpEndpointWhitelist, httpProxyConfig, frontendBaseUrl, actionInvoker, trustManagerRegistry);
+                httpEndpointWhitelist, httpProxyConfig, frontendBaseUrl, actionInvoker, trustManagerRegistry, indexActionBulkCoalescer);
     }
 
     public WatchExecutionContextData getResolvedContextData() {
@@ -45,6 +45,7 @@ import com.floragunn.signals.settings.SignalsSettings;
 import com.floragunn.signals.support.NestedValueMap;
 import com.floragunn.signals.watch.Watch;
 import com.floragunn.signals.watch.action.handlers.ActionExecutionResult;
+import com.floragunn.signals.watch.action.handlers.IndexActionBulkCoalescer;
 import com.floragunn.signals.watch.action.invokers.ActionInvocationType;
 import com.floragunn.signals.watch.action.invokers.ActionInvoker;
 import com.floragunn.signals.watch.action.invokers.AlertAction;
@@ -100,7 +101,7 @@ public class WatchRunner implements Job {
             WatchStateWriter<?> watchStateWriter, DiagnosticContext diagnosticContext, WatchState watchState,
             ExecutionEnvironment executionEnvironment, SimulationMode simulationMode, NamedXContentRegistry xContentRegistry,
             SignalsSettings signalsSettings, String nodeName, GotoCheckSelector checkSelector, NestedValueMap input,
-            TrustManagerRegistry trustManagerRegistry) {
+            TrustManagerRegistry trustManagerRegistry, IndexActionBulkCoalescer indexActionBulkCoalescer) {
         this.watch = watch;
         this.client = client;
         this.scriptService = scriptService;
@@ -114,7 +115,7 @@ public class WatchRunner implements Job {
                 ActionInvocationType.ALERT, this.contextData, watchState != null ? watchState.getLastExecutionContextData() : null, simulationMode,
                 new HttpEndpointWhitelist(signalsSettings.getDynamicSettings().getAllowedHttpEndpoints()),
                 signalsSettings.getDynamicSettings().getHttpProxyConfig(), signalsSettings.getDynamicSettings().getFrontendBaseUrl(), null,
-                trustManagerRegistry);
+                trustManagerRegistry, indexActionBulkCoalescer);
         this.watchLog.setWatchId(watch.getId());
         this.watchLog.setWatchVersion(watch.getVersion());
         this.signalsSettings = signalsSettings;
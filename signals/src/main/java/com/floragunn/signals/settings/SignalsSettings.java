@@ -534,6 +534,16 @@ public class SignalsSettings {
         public static StaticSettings.Attribute<Boolean> ACTIVE_BY_DEFAULT =  StaticSettings.Attribute.define("signals.all_tenants_active_by_default").withDefault(true).asBoolean();
         public static StaticSettings.Attribute<String> WATCH_LOG_REFRESH_POLICY =  StaticSettings.Attribute.define("signals.watch_log.refresh_policy").withDefault((String) null).asString();
         public static StaticSettings.Attribute<Boolean> WATCH_LOG_SYNC_INDEXING =  StaticSettings.Attribute.define("signals.watch_log.sync_indexing").withDefault(false).asBoolean();
+        public static StaticSettings.Attribute<TimeValue> OPERATOR_SUMMARY_CACHE_TTL = StaticSettings.Attribute
+                .define("signals.operator_summary.cache.ttl").withDefault(TimeValue.timeValueSeconds(1)).asTimeValue();
+        public static StaticSettings.Attribute<Integer> OPERATOR_SUMMARY_CACHE_MAX_ENTRIES = StaticSettings.Attribute
+                .define("signals.operator_summary.cache.max_entries").withDefault(100).asInteger();
+        public static StaticSettings.Attribute<Boolean> INDEX_ACTION_BULK_COALESCING_ENABLED = StaticSettings.Attribute
+                .define("signals.index_action.bulk_coalescing.enabled").withDefault(false).asBoolean();
+        public static StaticSettings.Attribute<Integer> INDEX_ACTION_BULK_COALESCING_MAX_ACTIONS = StaticSettings.Attribute
+                .define("signals.index_action.bulk_coalescing.max_actions").withDefault(500).asInteger();
+        public static StaticSettings.Attribute<TimeValue> INDEX_ACTION_BULK_COALESCING_MAX_DELAY = StaticSettings.Attribute
+                .define("signals.index_action.bulk_coalescing.max_delay").withDefault(TimeValue.timeValueMillis(5)).asTimeValue();
 
         public static class IndexNames {
 
@@ -581,7 +591,8 @@ public class SignalsSettings {
 
         public static StaticSettings.AttributeSet  getAvailableSettings() {
             return StaticSettings.AttributeSet.of(ENABLED, ENTERPRISE_ENABLED, MAX_THREADS, THREAD_KEEP_ALIVE, THREAD_PRIO, ACTIVE_BY_DEFAULT,
-                    WATCH_LOG_REFRESH_POLICY, WATCH_LOG_SYNC_INDEXING, IndexNames.WATCHES, IndexNames.WATCHES_STATE, IndexNames.WATCHES_TRIGGER_STATE,
+                    WATCH_LOG_REFRESH_POLICY, WATCH_LOG_SYNC_INDEXING, OPERATOR_SUMMARY_CACHE_TTL, OPERATOR_SUMMARY_CACHE_MAX_ENTRIES,
+                    INDEX_ACTION_BULK_COALESCING_ENABLED, INDEX_ACTION_BULK_COALESCING_MAX_ACTIONS, INDEX_ACTION_BULK_COALESCING_MAX_DELAY, IndexNames.WATCHES, IndexNames.WATCHES_STATE, IndexNames.WATCHES_TRIGGER_STATE,
                     IndexNames.ACCOUNTS, IndexNames.LOG);
         }
 
@@ -640,6 +651,26 @@ public class SignalsSettings {
         public boolean isWatchLogSyncIndexingEnabled() {
             return settings.get(WATCH_LOG_SYNC_INDEXING);
         }
+
+        public Duration getOperatorSummaryCacheTtl() {
+            return Duration.ofMillis(settings.get(OPERATOR_SUMMARY_CACHE_TTL).millis());
+        }
+
+        public int getOperatorSummaryCacheMaxEntries() {
+            return settings.get(OPERATOR_SUMMARY_CACHE_MAX_ENTRIES);
+        }
+
+        public boolean isIndexActionBulkCoalescingEnabled() {
+            return settings.get(INDEX_ACTION_BULK_COALESCING_ENABLED);
+        }
+
+        public int getIndexActionBulkCoalescingMaxActions() {
+            return settings.get(INDEX_ACTION_BULK_COALESCING_MAX_ACTIONS);
+        }
+
+        public TimeValue getIndexActionBulkCoalescingMaxDelay() {
+            return settings.get(INDEX_ACTION_BULK_COALESCING_MAX_DELAY);
+        }
     }
 
     public static interface ChangeListener {
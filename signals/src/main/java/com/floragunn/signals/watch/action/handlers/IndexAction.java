@@ -1,14 +1,19 @@
 package com.floragunn.signals.watch.action.handlers;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
@@ -68,6 +73,23 @@ public class IndexAction extends ActionHandler {
 
         try {
 
+            IndexActionBulkCoalescer bulkCoalescer = ctx.getIndexActionBulkCoalescer();
+
+            if (bulkCoalescer != null && ctx.getSimulationMode() == SimulationMode.FOR_REAL) {
+                IndexRequest indexRequest = createIndexRequest(ctx, data, null);
+                BulkResponse response = bulkCoalescer.bulk(Collections.singletonList(indexRequest), this.refreshPolicy, getTimeout());
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Result of " + this + ":\n" + Strings.toString(response));
+                }
+
+                if (response.hasFailures()) {
+                    throw new ActionExecutionException(this, "Indexing failed: " + response.buildFailureMessage());
+                }
+
+                return new ActionExecutionResult(indexRequest);
+            }
+
             IndexRequest indexRequest = createIndexRequest(ctx, data, this.refreshPolicy);
 
             if (ctx.getSimulationMode() == SimulationMode.FOR_REAL) {
@@ -79,6 +101,8 @@ public class IndexAction extends ActionHandler {
             }
 
             return new ActionExecutionResult(indexRequest);
+        } catch (TimeoutException e) {
+            throw new ActionExecutionException(this, "Timeout while waiting for the bulk response", e);
         } catch (IOException | InterruptedException | ExecutionException e) {
             throw new ActionExecutionException(this, e);
         }
@@ -102,7 +126,14 @@ public class IndexAction extends ActionHandler {
             }
 
             if (ctx.getSimulationMode() == SimulationMode.FOR_REAL) {
-                BulkResponse response = ctx.getClient().bulk(bulkRequest).get();
+                IndexActionBulkCoalescer bulkCoalescer = ctx.getIndexActionBulkCoalescer();
+                BulkResponse response;
+
+                if (bulkCoalescer != null && bulkRequest.numberOfActions() != 0) {
+                    response = bulkCoalescer.bulk(indexRequests(bulkRequest), refreshPolicy, getTimeout());
+                } else {
+                    response = ctx.getClient().bulk(bulkRequest).get();
+                }
 
                 if (log.isDebugEnabled()) {
                     log.debug("Result of " + this + ":\n" + Strings.toString(response));
@@ -115,6 +146,8 @@ public class IndexAction extends ActionHandler {
 
             return new ActionExecutionResult(bulkRequest);
 
+        } catch (TimeoutException e) {
+            throw new ActionExecutionException(this, "Timeout while waiting for the bulk response", e);
         } catch (IOException | InterruptedException | ExecutionException e) {
             throw new ActionExecutionException(this, e);
         }
@@ -144,7 +177,7 @@ public class IndexAction extends ActionHandler {
             indexRequest.id(docId);
         }
 
-        indexRequest.timeout(new TimeValue(timeout != null ? timeout : 60, TimeUnit.SECONDS));
+        indexRequest.timeout(getTimeout());
 
         if (refreshPolicy != null) {
             indexRequest.setRefreshPolicy(refreshPolicy);
@@ -157,6 +190,20 @@ public class IndexAction extends ActionHandler {
         return indexRequest;
     }
 
+    private TimeValue getTimeout() {
+        return new TimeValue(timeout != null ? timeout : 60, TimeUnit.SECONDS);
+    }
+
+    private static List<IndexRequest> indexRequests(BulkRequest bulkRequest) {
+        List<IndexRequest> result = new ArrayList<>(bulkRequest.numberOfActions());
+
+        for (DocWriteRequest<?> request : bulkRequest.requests()) {
+            result.add((IndexRequest) request);
+        }
+
+        return result;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
 
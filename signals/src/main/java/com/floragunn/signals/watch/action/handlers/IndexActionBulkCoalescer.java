@@ -0,0 +1,335 @@
+package com.floragunn.signals.watch.action.handlers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import com.floragunn.fluent.collections.ImmutableMap;
+import com.floragunn.searchguard.internalauthtoken.InternalAuthTokenProvider;
+import com.floragunn.searchsupport.cstate.ComponentState;
+import com.floragunn.searchsupport.cstate.ComponentStateProvider;
+import com.floragunn.searchsupport.cstate.metrics.Count;
+
+/**
+ * Merges the documents written by concurrently executed index actions into shared bulk requests. A bulk request is sent when it contains
+ * max_actions documents or when max_delay has passed since the first document was added to it. Afterwards, each index action gets the
+ * responses for its own documents.
+ *
+ * Documents are only merged if they target the same index, use the same refresh policy and timeout and are submitted with the same privileges.
+ * For watches, the privileges are defined by the internal auth token in the thread context headers. The token is verified for each submission;
+ * documents submitted with tokens of the same user and with the same roles are merged and written using the token of one of these submissions.
+ * Without a valid auth token, documents are only merged if all thread context headers are equal. Thus, documents are never written with
+ * privileges other than the ones of the watch that created them. The refresh policy is applied once per bulk request.
+ */
+public class IndexActionBulkCoalescer implements ComponentStateProvider {
+    private static final Logger log = LogManager.getLogger(IndexActionBulkCoalescer.class);
+
+    private final Client client;
+    private final ThreadPool threadPool;
+    private final InternalAuthTokenProvider internalAuthTokenProvider;
+    private final int maxActions;
+    private final TimeValue maxDelay;
+    private final Map<BatchKey, Batch> openBatches = new HashMap<>();
+
+    private final ComponentState componentState = new ComponentState(10, null, "index_action_bulk_coalescer", IndexActionBulkCoalescer.class)
+            .initialized();
+    private final AtomicLong submissions = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong bulkRequests = new AtomicLong();
+    private final AtomicLong failedBulkRequests = new AtomicLong();
+    private final AtomicLong timedOutSubmissions = new AtomicLong();
+
+    public IndexActionBulkCoalescer(Client client, ThreadPool threadPool, InternalAuthTokenProvider internalAuthTokenProvider, int maxActions,
+            TimeValue maxDelay) {
+        this.client = Objects.requireNonNull(client, "Client is required");
+        this.threadPool = Objects.requireNonNull(threadPool, "Thread pool is required");
+        this.internalAuthTokenProvider = internalAuthTokenProvider;
+        this.maxActions = maxActions;
+        this.maxDelay = maxDelay;
+
+        this.componentState.addMetrics("submissions", new Count.Live(submissions::get));
+        this.componentState.addMetrics("documents", new Count.Live(documents::get));
+        this.componentState.addMetrics("bulk_requests", new Count.Live(bulkRequests::get));
+        this.componentState.addMetrics("failed_bulk_requests", new Count.Live(failedBulkRequests::get));
+        this.componentState.addMetrics("timed_out_submissions", new Count.Live(timedOutSubmissions::get));
+        // Average number of index action executions per bulk request, multiplied by 100
+        this.componentState.addMetrics("merge_ratio_percent", new Count.Live(() -> {
+            long bulkRequestCount = bulkRequests.get();
+            return bulkRequestCount != 0 ? submissions.get() * 100 / bulkRequestCount : 0;
+        }));
+    }
+
+    /**
+     * Adds the given requests to shared bulk requests and waits for their completion. The requests must not have a refresh policy. If the bulk
+     * requests do not complete within max_delay plus twice the given timeout, a TimeoutException is thrown.
+     *
+     * @return a bulk response which only contains the items for the given requests, in the same order.
+     */
+    public BulkResponse bulk(List<IndexRequest> requests, RefreshPolicy refreshPolicy, TimeValue timeout)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Objects.requireNonNull(timeout, "Timeout is required");
+
+        ThreadContext threadContext = threadPool.getThreadContext();
+        Principal principal = getPrincipal(threadContext);
+        Map<String, List<Integer>> positionsByIndex = new LinkedHashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            positionsByIndex.computeIfAbsent(requests.get(i).index(), (k) -> new ArrayList<>()).add(i);
+        }
+
+        List<Batch> batchesToSend = new ArrayList<>();
+        List<Submission> parts = new ArrayList<>(positionsByIndex.size());
+
+        synchronized (this) {
+            for (Map.Entry<String, List<Integer>> entry : positionsByIndex.entrySet()) {
+                BatchKey key = new BatchKey(principal, entry.getKey(), refreshPolicy != null ? refreshPolicy : RefreshPolicy.NONE, timeout);
+                Batch batch = openBatches.get(key);
+
+                if (batch == null) {
+                    batch = new Batch(key, threadContext.newRestorableContext(false));
+                    openBatches.put(key, batch);
+                    scheduleSend(batch);
+                }
+
+                parts.add(batch.add(requests, entry.getValue()));
+
+                if (batch.bulkRequest.numberOfActions() >= maxActions) {
+                    openBatches.remove(key);
+                    batchesToSend.add(batch);
+                }
+            }
+        }
+
+        submissions.incrementAndGet();
+        documents.addAndGet(requests.size());
+
+        for (Batch batch : batchesToSend) {
+            batch.send();
+        }
+
+        long deadline = System.nanoTime() + maxDelay.nanos() + 2 * timeout.nanos();
+        BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+        long tookInMillis = 0;
+
+        try {
+            for (Submission part : parts) {
+                BulkResponse partResponse = part.result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+                BulkItemResponse[] partItems = partResponse.getItems();
+
+                for (int i = 0; i < part.positions.size(); i++) {
+                    items[part.positions.get(i)] = partItems[i];
+                }
+
+                tookInMillis = Math.max(tookInMillis, partResponse.getTook().millis());
+            }
+        } catch (TimeoutException e) {
+            timedOutSubmissions.incrementAndGet();
+            throw e;
+        }
+
+        return new BulkResponse(items, tookInMillis);
+    }
+
+    private Principal getPrincipal(ThreadContext threadContext) {
+        String authToken = threadContext.getHeader(InternalAuthTokenProvider.TOKEN_HEADER);
+        String authTokenAudience = threadContext.getHeader(InternalAuthTokenProvider.AUDIENCE_HEADER);
+
+        if (internalAuthTokenProvider != null && authToken != null && authTokenAudience != null && !authToken.isEmpty()
+                && !authTokenAudience.isEmpty()) {
+            ImmutableMap<String, Object> privilegeClaims = internalAuthTokenProvider.getPrivilegeClaims(authToken, authTokenAudience);
+
+            if (privilegeClaims != null) {
+                return new Principal(privilegeClaims, null);
+            }
+        }
+
+        return new Principal(null, threadContext.getHeaders());
+    }
+
+    private void scheduleSend(Batch batch) {
+        threadPool.schedule(() -> {
+            synchronized (this) {
+                if (openBatches.get(batch.key) != batch) {
+                    // Already sent because max_actions was reached
+                    return;
+                }
+
+                openBatches.remove(batch.key);
+            }
+
+            batch.send();
+        }, maxDelay, ThreadPool.Names.GENERIC);
+    }
+
+    @Override
+    public ComponentState getComponentState() {
+        return componentState;
+    }
+
+    private class Batch {
+        private final BatchKey key;
+        private final Supplier<StoredContext> context;
+        private final BulkRequest bulkRequest = new BulkRequest();
+        private final List<Submission> submissions = new ArrayList<>();
+
+        Batch(BatchKey key, Supplier<StoredContext> context) {
+            this.key = key;
+            this.context = context;
+            this.bulkRequest.setRefreshPolicy(key.refreshPolicy);
+            this.bulkRequest.timeout(key.timeout);
+        }
+
+        Submission add(List<IndexRequest> requests, List<Integer> positions) {
+            Submission submission = new Submission(bulkRequest.numberOfActions(), positions);
+
+            for (Integer position : positions) {
+                bulkRequest.add(requests.get(position));
+            }
+
+            submissions.add(submission);
+            return submission;
+        }
+
+        void send() {
+            bulkRequests.incrementAndGet();
+
+            if (log.isDebugEnabled()) {
+                log.debug("Sending bulk request with " + bulkRequest.numberOfActions() + " documents of " + submissions.size()
+                        + " index actions to " + key.index);
+            }
+
+            try (StoredContext storedContext = context.get()) {
+                client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
+
+                    @Override
+                    public void onResponse(BulkResponse response) {
+                        BulkItemResponse[] items = response.getItems();
+
+                        for (Submission submission : submissions) {
+                            BulkItemResponse[] submissionItems = new BulkItemResponse[submission.positions.size()];
+                            System.arraycopy(items, submission.offset, submissionItems, 0, submissionItems.length);
+                            submission.result.complete(new BulkResponse(submissionItems, response.getTook().millis()));
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        failedBulkRequests.incrementAndGet();
+
+                        for (Submission submission : submissions) {
+                            submission.result.completeExceptionally(e);
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                failedBulkRequests.incrementAndGet();
+
+                for (Submission submission : submissions) {
+                    submission.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The documents of one index action execution which were added to one batch.
+     */
+    private static class Submission {
+        private final int offset;
+        private final List<Integer> positions;
+        private final CompletableFuture<BulkResponse> result = new CompletableFuture<>();
+
+        Submission(int offset, List<Integer> positions) {
+            this.offset = offset;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Identifies the privileges documents are submitted with: either the privilege claims of a verified auth token or, if there is none, all thread
+     * context headers.
+     */
+    private static class Principal {
+        private final ImmutableMap<String, Object> privilegeClaims;
+        private final Map<String, String> headers;
+
+        Principal(ImmutableMap<String, Object> privilegeClaims, Map<String, String> headers) {
+            this.privilegeClaims = privilegeClaims;
+            this.headers = headers;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(privilegeClaims, headers);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Principal)) {
+                return false;
+            }
+            Principal other = (Principal) obj;
+            return Objects.equals(privilegeClaims, other.privilegeClaims) && Objects.equals(headers, other.headers);
+        }
+    }
+
+    private static class BatchKey {
+        private final Principal principal;
+        private final String index;
+        private final RefreshPolicy refreshPolicy;
+        private final TimeValue timeout;
+        private final int hashCode;
+
+        BatchKey(Principal principal, String index, RefreshPolicy refreshPolicy, TimeValue timeout) {
+            this.principal = principal;
+            this.index = index;
+            this.refreshPolicy = refreshPolicy;
+            this.timeout = timeout;
+            this.hashCode = Objects.hash(principal, index, refreshPolicy, timeout);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+            BatchKey other = (BatchKey) obj;
+            return principal.equals(other.principal) && Objects.equals(index, other.index) && refreshPolicy == other.refreshPolicy
+                    && timeout.equals(other.timeout);
+        }
+    }
+}
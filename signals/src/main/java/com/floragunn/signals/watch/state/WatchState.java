@@ -48,6 +48,16 @@ import com.floragunn.signals.watch.severity.SeverityLevel;
 public class WatchState implements ToXContentObject {
     private static final Logger log = LogManager.getLogger(WatchState.class);
 
+    /**
+     * Keyword copy of the document id. Unlike _id, this field has doc values and can thus be used as a tie breaker for sorting.
+     */
+    public static final String DOC_ID_FIELD = "_doc_id";
+
+    /**
+     * The XContent param which provides the value of DOC_ID_FIELD to toXContent()
+     */
+    public static final String DOC_ID_PARAM = "doc_id";
+
     private Map<String, ActionState> actions = new ConcurrentHashMap<>();
     private volatile WatchExecutionContextData lastExecutionContextData;
     private final String tenant;
@@ -131,6 +141,12 @@ public class WatchState implements ToXContentObject {
 
         builder.field("_tenant", tenant);
 
+        String docId = params.param(DOC_ID_PARAM);
+
+        if (docId != null) {
+            builder.field(DOC_ID_FIELD, docId);
+        }
+
         builder.startObject("actions");
 
         for (Map.Entry<String, ActionState> entry : this.actions.entrySet()) {
@@ -207,6 +223,15 @@ public class WatchState implements ToXContentObject {
         result.put(new NestedValueMap.Path("properties", "last_execution", "properties", "data", "type"), "object");
         result.put(new NestedValueMap.Path("properties", "last_execution", "properties", "data", "dynamic"), true);
         result.put(new NestedValueMap.Path("properties", "last_execution", "properties", "data", "enabled"), false);
+        result.put(new NestedValueMap.Path("properties", DOC_ID_FIELD, "type"), "keyword");
+
+        return result;
+    }
+
+    public static Map<String, Object> getIndexMappingUpdate() {
+        NestedValueMap result = new NestedValueMap();
+
+        result.put(new NestedValueMap.Path("properties", DOC_ID_FIELD, "type"), "keyword");
 
         return result;
     }
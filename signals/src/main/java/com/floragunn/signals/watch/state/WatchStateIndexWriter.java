@@ -1,6 +1,7 @@
 package com.floragunn.signals.watch.state;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.logging.log4j.LogManager;
@@ -95,7 +96,7 @@ public class WatchStateIndexWriter implements WatchStateWriter<IndexResponse> {
                 indexRequest.opType(opType);
             }
             
-            watchState.toXContent(jsonBuilder, ToXContent.EMPTY_PARAMS);
+            watchState.toXContent(jsonBuilder, new ToXContent.MapParams(Collections.singletonMap(WatchState.DOC_ID_PARAM, indexRequest.id())));
             indexRequest.source(jsonBuilder);
             indexRequest.setRefreshPolicy(refreshPolicy);
 
@@ -7,9 +7,14 @@ import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.floragunn.codova.documents.DocWriter;
 import com.floragunn.codova.validation.ValidatingDocNode;
@@ -17,6 +22,7 @@ import com.floragunn.codova.validation.ValidationErrors;
 import com.floragunn.searchsupport.proxy.wiremock.WireMockRequestHeaderAddingFilter;
 import com.floragunn.signals.execution.ActionExecutionException;
 import com.floragunn.signals.execution.ExecutionEnvironment;
+import com.floragunn.signals.execution.SimulationMode;
 import com.floragunn.signals.execution.WatchExecutionContext;
 import com.floragunn.signals.execution.WatchExecutionContextData;
 import com.floragunn.signals.proxy.service.HttpProxyHostRegistry;
@@ -32,12 +38,23 @@ import com.floragunn.signals.truststore.service.TrustManagerRegistry;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpHost;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.FilterClient;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.common.util.concurrent.ThreadContext.StoredContext;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.xcontent.NamedXContentRegistry;
 import org.elasticsearch.xcontent.XContentType;
 import org.junit.Assert;
@@ -55,15 +72,18 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import com.floragunn.codova.documents.DocNode;
 import com.floragunn.codova.documents.Format;
 import com.floragunn.codova.validation.ConfigValidationException;
+import com.floragunn.searchguard.internalauthtoken.InternalAuthTokenProvider;
 import com.floragunn.searchguard.test.helper.cluster.FileHelper;
 import com.floragunn.searchguard.test.helper.cluster.JavaSecurityTestSetup;
 import com.floragunn.searchguard.test.helper.cluster.LocalCluster;
 import com.floragunn.searchguard.test.helper.network.SocketUtils;
+import com.floragunn.searchguard.user.User;
 import com.floragunn.signals.accounts.AccountRegistry;
 import com.floragunn.signals.support.InlineMustacheTemplate;
 import com.floragunn.signals.support.NestedValueMap;
 import com.floragunn.signals.watch.action.handlers.ActionExecutionResult;
 import com.floragunn.signals.watch.action.handlers.IndexAction;
+import com.floragunn.signals.watch.action.handlers.IndexActionBulkCoalescer;
 import com.floragunn.signals.watch.action.handlers.WebhookAction;
 import com.floragunn.signals.watch.action.handlers.email.EmailAccount;
 import com.floragunn.signals.watch.action.handlers.email.EmailAction;
@@ -1034,6 +1054,130 @@ public class ActionTest {
         }
     }
 
+    @Test
+    public void testIndexActionWithBulkCoalescer() throws Exception {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        try (Client client = cluster.getInternalNodeClient()) {
+            // The executions write 6 documents in total; thus, at least one bulk request is sent because of max_delay
+            IndexActionBulkCoalescer bulkCoalescer = new IndexActionBulkCoalescer(client, cluster.getInjectable(ThreadPool.class), null, 4,
+                    TimeValue.timeValueMillis(50));
+            IndexAction indexAction = new IndexAction("coalesced_index_action_sink", RefreshPolicy.IMMEDIATE);
+            List<Future<ActionExecutionResult>> results = new ArrayList<>();
+
+            for (int i = 1; i <= 4; i++) {
+                List<NestedValueMap> docs = new ArrayList<>();
+
+                for (int k = 1; k <= (i == 4 ? 1 : i % 2 + 1); k++) {
+                    NestedValueMap doc = new NestedValueMap();
+                    doc.put("_id", "doc_" + i + "_" + k);
+                    doc.put("a", "test_" + i + "_" + k);
+                    docs.add(doc);
+                }
+
+                NestedValueMap runtimeData = new NestedValueMap();
+                runtimeData.put("_doc", docs);
+
+                WatchExecutionContext ctx = new WatchExecutionContext(client, scriptService, xContentRegistry, null, ExecutionEnvironment.SCHEDULED,
+                        ActionInvocationType.ALERT, new WatchExecutionContextData(runtimeData), null, SimulationMode.FOR_REAL, null, null, null, null,
+                        trustManagerRegistry, bulkCoalescer);
+
+                results.add(executorService.submit(() -> indexAction.execute(ctx)));
+            }
+
+            for (Future<ActionExecutionResult> result : results) {
+                result.get();
+            }
+
+            for (String id : Arrays.asList("doc_1_1", "doc_1_2", "doc_2_1", "doc_3_1", "doc_3_2", "doc_4_1")) {
+                GetResponse getResponse = client.get(new GetRequest("coalesced_index_action_sink", id)).actionGet();
+                Assert.assertTrue(id, getResponse.isExists());
+                Assert.assertEquals(id.replace("doc", "test"), getResponse.getSource().get("a"));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testIndexActionWithBulkCoalescerAndAuthTokens() throws Exception {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        ThreadPool threadPool = cluster.getInjectable(ThreadPool.class);
+        InternalAuthTokenProvider internalAuthTokenProvider = cluster.getInjectable(InternalAuthTokenProvider.class);
+        User uhura = User.forUser("uhura").backendRoles("signals_admin", "all_access").build();
+        User redshirt = User.forUser("redshirt").backendRoles("redshirts").build();
+
+        // Like watches scheduled by AuthorizingJobDecorator, each execution gets the auth token of its watch
+        String tokenA = internalAuthTokenProvider.getJwt(uhura, "watch_a");
+        String tokenB = internalAuthTokenProvider.getJwt(uhura, "watch_b");
+        String tokenC = internalAuthTokenProvider.getJwt(redshirt, "watch_c");
+
+        try (Client client = cluster.getInternalNodeClient()) {
+            TokenRecordingClient recordingClient = new TokenRecordingClient(client);
+            // The documents of the executions with the tokens of uhura reach max_actions; the document of redshirt is sent because of max_delay
+            IndexActionBulkCoalescer bulkCoalescer = new IndexActionBulkCoalescer(recordingClient, threadPool, internalAuthTokenProvider, 3,
+                    TimeValue.timeValueMillis(500));
+            IndexAction indexAction = new IndexAction("coalesced_index_action_token_sink", RefreshPolicy.IMMEDIATE);
+            List<Future<ActionExecutionResult>> results = new ArrayList<>();
+
+            for (String[] execution : new String[][] { { tokenA, "watch_a", "doc_a_1", "doc_a_2" }, { tokenB, "watch_b", "doc_b_1" },
+                    { tokenC, "watch_c", "doc_c_1" } }) {
+                List<NestedValueMap> docs = new ArrayList<>();
+
+                for (int i = 2; i < execution.length; i++) {
+                    NestedValueMap doc = new NestedValueMap();
+                    doc.put("_id", execution[i]);
+                    doc.put("a", execution[i].replace("doc", "test"));
+                    docs.add(doc);
+                }
+
+                NestedValueMap runtimeData = new NestedValueMap();
+                runtimeData.put("_doc", docs);
+
+                WatchExecutionContext ctx = new WatchExecutionContext(client, scriptService, xContentRegistry, null, ExecutionEnvironment.SCHEDULED,
+                        ActionInvocationType.ALERT, new WatchExecutionContextData(runtimeData), null, SimulationMode.FOR_REAL, null, null, null, null,
+                        trustManagerRegistry, bulkCoalescer);
+
+                results.add(executorService.submit(() -> {
+                    ThreadContext threadContext = threadPool.getThreadContext();
+
+                    try (StoredContext storedContext = threadContext.stashContext()) {
+                        threadContext.putHeader(InternalAuthTokenProvider.TOKEN_HEADER, execution[0]);
+                        threadContext.putHeader(InternalAuthTokenProvider.AUDIENCE_HEADER, execution[1]);
+
+                        return indexAction.execute(ctx);
+                    }
+                }));
+            }
+
+            for (Future<ActionExecutionResult> result : results) {
+                result.get();
+            }
+
+            Assert.assertEquals(recordingClient.bulkRequests.toString(), 2, recordingClient.bulkRequests.size());
+
+            for (RecordedBulkRequest bulkRequest : recordingClient.bulkRequests) {
+                if (bulkRequest.ids.contains("doc_c_1")) {
+                    Assert.assertEquals(new HashSet<>(Arrays.asList("doc_c_1")), bulkRequest.ids);
+                    Assert.assertEquals(tokenC, bulkRequest.authToken);
+                } else {
+                    Assert.assertEquals(new HashSet<>(Arrays.asList("doc_a_1", "doc_a_2", "doc_b_1")), bulkRequest.ids);
+                    Assert.assertTrue(bulkRequest.authToken, tokenA.equals(bulkRequest.authToken) || tokenB.equals(bulkRequest.authToken));
+                }
+            }
+
+            for (String id : Arrays.asList("doc_a_1", "doc_a_2", "doc_b_1", "doc_c_1")) {
+                GetResponse getResponse = client.get(new GetRequest("coalesced_index_action_token_sink", id)).actionGet();
+                Assert.assertTrue(id, getResponse.isExists());
+                Assert.assertEquals(id.replace("doc", "test"), getResponse.getSource().get("a"));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     @Test
     public void testMultiDocIndexActionWithArray() throws Exception {
 
@@ -1994,4 +2138,51 @@ public class ActionTest {
         }
 
     }
+
+    /**
+     * Records the documents and the auth token header of bulk requests. The requests are then executed without the auth token, as the test
+     * cluster does not know the users of the tokens.
+     */
+    private static class TokenRecordingClient extends FilterClient {
+        private final List<RecordedBulkRequest> bulkRequests = Collections.synchronizedList(new ArrayList<>());
+
+        TokenRecordingClient(Client in) {
+            super(in);
+        }
+
+        @Override
+        protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(ActionType<Response> action, Request request,
+                ActionListener<Response> listener) {
+            ThreadContext threadContext = threadPool().getThreadContext();
+
+            if (request instanceof BulkRequest) {
+                Set<String> ids = new HashSet<>();
+
+                for (DocWriteRequest<?> docWriteRequest : ((BulkRequest) request).requests()) {
+                    ids.add(docWriteRequest.id());
+                }
+
+                bulkRequests.add(new RecordedBulkRequest(threadContext.getHeader(InternalAuthTokenProvider.TOKEN_HEADER), ids));
+            }
+
+            try (StoredContext storedContext = threadContext.stashContext()) {
+                super.doExecute(action, request, listener);
+            }
+        }
+    }
+
+    private static class RecordedBulkRequest {
+        private final String authToken;
+        private final Set<String> ids;
+
+        RecordedBulkRequest(String authToken, Set<String> ids) {
+            this.authToken = authToken;
+            this.ids = ids;
+        }
+
+        @Override
+        public String toString() {
+            return ids.toString();
+        }
+    }
 }
@@ -73,6 +73,7 @@ public class LoadOperatorSummaryActionTest {
     @ClassRule
     public static LocalCluster.Embedded cluster = new LocalCluster.Builder().singleNode()
         .sslEnabled()
+        .nodeSettings("signals.operator_summary.cache.ttl", "0s")
         .enableModule(SignalsModule.class)
         .user(USER_ADMIN)
         .dependsOn(javaSecurity)
@@ -342,6 +343,50 @@ public class LoadOperatorSummaryActionTest {
         }
     }
 
+    @Test
+    public void shouldLoadSummaryPageByPage() throws Exception {
+        PredefinedWatches predefinedWatches = new PredefinedWatches(cluster, USER_ADMIN, "_main");
+        predefinedWatches.defineTemperatureSeverityWatch("temp-1", INDEX_NAME_WATCHED_1, INDEX_ALARMS, .25, "createAlarm");
+        predefinedWatches.defineTemperatureSeverityWatch("temp-2", INDEX_NAME_WATCHED_3, INDEX_ALARMS, .25, "createAlarm");
+        predefinedWatches.defineTemperatureSeverityWatch("temp-3", INDEX_NAME_WATCHED_4, INDEX_ALARMS, .25, "createAlarm");
+        try (GenericRestClient restClient = cluster.getRestClient(USER_ADMIN)) {
+            await().until(() -> predefinedWatches.getCountOfDocuments(INDEX_ALARMS) > 2);
+            String sorting = "-severity_details.level_numeric";
+
+            HttpResponse response = restClient.postJson("/_signals/watch/_main/summary?sorting=" + sorting, DocNode.of("size", 2).toJsonString());
+
+            log.info("Watch summary response body '{}'.", response.getBody());
+            assertThat(response.getStatusCode(), equalTo(200));
+            DocNode body = response.getBodyAsDocNode();
+            assertThat(body, docNodeSizeEqualTo("data.watches", 2));
+            assertThat(body, containsValue("data.watches[0].watch_id", "temp-3"));
+            assertThat(body, containsValue("data.watches[1].watch_id", "temp-2"));
+            String cursor = body.getAsNode("data").getAsString("next_cursor");
+            assertThat(cursor, Matchers.notNullValue());
+
+            response = restClient.postJson("/_signals/watch/_main/summary?sorting=" + sorting, DocNode.of("size", 2, "cursor", cursor).toJsonString());
+
+            log.info("Watch summary response body '{}'.", response.getBody());
+            assertThat(response.getStatusCode(), equalTo(200));
+            body = response.getBodyAsDocNode();
+            assertThat(body, docNodeSizeEqualTo("data.watches", 1));
+            assertThat(body, containsValue("data.watches[0].watch_id", "temp-1"));
+            assertThat(body.getAsNode("data").getAsString("next_cursor"), Matchers.nullValue());
+        } finally {
+            predefinedWatches.deleteWatches();
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidCursor() throws Exception {
+        try (GenericRestClient restClient = cluster.getRestClient(USER_ADMIN)) {
+            HttpResponse response = restClient.postJson("/_signals/watch/_main/summary", DocNode.of("size", 2, "cursor", "not-a-cursor").toJsonString());
+
+            log.info("Watch summary response body '{}'.", response.getBody());
+            assertThat(response.getStatusCode(), equalTo(400));
+        }
+    }
+
     @Test
     public void shouldSortByNumericSeverityAsc() throws Exception {
         PredefinedWatches predefinedWatches = new PredefinedWatches(cluster, USER_ADMIN, "_main");
@@ -17,10 +17,16 @@
 
 package com.floragunn.signals.watch.state;
 
+import java.util.Collections;
+
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.xcontent.ToXContent;
+import org.elasticsearch.xcontent.XContentFactory;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.floragunn.codova.documents.DocNode;
+import com.floragunn.codova.documents.Format;
 import com.floragunn.signals.watch.result.Status;
 import com.floragunn.signals.watch.severity.SeverityLevel;
 
@@ -38,4 +44,19 @@ public class WatchStateTest {
         Assert.assertEquals(watchState.getTenant(), parsedWatchState.getTenant());
         Assert.assertEquals(watchState.getLastSeverityLevel(), parsedWatchState.getLastSeverityLevel());
     }
+
+    @Test
+    public void docIdParam() throws Exception {
+        WatchState watchState = new WatchState("test_tenant", "test_node");
+
+        DocNode withoutDocId = DocNode.parse(Format.JSON).from(Strings.toString(watchState));
+        Assert.assertFalse(withoutDocId.containsKey(WatchState.DOC_ID_FIELD));
+
+        DocNode withDocId = DocNode.parse(Format.JSON).from(Strings.toString(XContentFactory.jsonBuilder()
+                .value(watchState, new ToXContent.MapParams(Collections.singletonMap(WatchState.DOC_ID_PARAM, "test_tenant/test_watch")))));
+        Assert.assertEquals("test_tenant/test_watch", withDocId.getAsString(WatchState.DOC_ID_FIELD));
+
+        WatchState parsedWatchState = WatchState.createFrom("test_tenant", withDocId);
+        Assert.assertEquals(watchState.getNode(), parsedWatchState.getNode());
+    }
 }